@@ -34,14 +34,36 @@ import org.bytedeco.opencv.opencv_core.Mat;
 
 import java.nio.file.Path;
 
+/**
+ * OpenCV-based fallback for the image reader of the core module.
+ *
+ * <p>This class is not called from this module: it is the {@link MatReader} implementation, which
+ * the image reader of scichains-core calls when Java image I/O fails. Every such fallback is counted
+ * by {@link MatReaderRouting}. The format is detected by the file extension only, to avoid opening the file
+ * once more.</p>
+ *
+ * <p>Note: the files are not routed to OpenCV <i>before</i> Java image I/O yet: it requires a change in
+ * the scichains-core reader, which should consult {@link MatReaderRouting#preferredDecoder(Path)}.</p>
+ */
 public class DefaultMatReaderHelper implements MatReader {
     public void readMat(SMat result, Path path) throws UnsupportedImageFormatException {
         final String file = path.toAbsolutePath().toString();
-        Executor.LOG.log(System.Logger.Level.DEBUG, () -> "Java image I/O failed; reading " + file + " by OpenCV");
-        final Mat mat = opencv_imgcodecs.imread(file);
-        if (mat == null || mat.data() == null) {
+        final MatReaderRouting.Format format = MatReaderRouting.detectFormatByExtension(path);
+        MatReaderRouting.report(format, MatReaderRouting.Decoder.JAVA, false);
+        Executor.LOG.log(System.Logger.Level.DEBUG, () -> "Java image I/O failed; reading " + file
+                + " (" + format + ") by OpenCV");
+        if (!readByOpenCV(result, file, format)) {
             throw new UnsupportedImageFormatException("OpenCV does not recognize " + file);
         }
-        O2SMat.setTo(result, mat);
+    }
+
+    private static boolean readByOpenCV(SMat result, String file, MatReaderRouting.Format format) {
+        final Mat mat = opencv_imgcodecs.imread(file);
+        final boolean success = mat != null && mat.data() != null;
+        MatReaderRouting.report(format, MatReaderRouting.Decoder.OPENCV, success);
+        if (success) {
+            O2SMat.setTo(result, mat);
+        }
+        return success;
     }
 }
@@ -0,0 +1,308 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.core.matrices.io.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Routing of image files to the decoder, which is known to read them: Java image I/O or OpenCV.
+ * The format is detected by the first bytes of the file ("magic numbers") or, if they are not recognized,
+ * by the file extension. Initial routing is based on the formats, which are not supported by standard
+ * Java image I/O; then it is corrected by the results of actual reading, reported by
+ * {@link #report(Format, Decoder, boolean)}.
+ *
+ * <p>For every format and decoder, we keep the failure ratio with exponential forgetting: every report
+ * about this format multiplies the ratios of all decoders by <code>1&minus;{@value #FAILURE_RATIO_DECAY}</code>
+ * and adds {@value #FAILURE_RATIO_DECAY} to the ratio of the failed decoder. The format is routed to
+ * another decoder, when the failure ratio of the current one reaches {@value #REROUTE_FAILURE_RATIO}
+ * and is at least twice greater than the ratio of another decoder. So, old failures are gradually forgotten,
+ * and a format, routed to OpenCV, returns to Java image I/O if OpenCV begins to fail.</p>
+ *
+ * <p>In this module, only the fallbacks from Java image I/O to OpenCV are reported
+ * (see {@link DefaultMatReaderHelper}); {@link #preferredDecoder(Path)} is intended for the image reader
+ * of scichains-core, which does not use it yet.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public final class MatReaderRouting {
+    public enum Decoder {
+        JAVA,
+        OPENCV;
+
+        public Decoder other() {
+            return this == JAVA ? OPENCV : JAVA;
+        }
+    }
+
+    public enum Format {
+        PNG(Decoder.JAVA, "png"),
+        JPEG(Decoder.JAVA, "jpg", "jpeg", "jpe"),
+        BMP(Decoder.JAVA, "bmp", "dib"),
+        GIF(Decoder.JAVA, "gif"),
+        TIFF(Decoder.JAVA, "tif", "tiff"),
+        WEBP(Decoder.OPENCV, "webp"),
+        JPEG_2000(Decoder.OPENCV, "jp2", "j2k"),
+        PNM(Decoder.OPENCV, "pbm", "pgm", "ppm", "pnm", "pxm"),
+        OPENEXR(Decoder.OPENCV, "exr"),
+        RADIANCE_HDR(Decoder.OPENCV, "hdr", "pic"),
+        UNKNOWN(Decoder.JAVA);
+
+        private final Decoder initialDecoder;
+        private final String[] extensions;
+
+        Format(Decoder initialDecoder, String... extensions) {
+            this.initialDecoder = initialDecoder;
+            this.extensions = extensions;
+        }
+
+        public Decoder initialDecoder() {
+            return initialDecoder;
+        }
+
+        public static Format ofExtension(String extension) {
+            Objects.requireNonNull(extension, "Null extension");
+            final String lowerCase = extension.toLowerCase(Locale.ROOT);
+            for (Format format : values()) {
+                for (String e : format.extensions) {
+                    if (e.equals(lowerCase)) {
+                        return format;
+                    }
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+
+    public static final double FAILURE_RATIO_DECAY = 0.2;
+    public static final double REROUTE_FAILURE_RATIO = 0.3;
+
+    private static final int SNIFFED_LENGTH = 16;
+
+    private static final Map<Format, Route> ROUTES = new EnumMap<>(Format.class);
+
+    static {
+        for (Format format : Format.values()) {
+            ROUTES.put(format, new Route(format.initialDecoder));
+        }
+    }
+
+    private MatReaderRouting() {
+    }
+
+    public static Format detectFormat(Path path) {
+        Objects.requireNonNull(path, "Null path");
+        final byte[] header = new byte[SNIFFED_LENGTH];
+        int length = 0;
+        try (InputStream stream = Files.newInputStream(path)) {
+            int n;
+            while (length < header.length && (n = stream.read(header, length, header.length - length)) > 0) {
+                length += n;
+            }
+        } catch (IOException e) {
+            length = 0;
+            // - the file will be checked again by the decoder, which will throw a suitable exception
+        }
+        final Format format = detectFormat(header, length);
+        return format != Format.UNKNOWN ? format : detectFormatByExtension(path);
+    }
+
+    public static Format detectFormatByExtension(Path path) {
+        Objects.requireNonNull(path, "Null path");
+        return Format.ofExtension(extension(path));
+    }
+
+    public static Format detectFormat(byte[] header, int length) {
+        Objects.requireNonNull(header, "Null header");
+        if (startsWith(header, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return Format.PNG;
+        }
+        if (startsWith(header, length, 0xFF, 0xD8, 0xFF)) {
+            return Format.JPEG;
+        }
+        if (startsWith(header, length, 'I', 'I', 0x2A, 0x00) || startsWith(header, length, 'M', 'M', 0x00, 0x2A)
+                || startsWith(header, length, 'I', 'I', 0x2B, 0x00) || startsWith(header, length, 'M', 'M', 0x00, 0x2B)) {
+            // - including BigTIFF
+            return Format.TIFF;
+        }
+        if (startsWith(header, length, 'B', 'M')) {
+            return Format.BMP;
+        }
+        if (startsWith(header, length, 'G', 'I', 'F', '8')) {
+            return Format.GIF;
+        }
+        if (startsWith(header, length, 'R', 'I', 'F', 'F') && length >= 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return Format.WEBP;
+        }
+        if (startsWith(header, length, 0x00, 0x00, 0x00, 0x0C, 'j', 'P', ' ', ' ')
+                || startsWith(header, length, 0xFF, 0x4F, 0xFF, 0x51)) {
+            return Format.JPEG_2000;
+        }
+        if (startsWith(header, length, 0x76, 0x2F, 0x31, 0x01)) {
+            return Format.OPENEXR;
+        }
+        if (startsWith(header, length, '#', '?')) {
+            return Format.RADIANCE_HDR;
+        }
+        if (length >= 3 && header[0] == 'P' && header[1] >= '1' && header[1] <= '6'
+                && Character.isWhitespace(header[2])) {
+            return Format.PNM;
+        }
+        return Format.UNKNOWN;
+    }
+
+    public static Decoder preferredDecoder(Path path) {
+        return preferredDecoder(detectFormat(path));
+    }
+
+    public static Decoder preferredDecoder(Format format) {
+        Objects.requireNonNull(format, "Null format");
+        synchronized (ROUTES) {
+            return ROUTES.get(format).decoder;
+        }
+    }
+
+    /**
+     * Informs about the result of reading an image of the given format by the given decoder.
+     * If the decoder is not the preferred one for this format, successful reading means a fallback:
+     * the preferred decoder did not work.
+     *
+     * @param format  detected format.
+     * @param decoder decoder, which was used.
+     * @param success whether the decoder has read the image.
+     */
+    public static void report(Format format, Decoder decoder, boolean success) {
+        Objects.requireNonNull(format, "Null format");
+        Objects.requireNonNull(decoder, "Null decoder");
+        synchronized (ROUTES) {
+            final Route route = ROUTES.get(format);
+            for (int k = 0; k < route.failureRatios.length; k++) {
+                route.failureRatios[k] *= 1.0 - FAILURE_RATIO_DECAY;
+            }
+            if (success) {
+                route.successes[decoder.ordinal()]++;
+                if (decoder != route.decoder) {
+                    route.fallbacks++;
+                }
+            } else {
+                route.failures[decoder.ordinal()]++;
+                route.failureRatios[decoder.ordinal()] += FAILURE_RATIO_DECAY;
+            }
+            final double current = route.failureRatios[route.decoder.ordinal()];
+            final double other = route.failureRatios[route.decoder.other().ordinal()];
+            if (current >= REROUTE_FAILURE_RATIO && 2.0 * other <= current) {
+                route.decoder = route.decoder.other();
+                route.reroutings++;
+            }
+        }
+    }
+
+    public static long numberOfFallbacks(Format format) {
+        Objects.requireNonNull(format, "Null format");
+        synchronized (ROUTES) {
+            return ROUTES.get(format).fallbacks;
+        }
+    }
+
+    public static long numberOfFallbacks() {
+        synchronized (ROUTES) {
+            return ROUTES.values().stream().mapToLong(route -> route.fallbacks).sum();
+        }
+    }
+
+    public static String statisticsInfo() {
+        final StringBuilder sb = new StringBuilder("Image reading routes:");
+        synchronized (ROUTES) {
+            ROUTES.forEach((format, route) -> {
+                if (route.isUsed()) {
+                    sb.append(String.format("%n  %s: %s", format, route));
+                }
+            });
+        }
+        return sb.toString();
+    }
+
+    private static boolean startsWith(byte[] header, int length, int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int k = 0; k < signature.length; k++) {
+            if ((header[k] & 0xFF) != signature[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String extension(Path path) {
+        final Path fileName = path.getFileName();
+        if (fileName == null) {
+            return "";
+        }
+        final String s = fileName.toString();
+        final int p = s.lastIndexOf('.');
+        return p == -1 ? "" : s.substring(p + 1);
+    }
+
+    private static final class Route {
+        private Decoder decoder;
+        private final long[] successes = new long[Decoder.values().length];
+        private final long[] failures = new long[Decoder.values().length];
+        private long fallbacks = 0;
+        private final double[] failureRatios = new double[Decoder.values().length];
+        private long reroutings = 0;
+
+        private Route(Decoder decoder) {
+            this.decoder = decoder;
+        }
+
+        private boolean isUsed() {
+            for (Decoder d : Decoder.values()) {
+                if (successes[d.ordinal()] > 0 || failures[d.ordinal()] > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("routed to " + decoder);
+            for (Decoder d : Decoder.values()) {
+                sb.append(String.format(Locale.US, ", %s %d/%d/%.2f",
+                        d, successes[d.ordinal()], failures[d.ordinal()], failureRatios[d.ordinal()]));
+            }
+            return sb.append(" (succeeded/failed/failure ratio), ").append(fallbacks).append(" fallbacks, ")
+                    .append(reroutings).append(" reroutings").toString();
+        }
+    }
+}
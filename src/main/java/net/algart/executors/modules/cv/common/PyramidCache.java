@@ -0,0 +1,256 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.common;
+
+import net.algart.arrays.Arrays;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of reduced ("pyramid") versions of source images, shared by executors,
+ * which process images at a reduced scale (<code>optimizingScale</code> parameters).
+ * When several executors reduce the same source with the same scale and method,
+ * the reducing is performed only once.
+ *
+ * <p>Sources are identified by identity of some immutable object, representing the source data
+ * (for example, the data pointer of <code>SMat</code> or the array of AlgART matrix); they are referenced
+ * weakly, and all levels of a source are removed from the cache after it becomes unreachable.
+ * The total size of cached levels is limited by {@value #MAX_MEMORY_PROPERTY_NAME} system property
+ * (in megabytes, 256 by default; 0 disables caching); least recently used levels are evicted first.</p>
+ *
+ * <p>Cached values are never returned directly: every call returns a copy, made by
+ * {@link Handler#copy(Object)}, so a caller may modify or dispose the result.
+ * Evicted values are disposed by {@link Handler#dispose(Object)}.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public final class PyramidCache {
+    public static final String MAX_MEMORY_PROPERTY_NAME = "net.algart.executors.cv.pyramidCacheMemory";
+
+    public interface Handler<T> {
+        long sizeInBytes(T value);
+
+        T copy(T value);
+
+        void dispose(T value);
+    }
+
+    private static final PyramidCache INSTANCE = new PyramidCache(
+            Math.max(0L, Arrays.SystemSettings.getLongProperty(MAX_MEMORY_PROPERTY_NAME, 256L)) << 20);
+
+    private final Map<Key, Entry<?>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // - access order: the first entry is the least recently used
+    private final ReferenceQueue<Object> collectedSources = new ReferenceQueue<>();
+    private final long maxMemory;
+    private long usedMemory = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private PyramidCache(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    public static PyramidCache getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return maxMemory > 0;
+    }
+
+    /**
+     * Returns a copy of the level of the given source, identified by <code>levelKey</code>
+     * (like "scale and interpolation method"), calculating it by <code>calculator</code>
+     * if there is no such level in the cache yet.
+     * If <code>source</code> is <code>null</code> or the cache is disabled, just returns the result of
+     * <code>calculator</code>.
+     *
+     * @param source     object, identifying the source data (compared by identity); may be <code>null</code>.
+     * @param levelKey   key of the level (compared by <code>equals</code>).
+     * @param calculator calculates the level.
+     * @param handler    operations with the level values.
+     * @param <T>        type of levels.
+     * @return the level.
+     */
+    public <T> T get(Object source, Object levelKey, Supplier<? extends T> calculator, Handler<T> handler) {
+        Objects.requireNonNull(levelKey, "Null level key");
+        Objects.requireNonNull(calculator, "Null calculator");
+        Objects.requireNonNull(handler, "Null handler");
+        if (source == null || !isEnabled()) {
+            return calculator.get();
+        }
+        synchronized (this) {
+            removeCollected();
+            @SuppressWarnings("unchecked") final Entry<T> entry =
+                    (Entry<T>) entries.get(new Key(source, levelKey, null));
+            if (entry != null && entry.handler == handler) {
+                hits++;
+                return handler.copy(entry.value);
+            }
+            misses++;
+        }
+        final T value = calculator.get();
+        // - calculated outside the synchronized block: it may be long
+        final long size = handler.sizeInBytes(value);
+        if (size > maxMemory) {
+            return value;
+        }
+        synchronized (this) {
+            final Entry<?> previous = entries.put(
+                    new Key(source, levelKey, collectedSources), new Entry<>(handler.copy(value), handler, size));
+            if (previous != null) {
+                usedMemory -= previous.size;
+                previous.dispose();
+            }
+            usedMemory += size;
+            evictIfNecessary();
+        }
+        return value;
+    }
+
+    public synchronized void clear() {
+        for (Entry<?> entry : entries.values()) {
+            entry.dispose();
+        }
+        entries.clear();
+        usedMemory = 0;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long usedMemory() {
+        return usedMemory;
+    }
+
+    public synchronized String statisticsInfo() {
+        return String.format(Locale.US, "%d levels, %.2f of %.2f MB; %d hits, %d misses, %d evictions",
+                entries.size(), usedMemory / 1048576.0, maxMemory / 1048576.0, hits, misses, evictions);
+    }
+
+    @Override
+    public String toString() {
+        return "pyramid cache: " + statisticsInfo();
+    }
+
+    private void evictIfNecessary() {
+        assert Thread.holdsLock(this);
+        for (Iterator<Entry<?>> iterator = entries.values().iterator();
+             usedMemory > maxMemory && iterator.hasNext(); ) {
+            final Entry<?> entry = iterator.next();
+            iterator.remove();
+            usedMemory -= entry.size;
+            evictions++;
+            entry.dispose();
+        }
+    }
+
+    private void removeCollected() {
+        assert Thread.holdsLock(this);
+        if (collectedSources.poll() == null) {
+            return;
+        }
+        while (collectedSources.poll() != null) {
+            // - just clearing the queue: we will check all keys below
+        }
+        for (Iterator<Map.Entry<Key, Entry<?>>> iterator = entries.entrySet().iterator(); iterator.hasNext(); ) {
+            final Map.Entry<Key, Entry<?>> e = iterator.next();
+            if (e.getKey().source() == null) {
+                iterator.remove();
+                usedMemory -= e.getValue().size;
+                e.getValue().dispose();
+            }
+        }
+    }
+
+    private static final class Key {
+        private final Object strongSource;
+        private final WeakReference<Object> weakSource;
+        private final int sourceHash;
+        private final Object levelKey;
+
+        // queue == null means temporary key for searching
+        private Key(Object source, Object levelKey, ReferenceQueue<Object> queue) {
+            this.strongSource = queue == null ? source : null;
+            this.weakSource = queue == null ? null : new WeakReference<>(source, queue);
+            this.sourceHash = System.identityHashCode(source);
+            this.levelKey = levelKey;
+        }
+
+        Object source() {
+            return strongSource != null ? strongSource : weakSource.get();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key that)) {
+                return false;
+            }
+            final Object source = source();
+            return source != null && source == that.source() && levelKey.equals(that.levelKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sourceHash + levelKey.hashCode();
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final Handler<T> handler;
+        private final long size;
+
+        private Entry(T value, Handler<T> handler, long size) {
+            this.value = value;
+            this.handler = handler;
+            this.size = size;
+        }
+
+        private void dispose() {
+            handler.dispose(value);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.common;
+
+import net.algart.arrays.Arrays;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide budget of threads, shared between Java-side parallel processing
+ * (parallel streams of executors and processors) and OpenCV internal thread pool.
+ *
+ * <p>The total number of threads is {@link Arrays.SystemSettings#cpuCount()} by default; it may be changed
+ * by the system property {@value #TOTAL_THREADS_PROPERTY_NAME} or by {@link #setTotalThreads(int)}.
+ * Every parallel task acquires a {@link Lease} of several threads from the budget and releases it after
+ * finishing; when several tasks (for example, several branches of a chain) work simultaneously,
+ * every next task receives only the threads that are not used by other tasks (but at least 1).
+ * A task without its own limit receives a fair share of the budget: the total number of threads,
+ * divided by the number of active leases (including the new one).
+ * Parallel streams, started inside {@link Lease#run(Runnable)}, use a fork-join pool with the
+ * parallelism, equal to the number of leased threads; other parallel algorithms, started there,
+ * can get this number by {@link #currentThreads()}.</p>
+ *
+ * <p>Besides, all listeners, registered by {@link #addTotalThreadsListener(IntConsumer)}, are notified
+ * about the total number of threads: it allows to size other thread pools (like OpenCV one) consistently.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public final class ThreadBudget {
+    public static final String TOTAL_THREADS_PROPERTY_NAME = "net.algart.executors.cv.totalThreads";
+
+    private static final Object LOCK = new Object();
+    private static final List<IntConsumer> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Lease> CURRENT_LEASE = new ThreadLocal<>();
+
+    private static int totalThreads = defaultTotalThreads();
+    private static int threadsInUse = 0;
+    private static int numberOfLeases = 0;
+    private static int peakThreadsInUse = 0;
+
+    private ThreadBudget() {
+    }
+
+    public static int totalThreads() {
+        synchronized (LOCK) {
+            return totalThreads;
+        }
+    }
+
+    /**
+     * Sets the total number of threads. Zero value means the default number
+     * ({@value #TOTAL_THREADS_PROPERTY_NAME} system property or the number of CPU).
+     *
+     * @param totalThreads new total number of threads or 0.
+     * @throws IllegalArgumentException if the argument is negative.
+     */
+    public static void setTotalThreads(int totalThreads) {
+        if (totalThreads < 0) {
+            throw new IllegalArgumentException("Negative total number of threads " + totalThreads);
+        }
+        final int newTotalThreads = totalThreads == 0 ? defaultTotalThreads() : totalThreads;
+        synchronized (LOCK) {
+            ThreadBudget.totalThreads = newTotalThreads;
+        }
+        for (IntConsumer listener : LISTENERS) {
+            listener.accept(newTotalThreads);
+        }
+    }
+
+    public static int threadsInUse() {
+        synchronized (LOCK) {
+            return threadsInUse;
+        }
+    }
+
+    public static int availableThreads() {
+        synchronized (LOCK) {
+            return Math.max(0, totalThreads - threadsInUse);
+        }
+    }
+
+    public static int numberOfLeases() {
+        synchronized (LOCK) {
+            return numberOfLeases;
+        }
+    }
+
+    public static int peakThreadsInUse() {
+        synchronized (LOCK) {
+            return peakThreadsInUse;
+        }
+    }
+
+    /**
+     * Returns the number of threads of the lease, inside which the current task is executed
+     * (by {@link Lease#call(Supplier)} or {@link Lease#run(Runnable)}). If the current thread does not
+     * execute such a task, returns the number of threads, which would be granted by
+     * <code>{@link #acquire(int) acquire(0)}</code> now.
+     *
+     * @return number of threads, which parallel algorithms of the current task should use.
+     */
+    public static int currentThreads() {
+        final Lease lease = CURRENT_LEASE.get();
+        if (lease != null) {
+            return lease.threads;
+        }
+        synchronized (LOCK) {
+            return grantedThreads(0);
+        }
+    }
+
+    public static String usageInfo() {
+        synchronized (LOCK) {
+            return String.format(Locale.US, "%d of %d threads used by %d tasks (peak %d)",
+                    threadsInUse, totalThreads, numberOfLeases, peakThreadsInUse);
+        }
+    }
+
+    /**
+     * Registers the listener, which will be notified about every change of the total number of threads.
+     * The listener is also called immediately with the current total number.
+     *
+     * @param listener the listener.
+     */
+    public static void addTotalThreadsListener(IntConsumer listener) {
+        if (listener == null) {
+            throw new NullPointerException("Null listener");
+        }
+        LISTENERS.add(listener);
+        listener.accept(totalThreads());
+    }
+
+    /**
+     * Acquires several threads from the budget. The result lease contains
+     * <code>min(maxThreads, available)</code> threads, but not less than 1, where <code>available</code>
+     * is the number of threads not leased by other tasks. Zero <code>maxThreads</code> means the fair share:
+     * <code>ceil(total/(n+1))</code>, where <code>n</code> is the number of active leases.
+     * The lease must be closed after use.
+     *
+     * @param maxThreads maximal desired number of threads or 0.
+     * @return new lease.
+     * @throws IllegalArgumentException if the argument is negative.
+     */
+    public static Lease acquire(int maxThreads) {
+        if (maxThreads < 0) {
+            throw new IllegalArgumentException("Negative maximal number of threads " + maxThreads);
+        }
+        synchronized (LOCK) {
+            final int granted = grantedThreads(maxThreads);
+            threadsInUse += granted;
+            numberOfLeases++;
+            peakThreadsInUse = Math.max(peakThreadsInUse, threadsInUse);
+            return new Lease(granted);
+        }
+    }
+
+    public static final class Lease implements AutoCloseable {
+        private final int threads;
+        private boolean closed = false;
+
+        private Lease(int threads) {
+            this.threads = threads;
+        }
+
+        public int threads() {
+            return threads;
+        }
+
+        public boolean isClosed() {
+            synchronized (LOCK) {
+                return closed;
+            }
+        }
+
+        /**
+         * Executes the task so that all parallel streams inside it use not more than
+         * {@link #threads()} threads.
+         *
+         * @param task some task.
+         */
+        public void run(Runnable task) {
+            call(() -> {
+                task.run();
+                return null;
+            });
+        }
+
+        public <T> T call(Supplier<T> task) {
+            if (task == null) {
+                throw new NullPointerException("Null task");
+            }
+            final Supplier<T> leasedTask = () -> {
+                final Lease previous = CURRENT_LEASE.get();
+                CURRENT_LEASE.set(this);
+                try {
+                    return task.get();
+                } finally {
+                    CURRENT_LEASE.set(previous);
+                }
+            };
+            if (threads >= ForkJoinPool.getCommonPoolParallelism() + 1) {
+                // - common pool together with the current thread provides enough parallelism
+                return leasedTask.get();
+            }
+            return POOLS.computeIfAbsent(threads, ForkJoinPool::new).submit(leasedTask::get).join();
+        }
+
+        @Override
+        public void close() {
+            synchronized (LOCK) {
+                if (!closed) {
+                    closed = true;
+                    threadsInUse -= threads;
+                    numberOfLeases--;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "lease of " + threads + " threads" + (closed ? " (closed)" : "");
+        }
+    }
+
+    // Must be called inside synchronized (LOCK)
+    private static int grantedThreads(int maxThreads) {
+        final int requested = maxThreads == 0 ?
+                (totalThreads + numberOfLeases) / (numberOfLeases + 1) :
+                Math.min(maxThreads, totalThreads);
+        return Math.max(1, Math.min(requested, totalThreads - threadsInUse));
+    }
+
+    private static int defaultTotalThreads() {
+        final Integer property = Integer.getInteger(TOTAL_THREADS_PROPERTY_NAME);
+        return property != null && property > 0 ? property : Arrays.SystemSettings.cpuCount();
+    }
+}
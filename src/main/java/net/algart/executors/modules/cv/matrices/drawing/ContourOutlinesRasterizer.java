@@ -0,0 +1,267 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.drawing;
+
+import net.algart.arrays.IntArray;
+import net.algart.contours.Contours;
+import net.algart.executors.modules.cv.common.ThreadBudget;
+
+import java.util.stream.IntStream;
+
+// Draws horizontal/vertical contour segments into several byte[] or int[] channels.
+// The image is split into row bands, processed in parallel; every band draws only the contours,
+// intersecting it, in the same order as sequential algorithm, so the result is identical.
+// The number of bands depends on ThreadBudget.currentThreads(); the caller should draw inside a lease.
+final class ContourOutlinesRasterizer {
+    private static final int MIN_BAND_HEIGHT = 16;
+
+    private final Contours contours;
+    private final Object[] channels;
+    private final int numberOfChannels;
+    private final int dimX;
+    private final int dimY;
+    private final long originX;
+    private final long originY;
+    private final long scale;
+    private final boolean exact;
+    private final int increment;
+    private final int maxValue;
+
+    private int[] indexes = null;
+    private long[] values = null;
+
+    ContourOutlinesRasterizer(
+            Contours contours,
+            Object[] channels,
+            int dimX,
+            int dimY,
+            long originX,
+            long originY,
+            long scale,
+            boolean exact,
+            int increment,
+            int maxValue) {
+        assert channels.length > 0;
+        this.contours = contours;
+        this.channels = channels;
+        this.numberOfChannels = channels.length;
+        this.dimX = dimX;
+        this.dimY = dimY;
+        this.originX = originX;
+        this.originY = originY;
+        this.scale = scale;
+        this.exact = exact;
+        this.increment = increment;
+        this.maxValue = maxValue;
+    }
+
+    // indexes: drawn contours in increasing order;
+    // values: values for every drawn contour and channel (values[k * numberOfChannels + c])
+    void draw(int[] indexes, long[] values) {
+        assert values.length == (long) indexes.length * numberOfChannels;
+        this.indexes = indexes;
+        this.values = values;
+        final int n = indexes.length;
+        if (n == 0) {
+            return;
+        }
+        final int[] minRows = new int[n];
+        final int[] maxRows = new int[n];
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int k = block << 8, to = (int) Math.min((long) k + 256, n); k < to; k++) {
+                findRows(k, minRows, maxRows);
+            }
+        });
+        final long maxNumberOfBands = 4L * ThreadBudget.currentThreads();
+        final int bandHeight = Math.max(MIN_BAND_HEIGHT, (int) ((dimY + maxNumberOfBands - 1) / maxNumberOfBands));
+        final int numberOfBands = (int) (((long) dimY + bandHeight - 1) / bandHeight);
+        final int[] bandOffsets = new int[numberOfBands + 1];
+        for (int k = 0; k < n; k++) {
+            if (minRows[k] <= maxRows[k]) {
+                for (int b = minRows[k] / bandHeight, bTo = maxRows[k] / bandHeight; b <= bTo; b++) {
+                    bandOffsets[b + 1]++;
+                }
+            }
+        }
+        for (int b = 0; b < numberOfBands; b++) {
+            bandOffsets[b + 1] += bandOffsets[b];
+        }
+        final int[] bandContours = new int[bandOffsets[numberOfBands]];
+        final int[] positions = java.util.Arrays.copyOf(bandOffsets, numberOfBands);
+        for (int k = 0; k < n; k++) {
+            if (minRows[k] <= maxRows[k]) {
+                for (int b = minRows[k] / bandHeight, bTo = maxRows[k] / bandHeight; b <= bTo; b++) {
+                    bandContours[positions[b]++] = k;
+                }
+            }
+        }
+        IntStream.range(0, numberOfBands).parallel().forEach(b -> {
+            final int fromY = b * bandHeight;
+            final int toY = (int) Math.min((long) fromY + bandHeight, dimY);
+            for (int i = bandOffsets[b]; i < bandOffsets[b + 1]; i++) {
+                drawContour(bandContours[i], fromY, toY);
+            }
+        });
+    }
+
+    // Finds the range of rows, which can be affected by the contour, clipped to 0..dimY-1,
+    // and checks that it contains only horizontal and vertical segments
+    private void findRows(int k, int[] minRows, int[] maxRows) {
+        final IntArray contour = contours.getContour(indexes[k]);
+        final long n = contour.length();
+        long minY = Long.MAX_VALUE;
+        long maxY = Long.MIN_VALUE;
+        long lastX = contour.getInt(n - 2);
+        long lastY = contour.getInt(n - 1);
+        for (long i = 0; i < n; i += 2) {
+            final long x = contour.getInt(i);
+            final long y = contour.getInt(i + 1);
+            if (x != lastX && y != lastY) {
+                throw new IllegalArgumentException("Cannot draw contours containing non-horizontal "
+                        + "and non-vertical segments (" + (lastX - originX) + "," + (lastY - originY)
+                        + " - " + (x - originX) + "," + (y - originY)
+                        + ") between points #" + (i / 2 - 1) + " and #" + i / 2);
+            }
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            lastX = x;
+            lastY = y;
+        }
+        minY = scale * (minY - originY) - 1;
+        maxY = scale * (maxY - originY);
+        // - "-1": boundaries can be shifted by 1 pixel
+        minRows[k] = (int) Math.min(Math.max(minY, 0), dimY);
+        maxRows[k] = (int) Math.max(Math.min(maxY, dimY - 1), -1);
+        // - clamping both bounds: long coordinates far outside the image must not overflow int
+        // - if the contour is outside the image, minRows[k] > maxRows[k]
+    }
+
+    private void drawContour(int k, int fromY, int toY) {
+        final int contourIndex = indexes[k];
+        final IntArray contour = contours.getContour(contourIndex);
+        final boolean internal = contours.isInternalContour(contourIndex);
+        final long n = contour.length();
+        long lastX = scale * (contour.getInt(n - 2) - originX);
+        long lastY = scale * (contour.getInt(n - 1) - originY);
+        for (long i = 0; i < n; i += 2) {
+            final long x = scale * (contour.getInt(i) - originX);
+            final long y = scale * (contour.getInt(i + 1) - originY);
+            drawSegment(k, lastX, lastY, x, y, internal, fromY, toY);
+            lastX = x;
+            lastY = y;
+        }
+    }
+
+    // Note: this method provides the same results as old sequential DrawContours.drawHorizontalOrVerticalLine
+    private void drawSegment(int k, long x1, long y1, long x2, long y2, boolean internal, int fromY, int toY) {
+        if (y1 == y2) {
+            if (x1 == x2) {
+                return;
+            }
+            long y = y1;
+            final long minX;
+            final long maxX;
+            if (x1 < x2) {
+                if (!exact && internal) {
+                    y--;
+                }
+                minX = x1;
+                maxX = x2 - 1;
+            } else {
+                if (!exact && !internal) {
+                    y--;
+                }
+                minX = exact ? x2 + 1 : x2;
+                maxX = exact ? x1 : x1 - 1;
+            }
+            if (y >= fromY && y < toY) {
+                drawRow(k, (int) y, minX, maxX);
+            }
+        } else {
+            assert x1 == x2 : "diagonal segments must be checked before";
+            long x = x1;
+            final long minY;
+            final long maxY;
+            if (y1 < y2) {
+                if (!exact && !internal) {
+                    x--;
+                }
+                minY = y1;
+                maxY = y2 - 1;
+            } else {
+                if (!exact && internal) {
+                    x--;
+                }
+                minY = exact ? y2 + 1 : y2;
+                maxY = exact ? y1 : y1 - 1;
+            }
+            if (x >= 0 && x < dimX) {
+                final int from = (int) Math.max(minY, fromY);
+                final int to = (int) Math.min(maxY + 1, toY);
+                for (int y = from; y < to; y++) {
+                    drawSpan(k, y * (long) dimX + x, 1);
+                }
+            }
+        }
+    }
+
+    private void drawRow(int k, int y, long minX, long maxX) {
+        final long from = Math.max(minX, 0);
+        final long to = Math.min(maxX + 1, dimX);
+        if (from < to) {
+            drawSpan(k, y * (long) dimX + from, (int) (to - from));
+        }
+    }
+
+    // Writes all channels in one pass
+    private void drawSpan(int k, long offset, int length) {
+        final int from = (int) offset;
+        final int to = from + length;
+        for (int c = 0, disp = k * numberOfChannels; c < numberOfChannels; c++, disp++) {
+            final long value = values[disp];
+            final Object channel = channels[c];
+            if (channel instanceof byte[]) {
+                final byte[] a = (byte[]) channel;
+                if (increment > 0) {
+                    for (int i = from; i < to; i++) {
+                        a[i] = (byte) Math.min((a[i] & 0xFF) + increment, maxValue);
+                    }
+                } else {
+                    java.util.Arrays.fill(a, from, to, (byte) value);
+                }
+            } else {
+                final int[] a = (int[]) channel;
+                if (increment > 0) {
+                    for (int i = from; i < to; i++) {
+                        a[i] = (int) Math.min((long) a[i] + increment, maxValue);
+                    }
+                } else {
+                    java.util.Arrays.fill(a, from, to, (int) value);
+                }
+            }
+        }
+    }
+}
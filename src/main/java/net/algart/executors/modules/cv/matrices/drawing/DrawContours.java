@@ -27,6 +27,7 @@ package net.algart.executors.modules.cv.matrices.drawing;
 import net.algart.arrays.*;
 import net.algart.contours.Contours;
 import net.algart.executors.api.data.SNumbers;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.core.common.matrices.MultiMatrix2DFilter;
 import net.algart.executors.modules.core.matrices.geometry.Resize;
 import net.algart.executors.modules.core.matrices.misc.Selector;
@@ -34,10 +35,12 @@ import net.algart.math.IPoint;
 import net.algart.multimatrix.MultiMatrix;
 import net.algart.multimatrix.MultiMatrix2D;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Random;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 public final class DrawContours extends MultiMatrix2DFilter {
     public static final String INPUT_CONTOURS = "contours";
@@ -230,7 +233,16 @@ public final class DrawContours extends MultiMatrix2DFilter {
         if (originPoint == null) {
             originPoint = IPoint.of(imageStartX, imageStartY);
         }
-        List<Matrix<? extends UpdatablePArray>> resultChannels = null;
+        if (originPoint.coordCount() != 2) {
+            throw new IllegalArgumentException("Image position must be 2-dimensional point, but it is "
+                    + originPoint.coordCount() + "-dimensional (" + originPoint + ")");
+        }
+        if (dimX * dimY > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too large result image " + dimX + "x" + dimY
+                    + ": it must contain less than 2^31 pixels");
+        }
+        long t1 = debugTime();
+        final Object[] channels;
         if (background != null && !drawnFeatures.incrementing) {
             if (contrastBackground) {
                 background = background.contrast();
@@ -246,22 +258,44 @@ public final class DrawContours extends MultiMatrix2DFilter {
                 resize.setDimY(dimY);
                 background = resize.process(background);
             }
-            resultChannels = MultiMatrix.cloneMatrices(background.allChannels());
-        }
-        if (resultChannels == null) {
-            resultChannels = new LinkedList<>();
-            for (int k = 0; k < (drawnFeatures.colored ? 3 : 1); k++) {
-                resultChannels.add(Arrays.SMM.newMatrix(
-                        UpdatablePArray.class, drawnFeatures.elementType, dimX, dimY));
+            channels = new Object[background.numberOfChannels()];
+            for (int c = 0; c < channels.length; c++) {
+                channels[c] = background.channel(c).array().toJavaArray();
+                // - always a new Java array: we may modify it
+            }
+        } else {
+            channels = new Object[drawnFeatures.colored ? 3 : 1];
+            for (int c = 0; c < channels.length; c++) {
+                channels[c] = drawnFeatures.elementType == byte.class ?
+                        new byte[(int) (dimX * dimY)] :
+                        new int[(int) (dimX * dimY)];
             }
         }
+        final int numberOfChannels = channels.length;
+        final int maxValue = drawnFeatures.elementType == byte.class ? 255 : Integer.MAX_VALUE;
+        long t2 = debugTime();
+        final int[] indexes = drawnContourIndexes(contours);
+        final long[] values = new long[indexes.length * numberOfChannels];
         Random rnd = randSeed == 0 ? new Random() : new Random(randSeed);
-        for (int k = 0, n = contours.numberOfContours(); k < n; k++) {
-            for (Matrix<? extends UpdatablePArray> channel : resultChannels) {
-                drawContour(channel.cast(UpdatablePFixedArray.class), contours, k, originPoint, rnd);
-                // - actually, the element type is always byte or int
+        for (int k = 0, disp = 0; k < indexes.length; k++) {
+            for (int c = 0; c < numberOfChannels; c++, disp++) {
+                values[disp] = value(contours, indexes[k], maxValue, rnd);
+                // - the same order of random numbers as in the previous sequential version
             }
         }
+        final ContourOutlinesRasterizer rasterizer = new ContourOutlinesRasterizer(
+                contours, channels, (int) dimX, (int) dimY, originPoint.x(), originPoint.y(), scale,
+                drawnFeatures.incrementing,
+                drawnFeatures.incrementing ? strictByteMultiplier : 0,
+                maxValue);
+        try (ThreadBudget.Lease lease = ThreadBudget.acquire(0)) {
+            lease.run(() -> rasterizer.draw(indexes, values));
+        }
+        long t3 = debugTime();
+        final List<Matrix<? extends PArray>> resultChannels = new ArrayList<>();
+        for (Object channel : channels) {
+            resultChannels.add(Matrix.as(channel, dimX, dimY));
+        }
         MultiMatrix2D result = MultiMatrix.of2D(resultChannels);
         if (background != null && drawnFeatures.incrementing) {
             final Selector selector = new Selector();
@@ -269,6 +303,12 @@ public final class DrawContours extends MultiMatrix2DFilter {
             result = selector.process(result, background, result).asMultiMatrix2D();
         }
         getScalar(OUTPUT_NUMBER_OF_OBJECTS).setTo(contours.numberOfContours());
+        long t4 = debugTime();
+        logDebug(() -> String.format(Locale.US,
+                "Drawing %d from %d contours on %dx%d: %.3f ms = "
+                        + "%.3f ms preparing + %.3f ms drawing + %.3f ms returning result",
+                indexes.length, contours.numberOfContours(), dimX, dimY,
+                (t4 - t1) * 1e-6, (t2 - t1) * 1e-6, (t3 - t2) * 1e-6, (t4 - t3) * 1e-6));
         return result;
     }
 
@@ -277,175 +317,21 @@ public final class DrawContours extends MultiMatrix2DFilter {
         return true;
     }
 
-    private void drawContour(
-            Matrix<? extends UpdatablePFixedArray> result,
-            Contours contours,
-            int contourIndex,
-            IPoint origin,
-            Random rnd) {
-        if (origin.coordCount() != result.dimCount()) {
-            throw new IllegalArgumentException("Different number of dimensions: " + origin.coordCount()
-                    + "-dimensional point (" + origin + ") and " + result.dimCount()
-                    + "-dimensional matrix (" + result + ")");
-        }
-        final boolean internalContour = contours.isInternalContour(contourIndex);
-        if (!drawnContourKinds.accept.test(internalContour)) {
-            return;
-        }
-        if (contourIndex < firstIndex || (numberOfContours > 0 && contourIndex - firstIndex >= numberOfContours)) {
-            return;
-        }
-        final IntArray contour = contours.getContour(contourIndex);
-        final int objectLabel = contours.getObjectLabel(contourIndex);
-        final long n = contour.length();
-        assert n >= 2 : "empty contour is impossible";
-        final long maxValue = result.array().maxPossibleValue();
-        final long colorOrMaxValue;
-        switch (drawnFeatures) {
-            case STRICT_BYTE_CONTOURS: {
-                colorOrMaxValue = maxValue;
-                break;
-            }
-            case NOT_INTERSECTED_LABELS_OF_CONTOURS: {
-                colorOrMaxValue = objectLabel;
-                break;
-            }
-            case NOT_INTERSECTED_INDEXES_OF_CONTOURS: {
-                colorOrMaxValue = contourIndex + 1;
-                break;
-            }
-            case NOT_INTERSECTED_RANDOMLY_COLORED_CONTOURS: {
-                colorOrMaxValue = rnd.nextInt((int) maxValue);
-                break;
-            }
-            default: {
-                throw new UnsupportedOperationException("Unsupported " + drawnFeatures);
-            }
-        }
-        final Boolean internal = drawnFeatures.incrementing ? null : internalContour;
-        final int increment = drawnFeatures.incrementing ? strictByteMultiplier : 0;
-        long lastX = contour.getInt(n - 2) - origin.x();
-        long lastY = contour.getInt(n - 1) - origin.y();
-        for (long i = 0; i < n; i += 2) {
-            final long x = contour.getInt(i) - origin.x();
-            final long y = contour.getInt(i + 1) - origin.y();
-            if (!drawHorizontalOrVerticalLine(
-                    result, scale * lastX, scale * lastY, scale * x, scale * y,
-                    colorOrMaxValue, internal, increment)) {
-                throw new IllegalArgumentException("Cannot draw contours containing non-horizontal "
-                        + "and non-vertical segments (" + lastX + "," + lastY + " - " + x + "," + y
-                        + ") between points #" + (i / 2 - 1) + " and #" + i / 2);
-            }
-            lastX = x;
-            lastY = y;
-        }
-    }
-
-    private static boolean drawHorizontalOrVerticalLine(
-            Matrix<? extends UpdatablePFixedArray> result,
-            long x1,
-            long y1,
-            long x2,
-            long y2,
-            long colorOrMaxValue,
-            Boolean internal,
-            int increment) {
-        // - long coordinates guarantee avoiding overflow in "scale * x* and "+ 1" operators
-        // internal == null means exact contours, internal != null - boundaries
-        if (y1 == y2) {
-            if (x1 == x2) {
-                return true;
-            } else if (x1 < x2) {
-                if (internal != null && internal) {
-                    y1--;
-                }
-                drawRow(result, x1, x2 - 1, y1, colorOrMaxValue, increment);
-            } else {
-                if (internal != null && !internal) {
-                    y1--;
-                }
-                if (internal == null) {
-                    drawRow(result, x2 + 1, x1, y1, colorOrMaxValue, increment);
-                } else {
-                    drawRow(result, x2, x1 - 1, y1, colorOrMaxValue, increment);
-                }
-            }
-            return true;
-        } else if (x1 == x2) {
-            if (y1 < y2) {
-                if (internal != null && !internal) {
-                    x1--;
-                }
-                drawCol(result, x1, y1, y2 - 1, colorOrMaxValue, increment);
-            } else {
-                if (internal != null && internal) {
-                    x1--;
-                }
-                if (internal == null) {
-                    drawCol(result, x1, y2 + 1, y1, colorOrMaxValue, increment);
-                } else {
-                    drawCol(result, x1, y2, y1 - 1, colorOrMaxValue, increment);
-                }
-            }
-            return true;
-        } else {
-            return false;
-        }
-    }
-
-    private static void drawRow(
-            Matrix<? extends UpdatablePFixedArray> result,
-            long minX,
-            long maxX,
-            long y,
-            long colorOrMaxValue,
-            int increment) {
-        if (minX == maxX) {
-            if (minX >= 0 && minX < result.dimX() && y >= 0 && y < result.dimY()) {
-                drawElement(result.array(), result.index(minX, y), colorOrMaxValue, increment);
-            }
-        } else {
-            drawElements(result.subMatrix(
-                            minX, y, maxX + 1, y + 1, Matrix.ContinuationMode.NAN_CONSTANT)
-                    .array(), colorOrMaxValue, increment);
-        }
+    private int[] drawnContourIndexes(Contours contours) {
+        final int n = contours.numberOfContours();
+        final int from = Math.min(firstIndex, n);
+        final int to = numberOfContours > 0 ? (int) Math.min((long) firstIndex + numberOfContours, n) : n;
+        return IntStream.range(from, to)
+                .filter(k -> drawnContourKinds.accept.test(contours.isInternalContour(k)))
+                .toArray();
     }
 
-    private static void drawCol(
-            Matrix<? extends UpdatablePFixedArray> result,
-            long x,
-            long minY,
-            long maxY,
-            long colorOrMaxValue,
-            int increment) {
-        if (minY == maxY) {
-            if (minY >= 0 && minY < result.dimY() && x >= 0 && x < result.dimX()) {
-                drawElement(result.array(), result.index(x, minY), colorOrMaxValue, increment);
-            }
-        } else {
-            drawElements(result.subMatrix(
-                            x, minY, x + 1, maxY + 1, Matrix.ContinuationMode.NAN_CONSTANT)
-                    .array(), colorOrMaxValue, increment);
-        }
-    }
-
-    private static void drawElement(UpdatablePFixedArray array, long index, long colorOrMaxValue, int increment) {
-        if (increment > 0) {
-            array.setLong(index, Math.min(array.getLong(index) + increment, colorOrMaxValue));
-        } else {
-            array.setLong(index, colorOrMaxValue);
-        }
-    }
-
-    private static void drawElements(UpdatablePFixedArray array, long colorOrMaxValue, int increment) {
-        if (increment > 0) {
-            for (long k = 0, n = array.length(); k < n; k++) {
-                array.setLong(k, Math.min(array.getLong(k) + increment, colorOrMaxValue));
-            }
-        } else {
-            for (long k = 0, n = array.length(); k < n; k++) {
-                array.setLong(k, colorOrMaxValue);
-            }
-        }
+    private long value(Contours contours, int contourIndex, int maxValue, Random rnd) {
+        return switch (drawnFeatures) {
+            case STRICT_BYTE_CONTOURS -> maxValue;
+            case NOT_INTERSECTED_LABELS_OF_CONTOURS -> contours.getObjectLabel(contourIndex);
+            case NOT_INTERSECTED_INDEXES_OF_CONTOURS -> contourIndex + 1;
+            case NOT_INTERSECTED_RANDOMLY_COLORED_CONTOURS -> rnd.nextInt(maxValue);
+        };
     }
 }
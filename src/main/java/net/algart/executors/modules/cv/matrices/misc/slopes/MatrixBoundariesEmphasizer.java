@@ -25,6 +25,7 @@
 package net.algart.executors.modules.cv.matrices.misc.slopes;
 
 import net.algart.arrays.*;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 
 import java.util.Objects;
 import java.util.stream.IntStream;
@@ -125,22 +126,24 @@ public final class MatrixBoundariesEmphasizer {
             final Object values = da.javaArray();
             final int dimX = (int) matrix.dimX();
             final int dimY = (int) matrix.dimY();
-            switch (directionToEmphasize) {
-                case 0: {
-                    IntStream.range(0, dimY).parallel().forEach(y -> {
-                        // - note that it will work also for 1-dimensional matrix: dimY() will be 1
-                        emphasizer.emphasize(values, startOffset + y * dimX, dimX);
-                    });
-                    break;
-                }
-                case 1: {
-                    IntStream.range(0, dimX).parallel().forEach(x -> {
-                        emphasizer.emphasize(values, startOffset + x, dimY, dimX);
-                    });
-                    break;
-                }
-                default: {
-                    throw new AssertionError("Impossible " + directionToEmphasize);
+            try (ThreadBudget.Lease lease = ThreadBudget.acquire(0)) {
+                switch (directionToEmphasize) {
+                    case 0: {
+                        lease.run(() -> IntStream.range(0, dimY).parallel().forEach(y -> {
+                            // - note that it will work also for 1-dimensional matrix: dimY() will be 1
+                            emphasizer.emphasize(values, startOffset + y * dimX, dimX);
+                        }));
+                        break;
+                    }
+                    case 1: {
+                        lease.run(() -> IntStream.range(0, dimX).parallel().forEach(x -> {
+                            emphasizer.emphasize(values, startOffset + x, dimY, dimX);
+                        }));
+                        break;
+                    }
+                    default: {
+                        throw new AssertionError("Impossible " + directionToEmphasize);
+                    }
                 }
             }
             return true;
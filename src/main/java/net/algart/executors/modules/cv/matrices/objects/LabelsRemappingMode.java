@@ -0,0 +1,49 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects;
+
+import net.algart.executors.modules.cv.matrices.objects.labels.SparseLabelsTable;
+
+public enum LabelsRemappingMode {
+    AUTO,
+    DENSE,
+    SPARSE;
+
+    /**
+     * Returns <code>true</code> if the remapping should use {@link SparseLabelsTable} instead of
+     * a direct table for labels <code>0..labelsRange-1</code>.
+     *
+     * @param labelsRange      number of elements in the direct table.
+     * @param numberOfElements number of remapped elements (the upper bound of the number of different labels).
+     * @return whether the sparse table should be used.
+     */
+    public boolean isSparse(long labelsRange, long numberOfElements) {
+        return switch (this) {
+            case AUTO -> SparseLabelsTable.isSparseRecommended(labelsRange, numberOfElements);
+            case DENSE -> false;
+            case SPARSE -> true;
+        };
+    }
+}
@@ -28,6 +28,8 @@ import net.algart.arrays.JArrays;
 import net.algart.arrays.Matrix;
 import net.algart.executors.modules.core.common.matrices.MultiMatrix2DFilter;
 import net.algart.executors.modules.core.common.numbers.IndexingBase;
+import net.algart.executors.modules.cv.common.ThreadBudget;
+import net.algart.executors.modules.cv.matrices.objects.labels.SparseLabelsTable;
 import net.algart.multimatrix.MultiMatrix;
 import net.algart.multimatrix.MultiMatrix2D;
 
@@ -43,6 +45,8 @@ public final class ReindexLabels extends MultiMatrix2DFilter {
 
     private IndexingBase indexingBase = IndexingBase.ONE_BASED;
     private boolean includeReservedInRestoringTable = false;
+    private LabelsRemappingMode remappingMode = LabelsRemappingMode.AUTO;
+    private int maxThreads = 0;
 
     public ReindexLabels() {
         setDefaultInputMat(INPUT_LABELS);
@@ -68,22 +72,53 @@ public final class ReindexLabels extends MultiMatrix2DFilter {
         return this;
     }
 
+    public LabelsRemappingMode getRemappingMode() {
+        return remappingMode;
+    }
+
+    public ReindexLabels setRemappingMode(LabelsRemappingMode remappingMode) {
+        this.remappingMode = nonNull(remappingMode);
+        return this;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public ReindexLabels setMaxThreads(int maxThreads) {
+        this.maxThreads = nonNegative(maxThreads);
+        return this;
+    }
+
     @Override
     public MultiMatrix2D process(MultiMatrix2D labels) {
         Objects.requireNonNull(labels, "Null labels");
         long t1 = debugTime();
         final int[] labelsArray = labels.channel(0).toInt();
-        final int[] reindexTable = reindex(labelsArray, indexingBase.start, includeReservedInRestoringTable);
+        final int[] reindexTable;
+        try (ThreadBudget.Lease lease = ThreadBudget.acquire(maxThreads)) {
+            reindexTable = lease.call(() -> reindex(
+                    labelsArray, indexingBase.start, includeReservedInRestoringTable, remappingMode));
+        }
         long t2 = debugTime();
         logDebug(() -> String.format(Locale.US,
-                "Labels %s reindexed: %.3f ms",
-                labels, (t2 - t1) * 1e-6));
+                "Labels %s reindexed (%s mode): %.3f ms",
+                labels, remappingMode, (t2 - t1) * 1e-6));
         getNumbers(OUTPUT_RESTORING_TABLE).setTo(reindexTable, 1);
         return MultiMatrix.of2DMono(Matrix.as(labelsArray, labels.dimensions()));
     }
 
     public static int[] reindex(int[] labels, int indexingBase, boolean includeReservedInRestoringTable) {
+        return reindex(labels, indexingBase, includeReservedInRestoringTable, LabelsRemappingMode.AUTO);
+    }
+
+    public static int[] reindex(
+            int[] labels,
+            int indexingBase,
+            boolean includeReservedInRestoringTable,
+            LabelsRemappingMode remappingMode) {
         Objects.requireNonNull(labels, "Null labels");
+        Objects.requireNonNull(remappingMode, "Null remapping mode");
         if (indexingBase < 0) {
             throw new IllegalArgumentException("Negative indexing base " + indexingBase);
         }
@@ -96,6 +131,9 @@ public final class ReindexLabels extends MultiMatrix2DFilter {
             JArrays.fillIntProgression(result, 0, 1);
             return result;
         }
+        if (remappingMode.isSparse((long) maxLabel + 1 - indexingBase, labels.length)) {
+            return reindexSparse(labels, indexingBase, includeReservedInRestoringTable);
+        }
         final int[] map = new int[maxLabel + 1 - indexingBase];
         Arrays.fill(map, -1);
         IntStream.range(0, (labels.length + 255) >>> 8).parallel().forEach(block -> {
@@ -128,6 +166,37 @@ public final class ReindexLabels extends MultiMatrix2DFilter {
         return restoringTable;
     }
 
+    private static int[] reindexSparse(int[] labels, int indexingBase, boolean includeReservedInRestoringTable) {
+        final int[] sortedLabels = SparseLabelsTable.distinctLabels(labels, indexingBase);
+        final SparseLabelsTable map = SparseLabelsTable.ofIndexes(sortedLabels, indexingBase);
+        IntStream.range(0, (labels.length + 255) >>> 8).parallel().forEach(block -> {
+            // note: splitting to blocks helps to provide normal speed
+            int lastLabel = -1;
+            int lastNewLabel = -1;
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, labels.length); i < to; i++) {
+                final int label = labels[i];
+                if (label >= indexingBase) {
+                    if (label != lastLabel) {
+                        lastLabel = label;
+                        lastNewLabel = map.get(label, -1);
+                        assert lastNewLabel != -1 : "label " + label + " was not found";
+                    }
+                    labels[i] = lastNewLabel;
+                }
+            }
+        });
+        if (includeReservedInRestoringTable) {
+            final int[] restoringTable = new int[indexingBase + sortedLabels.length];
+            for (int reserved = 0; reserved < indexingBase; reserved++) {
+                restoringTable[reserved] = reserved;
+            }
+            System.arraycopy(sortedLabels, 0, restoringTable, indexingBase, sortedLabels.length);
+            return restoringTable;
+        } else {
+            return sortedLabels;
+        }
+    }
+
     private static int[] buildRestoringTableWithReserved(int[] map, int count, int indexingBase) {
         final int[] restoringTable = new int[count];
         for (int reserved = 0; reserved < indexingBase; reserved++) {
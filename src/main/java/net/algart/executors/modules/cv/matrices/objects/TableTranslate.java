@@ -29,6 +29,8 @@ import net.algart.executors.api.data.SNumbers;
 import net.algart.executors.modules.core.common.matrices.MultiMatrix2DFilter;
 import net.algart.executors.modules.core.common.numbers.IndexingBase;
 import net.algart.executors.modules.core.numbers.misc.InvertTable;
+import net.algart.executors.modules.cv.common.ThreadBudget;
+import net.algart.executors.modules.cv.matrices.objects.labels.SparseLabelsTable;
 import net.algart.multimatrix.MultiMatrix;
 import net.algart.multimatrix.MultiMatrix2D;
 
@@ -55,6 +57,9 @@ public final class TableTranslate extends MultiMatrix2DFilter {
     private ResultElementType resultElementType = ResultElementType.INT;
     private Double replacementForNotExisting = null;
     private boolean invertTable = false;
+    private boolean pairsTable = false;
+    private LabelsRemappingMode remappingMode = LabelsRemappingMode.AUTO;
+    private int maxThreads = 0;
 
     public TableTranslate() {
         setDefaultInputMat(INPUT_LABELS);
@@ -98,9 +103,57 @@ public final class TableTranslate extends MultiMatrix2DFilter {
         return this;
     }
 
+    public boolean isPairsTable() {
+        return pairsTable;
+    }
+
+    public TableTranslate setPairsTable(boolean pairsTable) {
+        this.pairsTable = pairsTable;
+        return this;
+    }
+
+    public LabelsRemappingMode getRemappingMode() {
+        return remappingMode;
+    }
+
+    public TableTranslate setRemappingMode(LabelsRemappingMode remappingMode) {
+        this.remappingMode = nonNull(remappingMode);
+        return this;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public TableTranslate setMaxThreads(int maxThreads) {
+        this.maxThreads = nonNegative(maxThreads);
+        return this;
+    }
+
     @Override
     public MultiMatrix2D process(MultiMatrix2D labelsMatrix) {
         final SNumbers table = getInputNumbers(INPUT_TABLE);
+        try (ThreadBudget.Lease lease = ThreadBudget.acquire(maxThreads)) {
+            return lease.call(() -> process(labelsMatrix, table));
+        }
+    }
+
+    private MultiMatrix2D process(MultiMatrix2D labelsMatrix, SNumbers table) {
+        if (pairsTable) {
+            if (table.getBlockLength() != 2) {
+                throw new IllegalArgumentException("Table of pairs must contain 2 columns (label and its new value), "
+                        + "but it has " + table.getBlockLength() + " columns");
+            }
+            final int[] pairs = table.toIntArray();
+            final int[] keys = new int[pairs.length / 2];
+            for (int k = 0; k < keys.length; k++) {
+                keys[k] = pairs[2 * k];
+            }
+            return switch (resultElementType) {
+                case INT -> processPairs(labelsMatrix, keys, pairs, null);
+                case FLOAT -> processPairs(labelsMatrix, keys, null, table.toFloatArray());
+            };
+        }
         return switch (resultElementType) {
             case INT -> process(labelsMatrix, table.toIntArray());
             case FLOAT -> process(labelsMatrix, table.toFloatArray());
@@ -110,6 +163,10 @@ public final class TableTranslate extends MultiMatrix2DFilter {
     public MultiMatrix2D process(MultiMatrix2D labelsMatrix, int[] translationTable) {
         Objects.requireNonNull(labelsMatrix, "Null labels");
         Objects.requireNonNull(translationTable, "Null translation table");
+        if (invertTable && remappingMode.isSparse(maxValue(translationTable) + 1L - indexingBase.start,
+                labelsMatrix.size() + translationTable.length)) {
+            return processSparseInverted(labelsMatrix, translationTable);
+        }
         final int[] labels = labelsMatrix.channel(0).toInt();
         final int[] table = invertTable ?
                 InvertTable.invert(translationTable, indexingBase.start) :
@@ -174,4 +231,95 @@ public final class TableTranslate extends MultiMatrix2DFilter {
         }
         return MultiMatrix.of2DMono(Matrix.as(result, labelsMatrix.dimensions()));
     }
+
+    private MultiMatrix2D processPairs(MultiMatrix2D labelsMatrix, int[] keys, int[] intPairs, float[] floatPairs) {
+        Objects.requireNonNull(labelsMatrix, "Null labels");
+        Objects.requireNonNull(keys, "Null keys");
+        if ((intPairs == null) == (floatPairs == null)) {
+            throw new IllegalArgumentException("One and only one of int/float arrays of pairs must be specified");
+        }
+        if (invertTable) {
+            throw new IllegalArgumentException("\"Invert table\" mode cannot be used together with table of pairs");
+        }
+        final SparseLabelsTable map = new SparseLabelsTable(keys.length);
+        for (int k = 0; k < keys.length; k++) {
+            if (keys[k] >= 0) {
+                map.put(keys[k], k);
+                // - negative keys cannot be stored, but they also should not appear as labels
+            }
+        }
+        final Integer intReplacement = replacementForNotExisting == null ?
+                null :
+                (int) replacementForNotExisting.doubleValue();
+        if (intPairs != null) {
+            final int[] labels = labelsMatrix.channel(0).toInt();
+            IntStream.range(0, (labels.length + 255) >>> 8).parallel().forEach(block -> {
+                // note: splitting to blocks helps to provide normal speed
+                for (int i = block << 8, to = (int) Math.min((long) i + 256, labels.length); i < to; i++) {
+                    final int label = labels[i];
+                    final int index = label >= 0 ? map.get(label, -1) : -1;
+                    if (index >= 0) {
+                        labels[i] = intPairs[2 * index + 1];
+                    } else if (intReplacement != null) {
+                        labels[i] = intReplacement;
+                    }
+                }
+            });
+            return MultiMatrix.of2DMono(Matrix.as(labels, labelsMatrix.dimensions()));
+        } else {
+            final int[] labels = labelsMatrix.channel(0).jaInt();
+            // - note: we don't modify the labels below, so we can use jaInt()
+            final float[] result = new float[labels.length];
+            final Float replacement = replacementForNotExisting == null ?
+                    null :
+                    replacementForNotExisting.floatValue();
+            IntStream.range(0, (labels.length + 255) >>> 8).parallel().forEach(block -> {
+                // note: splitting to blocks helps to provide normal speed
+                for (int i = block << 8, to = (int) Math.min((long) i + 256, labels.length); i < to; i++) {
+                    final int label = labels[i];
+                    final int index = label >= 0 ? map.get(label, -1) : -1;
+                    result[i] = index >= 0 ? floatPairs[2 * index + 1] :
+                            replacement != null ? replacement :
+                                    label;
+                }
+            });
+            return MultiMatrix.of2DMono(Matrix.as(result, labelsMatrix.dimensions()));
+        }
+    }
+
+    private MultiMatrix2D processSparseInverted(MultiMatrix2D labelsMatrix, int[] translationTable) {
+        final int base = indexingBase.start;
+        final SparseLabelsTable map = new SparseLabelsTable(translationTable.length);
+        for (int k = 0; k < translationTable.length; k++) {
+            if (translationTable[k] >= base) {
+                map.put(translationTable[k], k + base);
+                // - values < base cannot be found in the inverted table
+            }
+        }
+        final Integer replacement = replacementForNotExisting == null ?
+                null :
+                (int) replacementForNotExisting.doubleValue();
+        final int[] labels = labelsMatrix.channel(0).toInt();
+        IntStream.range(0, (labels.length + 255) >>> 8).parallel().forEach(block -> {
+            // note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, labels.length); i < to; i++) {
+                final int label = labels[i];
+                final int newLabel = label >= base ? map.get(label, -1) : -1;
+                if (newLabel >= 0) {
+                    labels[i] = newLabel;
+                } else if (replacement != null) {
+                    labels[i] = replacement;
+                }
+            }
+        });
+        return MultiMatrix.of2DMono(Matrix.as(labels, labelsMatrix.dimensions()));
+    }
+
+    private static int maxValue(int[] values) {
+        int result = Integer.MIN_VALUE;
+        for (int value : values) {
+            result = Math.max(result, value);
+        }
+        return result;
+    }
 }
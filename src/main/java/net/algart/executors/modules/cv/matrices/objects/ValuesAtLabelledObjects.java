@@ -31,6 +31,7 @@ import net.algart.executors.api.ReadOnlyExecutionInput;
 import net.algart.executors.api.data.SMat;
 import net.algart.executors.api.data.SNumbers;
 import net.algart.executors.api.data.SScalar;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.cv.matrices.objects.labels.LabelsAnalyser;
 import net.algart.executors.modules.cv.matrices.objects.markers.PaintLabelledObjects;
 import net.algart.multimatrix.MultiMatrix2D;
@@ -99,6 +100,7 @@ public final class ValuesAtLabelledObjects extends Executor implements ReadOnlyE
     private ObjectParameter paintedParameter = ObjectParameter.MEAN;
     private boolean paintLabelledOnSource = false;
     private boolean visiblePaintLabelled = false;
+    private boolean reuseLabelsInformation = false;
 
     private final LabelsAnalyser analyser = new LabelsAnalyser();
     // - reusing memory for labels
@@ -247,6 +249,15 @@ public final class ValuesAtLabelledObjects extends Executor implements ReadOnlyE
         return this;
     }
 
+    public boolean isReuseLabelsInformation() {
+        return reuseLabelsInformation;
+    }
+
+    public ValuesAtLabelledObjects setReuseLabelsInformation(boolean reuseLabelsInformation) {
+        this.reuseLabelsInformation = reuseLabelsInformation;
+        return this;
+    }
+
     public ValuesAtLabelledObjects requestPaintLabelled() {
         requestOutput(OUTPUT_PAINT_LABELLED);
         return this;
@@ -264,7 +275,10 @@ public final class ValuesAtLabelledObjects extends Executor implements ReadOnlyE
         final Map<ObjectParameter, SNumbers> resultStatistics = convertMap(
                 allOutputContainers(SNumbers.class, true));
         setStartProcessingTimeStamp();
-        analyse(resultStatistics, sourceMatrix, labelsMatrix, maskMatrix);
+        try (ThreadBudget.Lease lease = ThreadBudget.acquire(0)) {
+            lease.run(() -> analyse(resultStatistics, sourceMatrix, labelsMatrix, maskMatrix));
+            // - labels processors use the number of threads of this lease
+        }
         for (Map.Entry<ObjectParameter, SNumbers> result : resultStatistics.entrySet()) {
             // maybe, analyse method has added some results
             getNumbers(result.getKey().outputPort).setTo(result.getValue());
@@ -318,6 +332,7 @@ public final class ValuesAtLabelledObjects extends Executor implements ReadOnlyE
         }
 
         final int numberOfChannels = sourceMatrix.numberOfChannels();
+        analyser.setReuseLabelsInformation(reuseLabelsInformation);
         analyser.setLabels(labelsMatrix, maskMatrix);
         if (needPercentiles && !channelPercentiles) {
             if (levelMatrix == null) {
@@ -401,11 +416,12 @@ public final class ValuesAtLabelledObjects extends Executor implements ReadOnlyE
         long t5 = debugTime();
         if (LOGGABLE_DEBUG) {
             logDebug(String.format(Locale.US, "Values at %d labelled objects at %s calculated in %.3f ms: "
-                            + "%.3f reading/masking matrices, "
+                            + "%.3f reading/masking matrices%s, "
                             + "%.3f processing labels%s, "
                             + "%.3f making results %s",
                     analyser.maxLabel(), sourceMatrix, (t5 - t1) * 1e-6,
                     (t2 - t1) * 1e-6,
+                    analyser.isLabelsReused() ? " (labels information reused)" : "",
                     (t4 - t2) * 1e-6,
                     needPercentiles ?
                             String.format(Locale.US, " (%.3f for lists + %.3f for %d percentiles: [%s])",
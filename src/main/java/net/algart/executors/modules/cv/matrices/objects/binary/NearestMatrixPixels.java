@@ -49,7 +49,18 @@ public final class NearestMatrixPixels extends MultiMatrixToNumbers {
     public static final String OUTPUT_NEAREST_PIXELS = "nearest_pixels";
     public static final String OUTPUT_NUMBERS_OF_NEAREST = "numbers_of_nearest";
     public static final String OUTPUT_LINES_TO_NEAREST = "lines_to_nearest";
+    public static final String OUTPUT_DISTANCES = "distances";
 
+    public enum SearchAlgorithm {
+        APERTURE,
+        DISTANCE_TRANSFORM
+    }
+
+    private interface NearestSearch {
+        int findNearest(int x, int y, MutableIntArray resultXY);
+    }
+
+    private SearchAlgorithm searchAlgorithm = SearchAlgorithm.APERTURE;
     private int maxApertureSize = 10;
     private int neighbourhoodSizeForNearest = 3;
     private int maxNumberOfNeighbours = 1;
@@ -66,6 +77,16 @@ public final class NearestMatrixPixels extends MultiMatrixToNumbers {
         setDefaultOutputNumbers(OUTPUT_NEAREST_PIXELS);
         addOutputNumbers(OUTPUT_NUMBERS_OF_NEAREST);
         addOutputMat(OUTPUT_LINES_TO_NEAREST);
+        addOutputMat(OUTPUT_DISTANCES);
+    }
+
+    public SearchAlgorithm getSearchAlgorithm() {
+        return searchAlgorithm;
+    }
+
+    public NearestMatrixPixels setSearchAlgorithm(SearchAlgorithm searchAlgorithm) {
+        this.searchAlgorithm = nonNull(searchAlgorithm);
+        return this;
     }
 
     public int getMaxApertureSize() {
@@ -169,12 +190,28 @@ public final class NearestMatrixPixels extends MultiMatrixToNumbers {
         final int[] positionsArray = positions.toIntArray();
         long t1 = System.nanoTime();
         final Matrix<BitArray> mask = invertSourceMask ? sourceMask.zeroRGBMatrix() : sourceMask.nonZeroRGBMatrix();
-        final SortedRound2DAperture maxAperture = SortedRound2DAperture.getCircle(maxApertureSize, sourceMask.dimX());
-        final SortedRound2DAperture neighbourhoodForNearest =
-                SortedRound2DAperture.getCircle(neighbourhoodSizeForNearest, sourceMask.dimX());
-        final NearestPixelFinder finder = new NearestPixelFinder(mask, maxAperture, neighbourhoodForNearest)
-                .setMaxNumberOfNeighbours(maxNumberOfNeighbours)
-                .setSkipPositionsAtMaks(skipPositionsAtMaks);
+        final boolean distanceTransform = searchAlgorithm == SearchAlgorithm.DISTANCE_TRANSFORM;
+        final boolean outputDistances = isOutputNecessary(OUTPUT_DISTANCES);
+        final NearestPixelMap map = distanceTransform || outputDistances ? new NearestPixelMap(mask) : null;
+        final NearestSearch finder;
+        final String searchInfo;
+        if (distanceTransform) {
+            finder = (x, y, resultXY) -> findNearest(map, x, y, resultXY);
+            searchInfo = "distance transform";
+        } else {
+            final SortedRound2DAperture maxAperture =
+                    SortedRound2DAperture.getCircle(maxApertureSize, sourceMask.dimX());
+            final SortedRound2DAperture neighbourhoodForNearest =
+                    SortedRound2DAperture.getCircle(neighbourhoodSizeForNearest, sourceMask.dimX());
+            finder = new NearestPixelFinder(mask, maxAperture, neighbourhoodForNearest)
+                    .setMaxNumberOfNeighbours(maxNumberOfNeighbours)
+                    .setSkipPositionsAtMaks(skipPositionsAtMaks)::findNearest;
+            searchInfo = "aperture size " + maxApertureSize + " (" + maxAperture.count() + " points)";
+        }
+        if (outputDistances) {
+            getMat(OUTPUT_DISTANCES).setTo(MultiMatrix.of2DMono(
+                    Matrix.as(map.distances(), map.dimX(), map.dimY())));
+        }
         long t2 = System.nanoTime();
         MutableIntArray nearestXY = Arrays.SMM.newEmptyIntArray();
         final int n = positions.n();
@@ -242,9 +279,9 @@ public final class NearestMatrixPixels extends MultiMatrixToNumbers {
         final SNumbers result = SNumbers.ofArray(resultPositions, returnPairsOfThisAndNearestPixel ? 4 : 2);
         long t4 = System.nanoTime();
         logDebug(() -> String.format(Locale.US, "Nearest matrix pixels for %d points at %s, "
-                        + "aperture size %d (%d points): %.3f ms = "
+                        + "%s: %.3f ms = "
                         + "%.3f preparing, %.3f search, %.3f making results",
-                n, sourceMask, maxApertureSize, maxAperture.count(),
+                n, sourceMask, searchInfo,
                 (t4 - t1) * 1e-6,
                 (t2 - t1) * 1e-6, (t3 - t2) * 1e-6, (t4 - t3) * 1e-6));
 
@@ -257,7 +294,7 @@ public final class NearestMatrixPixels extends MultiMatrixToNumbers {
     }
 
     private static MutableIntArray findNearestInRange(
-            NearestPixelFinder finder,
+            NearestSearch finder,
             int[] positions,
             IRange range,
             int[] resultNumbersOfNearest) {
@@ -270,4 +307,20 @@ public final class NearestMatrixPixels extends MultiMatrixToNumbers {
         return result;
     }
 
+    private int findNearest(NearestPixelMap map, int x, int y, MutableIntArray resultXY) {
+        if (x < 0 || y < 0 || x >= map.dimX() || y >= map.dimY()) {
+            return 0;
+        }
+        final int index = map.nearestIndex(x, y);
+        if (index < 0) {
+            return 0;
+        }
+        final int dimX = map.dimX();
+        if (index == y * dimX + x && skipPositionsAtMaks) {
+            return 0;
+        }
+        resultXY.addInt(index % dimX);
+        resultXY.addInt(index / dimX);
+        return 1;
+    }
 }
\ No newline at end of file
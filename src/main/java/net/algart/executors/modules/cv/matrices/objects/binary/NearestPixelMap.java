@@ -0,0 +1,220 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.binary;
+
+import net.algart.arrays.BitArray;
+import net.algart.arrays.Matrix;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Exact Euclidean nearest-feature map of a 2-dimensional binary mask: for every pixel,
+ * it stores the index of the nearest unit pixel of the mask.
+ *
+ * <p>The map is built by the separable linear-time algorithm of Felzenszwalb and Huttenlocher
+ * (the same scheme is used by Meijster et al.): the 1st pass finds the nearest unit pixel in every column,
+ * the 2nd pass builds the lower envelope of parabolas in every row. Both passes are performed
+ * in parallel by blocks of columns/rows. Unlike {@link NearestPixelFinder}, the search radius is unlimited
+ * and any query after building is performed in O(1).</p>
+ *
+ * <p>Among several equidistant unit pixels, only one is stored.</p>
+ */
+public final class NearestPixelMap {
+    private static final int COLUMNS_BLOCK_LENGTH = 256;
+
+    private final int dimX;
+    private final int dimY;
+    private final int[] nearestIndexes;
+    private final boolean empty;
+
+    public NearestPixelMap(Matrix<? extends BitArray> mask) {
+        Objects.requireNonNull(mask, "Null mask matrix");
+        if (mask.dimCount() != 2) {
+            throw new IllegalArgumentException("Only 2-dimensional masks are supported: " + mask);
+        }
+        if (mask.size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too large mask: " + mask);
+        }
+        this.dimX = (int) mask.dimX();
+        this.dimY = (int) mask.dimY();
+        this.nearestIndexes = new int[dimX * dimY];
+        this.empty = mask.array().indexOf(0, mask.size(), true) == -1;
+        if (!empty) {
+            findNearestInColumns(mask.array());
+            findNearestInRows();
+        } else {
+            Arrays.fill(nearestIndexes, -1);
+        }
+    }
+
+    public int dimX() {
+        return dimX;
+    }
+
+    public int dimY() {
+        return dimY;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Returns the index <code>y*dimX+x</code> of the nearest unit pixel (x, y) to the given position,
+     * or &minus;1 if the mask contains no unit pixels.
+     *
+     * @param x x-coordinate of the position.
+     * @param y y-coordinate of the position.
+     * @return index of the nearest unit pixel or &minus;1.
+     * @throws IndexOutOfBoundsException if the position is outside the mask.
+     */
+    public int nearestIndex(int x, int y) {
+        if (x < 0 || x >= dimX || y < 0 || y >= dimY) {
+            throw new IndexOutOfBoundsException("Position (" + x + ", " + y + ") is out of the mask "
+                    + dimX + "x" + dimY);
+        }
+        return nearestIndexes[y * dimX + x];
+    }
+
+    public int[] nearestIndexes() {
+        return nearestIndexes.clone();
+    }
+
+    /**
+     * Returns Euclidean distances from every pixel to the nearest unit pixel, row by row.
+     * If the mask contains no unit pixels, all distances are <code>Float.POSITIVE_INFINITY</code>.
+     *
+     * @return distance map.
+     */
+    public float[] distances() {
+        final float[] result = new float[nearestIndexes.length];
+        IntStream.range(0, (dimY + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int y = block << 8, to = (int) Math.min((long) y + 256, dimY); y < to; y++) {
+                for (int x = 0, disp = y * dimX; x < dimX; x++, disp++) {
+                    final int index = nearestIndexes[disp];
+                    if (index < 0) {
+                        result[disp] = Float.POSITIVE_INFINITY;
+                    } else {
+                        final long dx = x - index % dimX;
+                        final long dy = y - index / dimX;
+                        result[disp] = (float) Math.sqrt((double) (dx * dx + dy * dy));
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    // For every pixel, stores y-coordinate of the nearest unit pixel in the same column or -1.
+    private void findNearestInColumns(BitArray mask) {
+        IntStream.range(0, (dimX + COLUMNS_BLOCK_LENGTH - 1) / COLUMNS_BLOCK_LENGTH).parallel().forEach(block -> {
+            final int x0 = block * COLUMNS_BLOCK_LENGTH;
+            final int length = Math.min(COLUMNS_BLOCK_LENGTH, dimX - x0);
+            final long[] bits = new long[(length + 63) >>> 6];
+            final int[] last = new int[length];
+            Arrays.fill(last, -1);
+            for (int y = 0; y < dimY; y++) {
+                final int disp = y * dimX + x0;
+                mask.getBits(disp, bits, 0, length);
+                for (int i = 0; i < length; i++) {
+                    if ((bits[i >>> 6] & (1L << i)) != 0) {
+                        last[i] = y;
+                    }
+                    nearestIndexes[disp + i] = last[i];
+                }
+            }
+            Arrays.fill(last, -1);
+            for (int y = dimY - 1; y >= 0; y--) {
+                final int disp = y * dimX + x0;
+                for (int i = 0; i < length; i++) {
+                    final int above = nearestIndexes[disp + i];
+                    if (above == y) {
+                        last[i] = y;
+                        continue;
+                    }
+                    final int below = last[i];
+                    if (below >= 0 && (above < 0 || below - y < y - above)) {
+                        nearestIndexes[disp + i] = below;
+                    }
+                }
+            }
+        });
+    }
+
+    // Lower envelope of parabolas f(q)+(x-q)^2 in every row, where f(q) is the squared distance
+    // to the nearest unit pixel in the column q.
+    private void findNearestInRows() {
+        IntStream.range(0, (dimY + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            final int[] columnY = new int[dimX];
+            final int[] v = new int[dimX];
+            final double[] f = new double[dimX];
+            final double[] z = new double[dimX + 1];
+            for (int y = block << 8, to = (int) Math.min((long) y + 256, dimY); y < to; y++) {
+                final int disp = y * dimX;
+                System.arraycopy(nearestIndexes, disp, columnY, 0, dimX);
+                int k = -1;
+                for (int q = 0; q < dimX; q++) {
+                    if (columnY[q] < 0) {
+                        continue;
+                    }
+                    final double dy = y - columnY[q];
+                    f[q] = dy * dy;
+                    final double fq = f[q] + (double) q * (double) q;
+                    double s = Double.NEGATIVE_INFINITY;
+                    while (k >= 0) {
+                        final int p = v[k];
+                        s = (fq - (f[p] + (double) p * (double) p)) / (2.0 * (q - p));
+                        if (s > z[k]) {
+                            break;
+                        }
+                        k--;
+                    }
+                    if (k < 0) {
+                        s = Double.NEGATIVE_INFINITY;
+                    }
+                    k++;
+                    v[k] = q;
+                    z[k] = s;
+                }
+                if (k < 0) {
+                    // - possible only if there are no unit pixels in the matrix at all
+                    Arrays.fill(nearestIndexes, disp, disp + dimX, -1);
+                    continue;
+                }
+                for (int x = 0, j = 0; x < dimX; x++) {
+                    while (j < k && z[j + 1] < x) {
+                        j++;
+                    }
+                    final int q = v[j];
+                    nearestIndexes[disp + x] = columnY[q] * dimX + q;
+                }
+            }
+        });
+    }
+}
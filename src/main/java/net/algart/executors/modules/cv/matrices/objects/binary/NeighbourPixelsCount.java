@@ -26,35 +26,14 @@ package net.algart.executors.modules.cv.matrices.objects.binary;
 
 import net.algart.arrays.*;
 import net.algart.executors.modules.core.common.matrices.BitMultiMatrixFilter;
-import net.algart.math.functions.Func;
-import net.algart.math.functions.LinearFunc;
-import net.algart.math.functions.RectangularFunc;
 import net.algart.matrices.scanning.ConnectivityType;
 import net.algart.multimatrix.MultiMatrix;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Locale;
 
 public final class NeighbourPixelsCount extends BitMultiMatrixFilter {
     public static final String OUTPUT_Q = "Q";
 
-    private static final long[][] NEIGHBOUR_SHIFTS_4 = {
-            {1, 0},
-            {0, 1},
-            {-1, 0},
-            {0, -1},
-    };
-    private static final long[][] NEIGHBOUR_SHIFTS_8 = {
-            {1, 0},
-            {0, 1},
-            {-1, 0},
-            {0, -1},
-            {1, 1},
-            {-1, 1},
-            {-1, -1},
-            {1, -1},
-    };
-
     private ConnectivityType connectivityType = ConnectivityType.STRAIGHT_AND_DIAGONAL;
     private int minNumberOfNeighbours = 0;
     private int maxNumberOfNeighbours = 0;
@@ -104,35 +83,38 @@ public final class NeighbourPixelsCount extends BitMultiMatrixFilter {
 
     @Override
     public Matrix<? extends PArray> processMatrix(Matrix<? extends PArray> bitMatrix) {
-        final long[][] neighbourShifts;
+        final boolean diagonal;
         switch (connectivityType) {
             case STRAIGHT_ONLY:
-                neighbourShifts = NEIGHBOUR_SHIFTS_4;
+                diagonal = false;
                 break;
 
             case STRAIGHT_AND_DIAGONAL:
-                neighbourShifts = NEIGHBOUR_SHIFTS_8;
+                diagonal = true;
                 break;
             default:
                 throw new UnsupportedOperationException("Unsuported " + connectivityType);
         }
-        final List<Matrix<? extends PArray>> shifted = new ArrayList<Matrix<? extends PArray>>();
-        shifted.add(bitMatrix);
-        for (long[] shift : neighbourShifts) {
-            shifted.add(Matrices.asShifted(bitMatrix, shift).cast(PArray.class));
+        final boolean countersNecessary = isOutputNecessary(OUTPUT_Q);
+        final Matrix<UpdatableIntArray> counter = countersNecessary ?
+                Arrays.SMM.newIntMatrix(bitMatrix.dimensions()) :
+                null;
+        long t1 = debugTime();
+        final PackedBitNeighbourhood3x3 neighbourhood = new PackedBitNeighbourhood3x3(bitMatrix, diagonal);
+        // - sum of the central pixel and its neighbours, calculated directly in packed bits
+        final Matrix<UpdatableBitArray> result = neighbourhood.sumInRange(
+                (int) Math.min(minNumberOfNeighbours + 1L, Integer.MAX_VALUE),
+                (int) Math.min(maxNumberOfNeighbours + 1L, Integer.MAX_VALUE),
+                unitPixelsOnly,
+                counter);
+        long t2 = debugTime();
+        if (countersNecessary) {
+            getMat(OUTPUT_Q).setTo(MultiMatrix.of2DMono(reduce(counter)));
         }
-        final Matrix<? extends PArray> counter = Matrices.clone(
-                Matrices.asFuncMatrix(
-                        LinearFunc.getNonweightedInstance(0.0, 1.0, shifted.size()),
-                        IntArray.class, shifted));
-        getMat(OUTPUT_Q).setTo(MultiMatrix.of2DMono(reduce(counter)));
-        final Matrix<BitArray> result = Matrices.asFuncMatrix(
-                RectangularFunc.getInstance(
-                        minNumberOfNeighbours + 1, maxNumberOfNeighbours + 1, 1.0, 0.0),
-                BitArray.class, counter);
-        return unitPixelsOnly ?
-                Matrices.asFuncMatrix(Func.MIN, BitArray.class, result, bitMatrix) :
-                result;
+        logDebug(() -> String.format(Locale.US,
+                "Counting neighbours of %s: %.3f ms%s",
+                bitMatrix, (t2 - t1) * 1e-6, countersNecessary ? " (with counters)" : ""));
+        return result;
     }
 
     @Override
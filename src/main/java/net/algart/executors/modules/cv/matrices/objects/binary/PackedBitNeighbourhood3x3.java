@@ -0,0 +1,228 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.binary;
+
+import net.algart.arrays.*;
+
+import java.util.stream.IntStream;
+
+/**
+ * Bit-parallel 3x3 neighbourhood counter, working directly with packed <code>long</code> words
+ * of 2-dimensional bit matrix: 64 pixels are processed by every operation.
+ *
+ * <p>The sum of the central pixel and its 4 or 8 neighbours is calculated as 4 bit-planes
+ * by a chain of bit-sliced adders. Rows are processed in parallel.</p>
+ *
+ * <p>Neighbours outside the matrix are taken with pseudo-cyclic continuation, like in
+ * {@link Matrices#asShifted(Matrix, long...)}: the matrix is considered as a cyclic 1-dimensional array,
+ * so the left neighbour of the pixel (0,&nbsp;y) is (dimX&minus;1,&nbsp;y&minus;1),
+ * the right neighbour of (dimX&minus;1,&nbsp;y) is (0,&nbsp;y+1),
+ * and the row above the first one is the last row.</p>
+ */
+final class PackedBitNeighbourhood3x3 {
+    private static final int BLOCK_HEIGHT = 64;
+    private static final int NUMBER_OF_PLANES = 4;
+
+    private final Matrix<? extends BitArray> matrix;
+    private final BitArray array;
+    private final long dimX;
+    private final int dimY;
+    private final int wordsPerRow;
+    private final int lastBitInRow;
+    private final boolean diagonal;
+
+    PackedBitNeighbourhood3x3(Matrix<? extends PArray> matrix, boolean diagonal) {
+        if (matrix.dimCount() != 2) {
+            throw new IllegalArgumentException("Only 2-dimensional matrices are supported");
+        }
+        if (matrix.dimY() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too large matrix height: " + matrix.dimY());
+        }
+        if ((matrix.dimX() + 63) >>> 6 > Integer.MAX_VALUE / BLOCK_HEIGHT) {
+            throw new IllegalArgumentException("Too large matrix width: " + matrix.dimX());
+        }
+        this.matrix = matrix.cast(BitArray.class);
+        this.array = this.matrix.array();
+        this.dimX = matrix.dimX();
+        this.dimY = (int) matrix.dimY();
+        this.wordsPerRow = (int) ((dimX + 63) >>> 6);
+        this.lastBitInRow = (int) ((dimX - 1) & 63);
+        this.diagonal = diagonal;
+    }
+
+    /**
+     * Returns the bit matrix, containing 1 for pixels, where the sum of the pixel and its neighbours
+     * is in the range <code>minSum..maxSum</code> (and the pixel itself is 1 if <code>unitCentersOnly</code>).
+     * If <code>resultSums</code> is not <code>null</code>, the sums are also stored there.
+     */
+    Matrix<UpdatableBitArray> sumInRange(
+            int minSum,
+            int maxSum,
+            boolean unitCentersOnly,
+            Matrix<? extends UpdatablePArray> resultSums) {
+        if (resultSums != null && !resultSums.dimEquals(matrix)) {
+            throw new SizeMismatchException("Different dimensions of the source and the sums matrices");
+        }
+        boolean[] accepted = new boolean[1 << NUMBER_OF_PLANES];
+        for (int v = Math.max(minSum, 0); v <= Math.min(maxSum, accepted.length - 1); v++) {
+            accepted[v] = true;
+        }
+        final Matrix<UpdatableBitArray> result = Arrays.SMM.newMatrix(
+                UpdatableBitArray.class, boolean.class, dimX, dimY);
+        final UpdatableBitArray resultArray = result.array();
+        final UpdatablePArray sumsArray = resultSums == null ? null : resultSums.array();
+        final int numberOfBlocks = (dimY + BLOCK_HEIGHT - 1) / BLOCK_HEIGHT;
+        final long[][] resultBlocks = new long[numberOfBlocks][];
+        IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+            final int fromY = block * BLOCK_HEIGHT;
+            final int toY = Math.min(fromY + BLOCK_HEIGHT, dimY);
+            resultBlocks[block] = processBlock(fromY, toY, accepted, unitCentersOnly, sumsArray);
+        });
+        for (int block = 0; block < numberOfBlocks; block++) {
+            // - sequential copying: neighbour rows can share the same word in the packed result
+            final int fromY = block * BLOCK_HEIGHT;
+            final int toY = Math.min(fromY + BLOCK_HEIGHT, dimY);
+            final long[] words = resultBlocks[block];
+            for (int y = fromY; y < toY; y++) {
+                resultArray.setBits(y * dimX, words, (long) (y - fromY) * wordsPerRow << 6, dimX);
+            }
+            resultBlocks[block] = null;
+        }
+        return result;
+    }
+
+    private long[] processBlock(
+            int fromY,
+            int toY,
+            boolean[] accepted,
+            boolean unitCentersOnly,
+            UpdatablePArray sumsArray) {
+        final long[] resultWords = new long[(toY - fromY) * wordsPerRow];
+        long[] previous = new long[wordsPerRow + 1];
+        long[] current = new long[wordsPerRow + 1];
+        long[] next = new long[wordsPerRow + 1];
+        // - the last element contains pseudo-cyclic neighbours of the row ends, see readRow
+        readRow(fromY - 1, previous);
+        readRow(fromY, current);
+        final long[] planes = new long[NUMBER_OF_PLANES];
+        final int[] sums = sumsArray == null ? null : new int[(int) dimX];
+        for (int y = fromY; y < toY; y++) {
+            readRow(y + 1, next);
+            final int resultOffset = (y - fromY) * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                final long c = current[i];
+                final long up = previous[i];
+                final long down = next[i];
+                final long left = shiftedLeft(current, i);
+                final long right = shiftedRight(current, i);
+                planes[0] = planes[1] = planes[2] = planes[3] = 0;
+                add(planes, c);
+                add(planes, up);
+                add(planes, down);
+                add(planes, left);
+                add(planes, right);
+                if (diagonal) {
+                    add(planes, shiftedLeft(previous, i));
+                    add(planes, shiftedRight(previous, i));
+                    add(planes, shiftedLeft(next, i));
+                    add(planes, shiftedRight(next, i));
+                }
+                long result = 0;
+                for (int v = 0; v < accepted.length; v++) {
+                    if (accepted[v]) {
+                        result |= equal(planes, v);
+                    }
+                }
+                if (unitCentersOnly) {
+                    result &= c;
+                }
+                resultWords[resultOffset + i] = result;
+                if (sums != null) {
+                    final int x0 = i << 6;
+                    for (int k = 0, x = x0, xTo = (int) Math.min(x0 + 64, dimX); x < xTo; k++, x++) {
+                        sums[x] = (int) ((planes[0] >>> k) & 1)
+                                | (int) ((planes[1] >>> k) & 1) << 1
+                                | (int) ((planes[2] >>> k) & 1) << 2
+                                | (int) ((planes[3] >>> k) & 1) << 3;
+                    }
+                }
+            }
+            if (sums != null) {
+                sumsArray.setData(y * dimX, sums);
+                // - different elements of int/short/... arrays can be safely written from different threads
+            }
+            final long[] temp = previous;
+            previous = current;
+            current = next;
+            next = temp;
+        }
+        return resultWords;
+    }
+
+    // Reads the row y (pseudo-cyclically) into row[0..wordsPerRow-1];
+    // row[wordsPerRow] contains the previous pixel before the row start (bit 0)
+    // and the next pixel after the row end (bit 1) in the linear order of the matrix elements
+    private void readRow(int y, long[] row) {
+        if (dimX == 0) {
+            return;
+        }
+        final long rowStart = Math.floorMod(y, dimY) * dimX;
+        final long length = array.length();
+        array.getBits(rowStart, row, 0, dimX);
+        final long previousPixel = array.getBit(Math.floorMod(rowStart - 1, length)) ? 1 : 0;
+        final long nextPixel = array.getBit((rowStart + dimX) % length) ? 1 : 0;
+        row[wordsPerRow] = previousPixel | nextPixel << 1;
+    }
+
+    // Value of pixel x-1 at position x
+    private long shiftedLeft(long[] row, int i) {
+        return i == 0 ? row[0] << 1 | (row[wordsPerRow] & 1) : row[i] << 1 | row[i - 1] >>> 63;
+    }
+
+    // Value of pixel x+1 at position x
+    private long shiftedRight(long[] row, int i) {
+        return i == wordsPerRow - 1 ?
+                row[i] >>> 1 | (row[wordsPerRow] >>> 1 & 1) << lastBitInRow :
+                row[i] >>> 1 | row[i + 1] << 63;
+    }
+
+    // Bit-sliced increment of 4-bit counters by 0 or 1
+    private static void add(long[] planes, long bits) {
+        long carry = bits;
+        for (int k = 0; k < NUMBER_OF_PLANES && carry != 0; k++) {
+            final long newCarry = planes[k] & carry;
+            planes[k] ^= carry;
+            carry = newCarry;
+        }
+    }
+
+    private static long equal(long[] planes, int value) {
+        long result = -1L;
+        for (int k = 0; k < NUMBER_OF_PLANES; k++) {
+            result &= (value >>> k & 1) != 0 ? planes[k] : ~planes[k];
+        }
+        return result;
+    }
+}
@@ -24,15 +24,12 @@
 
 package net.algart.executors.modules.cv.matrices.objects.binary;
 
-import net.algart.arrays.BitArray;
-import net.algart.arrays.Matrices;
-import net.algart.arrays.Matrix;
-import net.algart.arrays.PArray;
+import net.algart.arrays.*;
 import net.algart.executors.modules.core.common.matrices.BitMultiMatrixFilter;
 import net.algart.executors.modules.cv.matrices.morphology.MorphologyFilter;
 import net.algart.math.IRange;
 import net.algart.math.Range;
-import net.algart.math.functions.AbstractFunc;
+import net.algart.math.functions.Func;
 import net.algart.math.patterns.Pattern;
 import net.algart.matrices.morphology.BasicMorphology;
 import net.algart.matrices.morphology.ContinuedMorphology;
@@ -41,6 +38,9 @@ import net.algart.matrices.skeletons.BasicSkeletonPixelClassifier2D;
 import net.algart.matrices.skeletons.SkeletonPixelClassifier;
 import net.algart.multimatrix.MultiMatrix;
 
+import java.util.Locale;
+import java.util.stream.IntStream;
+
 import static net.algart.matrices.skeletons.BasicSkeletonPixelClassifier2D.*;
 import static net.algart.matrices.skeletons.SkeletonPixelClassifier.AttachmentInformation.NEIGHBOUR_INDEX_OF_ATTACHED_NODE;
 
@@ -159,25 +159,27 @@ public final class SkeletonPixelTypes extends BitMultiMatrixFilter {
 
     @Override
     public Matrix<? extends PArray> processMatrix(Matrix<? extends PArray> bitMatrix) {
-        final SkeletonPixelClassifier skeletonPixelClassifier = algorithm.getSkeletonPixelClassifier();
-        Matrix<? extends PArray> pixelTypes = Matrices.clone(
-                skeletonPixelClassifier.asPixelTypes(
-                        bitMatrix.cast(BitArray.class), NEIGHBOUR_INDEX_OF_ATTACHED_NODE));
-        getMat(OUTPUT_TYPE_CODES).setTo(MultiMatrix.of2DMono(reduce(pixelTypes)));
-        final double yesValue = invert ? 0.0 : 1.0;
         final double noValue = invert ? 1.0 : 0.0;
-        Matrix<? extends PArray> result = Matrices.clone(Matrices.asFuncMatrix(
-                new AbstractFunc() {
-                    @Override
-                    public double get(double... x) {
-                        return get(x[0]);
-                    }
-
-                    @Override
-                    public double get(double x0) {
-                        return pixelType.isThisPixelType(x0) ? yesValue : noValue;
-                    }
-                }, BitArray.class, pixelTypes));
+        Matrix<? extends PArray> result;
+        long t1 = debugTime();
+        if (pixelType == PixelType.ISOLATED && !isOutputNecessary(OUTPUT_TYPE_CODES)) {
+            // - isolated pixel is a unit pixel without unit neighbours for all algorithms:
+            // we can find them by bit-parallel counting without calculating type codes
+            getMat(OUTPUT_TYPE_CODES).remove();
+            // - type codes are not calculated: the result of the previous call must not stay in this port
+            result = new PackedBitNeighbourhood3x3(bitMatrix, true).sumInRange(1, 1, true, null);
+            if (invert) {
+                result = Matrices.clone(Matrices.asFuncMatrix(Func.REVERSE, BitArray.class, result));
+            }
+        } else {
+            final SkeletonPixelClassifier skeletonPixelClassifier = algorithm.getSkeletonPixelClassifier();
+            final Matrix<? extends PArray> pixelTypes = Matrices.clone(
+                    skeletonPixelClassifier.asPixelTypes(
+                            bitMatrix.cast(BitArray.class), NEIGHBOUR_INDEX_OF_ATTACHED_NODE));
+            getMat(OUTPUT_TYPE_CODES).setTo(MultiMatrix.of2DMono(reduce(pixelTypes)));
+            result = selectPixelType(pixelTypes.cast(IntArray.class));
+        }
+        long t2 = debugTime();
         if (dilationSize > 0) {
             final Morphology morphology = ContinuedMorphology.getInstance(
                     BasicMorphology.getInstance(null),
@@ -187,6 +189,41 @@ public final class SkeletonPixelTypes extends BitMultiMatrixFilter {
                     morphology.erosion(result, pattern) :
                     morphology.dilation(result, pattern);
         }
+        long t3 = debugTime();
+        logDebug(() -> String.format(Locale.US,
+                "Finding %s skeleton pixels in %s: %.3f ms classifying + %.3f ms dilation",
+                pixelType, bitMatrix, (t2 - t1) * 1e-6, (t3 - t2) * 1e-6));
+        return result;
+    }
+
+    // Packs results of the check of every type code directly into long words of the result bit matrix
+    private Matrix<UpdatableBitArray> selectPixelType(Matrix<? extends IntArray> pixelTypes) {
+        final long dimX = pixelTypes.dimX();
+        final int dimY = (int) pixelTypes.dimY();
+        // - dimensions of the source bit matrix, which is 2-dimensional
+        final IntArray types = pixelTypes.array();
+        final Matrix<UpdatableBitArray> result = Arrays.SMM.newMatrix(
+                UpdatableBitArray.class, boolean.class, pixelTypes.dimensions());
+        final int wordsPerRow = (int) ((dimX + 63) >>> 6);
+        final long[][] rows = new long[dimY][];
+        IntStream.range(0, (dimY + 15) >>> 4).parallel().forEach(block -> {
+            final int[] line = new int[(int) dimX];
+            for (int y = block << 4, to = Math.min(y + 16, dimY); y < to; y++) {
+                types.getData(y * dimX, line);
+                final long[] words = new long[wordsPerRow];
+                for (int x = 0; x < line.length; x++) {
+                    if (pixelType.isThisPixelType(line[x]) != invert) {
+                        words[x >>> 6] |= 1L << x;
+                    }
+                }
+                rows[y] = words;
+            }
+        });
+        final UpdatableBitArray resultArray = result.array();
+        for (int y = 0; y < dimY; y++) {
+            resultArray.setBits(y * dimX, rows[y], 0, dimX);
+            rows[y] = null;
+        }
         return result;
     }
 
@@ -26,14 +26,14 @@ package net.algart.executors.modules.cv.matrices.objects.binary.boundaries;
 
 import net.algart.contours.ContourHeader;
 import net.algart.contours.Contours;
+import net.algart.executors.api.Executor;
 import net.algart.executors.api.ReadOnlyExecutionInput;
 import net.algart.executors.api.data.SNumbers;
-import net.algart.executors.modules.core.common.numbers.SeveralNumbersOperation;
 
-import java.util.List;
+import java.util.Locale;
 import java.util.stream.Stream;
 
-public final class AddContoursToArray extends SeveralNumbersOperation implements ReadOnlyExecutionInput {
+public final class AddContoursToArray extends Executor implements ReadOnlyExecutionInput {
     public static final String INPUT_CONTOURS = "contours";
     public static final String INPUT_ADDED = "added";
     public static final String OUTPUT_CONTOURS = "contours";
@@ -41,9 +41,16 @@ public final class AddContoursToArray extends SeveralNumbersOperation implements
     private int objectLabel = 1;
     private boolean internalContour = false;
     private String points = "";
+    private boolean accumulate = false;
+    private boolean reset = true;
+    private boolean outputAccumulated = true;
+
+    private Contours accumulated = null;
+    // - growable buffer of contours, alive between calls in accumulation mode
 
     public AddContoursToArray() {
-        super(INPUT_CONTOURS, INPUT_ADDED);
+        setDefaultInputNumbers(INPUT_CONTOURS);
+        addInputNumbers(INPUT_ADDED);
         setDefaultOutputNumbers(OUTPUT_CONTOURS);
         addOutputScalar(ScanAndMeasureBoundaries.OUTPUT_NUMBER_OF_OBJECTS);
     }
@@ -75,14 +82,78 @@ public final class AddContoursToArray extends SeveralNumbersOperation implements
         return this;
     }
 
+    public boolean isAccumulate() {
+        return accumulate;
+    }
+
+    public AddContoursToArray setAccumulate(boolean accumulate) {
+        this.accumulate = accumulate;
+        return this;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public AddContoursToArray setReset(boolean reset) {
+        this.reset = reset;
+        return this;
+    }
+
+    public boolean isOutputAccumulated() {
+        return outputAccumulated;
+    }
+
+    public AddContoursToArray setOutputAccumulated(boolean outputAccumulated) {
+        this.outputAccumulated = outputAccumulated;
+        return this;
+    }
+
     @Override
-    protected SNumbers processNumbers(List<SNumbers> sources) {
-        final SNumbers source = sources.get(0);
-        final SNumbers added = sources.get(1);
-        final Contours contours = source != null ?
-                Contours.deserialize(source.toIntArray()) :
-                Contours.newInstance();
-        if (added != null) {
+    public void process() {
+        final SNumbers source = getInputNumbers(INPUT_CONTOURS, true);
+        final SNumbers added = getInputNumbers(INPUT_ADDED, true);
+        final Contours contours;
+        if (!accumulate) {
+            accumulated = null;
+            contours = source.isInitialized() ?
+                    Contours.deserialize(source.toIntArray()) :
+                    Contours.newInstance();
+        } else {
+            if (accumulated == null || reset) {
+                accumulated = source.isInitialized() ?
+                        Contours.deserialize(source.toIntArray()) :
+                        Contours.newInstance();
+            }
+            // - else the source contours are ignored: they are already stored in the accumulated buffer
+            contours = accumulated;
+        }
+        long t1 = debugTime();
+        addContours(contours, added);
+        long t2 = debugTime();
+        getScalar(ScanAndMeasureBoundaries.OUTPUT_NUMBER_OF_OBJECTS).setTo(contours.numberOfContours());
+        if (!accumulate || (outputAccumulated && isOutputNecessary(OUTPUT_CONTOURS))) {
+            // - in accumulation mode, we serialize the buffer only when it is really necessary
+            getNumbers(OUTPUT_CONTOURS).setTo(contours);
+        } else {
+            getNumbers(OUTPUT_CONTOURS).remove();
+            // - the output of the previous call must not stay visible as the current result
+        }
+        long t3 = debugTime();
+        logDebug(() -> String.format(Locale.US,
+                "Contours %s: %d contours, %.3f ms adding + %.3f ms serializing",
+                accumulate ? "accumulated" : "added", contours.numberOfContours(),
+                (t2 - t1) * 1e-6, (t3 - t2) * 1e-6));
+    }
+
+    @Override
+    public void close() {
+        accumulated = null;
+        super.close();
+    }
+
+    private void addContours(Contours contours, SNumbers added) {
+        if (added.isInitialized()) {
             final int[] contourData = added.toIntArray();
             if (Contours.isSerializedContours(contourData)) {
                 contours.addContours(Contours.deserialize(contourData));
@@ -94,23 +165,6 @@ public final class AddContoursToArray extends SeveralNumbersOperation implements
                 contours.addContour(new ContourHeader(objectLabel, internalContour), points);
             }
         }
-        getScalar(ScanAndMeasureBoundaries.OUTPUT_NUMBER_OF_OBJECTS).setTo(contours.numberOfContours());
-        return SNumbers.of(contours);
-    }
-
-    @Override
-    protected boolean allowAllUninitializedInputs() {
-        return true;
-    }
-
-    @Override
-    protected boolean numberOfBlocksEqualityRequired() {
-        return false;
-    }
-
-    @Override
-    protected boolean blockLengthEqualityRequired() {
-        return false;
     }
 
     private static int[][] parseContours(String scalar) {
@@ -25,10 +25,13 @@
 package net.algart.executors.modules.cv.matrices.objects.binary.boundaries;
 
 import net.algart.arrays.Arrays;
+import net.algart.arrays.Matrix;
+import net.algart.arrays.UpdatablePArray;
 import net.algart.contours.ContourFiller;
 import net.algart.contours.Contours;
 import net.algart.executors.api.ReadOnlyExecutionInput;
 import net.algart.executors.api.data.SNumbers;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.core.common.matrices.MultiMatrix2DFilter;
 import net.algart.executors.modules.core.common.matrices.MultiMatrixGenerator;
 import net.algart.executors.modules.core.common.numbers.IndexingBase;
@@ -39,6 +42,7 @@ import net.algart.multimatrix.MultiMatrix2D;
 
 import java.util.Locale;
 import java.util.Objects;
+import java.util.stream.IntStream;
 
 public final class FillContours extends MultiMatrix2DFilter implements ReadOnlyExecutionInput {
     public static final String RECTANGLE = "rectangle";
@@ -49,6 +53,9 @@ public final class FillContours extends MultiMatrix2DFilter implements ReadOnlyE
     public static final String INPUT_RECTANGLE = "rectangle";
     public static final String OUTPUT_LABELS = AbstractScanAndMeasureBoundaries.OUTPUT_LABELS;
 
+    private static final int MIN_NUMBER_OF_CONTOURS_FOR_BANDS = 256;
+    private static final int MIN_BAND_HEIGHT = 64;
+
     private boolean doAction = true;
     private Class<?> elementType = int.class;
     private boolean needToProcessDiagonals = true;
@@ -212,38 +219,81 @@ public final class FillContours extends MultiMatrix2DFilter implements ReadOnlyE
         final int[] labelsMap = getInputNumbers(INPUT_LABELS_MAP, true).toIntArray();
 
         final MultiMatrix2D result;
-        final ContourFiller contourFiller = ContourFiller.newInstance(
-                        contours, elementType, startX, startY, sizeX, sizeY)
-                .setNeedToUnpack(!useUnpacker)
-                .setNeedToUnpackDiagonals(needToProcessDiagonals);
+        final long bandHeight = bandHeight(contours, sizeY);
+        final int numberOfBands = sizeY == 0 ? 1 : (int) ((sizeY + bandHeight - 1) / bandHeight);
+        final Matrix<UpdatablePArray> labels = numberOfBands == 1 ?
+                null :
+                Arrays.SMM.newMatrix(UpdatablePArray.class, elementType, sizeX, sizeY);
+        final ContourFiller[] fillers = new ContourFiller[numberOfBands];
+        for (int b = 0; b < numberOfBands; b++) {
+            final long fromY = b * bandHeight;
+            final long toY = Math.min(fromY + bandHeight, sizeY);
+            fillers[b] = (labels == null ?
+                    ContourFiller.newInstance(contours, elementType, startX, startY, sizeX, sizeY) :
+                    ContourFiller.newInstance(contours, labels.subMatrix(0, fromY, sizeX, toY), startX, startY + fromY))
+                    // - band fillers write directly into disjoint rows of the single result matrix
+                    .setNeedToUnpack(!useUnpacker)
+                    .setNeedToUnpackDiagonals(needToProcessDiagonals);
+        }
         long t3 = debugTime(), t4;
         if (sizeX == 0 || sizeY == 0) {
             result = MultiMatrix.of2DMono(Arrays.SMM.newIntMatrix(sizeX, sizeY));
             t4 = t3;
         } else {
-            contourFiller.setLabelsMap(labelsMap);
-            contourFiller.setIndexingBase(indexingBase.start);
-            if (defaultFiller != null) {
-                final int filler = defaultFiller;
-                contourFiller.setLabelToFillerDefault(label -> filler);
+            for (ContourFiller contourFiller : fillers) {
+                contourFiller.setLabelsMap(labelsMap);
+                contourFiller.setIndexingBase(indexingBase.start);
+                if (defaultFiller != null) {
+                    final int filler = defaultFiller;
+                    contourFiller.setLabelToFillerDefault(label -> filler);
+                }
             }
-            contourFiller.findAndSortNecessaryContours();
-            t4 = debugTime();
-            contourFiller.fillNecessaryContours();
-            result = MultiMatrix.of2DMono(contourFiller.getLabels());
+            if (numberOfBands == 1) {
+                fillers[0].findAndSortNecessaryContours();
+                t4 = debugTime();
+                fillers[0].fillNecessaryContours();
+                result = MultiMatrix.of2DMono(fillers[0].getLabels());
+            } else {
+                // Every band is filled by its own filler, which finds the contours, intersecting this band,
+                // and fills its own rows of the labels matrix; so, different bands are processed in parallel.
+                t4 = t3;
+                try (ThreadBudget.Lease lease = ThreadBudget.acquire(numberOfBands)) {
+                    lease.run(() -> IntStream.range(0, numberOfBands).parallel().forEach(b -> {
+                        final ContourFiller contourFiller = fillers[b];
+                        contourFiller.findAndSortNecessaryContours();
+                        contourFiller.fillNecessaryContours();
+                    }));
+                }
+                result = MultiMatrix.of2DMono(labels);
+            }
+        }
+        long numberOfNecessaryContours = 0;
+        for (ContourFiller contourFiller : fillers) {
+            numberOfNecessaryContours += contourFiller.numberOfNecessaryContours();
         }
+        final long numberOfFilledContours = numberOfNecessaryContours;
         long t5 = debugTime();
         logDebug(() -> String.format(Locale.US,
-                "Filling %d contours from %d total contours in %.3f ms = "
+                "Filling %d contours from %d total contours in %d bands in %.3f ms = "
                         + "%.3f %s + %.3f creating filler + %.3f preparing + %.3f filling",
-                contourFiller.numberOfNecessaryContours(),
+                numberOfFilledContours,
                 contours.numberOfContours(),
+                numberOfBands,
                 (t5 - t1) * 1e-6,
                 (t2 - t1) * 1e-6, useUnpacker ? "cached unpacking" : "loading",
                 (t3 - t2) * 1e-6, (t4 - t3) * 1e-6, (t5 - t4) * 1e-6));
         return result;
     }
 
+    private static long bandHeight(Contours contours, long sizeY) {
+        if (contours.numberOfContours() < MIN_NUMBER_OF_CONTOURS_FOR_BANDS) {
+            return Math.max(sizeY, 1);
+        }
+        final long n = Math.max(1, Math.min(ThreadBudget.currentThreads(), sizeY / MIN_BAND_HEIGHT));
+        // - fair share of the thread budget (or the threads of the current lease)
+        return Math.max((sizeY + n - 1) / n, 1);
+    }
+
     @Override
     protected boolean allowUninitializedInput() {
         return true;
@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.labels;
+
+import java.util.Objects;
+
+// Note: unlike CardinalitiesAndSumsCalculatorNChannels, these classes process a run of identical labels
+// by one call of LabelsRunKernels; they must be created only if LabelsVectorization.isSupported
+abstract class CardinalitiesAndSumsCalculatorVectorized extends CardinalitiesAndSumsCalculator {
+    private static final LabelsRunKernels KERNELS = LabelsVectorization.kernels();
+
+    CardinalitiesAndSumsCalculatorVectorized(int[] labels, int numberOfChannels) {
+        super(labels, numberOfChannels);
+    }
+
+    static CardinalitiesAndSumsCalculator getInstance(int[] labels, Object[] channels) {
+        Objects.requireNonNull(channels, "Null channels");
+        final Object channel0 = channels[0];
+        if (!LabelsVectorization.isSupported(channel0)) {
+            throw new AssertionError("Vectorization is not supported for " + channel0);
+        }
+        if (channel0 instanceof byte[]) {
+            return new ForBytes(labels, castToByte(channels));
+        } else if (channel0 instanceof short[]) {
+            return new ForShorts(labels, castToShort(channels));
+        } else if (channel0 instanceof float[]) {
+            return new ForFloats(labels, castToFloat(channels));
+        } else if (channel0 instanceof double[]) {
+            return new ForDoubles(labels, castToDouble(channels));
+        } else {
+            throw new AssertionError();
+        }
+    }
+
+    /*Repeat() Bytes  ==> Shorts,,Floats,,Doubles;;
+               byte   ==> short,,float,,double */
+
+    static class ForBytes extends CardinalitiesAndSumsCalculatorVectorized {
+        private final byte[][] data;
+
+        public ForBytes(int[] labels, byte[][] data) {
+            super(labels, data.length);
+            this.data = data;
+        }
+
+        @Override
+        protected void processSubArr(int p, int count, int threadIndex) {
+            int[] cardinalities = this.threadCardinalities[threadIndex];
+            double[][] sums = this.threadSums[threadIndex];
+            for (int k = p, kMax = k + count; k < kMax; ) {
+                final int label = labels[k];
+                final int runEnd = KERNELS.runEnd(labels, k, kMax);
+                if (label > 0) {
+                    if (label >= cardinalities.length) {
+                        cardinalities = ensureCapacityForLabel(cardinalities, label);
+                        ensureSeveralArraysCapacityForLabel(sums, label);
+                    }
+                    cardinalities[label] += runEnd - k;
+                    for (int c = 0; c < numberOfChannels; c++) {
+                        sums[c][label] += KERNELS.sum(data[c], k, runEnd);
+                    }
+                }
+                k = runEnd;
+            }
+            this.threadCardinalities[threadIndex] = cardinalities;
+        }
+    }
+    /*Repeat.AutoGeneratedStart !! Auto-generated: NOT EDIT !! */
+
+    static class ForShorts extends CardinalitiesAndSumsCalculatorVectorized {
+        private final short[][] data;
+
+        public ForShorts(int[] labels, short[][] data) {
+            super(labels, data.length);
+            this.data = data;
+        }
+
+        @Override
+        protected void processSubArr(int p, int count, int threadIndex) {
+            int[] cardinalities = this.threadCardinalities[threadIndex];
+            double[][] sums = this.threadSums[threadIndex];
+            for (int k = p, kMax = k + count; k < kMax; ) {
+                final int label = labels[k];
+                final int runEnd = KERNELS.runEnd(labels, k, kMax);
+                if (label > 0) {
+                    if (label >= cardinalities.length) {
+                        cardinalities = ensureCapacityForLabel(cardinalities, label);
+                        ensureSeveralArraysCapacityForLabel(sums, label);
+                    }
+                    cardinalities[label] += runEnd - k;
+                    for (int c = 0; c < numberOfChannels; c++) {
+                        sums[c][label] += KERNELS.sum(data[c], k, runEnd);
+                    }
+                }
+                k = runEnd;
+            }
+            this.threadCardinalities[threadIndex] = cardinalities;
+        }
+    }
+
+    static class ForFloats extends CardinalitiesAndSumsCalculatorVectorized {
+        private final float[][] data;
+
+        public ForFloats(int[] labels, float[][] data) {
+            super(labels, data.length);
+            this.data = data;
+        }
+
+        @Override
+        protected void processSubArr(int p, int count, int threadIndex) {
+            int[] cardinalities = this.threadCardinalities[threadIndex];
+            double[][] sums = this.threadSums[threadIndex];
+            for (int k = p, kMax = k + count; k < kMax; ) {
+                final int label = labels[k];
+                final int runEnd = KERNELS.runEnd(labels, k, kMax);
+                if (label > 0) {
+                    if (label >= cardinalities.length) {
+                        cardinalities = ensureCapacityForLabel(cardinalities, label);
+                        ensureSeveralArraysCapacityForLabel(sums, label);
+                    }
+                    cardinalities[label] += runEnd - k;
+                    for (int c = 0; c < numberOfChannels; c++) {
+                        sums[c][label] += KERNELS.sum(data[c], k, runEnd);
+                    }
+                }
+                k = runEnd;
+            }
+            this.threadCardinalities[threadIndex] = cardinalities;
+        }
+    }
+
+    static class ForDoubles extends CardinalitiesAndSumsCalculatorVectorized {
+        private final double[][] data;
+
+        public ForDoubles(int[] labels, double[][] data) {
+            super(labels, data.length);
+            this.data = data;
+        }
+
+        @Override
+        protected void processSubArr(int p, int count, int threadIndex) {
+            int[] cardinalities = this.threadCardinalities[threadIndex];
+            double[][] sums = this.threadSums[threadIndex];
+            for (int k = p, kMax = k + count; k < kMax; ) {
+                final int label = labels[k];
+                final int runEnd = KERNELS.runEnd(labels, k, kMax);
+                if (label > 0) {
+                    if (label >= cardinalities.length) {
+                        cardinalities = ensureCapacityForLabel(cardinalities, label);
+                        ensureSeveralArraysCapacityForLabel(sums, label);
+                    }
+                    cardinalities[label] += runEnd - k;
+                    for (int c = 0; c < numberOfChannels; c++) {
+                        sums[c][label] += KERNELS.sum(data[c], k, runEnd);
+                    }
+                }
+                k = runEnd;
+            }
+            this.threadCardinalities[threadIndex] = cardinalities;
+        }
+    }
+    /*Repeat.AutoGeneratedEnd*/
+}
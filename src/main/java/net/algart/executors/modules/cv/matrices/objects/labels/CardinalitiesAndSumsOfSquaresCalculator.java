@@ -43,6 +43,10 @@ abstract class CardinalitiesAndSumsOfSquaresCalculator extends CardinalitiesAndS
     }
 
     static CardinalitiesAndSumsOfSquaresCalculator getInstance(int[] labels, Object[] channels) {
+        return getInstance(labels, channels, true);
+    }
+
+    static CardinalitiesAndSumsOfSquaresCalculator getInstance(int[] labels, Object[] channels, boolean allowVectorization) {
         Objects.requireNonNull(labels, "Null labels");
         Objects.requireNonNull(channels, "Null channels");
         if (channels.length == 0) {
@@ -58,6 +62,9 @@ abstract class CardinalitiesAndSumsOfSquaresCalculator extends CardinalitiesAndS
                         + " != " + channel0.getClass());
             }
         }
+        if (allowVectorization && LabelsVectorization.isRecommended(labels, channel0)) {
+            return CardinalitiesAndSumsOfSquaresCalculatorVectorized.getInstance(labels, channels);
+        }
         switch (channels.length) {
             /*Repeat() case 1  ==> case 2,,case 3,,case 4,,case 5;;
                        1(Channels) ==> 2$1,,3$1,,4$1,,5$1 */
@@ -31,10 +31,22 @@ import net.algart.multimatrix.MultiMatrix2D;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.IntStream;
 
 public final class LabelsAnalyser {
+    private static final int COMPARISON_BLOCK_SIZE = 65536;
+
+    private boolean reuseLabelsInformation = false;
     private int[] labels;
     private boolean labelsMustBeImmutable;
+    private boolean labelsCompared = false;
+    private boolean labelsReused = false;
+    private int[] cachedLabels = null;
+    // - copy of the labels, for which the cached information below was calculated
+    private int cachedMaxLabel = Integer.MIN_VALUE;
+    private int[] cachedCardinalities = null;
+    private int[] cachedLists = null;
+    private int[] cachedListHeads = null;
     private Object[] channels;
     private Object[] channelsForPercentiles;
     private double[][] percentileLevelByChannels = new double[0][0];
@@ -62,6 +74,39 @@ public final class LabelsAnalyser {
 
     private IntJArrayHolder labelsHolder = new IntJArrayHolder();
     private IntJArrayHolder listsHolder = new IntJArrayHolder();
+    private IntJArrayHolder cachedLabelsHolder = new IntJArrayHolder();
+
+    public boolean isReuseLabelsInformation() {
+        return reuseLabelsInformation;
+    }
+
+    /**
+     * Sets the mode, when the information depending only on labels (maximal label, cardinalities,
+     * lists of pixels) is stored between calls of {@link #setLabels(MultiMatrix2D, MultiMatrix2D)}
+     * and is not recalculated, if the new labels (after masking) are the same as the previous ones.
+     * The labels are compared exactly with the copy of the labels, for which this information was calculated;
+     * the comparison (and the copying) is performed only when the stored information is really necessary,
+     * i.e. by {@link #findCardinalities()} and {@link #prepareLists()}.
+     * It is useful for video and time-series, when the labels are fixed and only the image changes.
+     *
+     * @param reuseLabelsInformation whether the information about labels should be reused.
+     * @return a reference to this object.
+     */
+    public LabelsAnalyser setReuseLabelsInformation(boolean reuseLabelsInformation) {
+        this.reuseLabelsInformation = reuseLabelsInformation;
+        return this;
+    }
+
+    /**
+     * Returns <code>true</code> if the labels, passed to the last call of
+     * {@link #setLabels(MultiMatrix2D, MultiMatrix2D)}, were detected to be the same as before,
+     * and the stored information about them was reused.
+     *
+     * @return whether the information about labels was reused.
+     */
+    public boolean isLabelsReused() {
+        return labelsReused;
+    }
 
     public LabelsAnalyser setLabels(MultiMatrix2D labelsMatrix) {
         return setLabels(labelsMatrix, null);
@@ -94,6 +139,16 @@ public final class LabelsAnalyser {
         }
         this.labels = labels;
         this.labelsMustBeImmutable = labelsMustBeImmutable;
+        this.labelsCompared = false;
+        this.labelsReused = false;
+        this.maxLabel = Integer.MIN_VALUE;
+        this.cardinalities = null;
+        this.lists = null;
+        this.listHeads = null;
+        if (!reuseLabelsInformation) {
+            resetCachedLabelsInformation();
+        }
+        resetImageResults();
         return this;
     }
 
@@ -138,15 +193,42 @@ public final class LabelsAnalyser {
 
     public void findCardinalities() {
         checkInitialized();
-        try (CardinalitiesCalculator processor = new CardinalitiesCalculator(labels)) {
+        if (reuseLabelsInformation && isCacheActual() && cachedCardinalities != null) {
+            this.maxLabel = cachedMaxLabel;
+            this.cardinalities = cachedCardinalities;
+            return;
+        }
+        if (isPartitionedAccumulationRecommended(0, false)) {
+            final PartitionedLabelsSumsCalculator processor =
+                    new PartitionedLabelsSumsCalculator(labels, new Object[0], false);
             processor.process();
             this.maxLabel = processor.maxLabel;
             this.cardinalities = processor.cardinalities;
+        } else {
+            try (CardinalitiesCalculator processor = new CardinalitiesCalculator(labels)) {
+                processor.process();
+                this.maxLabel = processor.maxLabel;
+                this.cardinalities = processor.cardinalities;
+            }
+        }
+        if (reuseLabelsInformation) {
+            cacheLabels();
+            this.cachedCardinalities = cardinalities;
         }
     }
 
     public void findMeansAndCardinalities() {
         checkImageInitialized();
+        if (isPartitionedAccumulationRecommended(channels.length, false)) {
+            final PartitionedLabelsSumsCalculator processor =
+                    new PartitionedLabelsSumsCalculator(labels, channels, false);
+            processor.process();
+            this.maxLabel = processor.maxLabel;
+            this.cardinalities = processor.cardinalities;
+            this.sums = processor.sums;
+            scaleValues(this.sums, scale);
+            return;
+        }
         try (CardinalitiesAndSumsCalculator processor = CardinalitiesAndSumsCalculator.getInstance(labels, channels)) {
             processor.process();
             this.maxLabel = processor.maxLabel;
@@ -158,6 +240,18 @@ public final class LabelsAnalyser {
 
     public void findMeansAndStandardDeviationsAndCardinalities() {
         checkImageInitialized();
+        if (isPartitionedAccumulationRecommended(channels.length, true)) {
+            final PartitionedLabelsSumsCalculator processor =
+                    new PartitionedLabelsSumsCalculator(labels, channels, true);
+            processor.process();
+            this.maxLabel = processor.maxLabel;
+            this.cardinalities = processor.cardinalities;
+            this.sums = processor.sums;
+            this.sumsOfSquares = processor.sumsOfSquares;
+            scaleValues(this.sums, scale);
+            scaleValues(this.sumsOfSquares, scale * scale);
+            return;
+        }
         try (CardinalitiesAndSumsOfSquaresCalculator processor =
                      CardinalitiesAndSumsOfSquaresCalculator.getInstance(labels, channels)) {
             processor.process();
@@ -172,12 +266,24 @@ public final class LabelsAnalyser {
 
     public void prepareLists() {
         checkInitialized();
+        if (reuseLabelsInformation && isCacheActual() && cachedLists != null) {
+            this.maxLabel = cachedMaxLabel;
+            this.lists = cachedLists;
+            this.listHeads = cachedListHeads;
+            return;
+            // - note: findPercentilesAndCardinalities and other methods do not modify lists
+        }
         this.lists = listsHolder.quickNew(labels.length);
         try (LabelsListsBuilder processor = LabelsListsBuilder.getInstance(labels, lists)) {
             processor.process();
             this.maxLabel = processor.maxLabel();
             this.listHeads = processor.listHeads();
         }
+        if (reuseLabelsInformation) {
+            cacheLabels();
+            this.cachedLists = lists;
+            this.cachedListHeads = listHeads;
+        }
     }
 
     public LabelsAnalyser setPercentileLevelByChannels(double[][] percentileLevelByChannels) {
@@ -435,6 +541,66 @@ public final class LabelsAnalyser {
         }
     }
 
+    private boolean isPartitionedAccumulationRecommended(int numberOfChannels, boolean needSumsOfSquares) {
+        if (maxLabel == Integer.MIN_VALUE) {
+            this.maxLabel = PartitionedLabelsSumsCalculator.maxLabel(labels);
+            // - quick parallel pass; it is the same maximal label as will be found by any calculator
+        }
+        return PartitionedLabelsSumsCalculator.isRecommended(
+                maxLabel, labels.length, numberOfChannels, needSumsOfSquares);
+    }
+
+    private void resetImageResults() {
+        this.sums = null;
+        this.sumsOfSquares = null;
+        this.percentilesByChannels = null;
+        this.groupedPercentilesByLevels = null;
+        this.truncatedMeans = null;
+        this.firstNonZeroIndexes = null;
+        this.firstNonZeroIntValues = null;
+        this.firstNonZeroFloatValues = null;
+    }
+
+    // Compares the current labels with the cached ones (once after setLabels) and discards the cached
+    // information, if they are different; returns true if the cached information corresponds to the current labels.
+    private boolean isCacheActual() {
+        if (!labelsCompared) {
+            labelsCompared = true;
+            labelsReused = cachedLabels != null && equalLabels(cachedLabels, labels);
+            if (!labelsReused) {
+                resetCachedLabelsInformation();
+            }
+        }
+        return cachedLabels != null;
+    }
+
+    private void cacheLabels() {
+        if (!isCacheActual()) {
+            this.cachedLabels = cachedLabelsHolder.quickClone(labels);
+            this.cachedMaxLabel = maxLabel;
+        }
+    }
+
+    private void resetCachedLabelsInformation() {
+        this.cachedLabels = null;
+        this.cachedMaxLabel = Integer.MIN_VALUE;
+        this.cachedCardinalities = null;
+        this.cachedLists = null;
+        this.cachedListHeads = null;
+    }
+
+    private static boolean equalLabels(int[] a, int[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        final int numberOfBlocks = (int) (((long) a.length + COMPARISON_BLOCK_SIZE - 1) / COMPARISON_BLOCK_SIZE);
+        return IntStream.range(0, numberOfBlocks).parallel().allMatch(block -> {
+            final int from = block * COMPARISON_BLOCK_SIZE;
+            final int to = (int) Math.min((long) from + COMPARISON_BLOCK_SIZE, a.length);
+            return java.util.Arrays.equals(a, from, to, b, from, to);
+        });
+    }
+
     private static Object[] retrieveChannelsOrFloats(MultiMatrix2D matrix) {
         return retrieveChannelsOrFloats(matrix.allChannels(), false);
     }
@@ -28,6 +28,7 @@ import net.algart.arrays.Array;
 import net.algart.arrays.Arrays;
 import net.algart.arrays.JArrayPool;
 import net.algart.arrays.TooLargeArrayException;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 
 public abstract class LabelsProcessor extends Arrays.ParallelExecutor implements AutoCloseable {
     private static final int NUMBER_OR_PARTICLES_IN_BLOCK_FOR_PARALLEL_PROCESSING = 64;
@@ -53,7 +54,8 @@ public abstract class LabelsProcessor extends Arrays.ParallelExecutor implements
     }
 
     protected LabelsProcessor(Array src, int blockSize) {
-        super(null, null, src, blockSize, 0, 0);
+        super(null, null, src, blockSize, ThreadBudget.currentThreads(), 0);
+        // - number of tasks is the number of threads, leased by the current task (if any) in the thread budget
     }
 
     protected final void processSubArr(long position, int count, int threadIndex) {
@@ -65,7 +67,7 @@ public abstract class LabelsProcessor extends Arrays.ParallelExecutor implements
     protected abstract void processSubArr(int p, int count, int threadIndex);
 
     protected static int numberOrParticlesInBlockForParallelProcessing(int numberOfParticles) {
-        int maxRecommended = numberOfParticles / (2 * Arrays.SystemSettings.cpuCount());
+        int maxRecommended = numberOfParticles / (2 * ThreadBudget.currentThreads());
         return Math.max(4, Math.min(maxRecommended, NUMBER_OR_PARTICLES_IN_BLOCK_FOR_PARALLEL_PROCESSING));
         // - if there are little number of particles, we should still try to pass >=2 particles to every CPU
     }
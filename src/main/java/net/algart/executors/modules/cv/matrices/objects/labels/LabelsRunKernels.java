@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.labels;
+
+// Kernels, processing a run of identical labels. The only implementation LabelsVectorKernels requires
+// jdk.incubator.vector module, which may be absent at runtime, so it is loaded by LabelsVectorization via reflection.
+interface LabelsRunKernels {
+    String description();
+
+    int runEnd(int[] labels, int from, int to);
+
+    /*Repeat() byte ==> short,,float,,double */
+
+    double sum(byte[] data, int from, int to);
+
+    double sumOfSquares(byte[] data, int from, int to);
+
+    /*Repeat.AutoGeneratedStart !! Auto-generated: NOT EDIT !! */
+
+    double sum(short[] data, int from, int to);
+
+    double sumOfSquares(short[] data, int from, int to);
+
+    double sum(float[] data, int from, int to);
+
+    double sumOfSquares(float[] data, int from, int to);
+
+    double sum(double[] data, int from, int to);
+
+    double sumOfSquares(double[] data, int from, int to);
+
+    /*Repeat.AutoGeneratedEnd*/
+}
@@ -0,0 +1,256 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.labels;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// Note: this is the only class in this package that refers to jdk.incubator.vector module.
+// It is compiled with --add-modules jdk.incubator.vector (see pom.xml) and must be used only via LabelsVectorization,
+// which checks that this module is available and creates the instance via reflection.
+final class LabelsVectorKernels implements LabelsRunKernels {
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONG_SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTE_FOR_INT_SPECIES =
+            species(byte.class, INT_SPECIES.vectorBitSize() / 4);
+    private static final VectorSpecies<Short> SHORT_FOR_INT_SPECIES =
+            species(short.class, INT_SPECIES.vectorBitSize() / 2);
+    private static final VectorSpecies<Short> SHORT_FOR_LONG_SPECIES =
+            species(short.class, LONG_SPECIES.vectorBitSize() / 4);
+    private static final VectorSpecies<Float> FLOAT_FOR_DOUBLE_SPECIES =
+            species(float.class, DOUBLE_SPECIES.vectorBitSize() / 2);
+    // - null species means that the corresponding type is processed by scalar loop
+
+    private static final int FLUSH_INTERVAL = Integer.MAX_VALUE / (0xFFFF * INT_SPECIES.length());
+    // - unsigned 16-bit values and squares of unsigned 8-bit values can be summed in int lanes
+    // this number of times without overflow of the sum of all lanes (reduceLanesToLong reduces in int type)
+
+    LabelsVectorKernels() {
+    }
+
+    @Override
+    public String description() {
+        return "Vector API: " + INT_SPECIES + ", " + DOUBLE_SPECIES;
+    }
+
+    @Override
+    public int runEnd(int[] labels, int from, int to) {
+        final int label = labels[from];
+        int k = from + 1;
+        if (k >= to || labels[k] != label) {
+            return k;
+            // - quick check for very little objects
+        }
+        final int step = INT_SPECIES.length();
+        for (int bound = to - step; k <= bound; k += step) {
+            final VectorMask<Integer> different = IntVector.fromArray(INT_SPECIES, labels, k)
+                    .compare(VectorOperators.NE, label);
+            if (different.anyTrue()) {
+                return k + different.firstTrue();
+            }
+        }
+        while (k < to && labels[k] == label) {
+            k++;
+        }
+        return k;
+    }
+
+    @Override
+    public double sum(byte[] data, int from, int to) {
+        long result = 0;
+        int k = from;
+        if (BYTE_FOR_INT_SPECIES != null) {
+            final int step = BYTE_FOR_INT_SPECIES.length();
+            for (int bound = to - step; k <= bound; ) {
+                IntVector sum = IntVector.zero(INT_SPECIES);
+                for (int n = 0; n < FLUSH_INTERVAL && k <= bound; n++, k += step) {
+                    sum = sum.add(ByteVector.fromArray(BYTE_FOR_INT_SPECIES, data, k)
+                            .convertShape(VectorOperators.ZERO_EXTEND_B2I, INT_SPECIES, 0));
+                }
+                result += sum.reduceLanesToLong(VectorOperators.ADD);
+            }
+        }
+        for (; k < to; k++) {
+            result += data[k] & 0xFF;
+        }
+        return result;
+    }
+
+    @Override
+    public double sumOfSquares(byte[] data, int from, int to) {
+        long result = 0;
+        int k = from;
+        if (BYTE_FOR_INT_SPECIES != null) {
+            final int step = BYTE_FOR_INT_SPECIES.length();
+            for (int bound = to - step; k <= bound; ) {
+                IntVector sum = IntVector.zero(INT_SPECIES);
+                for (int n = 0; n < FLUSH_INTERVAL && k <= bound; n++, k += step) {
+                    final IntVector v = (IntVector) ByteVector.fromArray(BYTE_FOR_INT_SPECIES, data, k)
+                            .convertShape(VectorOperators.ZERO_EXTEND_B2I, INT_SPECIES, 0);
+                    sum = sum.add(v.mul(v));
+                }
+                result += sum.reduceLanesToLong(VectorOperators.ADD);
+            }
+        }
+        for (; k < to; k++) {
+            final int v = data[k] & 0xFF;
+            result += v * v;
+        }
+        return result;
+    }
+
+    @Override
+    public double sum(short[] data, int from, int to) {
+        long result = 0;
+        int k = from;
+        if (SHORT_FOR_INT_SPECIES != null) {
+            final int step = SHORT_FOR_INT_SPECIES.length();
+            for (int bound = to - step; k <= bound; ) {
+                IntVector sum = IntVector.zero(INT_SPECIES);
+                for (int n = 0; n < FLUSH_INTERVAL && k <= bound; n++, k += step) {
+                    sum = sum.add(ShortVector.fromArray(SHORT_FOR_INT_SPECIES, data, k)
+                            .convertShape(VectorOperators.ZERO_EXTEND_S2I, INT_SPECIES, 0));
+                }
+                result += sum.reduceLanesToLong(VectorOperators.ADD);
+            }
+        }
+        for (; k < to; k++) {
+            result += data[k] & 0xFFFF;
+        }
+        return result;
+    }
+
+    @Override
+    public double sumOfSquares(short[] data, int from, int to) {
+        long result = 0;
+        int k = from;
+        if (SHORT_FOR_LONG_SPECIES != null) {
+            final int step = SHORT_FOR_LONG_SPECIES.length();
+            LongVector sum = LongVector.zero(LONG_SPECIES);
+            // - squares of unsigned 16-bit values do not fit into int lanes
+            for (int bound = to - step; k <= bound; k += step) {
+                final LongVector v = (LongVector) ShortVector.fromArray(SHORT_FOR_LONG_SPECIES, data, k)
+                        .convertShape(VectorOperators.ZERO_EXTEND_S2L, LONG_SPECIES, 0);
+                sum = sum.add(v.mul(v));
+            }
+            result += sum.reduceLanes(VectorOperators.ADD);
+        }
+        for (; k < to; k++) {
+            final long v = data[k] & 0xFFFF;
+            result += v * v;
+        }
+        return result;
+    }
+
+    @Override
+    public double sum(float[] data, int from, int to) {
+        double result = 0.0;
+        int k = from;
+        if (FLOAT_FOR_DOUBLE_SPECIES != null) {
+            final int step = FLOAT_FOR_DOUBLE_SPECIES.length();
+            DoubleVector sum = DoubleVector.zero(DOUBLE_SPECIES);
+            for (int bound = to - step; k <= bound; k += step) {
+                sum = sum.add(FloatVector.fromArray(FLOAT_FOR_DOUBLE_SPECIES, data, k)
+                        .convertShape(VectorOperators.F2D, DOUBLE_SPECIES, 0));
+            }
+            result += sum.reduceLanes(VectorOperators.ADD);
+        }
+        for (; k < to; k++) {
+            result += data[k];
+        }
+        return result;
+    }
+
+    @Override
+    public double sumOfSquares(float[] data, int from, int to) {
+        double result = 0.0;
+        int k = from;
+        if (FLOAT_FOR_DOUBLE_SPECIES != null) {
+            final int step = FLOAT_FOR_DOUBLE_SPECIES.length();
+            DoubleVector sum = DoubleVector.zero(DOUBLE_SPECIES);
+            for (int bound = to - step; k <= bound; k += step) {
+                final DoubleVector v = (DoubleVector) FloatVector.fromArray(FLOAT_FOR_DOUBLE_SPECIES, data, k)
+                        .convertShape(VectorOperators.F2D, DOUBLE_SPECIES, 0);
+                sum = v.fma(v, sum);
+            }
+            result += sum.reduceLanes(VectorOperators.ADD);
+        }
+        for (; k < to; k++) {
+            final double v = data[k];
+            result += v * v;
+        }
+        return result;
+    }
+
+    @Override
+    public double sum(double[] data, int from, int to) {
+        double result = 0.0;
+        int k = from;
+        final int step = DOUBLE_SPECIES.length();
+        DoubleVector sum = DoubleVector.zero(DOUBLE_SPECIES);
+        for (int bound = to - step; k <= bound; k += step) {
+            sum = sum.add(DoubleVector.fromArray(DOUBLE_SPECIES, data, k));
+        }
+        result += sum.reduceLanes(VectorOperators.ADD);
+        for (; k < to; k++) {
+            result += data[k];
+        }
+        return result;
+    }
+
+    @Override
+    public double sumOfSquares(double[] data, int from, int to) {
+        double result = 0.0;
+        int k = from;
+        final int step = DOUBLE_SPECIES.length();
+        DoubleVector sum = DoubleVector.zero(DOUBLE_SPECIES);
+        for (int bound = to - step; k <= bound; k += step) {
+            final DoubleVector v = DoubleVector.fromArray(DOUBLE_SPECIES, data, k);
+            sum = v.fma(v, sum);
+        }
+        result += sum.reduceLanes(VectorOperators.ADD);
+        for (; k < to; k++) {
+            final double v = data[k];
+            result += v * v;
+        }
+        return result;
+    }
+
+    private static <E> VectorSpecies<E> species(Class<E> elementType, int bitSize) {
+        if (bitSize < 64) {
+            return null;
+        }
+        return VectorSpecies.of(elementType, VectorShape.forBitSize(bitSize));
+    }
+}
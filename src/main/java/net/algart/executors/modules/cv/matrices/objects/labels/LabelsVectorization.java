@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.labels;
+
+import net.algart.arrays.Arrays;
+
+/**
+ * Detects whether the optional vectorized kernels <code>LabelsVectorKernels</code> can be used.
+ * They are always compiled, but require <code>jdk.incubator.vector</code>
+ * module at runtime, which must be added to JVM by <code>--add-modules&nbsp;jdk.incubator.vector</code> option;
+ * if the module is absent, or if the system property
+ * {@link #USE_VECTOR_API_PROPERTY_NAME} is <code>false</code>, all labels processors use usual scalar loops.
+ * Vectorized kernels process runs of identical labels, so they are used only when the labels
+ * consist of long enough runs (objects are not too small).
+ */
+public final class LabelsVectorization {
+    public static final String USE_VECTOR_API_PROPERTY_NAME =
+            "net.algart.executors.modules.cv.labels.useVectorAPI";
+
+    private static final String VECTOR_MODULE_NAME = "jdk.incubator.vector";
+    private static final String KERNELS_CLASS_NAME = LabelsVectorization.class.getPackageName()
+            + ".LabelsVectorKernels";
+    private static final int MIN_AVERAGE_RUN_LENGTH = 12;
+    // - for shorter runs, the overhead of vector operations is greater than the benefit
+    private static final int NUMBER_OF_SAMPLES = 4096;
+
+    private static final LabelsRunKernels KERNELS = Arrays.SystemSettings.getBooleanProperty(
+            USE_VECTOR_API_PROPERTY_NAME, true) ? loadKernels() : null;
+    private static final boolean AVAILABLE = KERNELS != null;
+
+    private LabelsVectorization() {
+    }
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    public static String description() {
+        return AVAILABLE ? KERNELS.description() : "Vector API is not used";
+    }
+
+    static LabelsRunKernels kernels() {
+        return KERNELS;
+    }
+
+    static boolean isSupported(Object channel) {
+        return AVAILABLE && (channel instanceof byte[]
+                || channel instanceof short[]
+                || channel instanceof float[]
+                || channel instanceof double[]);
+        // - int[] channels are rare and processed by scalar loops
+    }
+
+    static boolean isRecommended(int[] labels, Object channel) {
+        return isSupported(channel) && averageRunLength(labels) >= MIN_AVERAGE_RUN_LENGTH;
+    }
+
+    static double averageRunLength(int[] labels) {
+        final int n = labels.length - 1;
+        if (n <= 0) {
+            return labels.length;
+        }
+        final int step = Math.max(1, n / NUMBER_OF_SAMPLES);
+        int numberOfSamples = 0;
+        int numberOfChanges = 0;
+        for (long i = 0, p = 0; p < n; i++, p += step) {
+            final int k = (int) Math.min(n - 1, p + ((i * 0x9E3779B97F4A7C15L) >>> 33) % step);
+            // - pseudo-random shift inside the step: regular sampling can be synchronized with the objects grid
+            numberOfSamples++;
+            if (labels[k] != labels[k + 1]) {
+                numberOfChanges++;
+            }
+        }
+        return numberOfChanges == 0 ? Double.POSITIVE_INFINITY : (double) numberOfSamples / numberOfChanges;
+        // - probability to find the end of a run at random position is 1/(average run length)
+    }
+
+    private static LabelsRunKernels loadKernels() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE_NAME).isEmpty()) {
+            return null;
+        }
+        try {
+            final LabelsRunKernels result = (LabelsRunKernels) Class.forName(KERNELS_CLASS_NAME)
+                    .getDeclaredConstructor().newInstance();
+            return result.runEnd(new int[]{1, 1, 2}, 0, 3) == 2 ? result : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // - for example, the kernels were excluded from the build
+            return null;
+        }
+    }
+}
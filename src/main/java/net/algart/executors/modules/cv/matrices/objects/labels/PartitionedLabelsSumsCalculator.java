@@ -0,0 +1,291 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.labels;
+
+import net.algart.executors.modules.cv.common.ThreadBudget;
+
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+// Alternative to CardinalitiesAndSumsCalculator / CardinalitiesAndSumsOfSquaresCalculator for very large number
+// of labels. Instead of separate arrays threadSums[task][channel] for every thread (threads * labels memory
+// and expensive reduction), it distributes pixel indexes between ranges of labels by counting sort
+// and accumulates every range in a separate task directly into the resulting arrays.
+// Additional memory: 1 int per pixel.
+final class PartitionedLabelsSumsCalculator {
+    private static final int BLOCK_SIZE = 65536;
+    private static final int PARTITIONS_PER_THREAD = 4;
+    private static final long MAX_THREAD_ARRAYS_MEMORY = 256L * 1024 * 1024;
+    private static final double MAX_USED_PART_OF_FREE_MEMORY = 0.25;
+
+    private final int[] labels;
+    private final Object[] channels;
+    private final int numberOfChannels;
+    private final boolean needSumsOfSquares;
+    private int[] indexes;
+
+    int maxLabel = -1;
+    int[] cardinalities;
+    double[] sums;
+    double[] sumsOfSquares;
+    // Note: like in CardinalitiesAndSumsCalculator, information for label is in cardinalities[label-1]
+    // and sums[(label-1)*numberOfChannels+c]
+
+    PartitionedLabelsSumsCalculator(int[] labels, Object[] channels, boolean needSumsOfSquares) {
+        this.labels = Objects.requireNonNull(labels, "Null labels");
+        this.channels = Objects.requireNonNull(channels, "Null channels").clone();
+        for (Object channel : this.channels) {
+            if (!LabelsProcessor.isArraySupported(channel)) {
+                throw new IllegalArgumentException("Illegal array type: " + channel);
+            }
+            if (channel.getClass() != this.channels[0].getClass()) {
+                throw new IllegalArgumentException("Different type of channels: " + channel.getClass()
+                        + " != " + this.channels[0].getClass());
+            }
+        }
+        this.numberOfChannels = channels.length;
+        this.needSumsOfSquares = needSumsOfSquares;
+    }
+
+    static int maxLabel(int[] labels) {
+        final int numberOfBlocks = numberOfBlocks(labels.length);
+        return IntStream.range(0, numberOfBlocks).parallel().map(block -> {
+            int max = 0;
+            for (int k = block * BLOCK_SIZE, to = blockEnd(block, labels.length); k < to; k++) {
+                max = Math.max(max, labels[k]);
+            }
+            return max;
+        }).max().orElse(0);
+    }
+
+    /**
+     * Returns <code>true</code> if per-thread arrays of usual calculators would occupy too much memory
+     * or would be reduced slower than the labels are scanned, and if this calculator needs less memory
+     * for its array of pixel indexes (1 int per pixel).
+     * The number of threads is the number of tasks of usual calculators: {@link ThreadBudget#currentThreads()}.
+     */
+    static boolean isRecommended(int maxLabel, int numberOfPixels, int numberOfChannels, boolean needSumsOfSquares) {
+        final long numberOfTasks = ThreadBudget.currentThreads();
+        if (numberOfTasks <= 1) {
+            return false;
+        }
+        final long bytesPerLabel = Integer.BYTES + (long) Double.BYTES * numberOfChannels * (needSumsOfSquares ? 2 : 1);
+        final long threadArraysMemory = numberOfTasks * (maxLabel + 1L) * bytesPerLabel;
+        final long indexesMemory = (long) Integer.BYTES * numberOfPixels;
+        // - in the worst case, all pixels have positive labels
+        final Runtime runtime = Runtime.getRuntime();
+        final long freeMemory = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return (threadArraysMemory > MAX_THREAD_ARRAYS_MEMORY
+                || threadArraysMemory > MAX_USED_PART_OF_FREE_MEMORY * freeMemory
+                || numberOfTasks * maxLabel > numberOfPixels)
+                && indexesMemory < threadArraysMemory;
+        // - the third condition: reduction of thread arrays is slower than the scan of labels
+    }
+
+    void process() {
+        setMaxLabel(maxLabel(labels));
+        if (maxLabel == 0) {
+            return;
+        }
+        final int numberOfPartitions = (int) Math.min(maxLabel,
+                (long) ThreadBudget.currentThreads() * PARTITIONS_PER_THREAD);
+        // - parallel streams below use the threads of the current lease (if any)
+        final int labelsPerPartition = (int) (((long) maxLabel + numberOfPartitions - 1) / numberOfPartitions);
+        final int[] partitionStarts = distributeIndexes(numberOfPartitions, labelsPerPartition);
+        IntStream.range(0, numberOfPartitions).parallel().forEach(partition ->
+                accumulate(partitionStarts[partition], partitionStarts[partition + 1]));
+        this.indexes = null;
+    }
+
+    private void setMaxLabel(int maxLabel) {
+        if ((long) maxLabel * (long) Math.max(numberOfChannels, 1) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too large required array for " + numberOfChannels
+                    + " channels: more that 2^31-1 elements");
+        }
+        this.maxLabel = maxLabel;
+        this.cardinalities = new int[maxLabel];
+        this.sums = new double[numberOfChannels * maxLabel];
+        this.sumsOfSquares = needSumsOfSquares ? new double[numberOfChannels * maxLabel] : null;
+    }
+
+    // Counting sort of indexes of all pixels with positive labels by partitions (ranges of labels);
+    // inside every partition the indexes are sorted, so the channels are accessed in increasing order.
+    private int[] distributeIndexes(int numberOfPartitions, int labelsPerPartition) {
+        final int n = labels.length;
+        final int numberOfBlocks = numberOfBlocks(n);
+        final int[][] counts = new int[numberOfBlocks][numberOfPartitions];
+        IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+            final int[] blockCounts = counts[block];
+            for (int k = block * BLOCK_SIZE, to = blockEnd(block, n); k < to; k++) {
+                final int label = labels[k];
+                if (label > 0) {
+                    blockCounts[(label - 1) / labelsPerPartition]++;
+                }
+            }
+        });
+        final int[] partitionStarts = new int[numberOfPartitions + 1];
+        int position = 0;
+        for (int partition = 0; partition < numberOfPartitions; partition++) {
+            partitionStarts[partition] = position;
+            for (int block = 0; block < numberOfBlocks; block++) {
+                final int count = counts[block][partition];
+                counts[block][partition] = position;
+                position += count;
+            }
+        }
+        partitionStarts[numberOfPartitions] = position;
+        final int[] indexes = new int[position];
+        IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+            final int[] positions = counts[block];
+            for (int k = block * BLOCK_SIZE, to = blockEnd(block, n); k < to; k++) {
+                final int label = labels[k];
+                if (label > 0) {
+                    indexes[positions[(label - 1) / labelsPerPartition]++] = k;
+                }
+            }
+        });
+        this.indexes = indexes;
+        return partitionStarts;
+    }
+
+    private void accumulate(int from, int to) {
+        if (numberOfChannels == 0) {
+            for (int i = from; i < to; i++) {
+                cardinalities[labels[indexes[i]] - 1]++;
+            }
+            return;
+        }
+        final Object channel0 = channels[0];
+        if (channel0 instanceof byte[]) {
+            accumulateBytes(LabelsProcessor.castToByte(channels), from, to);
+        } else if (channel0 instanceof short[]) {
+            accumulateShorts(LabelsProcessor.castToShort(channels), from, to);
+        } else if (channel0 instanceof int[]) {
+            accumulateInts(LabelsProcessor.castToInt(channels), from, to);
+        } else if (channel0 instanceof float[]) {
+            accumulateFloats(LabelsProcessor.castToFloat(channels), from, to);
+        } else if (channel0 instanceof double[]) {
+            accumulateDoubles(LabelsProcessor.castToDouble(channels), from, to);
+        } else {
+            throw new AssertionError();
+        }
+    }
+
+    /*Repeat() Bytes  ==> Shorts,,Ints,,Floats,,Doubles;;
+               byte   ==> short,,int,,float,,double;;
+               (data\[c\]\[k\]) \& 0xFF ==> $1 & 0xFFFF,,$1,,$1,,$1 */
+
+    private void accumulateBytes(byte[][] data, int from, int to) {
+        final double[] sumsOfSquares = this.sumsOfSquares;
+        for (int i = from; i < to; i++) {
+            final int k = indexes[i];
+            final int index = labels[k] - 1;
+            cardinalities[index]++;
+            for (int c = 0, disp = index * numberOfChannels; c < numberOfChannels; c++, disp++) {
+                final double value = data[c][k] & 0xFF;
+                sums[disp] += value;
+                if (sumsOfSquares != null) {
+                    sumsOfSquares[disp] += value * value;
+                }
+            }
+        }
+    }
+
+    /*Repeat.AutoGeneratedStart !! Auto-generated: NOT EDIT !! */
+
+    private void accumulateShorts(short[][] data, int from, int to) {
+        final double[] sumsOfSquares = this.sumsOfSquares;
+        for (int i = from; i < to; i++) {
+            final int k = indexes[i];
+            final int index = labels[k] - 1;
+            cardinalities[index]++;
+            for (int c = 0, disp = index * numberOfChannels; c < numberOfChannels; c++, disp++) {
+                final double value = data[c][k] & 0xFFFF;
+                sums[disp] += value;
+                if (sumsOfSquares != null) {
+                    sumsOfSquares[disp] += value * value;
+                }
+            }
+        }
+    }
+
+    private void accumulateInts(int[][] data, int from, int to) {
+        final double[] sumsOfSquares = this.sumsOfSquares;
+        for (int i = from; i < to; i++) {
+            final int k = indexes[i];
+            final int index = labels[k] - 1;
+            cardinalities[index]++;
+            for (int c = 0, disp = index * numberOfChannels; c < numberOfChannels; c++, disp++) {
+                final double value = data[c][k];
+                sums[disp] += value;
+                if (sumsOfSquares != null) {
+                    sumsOfSquares[disp] += value * value;
+                }
+            }
+        }
+    }
+
+    private void accumulateFloats(float[][] data, int from, int to) {
+        final double[] sumsOfSquares = this.sumsOfSquares;
+        for (int i = from; i < to; i++) {
+            final int k = indexes[i];
+            final int index = labels[k] - 1;
+            cardinalities[index]++;
+            for (int c = 0, disp = index * numberOfChannels; c < numberOfChannels; c++, disp++) {
+                final double value = data[c][k];
+                sums[disp] += value;
+                if (sumsOfSquares != null) {
+                    sumsOfSquares[disp] += value * value;
+                }
+            }
+        }
+    }
+
+    private void accumulateDoubles(double[][] data, int from, int to) {
+        final double[] sumsOfSquares = this.sumsOfSquares;
+        for (int i = from; i < to; i++) {
+            final int k = indexes[i];
+            final int index = labels[k] - 1;
+            cardinalities[index]++;
+            for (int c = 0, disp = index * numberOfChannels; c < numberOfChannels; c++, disp++) {
+                final double value = data[c][k];
+                sums[disp] += value;
+                if (sumsOfSquares != null) {
+                    sumsOfSquares[disp] += value * value;
+                }
+            }
+        }
+    }
+
+    /*Repeat.AutoGeneratedEnd*/
+
+    private static int numberOfBlocks(int n) {
+        return (int) (((long) n + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+
+    private static int blockEnd(int block, int n) {
+        return (int) Math.min((long) (block + 1) * BLOCK_SIZE, n);
+    }
+}
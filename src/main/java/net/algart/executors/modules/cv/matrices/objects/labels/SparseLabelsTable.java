@@ -0,0 +1,304 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.labels;
+
+import net.algart.arrays.IntArray;
+import net.algart.arrays.TooLargeArrayException;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Compact hash table (open addressing, linear probing), mapping non-negative <code>int</code> labels
+ * to <code>int</code> values. It is used instead of direct <code>int[maxLabel+1]</code> tables,
+ * when the labels are very large but their number is relatively little (for example,
+ * labels with global offsets after processing an image by tiles).
+ *
+ * <p>This class is not thread-safe, but {@link #distinctLabels(int[], int)} method finds all different labels
+ * in parallel: every thread fills its own table, and these tables are merged at the end.</p>
+ */
+public final class SparseLabelsTable {
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final long MIN_SPARSE_LABELS_RANGE = 1 << 20;
+    // - for less ranges, direct tables are always better: they require less than 4 MB
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size = 0;
+
+    public SparseLabelsTable() {
+        this(MIN_CAPACITY);
+    }
+
+    public SparseLabelsTable(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Negative expected size");
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Returns <code>true</code> if it is better to use this class instead of a direct table
+     * for labels in range <code>0..labelsRange-1</code>, appearing in the array
+     * of <code>numberOfElements</code> elements (it is the upper bound of the number of different labels).
+     *
+     * @param labelsRange      number of elements in the direct table.
+     * @param numberOfElements number of processed elements.
+     * @return whether the direct table will be too large.
+     */
+    public static boolean isSparseRecommended(long labelsRange, long numberOfElements) {
+        return labelsRange > Math.max(MIN_SPARSE_LABELS_RANGE, numberOfElements);
+    }
+
+    /**
+     * Finds all different labels, greater than or equal to <code>minLabel</code>, in the given array,
+     * and returns them in increasing order.
+     *
+     * @param labels   array of labels.
+     * @param minLabel minimal label; less labels are ignored; must be non-negative.
+     * @return sorted array of all different labels <code>&ge;minLabel</code>.
+     */
+    public static int[] distinctLabels(int[] labels, int minLabel) {
+        Objects.requireNonNull(labels, "Null labels");
+        if (minLabel < 0) {
+            throw new IllegalArgumentException("Negative minimal label " + minLabel);
+        }
+        try (DistinctLabelsFinder finder = new DistinctLabelsFinder(labels, minLabel)) {
+            finder.process();
+            return finder.result;
+        }
+    }
+
+    /**
+     * Creates the table, mapping <code>sortedLabels[k]</code> to <code>firstValue+k</code>.
+     *
+     * @param sortedLabels different non-negative labels (usually sorted).
+     * @param firstValue   value for the first label.
+     * @return new table.
+     */
+    public static SparseLabelsTable ofIndexes(int[] sortedLabels, int firstValue) {
+        Objects.requireNonNull(sortedLabels, "Null labels");
+        final SparseLabelsTable result = new SparseLabelsTable(sortedLabels.length);
+        for (int k = 0; k < sortedLabels.length; k++) {
+            result.put(sortedLabels[k], firstValue + k);
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int key) {
+        return keys[find(key)] != EMPTY;
+    }
+
+    public int get(int key, int notFoundValue) {
+        final int index = find(key);
+        return keys[index] == EMPTY ? notFoundValue : values[index];
+    }
+
+    /**
+     * Adds the key (if it is not present yet) without changing its value.
+     *
+     * @param key non-negative key.
+     * @return <code>true</code> if the key was added.
+     */
+    public boolean add(int key) {
+        checkKey(key);
+        final int index = find(key);
+        if (keys[index] != EMPTY) {
+            return false;
+        }
+        keys[index] = key;
+        values[index] = 0;
+        afterAdding();
+        return true;
+    }
+
+    public void put(int key, int value) {
+        checkKey(key);
+        final int index = find(key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            values[index] = value;
+            afterAdding();
+        } else {
+            values[index] = value;
+        }
+    }
+
+    public void addAll(SparseLabelsTable other) {
+        Objects.requireNonNull(other, "Null other table");
+        for (int key : other.keys) {
+            if (key != EMPTY) {
+                add(key);
+            }
+        }
+    }
+
+    /**
+     * Returns all keys in increasing order.
+     *
+     * @return sorted keys.
+     */
+    public int[] sortedKeys() {
+        final int[] result = new int[size];
+        int count = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[count++] = key;
+            }
+        }
+        assert count == size;
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "sparse labels table: " + size + " keys, capacity " + keys.length;
+    }
+
+    private int find(int key) {
+        int index = (key * 0x9E3779B9) >>> shift;
+        // - Fibonacci hashing: uses high bits of the product
+        for (; ; ) {
+            final int k = keys[index];
+            if (k == key || k == EMPTY) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void afterAdding() {
+        size++;
+        if (size > keys.length >>> 1) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new TooLargeArrayException("Too many different labels in sparse table: " + size);
+        }
+        final int[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(newCapacity);
+        for (int k = 0; k < oldKeys.length; k++) {
+            final int key = oldKeys[k];
+            if (key != EMPTY) {
+                final int index = find(key);
+                keys[index] = key;
+                values[index] = oldValues[k];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        assert Integer.bitCount(capacity) == 1;
+        this.keys = new int[capacity];
+        Arrays.fill(this.keys, EMPTY);
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long capacity = MIN_CAPACITY;
+        while (capacity < 2L * expectedSize + 1) {
+            capacity <<= 1;
+        }
+        if (capacity > MAX_CAPACITY) {
+            throw new TooLargeArrayException("Too large expected size of sparse table: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+
+    private static void checkKey(int key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative label " + key + " cannot be stored in sparse table");
+        }
+    }
+
+    private static class DistinctLabelsFinder extends LabelsProcessor {
+        private final int[] labels;
+        private final int minLabel;
+        private final SparseLabelsTable[] threadTables;
+        private int[] result = null;
+
+        private DistinctLabelsFinder(int[] labels, int minLabel) {
+            super(IntArray.as(labels));
+            this.labels = labels;
+            this.minLabel = minLabel;
+            this.threadTables = new SparseLabelsTable[numberOfTasks()];
+            for (int k = 0; k < threadTables.length; k++) {
+                threadTables[k] = new SparseLabelsTable();
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        protected void processSubArr(int p, int count, int threadIndex) {
+            final SparseLabelsTable table = this.threadTables[threadIndex];
+            int lastLabel = -1;
+            for (int k = p, kMax = k + count; k < kMax; k++) {
+                final int label = labels[k];
+                if (label != lastLabel && label >= minLabel) {
+                    // - labels are usually grouped into long series of identical values
+                    table.add(label);
+                    lastLabel = label;
+                }
+            }
+        }
+
+        @Override
+        protected void finish() {
+            int maxSize = 0;
+            int maxIndex = 0;
+            for (int k = 0; k < threadTables.length; k++) {
+                if (threadTables[k].size > maxSize) {
+                    maxSize = threadTables[k].size;
+                    maxIndex = k;
+                }
+            }
+            final SparseLabelsTable union = threadTables[maxIndex];
+            for (int k = 0; k < threadTables.length; k++) {
+                if (k != maxIndex) {
+                    union.addAll(threadTables[k]);
+                }
+            }
+            this.result = union.sortedKeys();
+        }
+    }
+}
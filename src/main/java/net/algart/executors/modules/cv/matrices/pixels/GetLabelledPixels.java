@@ -24,13 +24,12 @@
 
 package net.algart.executors.modules.cv.matrices.pixels;
 
-import net.algart.arrays.Arrays;
-import net.algart.arrays.BitArray;
+import net.algart.arrays.JArrays;
 import net.algart.arrays.TooLargeArrayException;
 import net.algart.executors.api.Executor;
 import net.algart.executors.api.ReadOnlyExecutionInput;
 import net.algart.executors.api.data.SNumbers;
-import net.algart.multimatrix.MultiMatrix;
+import net.algart.executors.api.data.SScalar;
 import net.algart.multimatrix.MultiMatrix2D;
 
 import java.util.Objects;
@@ -42,6 +41,7 @@ public final class GetLabelledPixels extends Executor implements ReadOnlyExecuti
 
     private boolean labelValuesInLastColumns = false;
     private boolean rawPixelValues = false;
+    private int[] selectedLabels = new int[0];
 
     public GetLabelledPixels() {
         useVisibleResultParameter();
@@ -69,6 +69,19 @@ public final class GetLabelledPixels extends Executor implements ReadOnlyExecuti
         return this;
     }
 
+    public int[] getSelectedLabels() {
+        return selectedLabels.clone();
+    }
+
+    public GetLabelledPixels setSelectedLabels(int[] selectedLabels) {
+        this.selectedLabels = nonNull(selectedLabels).clone();
+        return this;
+    }
+
+    public GetLabelledPixels setSelectedLabels(String selectedLabels) {
+        return setSelectedLabels(new SScalar(nonNull(selectedLabels)).toInts());
+    }
+
     @Override
     public void process() {
         final MultiMatrix2D source = getInputMat().toMultiMatrix2D(true);
@@ -93,56 +106,61 @@ public final class GetLabelledPixels extends Executor implements ReadOnlyExecuti
         if (source.size() != (int) source.size()) {
             throw new TooLargeArrayException("Too large matrix: " + source);
         }
-        final BitArray nonZeroArray = labels == null ?
-                Arrays.nBitCopies(source.size(), true) :
-                labels.nonZeroAnyChannelMatrix().array().updatableClone(Arrays.SMM);
-        final int numberOfLabels = (int) (labels == null ? nonZeroArray.length() : Arrays.cardinality(nonZeroArray));
+        final int[] indexes = selectPixels(source, labels);
+        final int numberOfLabels = indexes.length;
         final int numberOfSourceChannels = source.numberOfChannels();
         final int numberOfLabelsChannels = labels == null ? 1 : labels.numberOfChannels();
-        resultPixelValues.setToZeros(
-                float.class,
-                numberOfLabels,
-                numberOfSourceChannels + (labelValuesInLastColumns ? numberOfLabelsChannels : 0));
-        if (resultLabelValues != null && !labelValuesInLastColumns) {
-            resultLabelValues.setToZeros(int.class, numberOfLabels, numberOfLabelsChannels);
-        }
-        MultiMatrix.PixelValue pixelValue = null;
-        MultiMatrix.PixelValue labelValue = null;
-        float[] pixelValueArray = new float[numberOfSourceChannels];
-        int[] labelValueIntArray = labelValuesInLastColumns ? null : new int[numberOfLabelsChannels];
-        float[] labelValueArray = labelValuesInLastColumns ? new float[numberOfLabelsChannels] : null;
-        final double mult = 1.0 / source.maxPossibleValue();
-        for (int p = 0, dispPixels = 0, dispLabels = 0, n = (int) nonZeroArray.length(); p < n; p++) {
-            if (nonZeroArray.getBit(p)) {
-                pixelValue = source.getPixel(p, pixelValue);
-                pixelValue.getFloatChannels(pixelValueArray);
-                if (!rawPixelValues) {
-                    for (int i = 0; i < pixelValueArray.length; i++) {
-                        pixelValueArray[i] *= mult;
-                    }
-                }
-                resultPixelValues.setValues(dispPixels, numberOfSourceChannels, pixelValueArray);
-                dispPixels += numberOfSourceChannels;
-                if (labelValuesInLastColumns) {
-                    if (labels != null) {
-                        labelValue = labels.getPixel(p, labelValue);
-                        labelValue.getFloatChannels(labelValueArray);
-                        resultPixelValues.setValues(dispPixels, numberOfLabelsChannels, labelValueArray);
-                    } else {
-                        resultLabelValues.setValue(dispPixels, 1.0);
-                    }
-                    dispPixels += numberOfLabelsChannels;
-                } else if (resultLabelValues != null) {
-                    if (labels != null) {
-                        labelValue = labels.getPixel(p, labelValue);
-                        labelValue.getIntChannels(labelValueIntArray);
-                        resultLabelValues.setValues(dispLabels, numberOfLabelsChannels, labelValueIntArray);
-                    } else {
-                        resultLabelValues.setValue(dispLabels, 1.0);
-                    }
-                    dispLabels += numberOfLabelsChannels;
+        final int blockLength = numberOfSourceChannels + (labelValuesInLastColumns ? numberOfLabelsChannels : 0);
+        SNumbers.checkDimensions(numberOfLabels, blockLength);
+        final float[] pixelValues = new float[numberOfLabels * blockLength];
+        PixelsGatherScatter.gatherFloats(
+                pixelValues,
+                blockLength,
+                0,
+                PixelsGatherScatter.channelArrays(source),
+                indexes,
+                rawPixelValues ? 1.0 : 1.0 / source.maxPossibleValue());
+        if (labelValuesInLastColumns) {
+            if (labels != null) {
+                PixelsGatherScatter.gatherFloats(
+                        pixelValues,
+                        blockLength,
+                        numberOfSourceChannels,
+                        PixelsGatherScatter.channelArrays(labels),
+                        indexes,
+                        1.0);
+            } else {
+                for (int k = 0, disp = numberOfSourceChannels; k < numberOfLabels; k++, disp += blockLength) {
+                    pixelValues[disp] = 1.0f;
                 }
             }
+        } else if (resultLabelValues != null) {
+            final int[] labelValues = new int[numberOfLabels * numberOfLabelsChannels];
+            if (labels != null) {
+                PixelsGatherScatter.gatherInts(
+                        labelValues,
+                        numberOfLabelsChannels,
+                        0,
+                        PixelsGatherScatter.channelArrays(labels),
+                        indexes);
+            } else {
+                java.util.Arrays.fill(labelValues, 1);
+            }
+            resultLabelValues.setTo(labelValues, numberOfLabelsChannels);
+        }
+        resultPixelValues.setTo(pixelValues, blockLength);
+    }
+
+    private int[] selectPixels(MultiMatrix2D source, MultiMatrix2D labels) {
+        if (labels == null) {
+            final int[] result = new int[(int) source.size()];
+            JArrays.fillIntProgression(result, 0, 1);
+            return result;
+        }
+        if (selectedLabels.length > 0) {
+            return PixelsGatherScatter.indexesOfLabels(labels.channel(0).jaInt(), selectedLabels);
+            // - note: we don't modify the labels, so we can use jaInt()
         }
+        return PixelsGatherScatter.indexesOfNonZero(labels.nonZeroAnyChannelMatrix().array().toJavaArray());
     }
 }
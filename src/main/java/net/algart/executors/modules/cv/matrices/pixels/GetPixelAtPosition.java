@@ -24,6 +24,7 @@
 
 package net.algart.executors.modules.cv.matrices.pixels;
 
+import net.algart.arrays.PArray;
 import net.algart.executors.api.data.SNumbers;
 import net.algart.executors.modules.core.common.matrices.MultiMatrixToNumbers;
 import net.algart.multimatrix.MultiMatrix;
@@ -82,52 +83,76 @@ public final class GetPixelAtPosition extends MultiMatrixToNumbers {
         final int n = xy.length / 2;
         final int blockLength = source.numberOfChannels();
         SNumbers.checkDimensions(n, blockLength);
-        MultiMatrix.PixelValue pixel = null;
-        if (rawPixelValues) {
-            if (source.elementType() == boolean.class) {
+        final long[] indexes = new long[n];
+        for (int i = 0; i < n; i++) {
+            indexes[i] = source.indexInArray(xy[2 * i], xy[2 * i + 1]);
+        }
+        final PArray[] channels = new PArray[blockLength];
+        for (int j = 0; j < blockLength; j++) {
+            channels[j] = source.channel(j).array();
+            // - only the requested pixels are read: no conversion of the whole channels
+        }
+        final Class<?> elementType = source.elementType();
+        if (rawPixelValues && elementType != char.class) {
+            if (elementType == boolean.class || elementType == byte.class) {
                 final byte[] result = new byte[n * blockLength];
-                for (int i = 0, disp = 0; i < n; i++, disp += blockLength) {
-                    pixel = source.getPixel(source.indexInArray(xy[2 * i], xy[2 * i + 1]), pixel);
-                    for (int j = 0; j < blockLength; j++) {
-                        result[disp + j] = (byte) pixel.getChannel(j);
+                for (int i = 0, disp = 0; i < n; i++) {
+                    for (int j = 0; j < blockLength; j++, disp++) {
+                        result[disp] = (byte) channels[j].getInt(indexes[i]);
+                    }
+                }
+                return SNumbers.ofArray(result, blockLength);
+            } else if (elementType == short.class) {
+                final short[] result = new short[n * blockLength];
+                for (int i = 0, disp = 0; i < n; i++) {
+                    for (int j = 0; j < blockLength; j++, disp++) {
+                        result[disp] = (short) channels[j].getInt(indexes[i]);
+                    }
+                }
+                return SNumbers.ofArray(result, blockLength);
+            } else if (elementType == int.class) {
+                final int[] result = new int[n * blockLength];
+                for (int i = 0, disp = 0; i < n; i++) {
+                    for (int j = 0; j < blockLength; j++, disp++) {
+                        result[disp] = channels[j].getInt(indexes[i]);
                     }
                 }
                 return SNumbers.ofArray(result, blockLength);
-            } else {
-                if (source.elementType() == char.class) {
-                    final float[] result = new float[n * blockLength];
-                    float[] channels = null;
-                    for (int i = 0, disp = 0; i < n; i++, disp += blockLength) {
-                        pixel = source.getPixel(source.indexInArray(xy[2 * i], xy[2 * i + 1]), pixel);
-                        channels = pixel.getFloatChannels(channels);
-                        System.arraycopy(channels, 0, result, disp, blockLength);
+            } else if (elementType == long.class) {
+                final long[] result = new long[n * blockLength];
+                for (int i = 0, disp = 0; i < n; i++) {
+                    for (int j = 0; j < blockLength; j++, disp++) {
+                        result[disp] = channels[j].getLong(indexes[i]);
                     }
-                    return SNumbers.ofArray(result, blockLength);
-                } else {
-                    final Object result = java.lang.reflect.Array.newInstance(
-                            source.elementType(), n * blockLength);
-                    Object channels = null;
-                    for (int i = 0, disp = 0; i < n; i++, disp += blockLength) {
-                        pixel = source.getPixel(source.indexInArray(xy[2 * i], xy[2 * i + 1]), pixel);
-                        channels = pixel.getChannels(channels);
-                        System.arraycopy(channels, 0, result, disp, blockLength);
+                }
+                return SNumbers.ofArray(result, blockLength);
+            } else if (elementType == float.class) {
+                final float[] result = new float[n * blockLength];
+                for (int i = 0, disp = 0; i < n; i++) {
+                    for (int j = 0; j < blockLength; j++, disp++) {
+                        result[disp] = (float) channels[j].getDouble(indexes[i]);
                     }
-                    return SNumbers.ofArray(result, blockLength);
                 }
+                return SNumbers.ofArray(result, blockLength);
             }
-        } else {
-            final float[] result = new float[n * blockLength];
-            final double mult = 1.0 / source.maxPossibleValue();
-            float[] channels = null;
-            for (int i = 0, disp = 0; i < n; i++, disp += blockLength) {
-                pixel = source.getPixel(source.indexInArray(xy[2 * i], xy[2 * i + 1]), pixel);
-                channels = pixel.getFloatChannels(channels);
-                for (int j = 0; j < channels.length; j++) {
-                    channels[j] *= mult;
+        }
+        final double mult = rawPixelValues ? 1.0 : 1.0 / source.maxPossibleValue();
+        if (elementType == long.class || elementType == double.class) {
+            // - float precision is not enough for these types
+            final double[] result = new double[n * blockLength];
+            for (int i = 0, disp = 0; i < n; i++) {
+                for (int j = 0; j < blockLength; j++, disp++) {
+                    result[disp] = channels[j].getDouble(indexes[i]) * mult;
                 }
-                System.arraycopy(channels, 0, result, disp, blockLength);
             }
             return SNumbers.ofArray(result, blockLength);
         }
+        final float[] result = new float[n * blockLength];
+        for (int i = 0, disp = 0; i < n; i++) {
+            for (int j = 0; j < blockLength; j++, disp++) {
+                result[disp] = (float) (channels[j].getDouble(indexes[i]) * mult);
+            }
+        }
+        return SNumbers.ofArray(result, blockLength);
     }
 }
@@ -0,0 +1,655 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.pixels;
+
+import net.algart.arrays.Matrix;
+import net.algart.arrays.PArray;
+import net.algart.multimatrix.MultiMatrix;
+
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk gathering/scattering of pixels between Java arrays of matrix channels and
+ * multi-column (RGBRGB...) number arrays.
+ *
+ * <p>All channels are represented by Java arrays <code>byte[]</code>, <code>short[]</code>, <code>int[]</code>,
+ * <code>float[]</code> or <code>double[]</code> (see {@link #channelArray(Matrix)}), and pixels are addressed
+ * by an <code>int[]</code> array of indexes in these arrays. Indexes can be built by a mask,
+ * by a set of labels or by a list of (x, y) positions. All loops are primitive-specialized and
+ * are performed in parallel by blocks of indexes.</p>
+ */
+public final class PixelsGatherScatter {
+    private static final int BLOCK_SIZE = 65536;
+
+    private PixelsGatherScatter() {
+    }
+
+    public static Object[] channelArrays(MultiMatrix matrix) {
+        Objects.requireNonNull(matrix, "Null matrix");
+        final Object[] result = new Object[matrix.numberOfChannels()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = channelArray(matrix.channel(k));
+        }
+        return result;
+    }
+
+    /**
+     * Returns Java array, containing the elements of the given matrix.
+     * For <code>byte</code>, <code>short</code>, <code>int</code>, <code>float</code> and <code>double</code>
+     * element types, it is an array of the same type (probably a reference to the internal storage:
+     * the result <b>must not be modified</b>); for other types, it is <code>float[]</code> copy.
+     *
+     * @param channel some matrix.
+     * @return Java array with the same elements; must not be modified.
+     */
+    public static Object channelArray(Matrix<? extends PArray> channel) {
+        Objects.requireNonNull(channel, "Null channel");
+        final Class<?> elementType = channel.elementType();
+        if (elementType == byte.class) {
+            return channel.jaByte();
+        } else if (elementType == short.class) {
+            return channel.jaShort();
+        } else if (elementType == int.class) {
+            return channel.jaInt();
+        } else if (elementType == float.class) {
+            return channel.jaFloat();
+        } else if (elementType == double.class) {
+            return channel.jaDouble();
+        } else {
+            return channel.toFloat();
+        }
+    }
+
+    public static int[] indexesOfNonZero(boolean[] mask) {
+        Objects.requireNonNull(mask, "Null mask");
+        final int n = mask.length;
+        final int numberOfBlocks = numberOfBlocks(n);
+        final int[] counts = new int[numberOfBlocks + 1];
+        IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+            int count = 0;
+            for (int i = block * BLOCK_SIZE, to = blockEnd(block, n); i < to; i++) {
+                if (mask[i]) {
+                    count++;
+                }
+            }
+            counts[block + 1] = count;
+        });
+        final int[] result = new int[accumulateCounts(counts)];
+        IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+            int disp = counts[block];
+            for (int i = block * BLOCK_SIZE, to = blockEnd(block, n); i < to; i++) {
+                if (mask[i]) {
+                    result[disp++] = i;
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns indexes of all elements of <code>labels</code> array, which are contained in the given set.
+     *
+     * @param labels   labels of pixels.
+     * @param labelSet the set of required labels (in any order, maybe with repetitions).
+     * @return indexes of pixels with labels from this set, in increasing order.
+     */
+    public static int[] indexesOfLabels(int[] labels, int[] labelSet) {
+        Objects.requireNonNull(labels, "Null labels");
+        Objects.requireNonNull(labelSet, "Null label set");
+        final int[] sortedSet = labelSet.clone();
+        java.util.Arrays.parallelSort(sortedSet);
+        if (sortedSet.length == 0) {
+            return new int[0];
+        }
+        final int n = labels.length;
+        final int numberOfBlocks = numberOfBlocks(n);
+        final int[] counts = new int[numberOfBlocks + 1];
+        final int min = sortedSet[0];
+        final int max = sortedSet[sortedSet.length - 1];
+        final boolean[] lookup = (long) max - (long) min < Math.max(n, 256) ? new boolean[max - min + 1] : null;
+        // - direct lookup table is used when it is not greater than the labels array itself
+        if (lookup != null) {
+            for (int label : sortedSet) {
+                lookup[label - min] = true;
+            }
+        }
+        IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+            int count = 0;
+            for (int i = block * BLOCK_SIZE, to = blockEnd(block, n); i < to; i++) {
+                if (containsLabel(labels[i], min, max, lookup, sortedSet)) {
+                    count++;
+                }
+            }
+            counts[block + 1] = count;
+        });
+        final int[] result = new int[accumulateCounts(counts)];
+        IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+            int disp = counts[block];
+            for (int i = block * BLOCK_SIZE, to = blockEnd(block, n); i < to; i++) {
+                if (containsLabel(labels[i], min, max, lookup, sortedSet)) {
+                    result[disp++] = i;
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns indexes <code>x+y*dimX</code> for all pairs (x, y), stored in <code>xy</code> array
+     * as x<sub>0</sub>, y<sub>0</sub>, x<sub>1</sub>, y<sub>1</sub>, ...
+     *
+     * @param xy   positions.
+     * @param dimX x-dimension of the matrix.
+     * @param dimY y-dimension of the matrix.
+     * @return indexes of pixels.
+     * @throws IndexOutOfBoundsException if some position is outside the matrix.
+     */
+    public static int[] indexesOfPositions(long[] xy, long dimX, long dimY) {
+        Objects.requireNonNull(xy, "Null xy");
+        if (dimX < 0 || dimY < 0) {
+            throw new IllegalArgumentException("Negative dimensions " + dimX + "x" + dimY);
+        }
+        if (dimX * dimY > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too large matrix " + dimX + "x" + dimY + ": >= 2^31 elements");
+        }
+        final int n = xy.length / 2;
+        final int[] result = new int[n];
+        IntStream.range(0, numberOfBlocks(n)).parallel().forEach(block -> {
+            for (int i = block * BLOCK_SIZE, to = blockEnd(block, n); i < to; i++) {
+                final long x = xy[2 * i];
+                final long y = xy[2 * i + 1];
+                if (x < 0 || x >= dimX || y < 0 || y >= dimY) {
+                    throw new IndexOutOfBoundsException("Position #" + i + " (" + x + ", " + y
+                            + ") is out of matrix " + dimX + "x" + dimY);
+                }
+                result[i] = (int) (y * dimX + x);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Copies pixels with the given indexes into columns
+     * <code>firstColumn</code>, <code>firstColumn+1</code>, ... of the result multi-column array:
+     * the channel <code>c</code> of the pixel <code>indexes[k]</code> is stored, multiplied by <code>mult</code>,
+     * in <code>result[k*blockLength+firstColumn+c]</code>.
+     *
+     * @param result      multi-column array.
+     * @param blockLength number of columns in the result.
+     * @param firstColumn index of the column for channel #0.
+     * @param channels    channels (Java arrays).
+     * @param indexes     indexes of pixels.
+     * @param mult        multiplier for every value.
+     */
+    public static void gatherFloats(
+            float[] result,
+            int blockLength,
+            int firstColumn,
+            Object[] channels,
+            int[] indexes,
+            double mult) {
+        checkGathering(result.length, blockLength, firstColumn, channels, indexes);
+        final int n = indexes.length;
+        IntStream.range(0, numberOfBlocks(n)).parallel().forEach(block -> {
+            final int from = block * BLOCK_SIZE;
+            final int to = blockEnd(block, n);
+            for (int c = 0; c < channels.length; c++) {
+                gatherFloats(result, blockLength, firstColumn + c, channels[c], indexes, from, to, (float) mult);
+            }
+        });
+    }
+
+    /**
+     * Analog of {@link #gatherFloats(float[], int, int, Object[], int[], double)}, storing values
+     * (casted to <code>int</code>) into <code>int[]</code> array.
+     *
+     * @param result      multi-column array.
+     * @param blockLength number of columns in the result.
+     * @param firstColumn index of the column for channel #0.
+     * @param channels    channels (Java arrays).
+     * @param indexes     indexes of pixels.
+     */
+    public static void gatherInts(
+            int[] result,
+            int blockLength,
+            int firstColumn,
+            Object[] channels,
+            int[] indexes) {
+        checkGathering(result.length, blockLength, firstColumn, channels, indexes);
+        final int n = indexes.length;
+        IntStream.range(0, numberOfBlocks(n)).parallel().forEach(block -> {
+            final int from = block * BLOCK_SIZE;
+            final int to = blockEnd(block, n);
+            for (int c = 0; c < channels.length; c++) {
+                gatherInts(result, blockLength, firstColumn + c, channels[c], indexes, from, to);
+            }
+        });
+    }
+
+    /**
+     * Copies pixels with the given indexes into a new multi-column array of the same element type,
+     * as the channels, without any conversion.
+     *
+     * @param channels channels (Java arrays of the same type).
+     * @param indexes  indexes of pixels.
+     * @return new array with <code>channels.length</code> columns.
+     */
+    public static Object gatherRaw(Object[] channels, int[] indexes) {
+        Objects.requireNonNull(channels, "Null channels");
+        Objects.requireNonNull(indexes, "Null indexes");
+        if (channels.length == 0) {
+            throw new IllegalArgumentException("Empty channels array");
+        }
+        final int blockLength = channels.length;
+        final Class<?> elementType = channels[0].getClass().getComponentType();
+        final long length = (long) indexes.length * (long) blockLength;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too large result: more that 2^31-1 elements");
+        }
+        final Object result = java.lang.reflect.Array.newInstance(elementType, (int) length);
+        final int n = indexes.length;
+        IntStream.range(0, numberOfBlocks(n)).parallel().forEach(block -> {
+            final int from = block * BLOCK_SIZE;
+            final int to = blockEnd(block, n);
+            for (int c = 0; c < blockLength; c++) {
+                gatherRaw(result, blockLength, c, channels[c], indexes, from, to);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Inverse operation to {@link #gatherFloats(float[], int, int, Object[], int[], double)} for a single
+     * channel: <code>channel[indexes[k]] = values[k*blockLength+column]*mult</code>.
+     * If the <code>values</code> array contains less than <code>indexes.length</code> blocks,
+     * only the first <code>values.length/blockLength</code> indexes are used.
+     * If <code>indexes</code> is <code>null</code>, it is supposed to be 0, 1, ..., <code>channel.length-1</code>.
+     *
+     * @param channel     resulting channel.
+     * @param indexes     indexes of pixels; can be <code>null</code>.
+     * @param values      multi-column array.
+     * @param blockLength number of columns in <code>values</code>.
+     * @param column      index of the used column.
+     * @param mult        multiplier for every value.
+     */
+    public static void scatterFloats(
+            float[] channel,
+            int[] indexes,
+            float[] values,
+            int blockLength,
+            int column,
+            double mult) {
+        Objects.requireNonNull(channel, "Null channel");
+        Objects.requireNonNull(values, "Null values");
+        if (blockLength <= 0 || column < 0 || column >= blockLength) {
+            throw new IllegalArgumentException("Illegal column " + column + " for block length " + blockLength);
+        }
+        final int n = Math.min(indexes == null ? channel.length : indexes.length, values.length / blockLength);
+        final float m = (float) mult;
+        IntStream.range(0, numberOfBlocks(n)).parallel().forEach(block -> {
+            final int from = block * BLOCK_SIZE;
+            final int to = blockEnd(block, n);
+            if (indexes == null) {
+                for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+                    channel[k] = values[disp] * m;
+                }
+            } else if (m == 1.0f) {
+                for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+                    channel[indexes[k]] = values[disp];
+                }
+            } else {
+                for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+                    channel[indexes[k]] = values[disp] * m;
+                }
+            }
+        });
+    }
+
+    private static void gatherFloats(
+            float[] result,
+            int blockLength,
+            int column,
+            Object channel,
+            int[] indexes,
+            int from,
+            int to,
+            float mult) {
+        if (channel instanceof byte[] data) {
+            gatherFloatsFromBytes(result, blockLength, column, data, indexes, from, to, mult);
+        } else if (channel instanceof short[] data) {
+            gatherFloatsFromShorts(result, blockLength, column, data, indexes, from, to, mult);
+        } else if (channel instanceof int[] data) {
+            gatherFloatsFromInts(result, blockLength, column, data, indexes, from, to, mult);
+        } else if (channel instanceof float[] data) {
+            gatherFloatsFromFloats(result, blockLength, column, data, indexes, from, to, mult);
+        } else if (channel instanceof double[] data) {
+            gatherFloatsFromDoubles(result, blockLength, column, data, indexes, from, to, mult);
+        } else {
+            throw new IllegalArgumentException("Illegal array type: " + channel);
+        }
+    }
+
+    private static void gatherInts(
+            int[] result,
+            int blockLength,
+            int column,
+            Object channel,
+            int[] indexes,
+            int from,
+            int to) {
+        if (channel instanceof byte[] data) {
+            gatherIntsFromBytes(result, blockLength, column, data, indexes, from, to);
+        } else if (channel instanceof short[] data) {
+            gatherIntsFromShorts(result, blockLength, column, data, indexes, from, to);
+        } else if (channel instanceof int[] data) {
+            gatherIntsFromInts(result, blockLength, column, data, indexes, from, to);
+        } else if (channel instanceof float[] data) {
+            gatherIntsFromFloats(result, blockLength, column, data, indexes, from, to);
+        } else if (channel instanceof double[] data) {
+            gatherIntsFromDoubles(result, blockLength, column, data, indexes, from, to);
+        } else {
+            throw new IllegalArgumentException("Illegal array type: " + channel);
+        }
+    }
+
+    private static void gatherRaw(
+            Object result,
+            int blockLength,
+            int column,
+            Object channel,
+            int[] indexes,
+            int from,
+            int to) {
+        if (channel instanceof byte[] data) {
+            gatherRawBytes((byte[]) result, blockLength, column, data, indexes, from, to);
+        } else if (channel instanceof short[] data) {
+            gatherRawShorts((short[]) result, blockLength, column, data, indexes, from, to);
+        } else if (channel instanceof int[] data) {
+            gatherRawInts((int[]) result, blockLength, column, data, indexes, from, to);
+        } else if (channel instanceof float[] data) {
+            gatherRawFloats((float[]) result, blockLength, column, data, indexes, from, to);
+        } else if (channel instanceof double[] data) {
+            gatherRawDoubles((double[]) result, blockLength, column, data, indexes, from, to);
+        } else {
+            throw new IllegalArgumentException("Illegal array type: " + channel);
+        }
+    }
+
+    /*Repeat() Bytes ==> Shorts,,Ints,,Floats,,Doubles;;
+               byte ==> short,,int,,float,,double;;
+               \(data\[indexes\[k\]\] \& 0xFF\) \* mult ==>
+                    (data[indexes[k]] & 0xFFFF) * mult,,data[indexes[k]] * mult,,data[indexes[k]] * mult,,
+                    (float) (data[indexes[k]] * mult);;
+               (data\[indexes\[k\]\]) \& 0xFF; ==> $1 & 0xFFFF;,,$1;,,(int) $1;,,(int) $1;
+     */
+
+    private static void gatherFloatsFromBytes(
+            float[] result,
+            int blockLength,
+            int column,
+            byte[] data,
+            int[] indexes,
+            int from,
+            int to,
+            float mult) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = (data[indexes[k]] & 0xFF) * mult;
+        }
+    }
+
+    private static void gatherIntsFromBytes(
+            int[] result,
+            int blockLength,
+            int column,
+            byte[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]] & 0xFF;
+        }
+    }
+
+    private static void gatherRawBytes(
+            byte[] result,
+            int blockLength,
+            int column,
+            byte[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]];
+        }
+    }
+    /*Repeat.AutoGeneratedStart !! Auto-generated: NOT EDIT !! */
+
+    private static void gatherFloatsFromShorts(
+            float[] result,
+            int blockLength,
+            int column,
+            short[] data,
+            int[] indexes,
+            int from,
+            int to,
+            float mult) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = (data[indexes[k]] & 0xFFFF) * mult;
+        }
+    }
+
+    private static void gatherIntsFromShorts(
+            int[] result,
+            int blockLength,
+            int column,
+            short[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]] & 0xFFFF;
+        }
+    }
+
+    private static void gatherRawShorts(
+            short[] result,
+            int blockLength,
+            int column,
+            short[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]];
+        }
+    }
+
+    private static void gatherFloatsFromInts(
+            float[] result,
+            int blockLength,
+            int column,
+            int[] data,
+            int[] indexes,
+            int from,
+            int to,
+            float mult) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]] * mult;
+        }
+    }
+
+    private static void gatherIntsFromInts(
+            int[] result,
+            int blockLength,
+            int column,
+            int[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]];
+        }
+    }
+
+    private static void gatherRawInts(
+            int[] result,
+            int blockLength,
+            int column,
+            int[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]];
+        }
+    }
+
+    private static void gatherFloatsFromFloats(
+            float[] result,
+            int blockLength,
+            int column,
+            float[] data,
+            int[] indexes,
+            int from,
+            int to,
+            float mult) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]] * mult;
+        }
+    }
+
+    private static void gatherIntsFromFloats(
+            int[] result,
+            int blockLength,
+            int column,
+            float[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = (int) data[indexes[k]];
+        }
+    }
+
+    private static void gatherRawFloats(
+            float[] result,
+            int blockLength,
+            int column,
+            float[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]];
+        }
+    }
+
+    private static void gatherFloatsFromDoubles(
+            float[] result,
+            int blockLength,
+            int column,
+            double[] data,
+            int[] indexes,
+            int from,
+            int to,
+            float mult) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = (float) (data[indexes[k]] * mult);
+        }
+    }
+
+    private static void gatherIntsFromDoubles(
+            int[] result,
+            int blockLength,
+            int column,
+            double[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = (int) data[indexes[k]];
+        }
+    }
+
+    private static void gatherRawDoubles(
+            double[] result,
+            int blockLength,
+            int column,
+            double[] data,
+            int[] indexes,
+            int from,
+            int to) {
+        for (int k = from, disp = k * blockLength + column; k < to; k++, disp += blockLength) {
+            result[disp] = data[indexes[k]];
+        }
+    }
+    /*Repeat.AutoGeneratedEnd*/
+
+    private static boolean containsLabel(int label, int min, int max, boolean[] lookup, int[] sortedSet) {
+        if (label < min || label > max) {
+            return false;
+        }
+        return lookup != null ? lookup[label - min] : java.util.Arrays.binarySearch(sortedSet, label) >= 0;
+    }
+
+    private static void checkGathering(
+            int resultLength,
+            int blockLength,
+            int firstColumn,
+            Object[] channels,
+            int[] indexes) {
+        Objects.requireNonNull(channels, "Null channels");
+        Objects.requireNonNull(indexes, "Null indexes");
+        if (blockLength <= 0 || firstColumn < 0 || (long) firstColumn + (long) channels.length > blockLength) {
+            throw new IllegalArgumentException("Cannot store " + channels.length + " channels, starting from column "
+                    + firstColumn + ", into block of " + blockLength + " columns");
+        }
+        if ((long) indexes.length * (long) blockLength > resultLength) {
+            throw new IllegalArgumentException("Result array is too short for "
+                    + indexes.length + " blocks of " + blockLength + " elements");
+        }
+    }
+
+    private static int numberOfBlocks(int n) {
+        return (int) (((long) n + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+
+    private static int blockEnd(int block, int n) {
+        return (int) Math.min((long) block * BLOCK_SIZE + BLOCK_SIZE, n);
+    }
+
+    private static int accumulateCounts(int[] counts) {
+        long sum = 0;
+        for (int k = 1; k < counts.length; k++) {
+            sum += counts[k];
+            if (sum > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many selected pixels: more that 2^31-1");
+            }
+            counts[k] = (int) sum;
+        }
+        return (int) sum;
+    }
+}
@@ -119,9 +119,10 @@ public final class SetPixels extends Executor implements ReadOnlyExecutionInput
             throw new TooLargeArrayException("Too large matrix: " + mask);
         }
         final int numberOfChannels = pixels.getBlockLength();
-        final BitArray maskArray = supposeMaskAlwaysTrue ?
-                Arrays.nBitCopies(mask.size(), true) :
-                mask.nonZeroAnyChannelMatrix().array();
+        final int[] indexes = supposeMaskAlwaysTrue ?
+                null :
+                PixelsGatherScatter.indexesOfNonZero(mask.nonZeroAnyChannelMatrix().array().toJavaArray());
+        // - null means all pixels
         if (background != null) {
             background = background.asPrecision(float.class);
             if (numberOfChannels == 1) {
@@ -129,32 +130,19 @@ public final class SetPixels extends Executor implements ReadOnlyExecutionInput
             }
         }
         final float[] data = pixels.toFloatArray();
+        final double mult = rawPixelValues ?
+                1.0 / Arrays.maxPossibleValue(Arrays.type(PArray.class, elementType), 1.0) :
+                1.0;
         final List<Matrix<? extends PArray>> result = new ArrayList<>();
         for (int channelIndex = 0; channelIndex < numberOfChannels; channelIndex++) {
-            final Matrix<? extends UpdatablePArray> channel = Arrays.SMM.newFloatMatrix(dimensions);
-            final UpdatablePArray channelArray = channel.array();
-            if (background != null && channelIndex < background.numberOfChannels()) {
-                channelArray.copy(background.channel(channelIndex).array());
-            }
-            int disp = channelIndex;
-            if (rawPixelValues) {
-                final double mult = 1.0 / Arrays.maxPossibleValue(
-                        Arrays.type(PArray.class, elementType), 1.0);
-                for (long j = 0, n = channelArray.length(); j < n && disp < data.length; j++) {
-                    if (maskArray.getBit(j)) {
-                        channelArray.setDouble(j, data[disp] * mult);
-                        disp += numberOfChannels;
-                    }
-                }
-            } else {
-                for (long j = 0, n = channelArray.length(); j < n && disp < data.length; j++) {
-                    if (maskArray.getBit(j)) {
-                        channelArray.setDouble(j, data[disp]);
-                        disp += numberOfChannels;
-                    }
-                }
-            }
-            result.add(Matrices.clone(Matrices.asPrecision(channel, elementType)));
+            final float[] channelArray = background != null && channelIndex < background.numberOfChannels() ?
+                    background.channel(channelIndex).toFloat() :
+                    new float[(int) mask.size()];
+            PixelsGatherScatter.scatterFloats(channelArray, indexes, data, numberOfChannels, channelIndex, mult);
+            final Matrix<? extends PArray> channel = Matrix.as(channelArray, dimensions);
+            result.add(elementType == float.class ?
+                    channel :
+                    Matrices.clone(Matrices.asPrecision(channel, elementType)));
             // - cloneMatrix allows to free memory, allocated by channel matrix
         }
         return MultiMatrix.of2D(result);
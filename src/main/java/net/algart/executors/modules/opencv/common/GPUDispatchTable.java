@@ -0,0 +1,202 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.common;
+
+import net.algart.executors.api.data.SMat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of measured latencies of CPU (<code>Mat</code>) and OpenCL (<code>UMat</code>) processing paths,
+ * used by OpenCV executors in adaptive GPU mode to choose the faster path.
+ *
+ * <p>Latencies are accumulated separately for every executor class, size bucket of the source image
+ * (&lfloor;log<sub>2</sub>(number of pixels)&rfloor;), depth and number of channels. They include
+ * conversion of the source and result, i.e. uploading to/downloading from the device for OpenCL path.
+ * Until both paths are measured at least {@link #MIN_NUMBER_OF_SAMPLES} times, the path with less samples
+ * is chosen; the first sample of every path is replaced by the next one (it usually includes warming up,
+ * like compilation of OpenCL kernels). After this, the faster path is chosen,
+ * excepting every {@link #EXPLORATION_PERIOD}-th call, which re-checks the slower path.</p>
+ *
+ * <p>If the system property {@value #TABLE_FILE_PROPERTY_NAME} is specified, the table is loaded from
+ * this file at startup and saved into it at JVM shutdown.</p>
+ */
+public final class GPUDispatchTable {
+    public static final String TABLE_FILE_PROPERTY_NAME = "net.algart.executors.opencv.gpuDispatchTable";
+    public static final int MIN_NUMBER_OF_SAMPLES = 2;
+    public static final int EXPLORATION_PERIOD = 32;
+
+    private static final double AVERAGING_WEIGHT = 0.2;
+    private static final System.Logger LOG = System.getLogger(GPUDispatchTable.class.getName());
+
+    private static final GPUDispatchTable INSTANCE = new GPUDispatchTable();
+
+    static {
+        final String file = System.getProperty(TABLE_FILE_PROPERTY_NAME);
+        if (file != null && !file.isBlank()) {
+            final Path path = Paths.get(file);
+            try {
+                if (Files.exists(path)) {
+                    INSTANCE.load(path);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "Cannot load GPU dispatch table " + path + ": " + e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    INSTANCE.save(path);
+                } catch (IOException e) {
+                    LOG.log(System.Logger.Level.WARNING, "Cannot save GPU dispatch table " + path + ": " + e);
+                }
+            }));
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private GPUDispatchTable() {
+    }
+
+    public static GPUDispatchTable getInstance() {
+        return INSTANCE;
+    }
+
+    public Entry entry(Class<?> executorClass, SMat source) {
+        return entries.computeIfAbsent(key(executorClass, source), k -> new Entry());
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public void load(Path file) throws IOException {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            final String[] items = line.split("\t");
+            if (items.length != 5) {
+                throw new IOException("Invalid line in GPU dispatch table " + file + ": " + line);
+            }
+            final Entry entry = new Entry();
+            try {
+                entry.cpuNanos = Double.parseDouble(items[1]);
+                entry.cpuCount = Long.parseLong(items[2]);
+                entry.gpuNanos = Double.parseDouble(items[3]);
+                entry.gpuCount = Long.parseLong(items[4]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid line in GPU dispatch table " + file + ": " + line, e);
+            }
+            entries.put(items[0], entry);
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        lines.add("# key\tCPU ns\tCPU samples\tGPU ns\tGPU samples");
+        for (Map.Entry<String, Entry> e : new TreeMap<>(entries).entrySet()) {
+            lines.add(e.getKey() + "\t" + e.getValue().toLine());
+        }
+        final Path temporary = file.resolveSibling(
+                "~" + ProcessHandle.current().pid() + "~" + file.getFileName());
+        // - not Files.createTempFile: it would create the file with rw------- permissions
+        try {
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            if (Files.exists(file)
+                    && Files.getFileStore(temporary).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(file));
+                // - the replaced file keeps its permissions
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "GPU dispatch table (" + entries.size() + " entries)";
+    }
+
+    static String key(Class<?> executorClass, SMat source) {
+        final long size = Math.max(1, source.getDimX() * source.getDimY());
+        return executorClass.getName()
+                + "/" + (63 - Long.numberOfLeadingZeros(size))
+                + "/" + source.getDepth()
+                + "x" + source.getNumberOfChannels();
+    }
+
+    public static final class Entry {
+        private double cpuNanos = 0.0;
+        private long cpuCount = 0;
+        private double gpuNanos = 0.0;
+        private long gpuCount = 0;
+        private long numberOfChoices = 0;
+
+        private Entry() {
+        }
+
+        public synchronized boolean chooseGPU() {
+            numberOfChoices++;
+            if (gpuCount < MIN_NUMBER_OF_SAMPLES || cpuCount < MIN_NUMBER_OF_SAMPLES) {
+                return gpuCount <= cpuCount;
+            }
+            final boolean gpuFaster = gpuNanos <= cpuNanos;
+            return numberOfChoices % EXPLORATION_PERIOD == 0 ? !gpuFaster : gpuFaster;
+        }
+
+        public synchronized void record(boolean gpu, long nanos) {
+            if (gpu) {
+                gpuNanos = gpuCount <= 1 ? nanos : (1.0 - AVERAGING_WEIGHT) * gpuNanos + AVERAGING_WEIGHT * nanos;
+                gpuCount++;
+            } else {
+                cpuNanos = cpuCount <= 1 ? nanos : (1.0 - AVERAGING_WEIGHT) * cpuNanos + AVERAGING_WEIGHT * nanos;
+                cpuCount++;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.US, "CPU %.3f ms (%d samples), GPU %.3f ms (%d samples)",
+                    cpuNanos * 1e-6, cpuCount, gpuNanos * 1e-6, gpuCount);
+        }
+
+        private synchronized String toLine() {
+            return String.format(Locale.US, "%.1f\t%d\t%.1f\t%d", cpuNanos, cpuCount, gpuNanos, gpuCount);
+        }
+    }
+}
@@ -24,7 +24,10 @@
 
 package net.algart.executors.modules.opencv.common;
 
+import net.algart.executors.api.data.SMat;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.opencv.util.O2SMat;
+import net.algart.executors.modules.opencv.util.OPyramidLevels;
 import net.algart.executors.modules.opencv.util.enums.OInterpolation;
 import org.bytedeco.opencv.global.opencv_imgproc;
 import org.bytedeco.opencv.opencv_core.Mat;
@@ -75,18 +78,24 @@ public abstract class MatFilter extends OpenCVExecutor {
 
     @Override
     public void process() {
-        Mat source = O2SMat.toMat(
-                getInputMat(allowUninitializedInput()),
-                allowInputPackedBits());
-        setOutputTo(processWithCompression(source));
+        final SMat input = getInputMat(allowUninitializedInput());
+        Mat source = O2SMat.toMat(input, allowInputPackedBits());
+        setOutputTo(processWithCompression(source, OPyramidLevels.sourceIdentity(input)));
     }
 
     public Mat processWithCompression(Mat source) {
+        return processWithCompression(source, null);
+    }
+
+    public Mat processWithCompression(Mat source, Object sourceIdentity) {
         this.sourceDimX = source != null ? source.cols() : -1;
         this.sourceDimY = source != null ? source.rows() : -1;
-        final Mat compressedSource = compressOriginal(source);
+        final Mat compressedSource = compressOriginal(source, sourceIdentity);
         setStartProcessingTimeStamp();
-        Mat compressedResult = process(compressedSource);
+        Mat compressedResult;
+        try (ThreadBudget.Lease ignored = acquireThreads()) {
+            compressedResult = process(compressedSource);
+        }
         setEndProcessingTimeStamp();
         final Mat result = stretchToOriginal(compressedResult);
         if (result != compressedResult) {
@@ -111,15 +120,20 @@ public abstract class MatFilter extends OpenCVExecutor {
     public abstract Mat process(Mat source);
 
     public final Mat compressOriginal(Mat mat) {
+        return compressOriginal(mat, null);
+    }
+
+    /**
+     * Reduces the source matrix in {@link #getOptimizingScale()} times. If <code>sourceIdentity</code>
+     * is not <code>null</code>, the reduced matrix is shared with other executors via
+     * {@link net.algart.executors.modules.cv.common.PyramidCache}; the returned matrix is always a new object,
+     * which may be modified or closed by the caller.
+     */
+    public final Mat compressOriginal(Mat mat, Object sourceIdentity) {
         if (mat == null || optimizingScale <= 1.0) {
             return mat;
         }
-        Mat result = new Mat();
-        double fxy = 1.0 / optimizingScale;
-        try (Size size = new Size()) {
-            opencv_imgproc.resize(mat, result, size, fxy, fxy, compressionInterpolation.code());
-        }
-        return result;
+        return OPyramidLevels.reduce(mat, sourceIdentity, optimizingScale, compressionInterpolation);
     }
 
     public final Mat stretchToOriginal(Mat mat) {
@@ -25,6 +25,7 @@
 package net.algart.executors.modules.opencv.common;
 
 import net.algart.executors.api.data.SNumbers;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.opencv.util.O2SMat;
 import org.bytedeco.opencv.opencv_core.Mat;
 
@@ -38,7 +39,10 @@ public abstract class MatToNumbers extends OpenCVExecutor {
     public void process() {
         final Mat source = O2SMat.toMat(getInputMat(), allowInputPackedBits());
         setStartProcessingTimeStamp();
-        final SNumbers result = analyse(source);
+        final SNumbers result;
+        try (ThreadBudget.Lease ignored = acquireThreads()) {
+            result = analyse(source);
+        }
         setEndProcessingTimeStamp();
         getNumbers().setTo(result);
     }
@@ -25,21 +25,29 @@
 package net.algart.executors.modules.opencv.common;
 
 import net.algart.executors.api.Executor;
+import net.algart.executors.api.data.SMat;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.opencv.util.OTools;
+import net.algart.executors.modules.opencv.util.OpenCVInitialization;
 import net.algart.multimatrix.MultiMatrix;
 import org.bytedeco.opencv.global.opencv_core;
 
 import java.lang.ref.Cleaner;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 public abstract class OpenCVExecutor extends Executor {
     static {
+        OpenCVInitialization.start();
+        // - loading natives and probing OpenCL in background: it should not block loading chains
         if (SHOW_INFO_ON_STARTUP) {
             System.out.println();
             System.out.printf("OpenCV version %s%n", OTools.openCVVersion());
-            System.out.printf("OpenCV GPU optimization: %s%n%n",
+            System.out.printf("OpenCV GPU optimization: %s%n",
                     OTools.isGPUOptimizationEnabled() ? "enabled"
                             : opencv_core.haveOpenCL() ? "disabled"
                             : "unavailable");
+            System.out.printf("OpenCV initialization: %s%n%n", OpenCVInitialization.phaseTimingsInfo());
         }
     }
 
@@ -53,6 +61,9 @@ public abstract class OpenCVExecutor extends Executor {
     }
 
     private boolean useGPU = true;
+    private boolean adaptiveGPU = false;
+    private int reservedThreads = 0;
+    private volatile ThreadBudget.Lease lease = null;
 
     public boolean useGPU() {
         return OTools.isGPUOptimizationEnabled() && useGPU;
@@ -66,6 +77,84 @@ public abstract class OpenCVExecutor extends Executor {
         this.useGPU = useGPU;
     }
 
+    public boolean isAdaptiveGPU() {
+        return adaptiveGPU;
+    }
+
+    /**
+     * Sets adaptive GPU mode. In this mode, executors supporting both CPU (<code>Mat</code>) and OpenCL
+     * (<code>UMat</code>) paths measure both paths and choose the faster one for every size and type
+     * of the source image: see {@link GPUDispatchTable}. It has effect only if {@link #useGPU()} returns true.
+     *
+     * @param adaptiveGPU whether the adaptive GPU mode is enabled.
+     */
+    public void setAdaptiveGPU(boolean adaptiveGPU) {
+        this.adaptiveGPU = adaptiveGPU;
+    }
+
+    public int getReservedThreads() {
+        return reservedThreads;
+    }
+
+    /**
+     * Sets the number of threads, which this executor reserves in {@link ThreadBudget}
+     * while the native OpenCV operation is running; 0 means a fair share of the budget
+     * (see {@link ThreadBudget#acquire(int)}).
+     *
+     * <p>Note: this is only accounting, not a limit for OpenCV itself. OpenCV thread pool is global
+     * for the process: it is sized by {@link ThreadBudget#totalThreads()} (see <code>OpenCVInitialization</code>)
+     * and cannot be resized for one call without affecting other executors, working at the same time.
+     * The reserved threads are not granted to Java-side tasks, started while this executor is working.
+     * Java-side parallel parts of this executor (see {@link #callWithReservedThreads(Supplier)})
+     * use exactly the reserved threads.</p>
+     *
+     * @param reservedThreads number of reserved threads or 0.
+     */
+    public void setReservedThreads(int reservedThreads) {
+        this.reservedThreads = nonNegative(reservedThreads);
+    }
+
+    protected final ThreadBudget.Lease acquireThreads() {
+        final ThreadBudget.Lease lease = ThreadBudget.acquire(reservedThreads);
+        logDebug(() -> getClass().getSimpleName() + ": " + lease + "; " + ThreadBudget.usageInfo());
+        this.lease = lease;
+        return lease;
+    }
+
+    /**
+     * Executes the task so that its parallel streams use the threads, reserved by {@link #acquireThreads()}
+     * for the current operation. If there is no such reservation, acquires threads for this task.
+     *
+     * @param task some task.
+     * @param <T>  type of the result.
+     * @return result of the task.
+     */
+    protected final <T> T callWithReservedThreads(Supplier<T> task) {
+        final ThreadBudget.Lease lease = this.lease;
+        if (lease != null && !lease.isClosed()) {
+            return lease.call(task);
+        }
+        try (ThreadBudget.Lease newLease = acquireThreads()) {
+            return newLease.call(task);
+        }
+    }
+
+    // Used by executors, supporting both Mat and UMat processing, when useGPU() is true
+    protected final void processOnCPUOrGPU(SMat source, Runnable cpuProcessing, Runnable gpuProcessing) {
+        if (!adaptiveGPU || source == null || !source.isInitialized()) {
+            gpuProcessing.run();
+            return;
+        }
+        final GPUDispatchTable.Entry entry = GPUDispatchTable.getInstance().entry(getClass(), source);
+        final boolean gpu = entry.chooseGPU();
+        final long t1 = System.nanoTime();
+        (gpu ? gpuProcessing : cpuProcessing).run();
+        final long t2 = System.nanoTime();
+        entry.record(gpu, t2 - t1);
+        logDebug(() -> String.format(Locale.US, "%s: %s path, %.3f ms (%s)",
+                getClass().getSimpleName(), gpu ? "GPU" : "CPU", (t2 - t1) * 1e-6, entry));
+    }
+
     // This additional method helps in interaction between MultiMatrix-oriented and OpenCV executors
     public final void setMat(String name, MultiMatrix mat) {
         getInputMatContainer(name).setTo(mat);
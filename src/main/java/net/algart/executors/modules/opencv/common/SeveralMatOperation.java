@@ -25,6 +25,7 @@
 package net.algart.executors.modules.opencv.common;
 
 import net.algart.executors.api.data.SMat;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.opencv.util.O2SMat;
 import net.algart.executors.modules.opencv.util.OTools;
 import org.bytedeco.opencv.opencv_core.Mat;
@@ -55,7 +56,10 @@ public abstract class SeveralMatOperation extends OpenCVExecutor {
             OTools.checkDimensionOfNonNullMatEquality(sourceMats);
         }
         setStartProcessingTimeStamp();
-        final Mat target = process(sourceMats.toArray(new Mat[0]));
+        final Mat target;
+        try (ThreadBudget.Lease ignored = acquireThreads()) {
+            target = process(sourceMats.toArray(new Mat[0]));
+        }
         setEndProcessingTimeStamp();
         setOutputTo(target);
     }
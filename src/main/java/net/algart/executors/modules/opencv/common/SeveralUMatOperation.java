@@ -25,6 +25,7 @@
 package net.algart.executors.modules.opencv.common;
 
 import net.algart.executors.api.data.SMat;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.opencv.util.O2SMat;
 import net.algart.executors.modules.opencv.util.OTools;
 import org.bytedeco.opencv.opencv_core.UMat;
@@ -39,6 +40,11 @@ public abstract class SeveralUMatOperation extends SeveralMatOperation {
             super.process();
             return;
         }
+        final SMat firstInput = hasInputPort(inputPortName(0)) ? getInputMat(inputPortName(0), true) : null;
+        processOnCPUOrGPU(firstInput, super::process, this::processOnGPU);
+    }
+
+    private void processOnGPU() {
         final Integer requiredNumberOfInputs = requiredNumberOfInputs();
         final List<UMat> sourceMats = new ArrayList<>();
         for (int k = 0; requiredNumberOfInputs == null || k < requiredNumberOfInputs; k++) {
@@ -52,7 +58,10 @@ public abstract class SeveralUMatOperation extends SeveralMatOperation {
             OTools.checkDimensionOfNonNullUMatEquality(sourceMats);
         }
         setStartProcessingTimeStamp();
-        final UMat target = process(sourceMats.toArray(new UMat[0]));
+        final UMat target;
+        try (ThreadBudget.Lease ignored = acquireThreads()) {
+            target = process(sourceMats.toArray(new UMat[0]));
+        }
         setEndProcessingTimeStamp();
         setOutputTo(target);
     }
@@ -24,7 +24,10 @@
 
 package net.algart.executors.modules.opencv.common;
 
+import net.algart.executors.api.data.SMat;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.opencv.util.O2SMat;
+import net.algart.executors.modules.opencv.util.OPyramidLevels;
 import org.bytedeco.opencv.global.opencv_imgproc;
 import org.bytedeco.opencv.opencv_core.Size;
 import org.bytedeco.opencv.opencv_core.UMat;
@@ -39,19 +42,29 @@ public abstract class UMatFilter extends MatFilter {
             super.process();
             return;
         }
-        UMat source = O2SMat.toUMat(
-                getInputMat(allowUninitializedInput()),
-                allowInputPackedBits());
-        final UMat result = processWithCompression(source);
+        processOnCPUOrGPU(getInputMat(allowUninitializedInput()), super::process, this::processOnGPU);
+    }
+
+    private void processOnGPU() {
+        final SMat input = getInputMat(allowUninitializedInput());
+        UMat source = O2SMat.toUMat(input, allowInputPackedBits());
+        final UMat result = processWithCompression(source, OPyramidLevels.sourceIdentity(input));
         setOutputTo(result);
     }
 
     public UMat processWithCompression(UMat source) {
+        return processWithCompression(source, null);
+    }
+
+    public UMat processWithCompression(UMat source, Object sourceIdentity) {
         this.sourceDimX = source != null ? source.cols() : -1;
         this.sourceDimY = source != null ? source.rows() : -1;
-        final UMat compressedSource = compressOriginal(source);
+        final UMat compressedSource = compressOriginal(source, sourceIdentity);
         setStartProcessingTimeStamp();
-        final UMat compressedResult = process(compressedSource);
+        final UMat compressedResult;
+        try (ThreadBudget.Lease ignored = acquireThreads()) {
+            compressedResult = process(compressedSource);
+        }
         setEndProcessingTimeStamp();
         final UMat result = stretchToOriginal(compressedResult);
         if (result != compressedResult) {
@@ -76,15 +89,14 @@ public abstract class UMatFilter extends MatFilter {
     public abstract UMat process(UMat source);
 
     public final UMat compressOriginal(UMat mat) {
+        return compressOriginal(mat, null);
+    }
+
+    public final UMat compressOriginal(UMat mat, Object sourceIdentity) {
         if (mat == null || optimizingScale <= 1.0) {
             return mat;
         }
-        UMat result = new UMat();
-        double fxy = 1.0 / optimizingScale;
-        try (Size size = new Size()) {
-            opencv_imgproc.resize(mat, result, size, fxy, fxy, compressionInterpolation.code());
-        }
-        return result;
+        return OPyramidLevels.reduce(mat, sourceIdentity, optimizingScale, compressionInterpolation);
     }
 
     public final UMat stretchToOriginal(UMat mat) {
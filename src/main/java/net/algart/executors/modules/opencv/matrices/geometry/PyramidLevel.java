@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.matrices.geometry;
+
+import net.algart.executors.api.ReadOnlyExecutionInput;
+import net.algart.executors.api.data.SMat;
+import net.algart.executors.modules.cv.common.PyramidCache;
+import net.algart.executors.modules.opencv.common.OpenCVExecutor;
+import net.algart.executors.modules.opencv.util.O2SMat;
+import net.algart.executors.modules.opencv.util.OPyramidLevels;
+import net.algart.executors.modules.opencv.util.enums.OInterpolation;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.UMat;
+
+public final class PyramidLevel extends OpenCVExecutor implements ReadOnlyExecutionInput {
+    private double scale = 2.0;
+    private OInterpolation interpolation = OInterpolation.INTER_AREA;
+
+    public PyramidLevel() {
+        addInputMat(DEFAULT_INPUT_PORT);
+        addOutputMat(DEFAULT_OUTPUT_PORT);
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public PyramidLevel setScale(double scale) {
+        if (scale < 1.0) {
+            throw new IllegalArgumentException("Scale " + scale + " must be >= 1.0");
+        }
+        this.scale = scale;
+        return this;
+    }
+
+    public OInterpolation getInterpolation() {
+        return interpolation;
+    }
+
+    public PyramidLevel setInterpolation(OInterpolation interpolation) {
+        this.interpolation = nonNull(interpolation);
+        return this;
+    }
+
+    @Override
+    public void process() {
+        final SMat input = getInputMat();
+        if (scale == 1.0) {
+            getMat().setTo(input);
+            return;
+        }
+        final Object sourceIdentity = OPyramidLevels.sourceIdentity(input);
+        // - the same identity as in MatFilter/UMatFilter: following filters with the same
+        // optimizingScale and compressionInterpolation will find this level in the cache
+        setStartProcessingTimeStamp();
+        if (useGPU()) {
+            final UMat result = OPyramidLevels.reduce(O2SMat.toUMat(input), sourceIdentity, scale, interpolation);
+            setEndProcessingTimeStamp();
+            O2SMat.setTo(getMat(), result);
+        } else {
+            final Mat result = OPyramidLevels.reduce(O2SMat.toMat(input), sourceIdentity, scale, interpolation);
+            setEndProcessingTimeStamp();
+            O2SMat.setTo(getMat(), result);
+        }
+        logDebug(() -> "Pyramid level of " + input + " reduced in " + scale + " times; "
+                + PyramidCache.getInstance().statisticsInfo());
+    }
+}
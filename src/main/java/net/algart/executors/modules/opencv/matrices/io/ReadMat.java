@@ -28,20 +28,90 @@ import net.algart.executors.api.ReadOnlyExecutionInput;
 import net.algart.executors.api.data.SMat;
 import net.algart.executors.modules.core.common.io.FileOperation;
 import net.algart.executors.modules.opencv.util.O2SMat;
+import net.algart.executors.modules.opencv.util.enums.OInterpolation;
 import org.bytedeco.opencv.global.opencv_imgcodecs;
+import org.bytedeco.opencv.global.opencv_imgproc;
 import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Size;
 
 import java.io.IOError;
 import java.io.IOException;
 import java.nio.file.Path;
 
 public final class ReadMat extends FileOperation implements ReadOnlyExecutionInput {
+    public static final String OUTPUT_NUMBER_OF_PAGES = "number_of_pages";
+
+    public enum ColorMode {
+        COLOR(opencv_imgcodecs.IMREAD_COLOR,
+                opencv_imgcodecs.IMREAD_REDUCED_COLOR_2,
+                opencv_imgcodecs.IMREAD_REDUCED_COLOR_4,
+                opencv_imgcodecs.IMREAD_REDUCED_COLOR_8),
+        GRAYSCALE(opencv_imgcodecs.IMREAD_GRAYSCALE,
+                opencv_imgcodecs.IMREAD_REDUCED_GRAYSCALE_2,
+                opencv_imgcodecs.IMREAD_REDUCED_GRAYSCALE_4,
+                opencv_imgcodecs.IMREAD_REDUCED_GRAYSCALE_8),
+        UNCHANGED(opencv_imgcodecs.IMREAD_UNCHANGED),
+        ANY_DEPTH_COLOR(opencv_imgcodecs.IMREAD_ANYDEPTH | opencv_imgcodecs.IMREAD_ANYCOLOR),
+        ANY_DEPTH_GRAYSCALE(opencv_imgcodecs.IMREAD_ANYDEPTH);
+
+        private final int code;
+        private final int[] reducedCodes;
+
+        ColorMode(int code, int... reducedCodes) {
+            this.code = code;
+            this.reducedCodes = reducedCodes;
+        }
+
+        public int code() {
+            return code;
+        }
+
+        /**
+         * Returns the flag for decoding, reduced in <code>1/2<sup>log2Reduction</sup></code> times
+         * by the codec itself (for example, by JPEG decoder), or -1 if it is not supported for this mode.
+         */
+        int reducedCode(int log2Reduction) {
+            if (log2Reduction == 0) {
+                return code;
+            }
+            return log2Reduction <= reducedCodes.length ? reducedCodes[log2Reduction - 1] : -1;
+        }
+    }
+
+    public enum Reduction {
+        NONE(0),
+        REDUCED_2(1),
+        REDUCED_4(2),
+        REDUCED_8(3);
+
+        private final int log2;
+
+        Reduction(int log2) {
+            this.log2 = log2;
+        }
+
+        public int factor() {
+            return 1 << log2;
+        }
+    }
+
     private boolean relativizePath = false;
+    private ColorMode colorMode = ColorMode.COLOR;
+    private Reduction reduction = Reduction.NONE;
+    private int pageIndex = 0;
+    private int roiLeft = 0;
+    private int roiTop = 0;
+    private int roiWidth = 0;
+    private int roiHeight = 0;
+    // - ROI is specified in pixels of the original (not reduced) image; zero width/height means "until the end"
 
     public ReadMat() {
         addFileOperationPorts();
         addInputMat(DEFAULT_INPUT_PORT);
         addOutputMat(DEFAULT_OUTPUT_PORT);
+        addOutputScalar(OUTPUT_NUMBER_OF_PAGES);
     }
 
     public static ReadMat getSecureInstance() {
@@ -59,6 +129,73 @@ public final class ReadMat extends FileOperation implements ReadOnlyExecutionInp
         return this;
     }
 
+    public ColorMode getColorMode() {
+        return colorMode;
+    }
+
+    public ReadMat setColorMode(ColorMode colorMode) {
+        this.colorMode = nonNull(colorMode);
+        return this;
+    }
+
+    public Reduction getReduction() {
+        return reduction;
+    }
+
+    public ReadMat setReduction(Reduction reduction) {
+        this.reduction = nonNull(reduction);
+        return this;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public ReadMat setPageIndex(int pageIndex) {
+        this.pageIndex = nonNegative(pageIndex);
+        return this;
+    }
+
+    public int getRoiLeft() {
+        return roiLeft;
+    }
+
+    public ReadMat setRoiLeft(int roiLeft) {
+        this.roiLeft = nonNegative(roiLeft);
+        return this;
+    }
+
+    public int getRoiTop() {
+        return roiTop;
+    }
+
+    public ReadMat setRoiTop(int roiTop) {
+        this.roiTop = nonNegative(roiTop);
+        return this;
+    }
+
+    public int getRoiWidth() {
+        return roiWidth;
+    }
+
+    public ReadMat setRoiWidth(int roiWidth) {
+        this.roiWidth = nonNegative(roiWidth);
+        return this;
+    }
+
+    public int getRoiHeight() {
+        return roiHeight;
+    }
+
+    public ReadMat setRoiHeight(int roiHeight) {
+        this.roiHeight = nonNegative(roiHeight);
+        return this;
+    }
+
+    public boolean hasRoi() {
+        return roiLeft != 0 || roiTop != 0 || roiWidth != 0 || roiHeight != 0;
+    }
+
     @Override
     public ReadMat setFile(String file) {
         super.setFile(file);
@@ -87,11 +224,17 @@ public final class ReadMat extends FileOperation implements ReadOnlyExecutionInp
                 result.remove();
             } else {
                 final String fileName = path.toString();
-                logDebug(() -> "Reading OpenCV matrix from " + fileName);
-                final Mat mat = opencv_imgcodecs.imread(fileName);
-                if (mat == null || mat.data() == null) {
-                    throw new IOException("Cannot read " + fileName);
+                logDebug(() -> "Reading OpenCV matrix from " + fileName
+                        + (pageIndex > 0 ? ", page #" + pageIndex : "")
+                        + " (" + colorMode + (reduction != Reduction.NONE ? ", " + reduction : "")
+                        + (hasRoi() ? ", ROI " + roiLeft + "," + roiTop + " " + roiWidth + "x" + roiHeight : "")
+                        + ")");
+                if (isOutputNecessary(OUTPUT_NUMBER_OF_PAGES)) {
+                    getScalar(OUTPUT_NUMBER_OF_PAGES).setTo(opencv_imgcodecs.imcount(fileName, colorMode.code()));
                 }
+                Mat mat = decode(fileName);
+                mat = reduceIfNecessary(mat);
+                mat = cropIfNecessary(mat);
                 O2SMat.setTo(result, mat);
             }
         } catch (IOException e) {
@@ -99,4 +242,64 @@ public final class ReadMat extends FileOperation implements ReadOnlyExecutionInp
         }
         return result;
     }
+
+    private Mat decode(String fileName) throws IOException {
+        final Mat result;
+        if (pageIndex == 0) {
+            // - imread decodes the first page only; it is the only function supporting reduced decoding
+            final int reducedCode = colorMode.reducedCode(reduction.log2);
+            result = opencv_imgcodecs.imread(fileName, reducedCode != -1 ? reducedCode : colorMode.code());
+            if (result == null || result.data() == null) {
+                throw new IOException("Cannot read " + fileName);
+            }
+        } else {
+            try (MatVector pages = new MatVector()) {
+                // - decodes only the single requested page, not the whole multi-page file
+                if (!opencv_imgcodecs.imreadmulti(fileName, pages, pageIndex, 1, colorMode.code())
+                        || pages.size() == 0) {
+                    throw new IOException("Cannot read page #" + pageIndex + " from " + fileName
+                            + " (number of pages: " + opencv_imgcodecs.imcount(fileName, colorMode.code()) + ")");
+                }
+                result = pages.get(0).clone();
+                // - the element of MatVector is freed while closing the vector
+            }
+        }
+        return result;
+    }
+
+    private Mat reduceIfNecessary(Mat mat) {
+        final int factor = reduction.factor();
+        if (factor == 1 || (pageIndex == 0 && colorMode.reducedCode(reduction.log2) != -1)) {
+            return mat;
+        }
+        // - this codec/mode does not support reduced decoding: we reduce the full image
+        final Mat result = new Mat();
+        try (Size size = new Size(Math.max(1, mat.cols() / factor), Math.max(1, mat.rows() / factor))) {
+            opencv_imgproc.resize(mat, result, size, 0.0, 0.0, OInterpolation.INTER_AREA.code());
+        }
+        mat.close();
+        return result;
+    }
+
+    private Mat cropIfNecessary(Mat mat) {
+        if (!hasRoi()) {
+            return mat;
+        }
+        final int factor = reduction.factor();
+        final int left = roiLeft / factor;
+        final int top = roiTop / factor;
+        final int right = roiWidth > 0 ? Math.min(mat.cols(), (roiLeft + roiWidth + factor - 1) / factor) : mat.cols();
+        final int bottom = roiHeight > 0 ? Math.min(mat.rows(), (roiTop + roiHeight + factor - 1) / factor) : mat.rows();
+        if (left >= right || top >= bottom) {
+            throw new IllegalArgumentException("ROI " + roiLeft + "," + roiTop + " " + roiWidth + "x" + roiHeight
+                    + " is outside the image " + mat.cols() * factor + "x" + mat.rows() * factor);
+        }
+        final Mat result;
+        try (Rect rect = new Rect(left, top, right - left, bottom - top);
+             Mat roi = mat.apply(rect)) {
+            result = roi.clone();
+        }
+        mat.close();
+        return result;
+    }
 }
@@ -34,7 +34,9 @@ import org.bytedeco.opencv.global.opencv_core;
 import org.bytedeco.opencv.global.opencv_imgproc;
 import org.bytedeco.opencv.opencv_core.Mat;
 import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Size;
 
+import java.util.Locale;
 import java.util.stream.Stream;
 
 public final class GrabCut extends VoidResultMatFilter {
@@ -43,6 +45,8 @@ public final class GrabCut extends VoidResultMatFilter {
     public static final String OUTPUT_MASK = "mask";
     public static final String OUTPUT_SUCCESS = "success";
 
+    private static final int MIN_REFINEMENT_TILE_SIZE = 32;
+
     public enum FigureKind {
         NONE(-1),
         GC_BGD(opencv_imgproc.GC_BGD),
@@ -94,6 +98,9 @@ public final class GrabCut extends VoidResultMatFilter {
     private double sizeY = 1;
     private int iterCount = 1;
     private boolean packBits = true;
+    private boolean coarseToFine = false;
+    private double coarseScale = 4.0;
+    private int boundaryBandWidth = 8;
 
     private Mat storedMask = new Mat();
     private Mat storedBgdModel = new Mat();
@@ -217,6 +224,36 @@ public final class GrabCut extends VoidResultMatFilter {
         return this;
     }
 
+    public boolean isCoarseToFine() {
+        return coarseToFine;
+    }
+
+    public GrabCut setCoarseToFine(boolean coarseToFine) {
+        this.coarseToFine = coarseToFine;
+        return this;
+    }
+
+    public double getCoarseScale() {
+        return coarseScale;
+    }
+
+    public GrabCut setCoarseScale(double coarseScale) {
+        if (coarseScale < 1.0) {
+            throw new IllegalArgumentException("Coarse scale " + coarseScale + " must be >= 1.0");
+        }
+        this.coarseScale = coarseScale;
+        return this;
+    }
+
+    public int getBoundaryBandWidth() {
+        return boundaryBandWidth;
+    }
+
+    public GrabCut setBoundaryBandWidth(int boundaryBandWidth) {
+        this.boundaryBandWidth = nonNegative(boundaryBandWidth);
+        return this;
+    }
+
     @Override
     public void process(Mat result, Mat source) {
         process(result,
@@ -272,8 +309,12 @@ public final class GrabCut extends VoidResultMatFilter {
         if (runGrabCut) {
             // - in other case, grabCut will throw its own assertion
             try (Rect rect = createRect(source.cols(), source.rows())) {
-                opencv_imgproc.grabCut(
-                        source, storedMask, rect, storedBgdModel, storedFgdModel, iterCount, mode.code());
+                if (coarseToFine && coarseScale > 1.0) {
+                    grabCutCoarseToFine(source, rect, mode);
+                } else {
+                    opencv_imgproc.grabCut(
+                            source, storedMask, rect, storedBgdModel, storedFgdModel, iterCount, mode.code());
+                }
             }
         } else {
             if (nonTrivialSamplesRequired) {
@@ -313,6 +354,235 @@ public final class GrabCut extends VoidResultMatFilter {
         return new Rect(left, top, width, height);
     }
 
+    // GrabCut at the reduced image, then at full resolution only inside the narrow band around the found
+    // boundary; outside this band the pixels are fixed as GC_BGD/GC_FGD. The band is covered by small overlapping
+    // tiles (about 4*boundaryBandWidth), and every tile, containing band pixels, is refined separately
+    // with the color models, found at the reduced image (GC_EVAL_FREEZE_MODEL): bgd/fgd models describe only colors,
+    // so they are also good for the full resolution, and re-learning them at a small part of the image would make
+    // them worse. Note: bounding rectangles of band components are not used, because one long boundary
+    // can cover almost all image.
+    private void grabCutCoarseToFine(Mat source, Rect rect, OGrabCutMode mode) {
+        final int dimX = source.cols();
+        final int dimY = source.rows();
+        final int smallDimX = Math.max(1, (int) Math.round(dimX / coarseScale));
+        final int smallDimY = Math.max(1, (int) Math.round(dimY / coarseScale));
+        final double fx = (double) smallDimX / (double) dimX;
+        final double fy = (double) smallDimY / (double) dimY;
+        final byte[] original = OTools.toByteArray(storedMask);
+        final boolean keepDefinite = mode != OGrabCutMode.GC_INIT_WITH_RECT;
+        // - in GC_INIT_WITH_RECT mode, the source mask is ignored by grabCut
+        long t1 = debugTime();
+        final byte[] coarse;
+        try (PointerScope ignored = new PointerScope()) {
+            final Mat smallSource = new Mat();
+            Mat smallMask = new Mat();
+            final Mat upsampledMask = new Mat();
+            try (Size size = new Size(smallDimX, smallDimY)) {
+                opencv_imgproc.resize(source, smallSource, size, 0.0, 0.0, opencv_imgproc.INTER_AREA);
+                opencv_imgproc.resize(storedMask, smallMask, size, 0.0, 0.0, opencv_imgproc.INTER_NEAREST);
+            }
+            if (keepDefinite) {
+                final byte[] smallCodes = OTools.toByteArray(smallMask);
+                projectDefinitePixels(original, dimX, dimY, smallCodes, smallDimX, smallDimY);
+                if (nonTrivialSamples(smallCodes) <= 0 && nonTrivialSamples(original) > 0) {
+                    logDebug(() -> "Coarse-to-fine GrabCut is impossible: reduced mask " + smallDimX + "x"
+                            + smallDimY + " does not contain both background and foreground; "
+                            + "full resolution is used");
+                    opencv_imgproc.grabCut(
+                            source, storedMask, rect, storedBgdModel, storedFgdModel, iterCount, mode.code());
+                    return;
+                }
+                smallMask = OTools.toMat(smallDimX, smallDimY, opencv_core.CV_8U, smallCodes);
+            }
+            try (Rect smallRect = new Rect(
+                    (int) Math.round(rect.x() * fx),
+                    (int) Math.round(rect.y() * fy),
+                    Math.max(1, (int) Math.round(rect.width() * fx)),
+                    Math.max(1, (int) Math.round(rect.height() * fy)))) {
+                opencv_imgproc.grabCut(
+                        smallSource, smallMask, smallRect, storedBgdModel, storedFgdModel, iterCount, mode.code());
+            }
+            try (Size size = new Size(dimX, dimY)) {
+                opencv_imgproc.resize(smallMask, upsampledMask, size, 0.0, 0.0, opencv_imgproc.INTER_NEAREST);
+            }
+            coarse = OTools.toByteArray(upsampledMask);
+        }
+        long t2 = debugTime();
+        final byte[] foreground = new byte[coarse.length];
+        for (int i = 0; i < coarse.length; i++) {
+            if (keepDefinite && isDefinite(original[i])) {
+                coarse[i] = original[i];
+            }
+            foreground[i] = (coarse[i] & 1) != 0 ? (byte) 255 : 0;
+            // - GC_FGD=1 and GC_PR_FGD=3 are odd, GC_BGD=0 and GC_PR_BGD=2 are even
+        }
+        final byte[] dilated;
+        final byte[] eroded;
+        try (Mat m = OTools.toMat(dimX, dimY, opencv_core.CV_8U, foreground)) {
+            OTools.morphology(m, opencv_imgproc.MORPH_DILATE, opencv_imgproc.MORPH_ELLIPSE,
+                    2 * boundaryBandWidth + 1);
+            dilated = OTools.toByteArray(m);
+        }
+        try (Mat m = OTools.toMat(dimX, dimY, opencv_core.CV_8U, foreground)) {
+            OTools.morphology(m, opencv_imgproc.MORPH_ERODE, opencv_imgproc.MORPH_ELLIPSE,
+                    2 * boundaryBandWidth + 1);
+            eroded = OTools.toByteArray(m);
+        }
+        final byte[] band = new byte[coarse.length];
+        long bandPixels = 0;
+        for (int i = 0; i < band.length; i++) {
+            if (dilated[i] != eroded[i]) {
+                band[i] = (byte) 255;
+                bandPixels++;
+            }
+        }
+        final byte[] result = coarse.clone();
+        // - tiles read the coarse mask and write into the result: overlapping parts are processed equally
+        int numberOfTiles = 0;
+        long refinedPixels = 0;
+        if (bandPixels > 0) {
+            final int overlap = boundaryBandWidth;
+            final int tileSize = Math.max(4 * overlap, MIN_REFINEMENT_TILE_SIZE);
+            final int step = tileSize - overlap;
+            // Tile #i covers [i*step, i*step+tileSize), but writes the result only into its "core"
+            // [i*step+overlap/2, (i+1)*step+overlap/2) (from 0 for the first tile, till the end for the last one):
+            // cores are disjoint, and every core pixel has at least overlap/2 neighbours inside the tile.
+            final int halfOverlap = overlap / 2;
+            final int numberOfTilesX = Math.max(1, (dimX - halfOverlap + step - 1) / step);
+            final int numberOfTilesY = Math.max(1, (dimY - halfOverlap + step - 1) / step);
+            for (int tileY = 0; tileY < numberOfTilesY; tileY++) {
+                final int coreFromY = tileY == 0 ? 0 : tileY * step + halfOverlap;
+                final int coreToY = tileY == numberOfTilesY - 1 ? dimY : (tileY + 1) * step + halfOverlap;
+                for (int tileX = 0; tileX < numberOfTilesX; tileX++) {
+                    final int coreFromX = tileX == 0 ? 0 : tileX * step + halfOverlap;
+                    final int coreToX = tileX == numberOfTilesX - 1 ? dimX : (tileX + 1) * step + halfOverlap;
+                    if (!containsBandPixels(band, dimX, coreFromX, coreFromY, coreToX, coreToY)) {
+                        continue;
+                    }
+                    final int fromX = tileX * step;
+                    final int fromY = tileY * step;
+                    final int toX = Math.max(coreToX, Math.min(fromX + tileSize, dimX));
+                    final int toY = Math.max(coreToY, Math.min(fromY + tileSize, dimY));
+                    try (Rect tile = new Rect(fromX, fromY, toX - fromX, toY - fromY)) {
+                        refineBandTile(source, tile, coarse, result, original, keepDefinite, band,
+                                coreFromX, coreFromY, coreToX, coreToY);
+                    }
+                    numberOfTiles++;
+                    refinedPixels += (long) (toX - fromX) * (long) (toY - fromY);
+                }
+            }
+        }
+        storedMask.close();
+        storedMask = OTools.toMat(dimX, dimY, opencv_core.CV_8U, result);
+        long t3 = debugTime();
+        final long finalBandPixels = bandPixels;
+        final int finalNumberOfTiles = numberOfTiles;
+        final long finalRefinedPixels = refinedPixels;
+        logDebug(() -> String.format(Locale.US,
+                "Coarse-to-fine GrabCut %dx%d -> %dx%d, %d band pixels (%.2f%%), "
+                        + "%d refined pixels (%.2f%%) in %d tiles, %.3f refined/band pixels: "
+                        + "%.3f ms coarse + %.3f ms refinement",
+                smallDimX, smallDimY, dimX, dimY,
+                finalBandPixels, 100.0 * finalBandPixels / coarse.length,
+                finalRefinedPixels, 100.0 * finalRefinedPixels / coarse.length, finalNumberOfTiles,
+                finalBandPixels == 0 ? 0.0 : (double) finalRefinedPixels / (double) finalBandPixels,
+                (t2 - t1) * 1e-6, (t3 - t2) * 1e-6));
+    }
+
+    // Repeats GrabCut inside one tile; band pixels in the tile core are replaced in the result mask
+    // with the refined codes, other pixels of the tile are fixed as GC_BGD/GC_FGD
+    private void refineBandTile(
+            Mat source,
+            Rect tile,
+            byte[] mask,
+            byte[] result,
+            byte[] original,
+            boolean keepDefinite,
+            byte[] band,
+            int coreFromX,
+            int coreFromY,
+            int coreToX,
+            int coreToY) {
+        final int dimX = source.cols();
+        final int tileDimX = tile.width();
+        final int tileDimY = tile.height();
+        final byte[] tileMask = new byte[tileDimX * tileDimY];
+        for (int y = 0, tileDisp = 0; y < tileDimY; y++) {
+            for (int x = 0, disp = (tile.y() + y) * dimX + tile.x(); x < tileDimX; x++, disp++, tileDisp++) {
+                final boolean fg = (mask[disp] & 1) != 0;
+                if (band[disp] == 0) {
+                    tileMask[tileDisp] = (byte) (fg ? opencv_imgproc.GC_FGD : opencv_imgproc.GC_BGD);
+                } else {
+                    tileMask[tileDisp] = keepDefinite && isDefinite(original[disp]) ?
+                            original[disp] :
+                            (byte) (fg ? opencv_imgproc.GC_PR_FGD : opencv_imgproc.GC_PR_BGD);
+                }
+            }
+        }
+        final byte[] refined;
+        try (Mat tileSource = source.apply(tile);
+             Mat tileMaskMat = OTools.toMat(tileDimX, tileDimY, opencv_core.CV_8U, tileMask);
+             Rect unusedRect = new Rect()) {
+            opencv_imgproc.grabCut(tileSource, tileMaskMat, unusedRect, storedBgdModel, storedFgdModel,
+                    1, opencv_imgproc.GC_EVAL_FREEZE_MODEL);
+            // - with frozen models, more iterations cannot change the result
+            refined = OTools.toByteArray(tileMaskMat);
+        }
+        for (int y = coreFromY; y < coreToY; y++) {
+            for (int x = coreFromX, disp = y * dimX + x; x < coreToX; x++, disp++) {
+                if (band[disp] != 0) {
+                    result[disp] = refined[(y - tile.y()) * tileDimX + (x - tile.x())];
+                }
+            }
+        }
+    }
+
+    private static boolean containsBandPixels(byte[] band, int dimX, int fromX, int fromY, int toX, int toY) {
+        for (int y = fromY; y < toY; y++) {
+            for (int disp = y * dimX + fromX, to = y * dimX + toX; disp < to; disp++) {
+                if (band[disp] != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Every pixel of the reduced mask, covering at least one GC_BGD/GC_FGD pixel of the full mask,
+    // becomes GC_BGD/GC_FGD (the majority wins): thin strokes must not be lost by INTER_NEAREST reducing
+    private static void projectDefinitePixels(
+            byte[] mask,
+            int dimX,
+            int dimY,
+            byte[] smallMask,
+            int smallDimX,
+            int smallDimY) {
+        final int[] foregroundCounts = new int[smallMask.length];
+        final int[] backgroundCounts = new int[smallMask.length];
+        for (int y = 0, disp = 0; y < dimY; y++) {
+            final int smallOffset = (int) ((long) y * smallDimY / dimY) * smallDimX;
+            for (int x = 0; x < dimX; x++, disp++) {
+                final int smallDisp = smallOffset + (int) ((long) x * smallDimX / dimX);
+                if (mask[disp] == opencv_imgproc.GC_FGD) {
+                    foregroundCounts[smallDisp]++;
+                } else if (mask[disp] == opencv_imgproc.GC_BGD) {
+                    backgroundCounts[smallDisp]++;
+                }
+            }
+        }
+        for (int k = 0; k < smallMask.length; k++) {
+            if (foregroundCounts[k] > backgroundCounts[k]) {
+                smallMask[k] = (byte) opencv_imgproc.GC_FGD;
+            } else if (backgroundCounts[k] > 0) {
+                smallMask[k] = (byte) opencv_imgproc.GC_BGD;
+            }
+        }
+    }
+
+    private static boolean isDefinite(byte maskCode) {
+        return maskCode == opencv_imgproc.GC_BGD || maskCode == opencv_imgproc.GC_FGD;
+    }
+
     private void makeBinaryMasks(Mat maskMat) {
         final MaskPixelClass[] maskPixelClasses = MaskPixelClass.values();
         if (Stream.of(maskPixelClasses).noneMatch(maskCode -> isOutputNecessary(maskCode.outputPortName()))) {
@@ -352,7 +622,10 @@ public final class GrabCut extends VoidResultMatFilter {
 
     private static int nonTrivialSamples(Mat mask) {
         assert mask.type() == opencv_core.CV_8U;
-        final byte[] bytes = OTools.toByteArray(mask);
+        return nonTrivialSamples(OTools.toByteArray(mask));
+    }
+
+    private static int nonTrivialSamples(byte[] bytes) {
         boolean hasBackground = false;
         boolean hasForeground = false;
         for (int b : bytes) {
@@ -24,11 +24,18 @@
 
 package net.algart.executors.modules.opencv.matrices.ml;
 
+import net.algart.arrays.Arrays;
+import net.algart.arrays.Matrix;
+import net.algart.arrays.PArray;
+import net.algart.arrays.UpdatablePArray;
 import net.algart.executors.api.data.Port;
 import net.algart.executors.api.data.SMat;
 import net.algart.executors.api.data.SNumbers;
+import net.algart.executors.modules.cv.common.ThreadBudget;
 import net.algart.executors.modules.opencv.util.O2SMat;
 import net.algart.executors.modules.opencv.util.OTools;
+import net.algart.multimatrix.MultiMatrix;
+import net.algart.multimatrix.MultiMatrix2D;
 import org.bytedeco.opencv.global.opencv_core;
 import org.bytedeco.opencv.opencv_core.Mat;
 import org.bytedeco.opencv.opencv_core.UMat;
@@ -38,9 +45,13 @@ import java.io.IOError;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 public abstract class AbstractMLPredict extends AbstractMLOperation {
     public static final String OUTPUT_PREDICTION_MODEL_KIND = "model_kind";
@@ -49,6 +60,12 @@ public abstract class AbstractMLPredict extends AbstractMLOperation {
     private boolean selectIndexesOfMaximalResponses = true;
     private boolean predictionRoundResponses = false;
     private int predictionFlags = 0;
+    private int streamingBlockRows = 0;
+    private int streamingThreads = 1;
+
+    private MLPredictor loadedPredictor = null;
+    private MLKind loadedKind = null;
+    private Path loadedModelFile = null;
 
     protected AbstractMLPredict(MLSamplesType samplesType) {
         super(samplesType);
@@ -102,6 +119,22 @@ public abstract class AbstractMLPredict extends AbstractMLOperation {
         return (predictionFlags & bitMask) != 0;
     }
 
+    public final int getStreamingBlockRows() {
+        return streamingBlockRows;
+    }
+
+    public final void setStreamingBlockRows(int streamingBlockRows) {
+        this.streamingBlockRows = nonNegative(streamingBlockRows);
+    }
+
+    public final int getStreamingThreads() {
+        return streamingThreads;
+    }
+
+    public final void setStreamingThreads(int streamingThreads) {
+        this.streamingThreads = nonNegative(streamingThreads);
+    }
+
     public final boolean selectIndexesOfMaximalResponses(MLPredictor predictor, int responseLength) {
         return selectIndexesOfMaximalResponses && responseLength > 1 && !predictor.isClassifier();
     }
@@ -151,37 +184,10 @@ public abstract class AbstractMLPredict extends AbstractMLOperation {
     public SMat predictPixels(MLPredictor predictor, SMat samples) {
         Objects.requireNonNull(predictor, "Null predictor");
         Objects.requireNonNull(samples, "Null samples");
-        if (isUseGPU()) {
-            try (UMat samplesMat = O2SMat.matrixToMlSamplesOrResponsesUMat(samples, false);
-                 UMat resultMat = new UMat()) {
-                doPredict(predictor, samplesMat, resultMat);
-                if (selectIndexesOfMaximalResponses(predictor, resultMat.cols())) {
-                    try (Mat categoricalResponses = selectIndexesOfMaximalMultiResponses(resultMat)) {
-                        return O2SMat.mlResultsToMatrix(categoricalResponses, samples.getDimX(), samples.getDimY());
-                    }
-                }
-                predictionRoundResponses(resultMat);
-                return O2SMat.mlResultsToMatrix(resultMat, samples.getDimX(), samples.getDimY());
-            }
-        } else {
-            try (Mat samplesMat = O2SMat.matrixToMlSamplesOrResponsesMat(samples, false);
-                 Mat resultMat = new Mat()) {
-                doPredict(predictor, samplesMat, resultMat);
-                if (selectIndexesOfMaximalResponses(predictor, resultMat.cols())) {
-                    try (Mat categoricalResponses = selectIndexesOfMaximalMultiResponses(resultMat)) {
-                        return O2SMat.mlResultsToMatrix(categoricalResponses, samples.getDimX(), samples.getDimY());
-                    }
-                }
-                predictionRoundResponses(resultMat);
-
-//                System.out.println("prediction samples for " + samples);
-//                new PrintSubMatrix().setSizeY(500).process(OTools.toMultiMatrix(samplesMat));
-//                System.out.println("prediction:");
-//                new PrintSubMatrix().setSizeY(500).process(OTools.toMultiMatrix(resultMat));
-
-                return O2SMat.mlResultsToMatrix(resultMat, samples.getDimX(), samples.getDimY());
-            }
+        if (streamingBlockRows > 0 && samples.getDimY() > streamingBlockRows) {
+            return predictPixelsByBlocks(predictor, samples);
         }
+        return predictPixelsMat(predictor, samples);
     }
 
     public final MLPredictor readStandardPredictor(MLKind defaultKind) {
@@ -192,6 +198,8 @@ public abstract class AbstractMLPredict extends AbstractMLOperation {
         Objects.requireNonNull(defaultKind, "Null defaultKind");
         Objects.requireNonNull(modelNameToKind, "Null modelNameToKind function");
         final Path file = statModelFile();
+        resetLoadedPredictor();
+        // - the previous predictor is owned (and probably already closed) by the caller
         logDebug(() -> "Loading model file " + file);
         try {
             final Path metadataJsonFile = MLMetadataJson.metadataFile(file);
@@ -204,6 +212,9 @@ public abstract class AbstractMLPredict extends AbstractMLOperation {
                 kind = defaultKind;
             }
             final MLPredictor predictor = kind.loadPredictor(file);
+            this.loadedPredictor = predictor;
+            this.loadedKind = kind;
+            this.loadedModelFile = file;
             getScalar(OUTPUT_PREDICTION_MODEL_KIND).setTo(kind.modelName());
             getScalar(OUTPUT_IS_CLASSIFIER).setTo(predictor.isClassifier());
             return predictor;
@@ -212,6 +223,12 @@ public abstract class AbstractMLPredict extends AbstractMLOperation {
         }
     }
 
+    @Override
+    public void close() {
+        resetLoadedPredictor();
+        super.close();
+    }
+
     public final void setPredictionFlags(MLPredictor predictor) {
         Objects.requireNonNull(predictor, "Null predictor");
         predictor.setPredictionFlags(predictionFlags);
@@ -226,6 +243,149 @@ public abstract class AbstractMLPredict extends AbstractMLOperation {
         predictor.predict(samples, result);
     }
 
+    private SMat predictPixelsByBlocks(MLPredictor predictor, SMat samples) {
+        final Matrix<? extends PArray> source = O2SMat.mlInterleavedChannels(samples);
+        // - not converted: every block is converted to ML samples separately
+        final long dimX = source.dim(1);
+        final long dimY = source.dim(2);
+        final int numberOfBlocks = (int) ((dimY + streamingBlockRows - 1) / streamingBlockRows);
+        long t1 = debugTime();
+        final MultiMatrix2D firstBlock = predictBlock(predictor, source, 0);
+        // - the first block is processed separately: it detects the element type and channels of the result
+        final List<Matrix<? extends UpdatablePArray>> result = new ArrayList<>();
+        for (int c = 0; c < firstBlock.numberOfChannels(); c++) {
+            result.add(Arrays.SMM.newMatrix(UpdatablePArray.class, firstBlock.elementType(), dimX, dimY));
+        }
+        copyBlock(result, firstBlock, 0);
+        final int numberOfThreads = callWithReservedThreads(() -> {
+            final List<MLPredictor> predictors = predictorsForBlocks(predictor, numberOfBlocks - 1);
+            try {
+                final AtomicInteger blockCounter = new AtomicInteger(1);
+                IntStream.range(0, predictors.size()).parallel().forEach(threadIndex -> {
+                    final MLPredictor threadPredictor = predictors.get(threadIndex);
+                    for (int block; (block = blockCounter.getAndIncrement()) < numberOfBlocks; ) {
+                        copyBlock(result, predictBlock(threadPredictor, source, block), block);
+                    }
+                });
+            } finally {
+                closeClones(predictors, predictor);
+            }
+            return predictors.size();
+        });
+        long t2 = debugTime();
+        logDebug(() -> String.format(java.util.Locale.US,
+                "Streaming prediction of %dx%d pixels by %d blocks of %d rows, %d thread%s: %.3f ms",
+                dimX, dimY, numberOfBlocks, streamingBlockRows,
+                numberOfThreads, numberOfThreads == 1 ? "" : "s", (t2 - t1) * 1e-6));
+        return SMat.of(MultiMatrix.of2D(result));
+    }
+
+    private List<MLPredictor> predictorsForBlocks(MLPredictor predictor, int numberOfBlocks) {
+        int n = streamingThreads == 0 ? ThreadBudget.currentThreads() : streamingThreads;
+        n = Math.max(1, Math.min(n, numberOfBlocks));
+        final List<MLPredictor> result = new ArrayList<>();
+        result.add(predictor);
+        if (isUseGPU()) {
+            return result;
+        }
+        final boolean cloningPossible = predictor == loadedPredictor && loadedKind != null;
+        if (!predictor.isThreadSafe() && !cloningPossible) {
+            return result;
+            // - we have no way to create independent copies of this predictor
+        }
+        boolean success = false;
+        try {
+            for (int k = 1; k < n; k++) {
+                result.add(predictor.isThreadSafe() ?
+                        predictor :
+                        loadedKind.loadPredictor(loadedModelFile).setPredictionFlags(predictionFlags));
+            }
+            success = true;
+        } catch (IOException e) {
+            throw new IOError(e);
+        } finally {
+            if (!success) {
+                closeClones(result, predictor);
+            }
+        }
+        return result;
+    }
+
+    private MultiMatrix2D predictBlock(MLPredictor predictor, Matrix<? extends PArray> source, int block) {
+        final long fromY = (long) block * streamingBlockRows;
+        final long toY = Math.min(fromY + streamingBlockRows, source.dim(2));
+        final Matrix<? extends PArray> samples = source.subMatrix(0, 0, fromY, source.dim(0), source.dim(1), toY);
+        // - only this block is converted to ML samples
+        return predictPixelsMat(predictor, samples).toMultiMatrix2D(true);
+    }
+
+    private SMat predictPixelsMat(MLPredictor predictor, SMat samples) {
+        return predictPixelsMat(predictor, O2SMat.mlInterleavedChannels(samples));
+    }
+
+    private SMat predictPixelsMat(MLPredictor predictor, Matrix<? extends PArray> interleavedSamples) {
+        final long dimX = interleavedSamples.dim(1);
+        final long dimY = interleavedSamples.dim(2);
+        if (isUseGPU()) {
+            try (UMat samplesMat = O2SMat.interleavedToMlSamplesOrResponsesUMat(interleavedSamples, false);
+                 UMat resultMat = new UMat()) {
+                doPredict(predictor, samplesMat, resultMat);
+                if (selectIndexesOfMaximalResponses(predictor, resultMat.cols())) {
+                    try (Mat categoricalResponses = selectIndexesOfMaximalMultiResponses(resultMat)) {
+                        return O2SMat.mlResultsToMatrix(categoricalResponses, dimX, dimY);
+                    }
+                }
+                predictionRoundResponses(resultMat);
+                return O2SMat.mlResultsToMatrix(resultMat, dimX, dimY);
+            }
+        } else {
+            try (Mat samplesMat = O2SMat.interleavedToMlSamplesOrResponsesMat(interleavedSamples, false);
+                 Mat resultMat = new Mat()) {
+                doPredict(predictor, samplesMat, resultMat);
+                if (selectIndexesOfMaximalResponses(predictor, resultMat.cols())) {
+                    try (Mat categoricalResponses = selectIndexesOfMaximalMultiResponses(resultMat)) {
+                        return O2SMat.mlResultsToMatrix(categoricalResponses, dimX, dimY);
+                    }
+                }
+                predictionRoundResponses(resultMat);
+
+//                System.out.println("prediction samples for " + samples);
+//                new PrintSubMatrix().setSizeY(500).process(OTools.toMultiMatrix(samplesMat));
+//                System.out.println("prediction:");
+//                new PrintSubMatrix().setSizeY(500).process(OTools.toMultiMatrix(resultMat));
+
+                return O2SMat.mlResultsToMatrix(resultMat, dimX, dimY);
+            }
+        }
+    }
+
+    private void copyBlock(List<Matrix<? extends UpdatablePArray>> result, MultiMatrix2D blockResult, int block) {
+        if (blockResult.numberOfChannels() != result.size()
+                || blockResult.elementType() != result.get(0).elementType()) {
+            throw new IllegalStateException("Prediction of rows block #" + block + " returned " + blockResult
+                    + ", incompatible with the results of the first block");
+        }
+        final long fromY = (long) block * streamingBlockRows;
+        for (int c = 0; c < result.size(); c++) {
+            final Matrix<? extends UpdatablePArray> m = result.get(c);
+            m.subMatrix(0, fromY, m.dimX(), fromY + blockResult.dimY()).array().copy(blockResult.channel(c).array());
+        }
+    }
+
+    private void resetLoadedPredictor() {
+        this.loadedPredictor = null;
+        this.loadedKind = null;
+        this.loadedModelFile = null;
+    }
+
+    private static void closeClones(List<MLPredictor> predictors, MLPredictor original) {
+        for (MLPredictor p : predictors) {
+            if (p != original) {
+                p.close();
+            }
+        }
+    }
+
     private void predictionRoundResponses(Mat responses) {
         if (isPredictionRoundResponses() && OTools.isFloatingPoint(responses.depth())) {
             responses.convertTo(responses, opencv_core.CV_32S);
@@ -37,15 +37,21 @@ import org.bytedeco.opencv.global.opencv_core;
 import org.bytedeco.opencv.global.opencv_ml;
 import org.bytedeco.opencv.opencv_core.Mat;
 import org.bytedeco.opencv.opencv_core.UMat;
+import org.bytedeco.opencv.opencv_ml.StatModel;
 import org.bytedeco.opencv.opencv_ml.TrainData;
 
 import java.io.IOError;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
 public abstract class AbstractMLTrain extends AbstractMLOperation {
     public static final String OUTPUT_ACTUAL_TRAINING_RESPONSES = "training_responses";
@@ -53,6 +59,13 @@ public abstract class AbstractMLTrain extends AbstractMLOperation {
     public static final String OUTPUT_TRAINING_METADATA = "metadata";
     public static final String OUTPUT_TRAINING_ERROR = "error";
     public static final String OUTPUT_IS_CLASSIFIER = "is_classifier";
+    public static final String OUTPUT_SEARCH_REPORT = "search_report";
+
+    public enum HyperParameterSearch {
+        NONE,
+        GRID,
+        RANDOM
+    }
 
     private boolean convertCategoricalResponses = false;
     private boolean calculateError = false;
@@ -60,6 +73,14 @@ public abstract class AbstractMLTrain extends AbstractMLOperation {
     private boolean trainingCombinedSamplesAndResponses = false;
     // - this flag can be used in MLInputType.NUMBERS mode only
     private int trainingFlags = 0;
+    private HyperParameterSearch hyperParameterSearch = HyperParameterSearch.NONE;
+    private String searchGrid = "";
+    private int searchRandomCount = 20;
+    private long searchRandSeed = 0;
+    private int searchKFold = 5;
+    private int searchThreads = 0;
+
+    private Map<String, Object> searchBestParameters = null;
 
     protected AbstractMLTrain(MLSamplesType samplesType) {
         super(samplesType);
@@ -71,6 +92,7 @@ public abstract class AbstractMLTrain extends AbstractMLOperation {
         addOutputScalar(OUTPUT_TRAINING_METADATA);
         addOutputScalar(OUTPUT_TRAINING_ERROR);
         addOutputScalar(OUTPUT_IS_CLASSIFIER);
+        addOutputScalar(OUTPUT_SEARCH_REPORT);
     }
 
     public final boolean isConvertCategoricalResponses() {
@@ -126,6 +148,90 @@ public abstract class AbstractMLTrain extends AbstractMLOperation {
         return (trainingFlags & bitMask) != 0;
     }
 
+    public final HyperParameterSearch getHyperParameterSearch() {
+        return hyperParameterSearch;
+    }
+
+    public final void setHyperParameterSearch(HyperParameterSearch hyperParameterSearch) {
+        this.hyperParameterSearch = nonNull(hyperParameterSearch);
+    }
+
+    public final String getSearchGrid() {
+        return searchGrid;
+    }
+
+    public final void setSearchGrid(String searchGrid) {
+        this.searchGrid = nonNull(searchGrid);
+    }
+
+    public final int getSearchRandomCount() {
+        return searchRandomCount;
+    }
+
+    public final void setSearchRandomCount(int searchRandomCount) {
+        this.searchRandomCount = positive(searchRandomCount);
+    }
+
+    public final long getSearchRandSeed() {
+        return searchRandSeed;
+    }
+
+    public final void setSearchRandSeed(long searchRandSeed) {
+        this.searchRandSeed = searchRandSeed;
+    }
+
+    public final int getSearchKFold() {
+        return searchKFold;
+    }
+
+    public final void setSearchKFold(int searchKFold) {
+        if (searchKFold < 2) {
+            throw new IllegalArgumentException("k-fold for search must be at least 2, but it is " + searchKFold
+                    + ": candidates must be evaluated on samples, not used for their training");
+        }
+        this.searchKFold = searchKFold;
+    }
+
+    public final int getSearchThreads() {
+        return searchThreads;
+    }
+
+    public final void setSearchThreads(int searchThreads) {
+        this.searchThreads = nonNegative(searchThreads);
+    }
+
+    // High-level function: finds the best values of parameters, listed in the search grid,
+    // and sets them in this executor; does nothing if hyperParameterSearch is NONE
+    public final void searchHyperParameters() {
+        searchBestParameters = null;
+        if (hyperParameterSearch == HyperParameterSearch.NONE) {
+            return;
+        }
+        final MLParameterSearch search = new MLParameterSearch(this);
+        final SNumbers samples = new SNumbers();
+        final SNumbers responses = new SNumbers();
+        samplesType().getTrainingSamplesAndResponses(this, samples, responses);
+        if (samples.n() != responses.n()) {
+            throw new IllegalArgumentException("Source and training responses arrays have different length: "
+                    + samples + " and " + responses);
+        }
+        logDebug(() -> "Searching hyper-parameters for " + modelKind().modelName() + ": "
+                + search.numberOfCandidates() + " candidates");
+        try (Mat samplesMat = O2SMat.numbersToMulticolumn32BitMat(samples, false);
+             Mat responsesMat = O2SMat.numbersToMulticolumn32BitMat(responses, categoricalResponses());
+             Mat binary = convertCategoricalResponses ? categoricalToMultiBinaryResponses(responsesMat) : null) {
+            search.search(samplesMat, binary != null ? binary : responsesMat);
+        }
+        final String report = search.report();
+        logDebug(() -> report);
+        getScalar(OUTPUT_SEARCH_REPORT).setTo(report);
+        final Map<String, Object> best = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : search.bestValues().entrySet()) {
+            best.put(e.getKey(), MLParameterSearch.setProperty(this, e.getKey(), e.getValue()));
+        }
+        searchBestParameters = best;
+    }
+
     // High-level function
     public final void train(MLTrainer trainer) {
         Objects.requireNonNull(trainer, "Null trainer");
@@ -207,13 +313,65 @@ public abstract class AbstractMLTrain extends AbstractMLOperation {
         try {
             getScalar(OUTPUT_IS_CLASSIFIER).setTo(trainer.isClassifier());
             final Path file = statModelFile();
-            trainer.save(file);
+            final Path directory = file.toAbsolutePath().getParent();
+            if (directory == null || !Files.isDirectory(directory)) {
+                trainer.save(file);
+                // - will throw a suitable exception
+            } else {
+                // Note: the model is saved into a temporary file in the same directory and then replaces
+                // the existing model, so that other processes (like prediction) never see a partially written file
+                final Path temp = temporarySibling(file);
+                try {
+                    trainer.save(temp);
+                    replace(temp, file);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
             getScalar(OUTPUT_TRAINING_MODEL_FILE).setTo(statModelFile());
             final MLMetadataJson metadata = metadata(trainer);
             if (metadata != null) {
                 getScalar(OUTPUT_TRAINING_METADATA).setTo(metadata.jsonString());
-                metadata.write(MLMetadataJson.metadataFile(file));
+                final Path metadataFile = MLMetadataJson.metadataFile(file);
+                final Path temp = temporarySibling(metadataFile);
+                try {
+                    metadata.write(temp);
+                    replace(temp, metadataFile);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
+    }
+
+    // Loads the existing model file to continue its training with new samples.
+    // Returns null if the model file does not exist yet: then the model should be trained from scratch.
+    public final MLStatModelTrainer loadTrainerForIncrementalTraining(Function<String, StatModel> loader) {
+        Objects.requireNonNull(loader, "Null loader");
+        final Path file = statModelFile();
+        if (!Files.exists(file)) {
+            logDebug(() -> "Model file " + file + " does not exist yet: training from scratch");
+            return null;
+        }
+        try {
+            final Path metadataFile = MLMetadataJson.metadataFile(file);
+            if (Files.exists(metadataFile)) {
+                final MLKind kind = MLMetadataJson.read(metadataFile, MLKind.StatModelBased::of).getModelKind();
+                if (kind != null && kind != modelKind()) {
+                    throw new IllegalArgumentException("Cannot continue training: the model file " + file
+                            + " contains " + kind.modelName() + " model instead of " + modelKind().modelName());
+                }
             }
+            logDebug(() -> "Loading model file " + file + " for incremental training");
+            final MLStatModelTrainer result = MLStatModelTrainer.loadOpenCVTrainer(file, loader, modelKind());
+            if (!result.statModel().isTrained()) {
+                result.close();
+                throw new IllegalArgumentException("Cannot continue training: the model file " + file
+                        + " does not contain a trained model");
+            }
+            return result;
         } catch (IOException e) {
             throw new IOError(e);
         }
@@ -226,9 +384,20 @@ public abstract class AbstractMLTrain extends AbstractMLOperation {
 
     protected abstract MLKind modelKind();
 
+    // Creates new trainer, customized according to all current parameters of this executor
+    protected abstract MLTrainer newTrainer();
+
+    // Creates new instance of the same executor for hyper-parameter search;
+    // its parameters will be copied from this executor by setters
+    protected abstract AbstractMLTrain newSearchCandidate();
+
     // Note: trainer is not used in current implementations
     protected MLMetadataJson metadata(MLTrainer trainer) {
         final Map<String, Object> parameters = new LinkedHashMap<>(parameters());
+        if (searchBestParameters != null) {
+            parameters.putAll(searchBestParameters);
+            // - parameters, found by hyper-parameter search, override the specified ones
+        }
 //        final Set<String> propertyNames = new HashSet<>(parameters.keySet());
 //        propertyNames.stream().filter(SystemParameter::isSystemParameter).forEach(parameters::remove);
         // - removing not interesting properties - deprecated feature
@@ -311,6 +480,26 @@ public abstract class AbstractMLTrain extends AbstractMLOperation {
         return result;
     }
 
+    // Unlike Files.createTempFile, does not create the file: it will be created by OpenCV or by JSON writer
+    // with usual permissions instead of rw-------
+    private static Path temporarySibling(Path file) {
+        return file.resolveSibling("~" + ProcessHandle.current().pid() + "." + Thread.currentThread().threadId()
+                + "~" + file.getFileName());
+    }
+
+    private static void replace(Path source, Path target) throws IOException {
+        if (Files.exists(target)
+                && Files.getFileStore(source).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(source, Files.getPosixFilePermissions(target));
+            // - the replaced file keeps its permissions
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     private static Mat toMat(byte[] array) {
         return OTools.toMat(1, array.length, opencv_core.CV_8UC1, array);
     }
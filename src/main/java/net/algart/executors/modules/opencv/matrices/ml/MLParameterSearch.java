@@ -0,0 +1,425 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.matrices.ml;
+
+import net.algart.executors.api.data.SNumbers;
+import net.algart.executors.modules.cv.common.ThreadBudget;
+import net.algart.executors.modules.opencv.util.O2SMat;
+import net.algart.executors.modules.opencv.util.OTools;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_ml.TrainData;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Grid or random search of training parameters of some {@link AbstractMLTrain} executor.
+ * Every candidate and every fold is trained by a separate instance of the same executor class
+ * with modified parameters; all these tasks are performed in parallel (in threads, leased from
+ * {@link ThreadBudget}) on the same (read-only) training data, split into k&ge;2 folds,
+ * and evaluated by {@link AbstractMLTrain#doCalculateError(MLTrainer, TrainData, Mat)}
+ * on the fold, which was not used for training.
+ */
+final class MLParameterSearch {
+    private static final long MAX_NUMBER_OF_CANDIDATES = 100000;
+
+    private final AbstractMLTrain executor;
+    private final List<String> names = new ArrayList<>();
+    private final List<List<String>> values = new ArrayList<>();
+    private final List<Candidate> candidates = new ArrayList<>();
+    private final Random random;
+    private int numberOfFolds = 0;
+    private int numberOfThreads = 0;
+    private long searchTime = 0;
+    private Candidate best = null;
+
+    MLParameterSearch(AbstractMLTrain executor) {
+        this.executor = Objects.requireNonNull(executor, "Null executor");
+        final long seed = executor.getSearchRandSeed();
+        this.random = seed == 0 ? new Random() : new Random(seed);
+        parseGrid(executor.getSearchGrid());
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("Empty search grid: no parameters to search");
+        }
+        long total = 1;
+        for (List<String> list : values) {
+            total *= list.size();
+            if (total > MAX_NUMBER_OF_CANDIDATES) {
+                break;
+            }
+        }
+        final boolean randomSearch =
+                executor.getHyperParameterSearch() == AbstractMLTrain.HyperParameterSearch.RANDOM;
+        if (!randomSearch && total > MAX_NUMBER_OF_CANDIDATES) {
+            throw new IllegalArgumentException("Too large search grid: >" + MAX_NUMBER_OF_CANDIDATES
+                    + " combinations; please use random search");
+        }
+        final int n = randomSearch ? (int) Math.min(executor.getSearchRandomCount(), total) : (int) total;
+        final Set<List<Integer>> used = new HashSet<>();
+        for (long k = 0; candidates.size() < n; k++) {
+            final List<Integer> indexes = randomSearch ? randomCombination() : combination(k);
+            if (used.add(indexes)) {
+                final Map<String, String> candidateValues = new LinkedHashMap<>();
+                for (int i = 0; i < names.size(); i++) {
+                    candidateValues.put(names.get(i), values.get(i).get(indexes.get(i)));
+                }
+                candidates.add(new Candidate(candidates.size(), candidateValues));
+            }
+        }
+    }
+
+    public int numberOfCandidates() {
+        return candidates.size();
+    }
+
+    public void search(Mat samples, Mat responses) {
+        Objects.requireNonNull(samples, "Null samples");
+        Objects.requireNonNull(responses, "Null responses");
+        final int n = samples.rows();
+        final int sampleLength = samples.cols();
+        final int responseLength = responses.cols();
+        if (n < 2) {
+            throw new IllegalArgumentException("Hyper-parameter search requires at least 2 samples "
+                    + "for cross-validation, but only " + n + " sample" + (n == 1 ? " is" : "s are") + " specified");
+        }
+        final int k = Math.min(executor.getSearchKFold(), n);
+        assert k >= 2 : "searchKFold must be checked in AbstractMLTrain";
+        numberOfFolds = k;
+        final long t1 = System.nanoTime();
+        final byte[] varType = executor.varType(sampleLength, responseLength);
+        final TrainData[] trainFolds = new TrainData[k];
+        final TrainData[] testFolds = new TrainData[k];
+        try (Mat varTypeMat = OTools.toMat(1, varType.length, opencv_core.CV_8UC1, varType);
+             ThreadBudget.Lease lease = ThreadBudget.acquire(executor.getSearchThreads())) {
+            final int[] foldOfSample = folds(n, k);
+            for (int fold = 0; fold < k; fold++) {
+                try (Mat trainIndexes = indexes(foldOfSample, fold, false);
+                     Mat testIndexes = indexes(foldOfSample, fold, true)) {
+                    trainFolds[fold] = TrainData.create(
+                            samples, O2SMat.ML_LAYOUT, responses, null, trainIndexes, null, varTypeMat);
+                    testFolds[fold] = TrainData.create(
+                            samples, O2SMat.ML_LAYOUT, responses, null, testIndexes, null, varTypeMat);
+                }
+            }
+            numberOfThreads = Math.min(lease.threads(), candidates.size() * k);
+            lease.run(() -> IntStream.range(0, candidates.size() * k).parallel().forEach(task -> {
+                final int fold = task % k;
+                candidates.get(task / k).evaluate(fold, trainFolds[fold], testFolds[fold],
+                        sampleLength, responseLength);
+            }));
+        } finally {
+            for (int fold = 0; fold < k; fold++) {
+                if (testFolds[fold] != null) {
+                    testFolds[fold].close();
+                }
+                if (trainFolds[fold] != null) {
+                    trainFolds[fold].close();
+                }
+            }
+        }
+        searchTime = System.nanoTime() - t1;
+        best = null;
+        for (Candidate candidate : candidates) {
+            final double error = candidate.error();
+            if (!Double.isNaN(error) && (best == null || error < best.error())) {
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("Hyper-parameter search failed: all " + candidates.size()
+                    + " candidates cannot be trained"
+                    + (candidates.isEmpty() ? "" : " (" + candidates.get(0).failure + ")"));
+        }
+    }
+
+    public Map<String, String> bestValues() {
+        if (best == null) {
+            throw new IllegalStateException("Search was not performed");
+        }
+        return Collections.unmodifiableMap(best.values);
+    }
+
+    public double bestError() {
+        return best == null ? Double.NaN : best.error();
+    }
+
+    public String report() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US,
+                "Hyper-parameter search (%s) for %s: %d candidates, %d-fold, %d threads, %.3f ms%n",
+                executor.getHyperParameterSearch(), executor.modelKind().modelName(),
+                candidates.size(), numberOfFolds, numberOfThreads, searchTime * 1e-6));
+        sb.append(String.format(Locale.US, "  %5s  %-14s  %12s  %s%n", "#", "error", "time (ms)", "parameters"));
+        for (Candidate candidate : candidates) {
+            sb.append(String.format(Locale.US, "%s %5d  %-14.8g  %12.3f  %s%s%n",
+                    candidate == best ? "*" : " ",
+                    candidate.index + 1,
+                    candidate.error(),
+                    candidate.time() * 1e-6,
+                    candidate.values,
+                    candidate.failure == null ? "" : " - FAILED: " + candidate.failure));
+        }
+        return sb.toString();
+    }
+
+    static Object setProperty(Object executor, String name, String value) {
+        Objects.requireNonNull(executor, "Null executor");
+        Objects.requireNonNull(name, "Null parameter name");
+        Objects.requireNonNull(value, "Null parameter value");
+        final String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Method stringSetter = null;
+        Method otherSetter = null;
+        for (Method method : executor.getClass().getMethods()) {
+            if (method.getName().equals(setterName) && method.getParameterCount() == 1) {
+                if (method.getParameterTypes()[0] == String.class) {
+                    stringSetter = method;
+                } else if (otherSetter == null) {
+                    otherSetter = method;
+                }
+            }
+        }
+        final Method setter = stringSetter != null ? stringSetter : otherSetter;
+        if (setter == null) {
+            throw new IllegalArgumentException("Unknown parameter \"" + name + "\" of "
+                    + executor.getClass().getSimpleName());
+        }
+        final Object converted = convert(value, setter.getParameterTypes()[0], name);
+        invoke(setter, executor, converted);
+        return converted instanceof Enum<?> e ? e.name() : converted;
+    }
+
+    private static void copyProperties(AbstractMLTrain source, AbstractMLTrain target) {
+        for (Method getter : source.getClass().getMethods()) {
+            if (getter.getParameterCount() != 0
+                    || Modifier.isStatic(getter.getModifiers())
+                    || !AbstractMLOperation.class.isAssignableFrom(getter.getDeclaringClass())) {
+                continue;
+            }
+            final String getterName = getter.getName();
+            final String property = getterName.startsWith("get") ? getterName.substring(3)
+                    : getterName.startsWith("is") ? getterName.substring(2)
+                    : null;
+            if (property == null || property.isEmpty()) {
+                continue;
+            }
+            final Method setter;
+            try {
+                setter = source.getClass().getMethod("set" + property, getter.getReturnType());
+            } catch (NoSuchMethodException e) {
+                continue;
+            }
+            invoke(setter, target, invoke(getter, source));
+        }
+    }
+
+    private static Object convert(String value, Class<?> type, String name) {
+        final String s = value.trim();
+        try {
+            if (type == String.class) {
+                return value;
+            } else if (type == int.class || type == Integer.class) {
+                return type == Integer.class && isNull(s) ? null : Integer.valueOf(s);
+            } else if (type == long.class || type == Long.class) {
+                return type == Long.class && isNull(s) ? null : Long.valueOf(s);
+            } else if (type == double.class || type == Double.class) {
+                return type == Double.class && isNull(s) ? null : Double.valueOf(s);
+            } else if (type == float.class || type == Float.class) {
+                return type == Float.class && isNull(s) ? null : Float.valueOf(s);
+            } else if (type == boolean.class || type == Boolean.class) {
+                if (!s.equalsIgnoreCase("true") && !s.equalsIgnoreCase("false")) {
+                    throw new IllegalArgumentException("\"" + s + "\" is not a boolean value");
+                }
+                return Boolean.valueOf(s);
+            } else if (type.isEnum()) {
+                for (Object constant : type.getEnumConstants()) {
+                    if (((Enum<?>) constant).name().equalsIgnoreCase(s)) {
+                        return constant;
+                    }
+                }
+                throw new IllegalArgumentException("\"" + s + "\" is not one of "
+                        + Arrays.toString(type.getEnumConstants()));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Illegal value of the searched parameter \"" + name + "\": "
+                    + e.getMessage(), e);
+        }
+        throw new IllegalArgumentException("Parameter \"" + name + "\" has type " + type.getSimpleName()
+                + ", not supported by hyper-parameter search");
+    }
+
+    private static boolean isNull(String s) {
+        return s.isEmpty() || s.equals("null");
+    }
+
+    private static Object invoke(Method method, Object instance, Object... args) {
+        try {
+            return method.invoke(instance, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access " + method, e);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtimeException ?
+                    runtimeException :
+                    new IllegalStateException("Cannot call " + method, cause);
+        }
+    }
+
+    private void parseGrid(String grid) {
+        for (String line : grid.split("[\\r\\n;]+")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final int p = line.indexOf('=');
+            if (p <= 0) {
+                throw new IllegalArgumentException("Illegal search grid line \"" + line
+                        + "\": must be \"name = value1, value2, ...\"");
+            }
+            final String name = line.substring(0, p).trim();
+            final String list = line.substring(p + 1);
+            final List<String> parameterValues = new ArrayList<>();
+            for (String v : list.split(list.contains("|") ? "\\|" : ",")) {
+                v = v.trim();
+                if (!v.isEmpty()) {
+                    parameterValues.add(v);
+                }
+            }
+            if (parameterValues.isEmpty()) {
+                throw new IllegalArgumentException("No values for the parameter \"" + name + "\" in search grid");
+            }
+            if (names.contains(name)) {
+                throw new IllegalArgumentException("Duplicate parameter \"" + name + "\" in search grid");
+            }
+            names.add(name);
+            values.add(parameterValues);
+        }
+    }
+
+    private List<Integer> combination(long index) {
+        final List<Integer> result = new ArrayList<>();
+        for (List<String> list : values) {
+            result.add((int) (index % list.size()));
+            index /= list.size();
+        }
+        return result;
+    }
+
+    private List<Integer> randomCombination() {
+        final List<Integer> result = new ArrayList<>();
+        for (List<String> list : values) {
+            result.add(random.nextInt(list.size()));
+        }
+        return result;
+    }
+
+    private int[] folds(int n, int k) {
+        final int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int temp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = temp;
+        }
+        final int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[permutation[i]] = i % k;
+        }
+        return result;
+    }
+
+    private static Mat indexes(int[] foldOfSample, int fold, boolean inFold) {
+        final int[] indexes = IntStream.range(0, foldOfSample.length)
+                .filter(i -> (foldOfSample[i] == fold) == inFold).toArray();
+        return O2SMat.numbersToMulticolumn32BitMat(SNumbers.ofArray(indexes, 1), true);
+        // - column of int indexes: acceptable for sampleIdx argument of TrainData.create
+    }
+
+    private final class Candidate {
+        private final int index;
+        private final Map<String, String> values;
+        private final double[] foldErrors;
+        private final long[] foldTimes;
+        private volatile String failure = null;
+
+        private Candidate(int index, Map<String, String> values) {
+            this.index = index;
+            this.values = values;
+            this.foldErrors = new double[executor.getSearchKFold()];
+            this.foldTimes = new long[foldErrors.length];
+        }
+
+        private void evaluate(int fold, TrainData trainData, TrainData testData, int sampleLength, int responseLength) {
+            final long t1 = System.nanoTime();
+            try (AbstractMLTrain instance = newInstance()) {
+                // - separate instance for every fold: executors are not thread-safe
+                try (MLTrainer trainer = instance.newTrainer();
+                     Mat result = new Mat()) {
+                    instance.doTrain(trainer, trainData, sampleLength, responseLength);
+                    foldErrors[fold] = instance.doCalculateError(trainer, testData, result);
+                } catch (RuntimeException e) {
+                    foldErrors[fold] = Double.NaN;
+                    failure = e.getMessage();
+                }
+            }
+            foldTimes[fold] = System.nanoTime() - t1;
+        }
+
+        private AbstractMLTrain newInstance() {
+            final AbstractMLTrain instance = executor.newSearchCandidate();
+            copyProperties(executor, instance);
+            for (Map.Entry<String, String> e : values.entrySet()) {
+                setProperty(instance, e.getKey(), e.getValue());
+            }
+            // - illegal values in the search grid lead to an exception, which stops the search
+            return instance;
+        }
+
+        private double error() {
+            if (failure != null) {
+                return Double.NaN;
+            }
+            double sum = 0.0;
+            for (int fold = 0; fold < numberOfFolds; fold++) {
+                sum += foldErrors[fold];
+            }
+            return sum / numberOfFolds;
+        }
+
+        private long time() {
+            long sum = 0;
+            for (long t : foldTimes) {
+                sum += t;
+            }
+            return sum;
+        }
+    }
+}
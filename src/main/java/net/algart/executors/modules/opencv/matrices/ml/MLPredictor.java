@@ -35,6 +35,12 @@ public interface MLPredictor extends AutoCloseable {
 
     boolean isClassifier();
 
+    // If true, predict methods may be called simultaneously from several threads for the same instance.
+    // OpenCV StatModel does not guarantee this, so, by default, every thread should use its own predictor.
+    default boolean isThreadSafe() {
+        return false;
+    }
+
     void predict(Mat samples, Mat result);
 
     default void predict(UMat samples, UMat result) {
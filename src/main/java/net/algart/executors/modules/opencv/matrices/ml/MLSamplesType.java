@@ -27,6 +27,7 @@ package net.algart.executors.modules.opencv.matrices.ml;
 import net.algart.executors.api.data.DataType;
 import net.algart.executors.api.data.SMat;
 import net.algart.executors.api.data.SNumbers;
+import net.algart.executors.modules.cv.matrices.pixels.GetLabelledPixels;
 import net.algart.executors.modules.opencv.matrices.ml.prediction.MLPredict;
 
 public enum MLSamplesType {
@@ -56,6 +57,19 @@ public enum MLSamplesType {
             }
         }
 
+        @Override
+        void getTrainingSamplesAndResponses(AbstractMLTrain executor, SNumbers samples, SNumbers responses) {
+            final SNumbers numbers = executor.getInputNumbers(AbstractMLOperation.INPUT_SAMPLES);
+            final int blockLength = getBlockLengthAndCheckForCombinedSamplesAndResponses(numbers);
+            if (executor.isTrainingCombinedSamplesAndResponses()) {
+                samples.setTo(numbers.columnRange(0, blockLength - 1));
+                responses.setTo(numbers.columnRange(blockLength - 1, 1));
+            } else {
+                samples.setTo(numbers);
+                responses.setTo(executor.getInputNumbers(AbstractMLOperation.INPUT_TRAINING_RESPONSES));
+            }
+        }
+
         @Override
         void predict(AbstractMLPredict executor, MLPredictor predictor) {
             final SNumbers samples = executor.getInputNumbers(AbstractMLOperation.INPUT_SAMPLES);
@@ -81,6 +95,15 @@ public enum MLSamplesType {
             }
         }
 
+        @Override
+        void getTrainingSamplesAndResponses(AbstractMLTrain executor, SNumbers samples, SNumbers responses) {
+            final SMat samplesMat = executor.getInputMat(AbstractMLOperation.INPUT_SAMPLES);
+            final SMat responsesMat = executor.getInputMat(AbstractMLOperation.INPUT_TRAINING_RESPONSES);
+            new GetLabelledPixels().process(
+                    samplesMat.toMultiMatrix2D(), responsesMat.toMultiMatrix2D(), samples, responses);
+            // - like in AbstractMLTrain.trainPixels: only non-zero labels are used for training
+        }
+
         @Override
         void predict(AbstractMLPredict executor, MLPredictor predictor) {
             final SMat samples = executor.getInputMat(AbstractMLOperation.INPUT_SAMPLES);
@@ -96,6 +119,8 @@ public enum MLSamplesType {
 
     abstract void train(AbstractMLTrain executor, MLTrainer trainer);
 
+    abstract void getTrainingSamplesAndResponses(AbstractMLTrain executor, SNumbers samples, SNumbers responses);
+
     abstract void predict(AbstractMLPredict executor, MLPredictor predictor);
 
     private static int getBlockLengthAndCheckForCombinedSamplesAndResponses(SNumbers samples) {
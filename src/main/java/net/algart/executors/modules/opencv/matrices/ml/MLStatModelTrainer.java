@@ -133,7 +133,7 @@ public class MLStatModelTrainer implements MLTrainer {
         return "MLStatModelTrainer for " + statModelKind + ", statModel " + statModel;
     }
 
-    public static MLTrainer loadOpenCVTrainer(
+    public static MLStatModelTrainer loadOpenCVTrainer(
             Path file,
             Function<String, StatModel> loader,
             MLKind statModelKind)
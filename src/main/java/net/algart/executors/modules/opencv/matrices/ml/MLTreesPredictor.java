@@ -0,0 +1,371 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.matrices.ml;
+
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.FileNode;
+import org.bytedeco.opencv.opencv_core.FileStorage;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_ml.Boost;
+import org.bytedeco.opencv.opencv_ml.DTrees;
+import org.bytedeco.opencv.opencv_ml.StatModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Pure Java inference of tree ensembles (RTrees, Boost), trained by OpenCV.
+ * The trees are stored in flattened arrays; prediction is performed in parallel by blocks of samples.
+ * The algorithm repeats <code>DTreesImpl::predictTrees</code> from OpenCV, so the results are identical.
+ * Categorical variables and variable subsets (<code>var_idx</code>) are not supported:
+ * for such models {@link #tryToConvert(MLPredictor, Path)} returns <code>null</code>,
+ * so that the caller should use the original OpenCV prediction.
+ */
+public final class MLTreesPredictor implements MLPredictor {
+    private static final float MISSED_VALUE = Float.MAX_VALUE;
+    // - TrainData::missingValue() in OpenCV
+    private static final int NODE_STRUCTURE_LENGTH = 4;
+    private static final int LEAF = -1;
+
+    private final boolean boost;
+    private final boolean classifier;
+    private final int varCount;
+    private final int[] roots;
+    private final int[] nodeStructure;
+    // - for every node: split variable index (or LEAF), left child, right child, default direction
+    private final float[] nodeThresholds;
+    private final boolean[] nodeInversed;
+    // - DTrees.Split.inversed: the direction, chosen by the threshold, must be inverted
+    private final double[] nodeValues;
+    private final int[] nodeClassIndexes;
+    private final int[] classLabels;
+    private final float[] missingSubstitutions;
+    private int predictionFlags = 0;
+
+    private MLTreesPredictor(DTrees model, boolean boost, int[] classLabels, float[] missingSubstitutions) {
+        this.boost = boost;
+        this.classifier = model.isClassifier();
+        this.varCount = model.getVarCount();
+        this.classLabels = classLabels;
+        this.missingSubstitutions = missingSubstitutions;
+        final IntPointer rootsPointer = model.getRoots();
+        this.roots = new int[(int) rootsPointer.capacity()];
+        rootsPointer.get(roots);
+        if (roots.length == 0) {
+            throw new IllegalArgumentException("Tree model is not trained: it has no trees");
+        }
+        final DTrees.Node nodes = model.getNodes();
+        final DTrees.Split splits = model.getSplits();
+        final int numberOfNodes = (int) nodes.capacity();
+        this.nodeStructure = new int[NODE_STRUCTURE_LENGTH * numberOfNodes];
+        this.nodeThresholds = new float[numberOfNodes];
+        this.nodeInversed = new boolean[numberOfNodes];
+        this.nodeValues = new double[numberOfNodes];
+        this.nodeClassIndexes = new int[numberOfNodes];
+        for (int k = 0, disp = 0; k < numberOfNodes; k++, disp += NODE_STRUCTURE_LENGTH) {
+            final DTrees.Node node = nodes.getPointer(k);
+            final int splitIndex = node.split();
+            if (splitIndex >= 0) {
+                final DTrees.Split split = splits.getPointer(splitIndex);
+                // - only the primary split is used for prediction; surrogate splits (split.next) are ignored
+                final int varIndex = split.varIdx();
+                if (varIndex < 0 || varIndex >= varCount) {
+                    throw new IllegalArgumentException("Invalid variable index " + varIndex + " in split #"
+                            + splitIndex + " (number of variables " + varCount + ")");
+                }
+                if (split.subsetOfs() >= 0) {
+                    throw new UnsupportedOperationException("Categorical split #" + splitIndex
+                            + " is not supported by pure Java prediction");
+                }
+                nodeStructure[disp] = varIndex;
+                nodeThresholds[k] = split.c();
+                nodeInversed[k] = split.inversed();
+            } else {
+                nodeStructure[disp] = LEAF;
+            }
+            nodeStructure[disp + 1] = node.left();
+            nodeStructure[disp + 2] = node.right();
+            nodeStructure[disp + 3] = node.defaultDir();
+            nodeValues[k] = node.value();
+            nodeClassIndexes[k] = node.classIdx();
+        }
+    }
+
+    /**
+     * Creates pure Java version of the given predictor, if it is an OpenCV tree-based model (RTrees or Boost),
+     * which is supported by this class. In other case, returns <code>null</code>;
+     * in particular, <code>null</code> is returned if the trees contain categorical splits.
+     *
+     * @param predictor predictor, loaded from <code>modelFile</code>.
+     * @param modelFile file of the model, used to load additional information, not available via OpenCV API.
+     * @return new predictor or <code>null</code> if it is impossible.
+     * @throws IOException in a case of I/O error.
+     */
+    public static MLTreesPredictor tryToConvert(MLPredictor predictor, Path modelFile) throws IOException {
+        Objects.requireNonNull(predictor, "Null predictor");
+        Objects.requireNonNull(modelFile, "Null modelFile");
+        if (!(predictor instanceof MLStatModelTrainer trainer)) {
+            return null;
+        }
+        final StatModel statModel = trainer.statModel();
+        if (!(statModel instanceof DTrees model)) {
+            return null;
+        }
+        final boolean boost = statModel instanceof Boost;
+        try (FileStorage fs = new FileStorage(modelFile.toAbsolutePath().toString(), FileStorage.READ)) {
+            if (!fs.isOpened()) {
+                throw new IOException("Cannot open statistic model file " + modelFile);
+            }
+            final FileNode root = fs.getFirstTopLevelNode();
+            if (root.empty()) {
+                return null;
+            }
+            if (!isEmptyOrNone(root.get("var_idx")) || !isEmptyOrNone(root.get("cat_map"))
+                    || readInt(root.get("cat_var_count"), 0) != 0) {
+                return null;
+                // - categorical variables and variable subsets are not supported
+            }
+            int[] classLabels = readInts(root.get("class_labels"));
+            final float[] missingSubstitutions = readFloats(root.get("missing_subst"));
+            if (model.isClassifier() && classLabels == null) {
+                if (boost) {
+                    return null;
+                }
+                classLabels = classLabelsFromLeaves(model);
+            }
+            try {
+                return new MLTreesPredictor(model, boost, classLabels, missingSubstitutions);
+            } catch (UnsupportedOperationException e) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public MLTreesPredictor setPredictionFlags(int predictionFlags) {
+        this.predictionFlags = predictionFlags;
+        return this;
+    }
+
+    @Override
+    public boolean isClassifier() {
+        return classifier;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    public int numberOfTrees() {
+        return roots.length;
+    }
+
+    public int numberOfNodes() {
+        return nodeValues.length;
+    }
+
+    @Override
+    public void predict(Mat samples, Mat result) {
+        Objects.requireNonNull(samples, "Null samples");
+        Objects.requireNonNull(result, "Null result");
+        if (samples.type() != opencv_core.CV_32FC1) {
+            throw new IllegalArgumentException("Samples must be 1-channel CV_32F (float) matrix, but it is "
+                    + samples);
+        }
+        if (samples.cols() != varCount) {
+            throw new IllegalArgumentException("Number of columns in samples " + samples.cols()
+                    + " does not match the number of variables in the model " + varCount);
+        }
+        try (Mat continuous = samples.isContinuous() ? null : samples.clone()) {
+            predictContinuous(continuous != null ? continuous : samples, result);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return "MLTreesPredictor (pure Java) for " + (boost ? "Boost" : "RTrees") + ", "
+                + roots.length + " trees, " + nodeValues.length + " nodes, "
+                + (classifier ? "classifier" : "regression");
+    }
+
+    private void predictContinuous(Mat samples, Mat result) {
+        final int n = samples.rows();
+        final int flags = predictionFlags;
+        final int predictType = this.boost ? DTrees.PREDICT_SUM : predictType(flags);
+        if (predictType == DTrees.PREDICT_MAX_VOTE && classLabels == null) {
+            throw new IllegalArgumentException("PREDICT_MAX_VOTE flag cannot be used for regression model");
+        }
+        final boolean integerResult = classifier && (flags & DTrees.PREDICT_MASK) == DTrees.PREDICT_MAX_VOTE;
+        // - like in DTreesImpl::predict
+        final float scale = classifier ? 1.0f : 1.0f / roots.length;
+        result.create(n, 1, integerResult ? opencv_core.CV_32S : opencv_core.CV_32F);
+        final FloatBuffer sampleBuffer = asByteBuffer(samples).asFloatBuffer();
+        final FloatBuffer floatResult = integerResult ? null : asByteBuffer(result).asFloatBuffer();
+        final IntBuffer intResult = integerResult ? asByteBuffer(result).asIntBuffer() : null;
+        final int numberOfClasses = classLabels == null ? 0 : classLabels.length;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            final int[] votes = new int[numberOfClasses];
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                float value = predictTrees(sampleBuffer, i * varCount, predictType, flags, votes);
+                if (boost && (flags & DTrees.PREDICT_MASK) != DTrees.PREDICT_SUM) {
+                    // - like in DTreesImplForBoost::predictTrees
+                    int index = value > 0 ? 1 : 0;
+                    value = (flags & StatModel.RAW_OUTPUT) != 0 ? index : classLabels[index];
+                }
+                value *= scale;
+                if (intResult != null) {
+                    intResult.put(i, (int) Math.rint(value));
+                    // - like cvRound
+                } else {
+                    floatResult.put(i, value);
+                }
+            }
+        });
+    }
+
+    private int predictType(int flags) {
+        final int predictType = flags & DTrees.PREDICT_MASK;
+        if (predictType != DTrees.PREDICT_AUTO) {
+            return predictType;
+        }
+        return !classifier || (classLabels.length == 2 && (flags & StatModel.RAW_OUTPUT) != 0) ?
+                DTrees.PREDICT_SUM :
+                DTrees.PREDICT_MAX_VOTE;
+    }
+
+    private float predictTrees(FloatBuffer samples, int offset, int predictType, int flags, int[] votes) {
+        final boolean maxVote = predictType == DTrees.PREDICT_MAX_VOTE;
+        if (maxVote) {
+            java.util.Arrays.fill(votes, 0);
+        }
+        double sum = 0.0;
+        int lastClassIndex = -1;
+        for (int root : roots) {
+            int nodeIndex = root;
+            for (; ; ) {
+                final int disp = nodeIndex * NODE_STRUCTURE_LENGTH;
+                final int varIndex = nodeStructure[disp];
+                if (varIndex == LEAF) {
+                    break;
+                }
+                float value = samples.get(offset + varIndex);
+                if (value == MISSED_VALUE) {
+                    if (missingSubstitutions == null) {
+                        nodeIndex = nodeStructure[disp + 3] < 0 ? nodeStructure[disp + 1] : nodeStructure[disp + 2];
+                        continue;
+                    }
+                    value = missingSubstitutions[varIndex];
+                }
+                final boolean left = (value <= nodeThresholds[nodeIndex]) != nodeInversed[nodeIndex];
+                // - like in DTreesImpl::predictTrees: "if (split.inversed) dir = -dir"
+                nodeIndex = left ? nodeStructure[disp + 1] : nodeStructure[disp + 2];
+            }
+            if (maxVote) {
+                lastClassIndex = nodeClassIndexes[nodeIndex];
+                votes[lastClassIndex]++;
+            } else {
+                sum += nodeValues[nodeIndex];
+            }
+        }
+        if (maxVote) {
+            int bestIndex = lastClassIndex;
+            if (roots.length > 1) {
+                bestIndex = 0;
+                for (int k = 1; k < votes.length; k++) {
+                    if (votes[bestIndex] < votes[k]) {
+                        bestIndex = k;
+                    }
+                }
+            }
+            return (flags & StatModel.RAW_OUTPUT) != 0 ? bestIndex : classLabels[bestIndex];
+        }
+        return (float) sum;
+    }
+
+    private static int[] classLabelsFromLeaves(DTrees model) {
+        // Note: for classification trees, OpenCV stores classLabels[classIdx] in the value of every node
+        final DTrees.Node nodes = model.getNodes();
+        int maxClassIndex = -1;
+        for (long k = 0, n = nodes.capacity(); k < n; k++) {
+            maxClassIndex = Math.max(maxClassIndex, nodes.getPointer(k).classIdx());
+        }
+        final int[] result = new int[maxClassIndex + 1];
+        for (long k = 0, n = nodes.capacity(); k < n; k++) {
+            final DTrees.Node node = nodes.getPointer(k);
+            if (node.classIdx() >= 0) {
+                result[node.classIdx()] = (int) Math.round(node.value());
+            }
+        }
+        return result;
+    }
+
+    private static boolean isEmptyOrNone(FileNode node) {
+        return node.empty() || node.isNone();
+    }
+
+    private static int readInt(FileNode node, int defaultValue) {
+        return isEmptyOrNone(node) ? defaultValue : node.asInt();
+    }
+
+    private static int[] readInts(FileNode node) {
+        if (isEmptyOrNone(node)) {
+            return null;
+        }
+        final int[] result = new int[(int) node.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = node.get(k).asInt();
+        }
+        return result;
+    }
+
+    private static float[] readFloats(FileNode node) {
+        if (isEmptyOrNone(node)) {
+            return null;
+        }
+        final float[] result = new float[(int) node.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = node.get(k).asFloat();
+        }
+        return result;
+    }
+
+    // Warning: it is a very dangerous function! See the same function in OTools.
+    private static ByteBuffer asByteBuffer(Mat m) {
+        final long arraySize = m.arraySize();
+        return m.data().position(0).capacity(arraySize).asByteBuffer();
+    }
+}
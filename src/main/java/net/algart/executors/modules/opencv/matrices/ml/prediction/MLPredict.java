@@ -30,10 +30,15 @@ import net.algart.executors.modules.opencv.matrices.ml.AbstractMLPredict;
 import net.algart.executors.modules.opencv.matrices.ml.MLKind;
 import net.algart.executors.modules.opencv.matrices.ml.MLPredictor;
 import net.algart.executors.modules.opencv.matrices.ml.MLSamplesType;
+import net.algart.executors.modules.opencv.matrices.ml.MLTreesPredictor;
 import org.bytedeco.opencv.opencv_ml.DTrees;
 
+import java.io.IOError;
+import java.io.IOException;
+
 public final class MLPredict extends AbstractMLPredict {
     private MLKind.StatModelBased defaultPredictor = MLKind.StatModelBased.SVM;
+    private boolean javaTreesPrediction = false;
 
     private MLPredict(MLSamplesType samplesType) {
         super(samplesType);
@@ -74,12 +79,38 @@ public final class MLPredict extends AbstractMLPredict {
         return this;
     }
 
+    public boolean isJavaTreesPrediction() {
+        return javaTreesPrediction;
+    }
+
+    public MLPredict setJavaTreesPrediction(boolean javaTreesPrediction) {
+        this.javaTreesPrediction = javaTreesPrediction;
+        return this;
+    }
+
     @Override
     public void process() {
-        try (MLPredictor predictor = readStandardPredictor(defaultPredictor)) {
-            setPredictionFlags(predictor);
-            predict(predictor);
+        try (MLPredictor predictor = readStandardPredictor(defaultPredictor);
+             MLPredictor javaPredictor = javaTreesPrediction ? javaTreesPredictor(predictor) : null) {
+            final MLPredictor actualPredictor = javaPredictor != null ? javaPredictor : predictor;
+            setPredictionFlags(actualPredictor);
+            predict(actualPredictor);
+        }
+    }
+
+    private MLPredictor javaTreesPredictor(MLPredictor predictor) {
+        final MLTreesPredictor result;
+        try {
+            result = MLTreesPredictor.tryToConvert(predictor, statModelFile());
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
+        if (result == null) {
+            logDebug(() -> "Pure Java prediction is not supported for " + predictor + ", OpenCV is used");
+        } else {
+            logDebug(() -> "Using " + result);
         }
+        return result;
     }
 
     public static SNumbers predict(
@@ -36,6 +36,7 @@ import org.bytedeco.opencv.opencv_ml.ANN_MLP;
 import org.bytedeco.opencv.opencv_ml.StatModel;
 import org.bytedeco.opencv.opencv_ml.TrainData;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 public final class MLTrainANNMLP extends AbstractMLTrain {
@@ -97,6 +98,7 @@ public final class MLTrainANNMLP extends AbstractMLTrain {
     private int terminationMaxCount = 0;
     private double terminationEpsilon = 0.0;
     private int layerIndexToGetWeights = 0;
+    private boolean incrementalTraining = false;
 
     private MLTrainANNMLP(MLSamplesType inputType) {
         super(inputType);
@@ -340,10 +342,38 @@ public final class MLTrainANNMLP extends AbstractMLTrain {
         return this;
     }
 
+    public boolean isIncrementalTraining() {
+        return incrementalTraining;
+    }
+
+    public MLTrainANNMLP setIncrementalTraining(boolean incrementalTraining) {
+        this.incrementalTraining = incrementalTraining;
+        return this;
+    }
+
     @Override
     public void process() {
-        try (final ANN_MLP model = newStatModel();
-             TermCriteria termCriteria =
+        searchHyperParameters();
+        try (final MLStatModelTrainer trainer = newTrainer()) {
+            train(trainer);
+            writeTrainer(trainer);
+            try (final Mat layerWeights = ((ANN_MLP) trainer.statModel()).getWeights(layerIndexToGetWeights)) {
+                getNumbers(OUTPUT_LAYER_WEIGHTS).exchange(O2SMat.toRawNumbers(layerWeights, 1));
+            }
+        }
+    }
+
+    @Override
+    protected MLStatModelTrainer newTrainer() {
+        final MLStatModelTrainer loaded = incrementalTraining ?
+                loadTrainerForIncrementalTraining(ANN_MLP::load) :
+                null;
+        final MLStatModelTrainer trainer = loaded != null ?
+                loaded :
+                new MLStatModelTrainer(newStatModel(), modelKind());
+        final ANN_MLP model = (ANN_MLP) trainer.statModel();
+        boolean success = false;
+        try (TermCriteria termCriteria =
                      OTools.termCriteria(terminationMaxCount, terminationEpsilon, true);
              RNG rng = annealEnergyRandSeed != null ? new RNG(annealEnergyRandSeed) : null) {
             model.setTrainMethod(trainingMethod.code(), trainingMethodParam1, trainingMethodParam2);
@@ -364,23 +394,40 @@ public final class MLTrainANNMLP extends AbstractMLTrain {
             if (rng != null) {
                 model.setAnnealEnergyRNG(rng);
             }
-            logDebug(() -> "Training ANN_MLP: " + toString(model));
-            final MLStatModelTrainer trainer = new MLStatModelTrainer(model, modelKind());
+            logDebug(() -> (loaded != null ? "Continuing training ANN_MLP: " : "Training ANN_MLP: ")
+                    + toString(model));
             setTrainingFlags(trainer);
-            train(trainer);
-            writeTrainer(trainer);
-            try (final Mat layerWeights = model.getWeights(layerIndexToGetWeights)) {
-                getNumbers(OUTPUT_LAYER_WEIGHTS).exchange(O2SMat.toRawNumbers(layerWeights, 1));
+            if (loaded != null) {
+                trainer.setTrainingFlags(trainer.getTrainingFlags() | ANN_MLP.UPDATE_WEIGHTS);
+                // - continue from the loaded weights instead of random initialization
+            }
+            success = true;
+            return trainer;
+        } finally {
+            if (!success) {
+                trainer.close();
+                // - in particular, the loaded model must not be leaked
             }
         }
     }
 
+    @Override
+    protected MLTrainANNMLP newSearchCandidate() {
+        return new MLTrainANNMLP(samplesType());
+    }
+
     @Override
     protected void doTrain(MLTrainer trainer, TrainData trainData, int sampleLength, int responseLength) {
         assert trainer instanceof MLStatModelTrainer : "Illegal usage of doTrain method";
         final StatModel model = ((MLStatModelTrainer) trainer).statModel();
         assert model instanceof ANN_MLP : "Illegal usage of doTrain method";
         ANN_MLP ann = (ANN_MLP) model;
+        if (ann.isTrained()) {
+            // - incremental training: the network structure is already stored in the loaded model
+            checkLayerSizes(ann, sampleLength, responseLength);
+            super.doTrain(trainer, trainData, sampleLength, responseLength);
+            return;
+        }
         // We can set layer sizes only here, when responses are already converted to multi-column matrix
         // (if convertCategoricalResponses is set)
         try (Mat layerSizesMat = layerSizes(sampleLength, responseLength)) {
@@ -446,6 +493,20 @@ public final class MLTrainANNMLP extends AbstractMLTrain {
         return O2SMat.numbersToMulticolumn32BitMat(result, true);
     }
 
+    private static void checkLayerSizes(ANN_MLP ann, int sampleLength, int responseLength) {
+        final int[] layerSizes;
+        try (Mat layerSizesMat = ann.getLayerSizes()) {
+            layerSizes = O2SMat.toRawNumbers(layerSizesMat, 1).toIntArray();
+        }
+        if (layerSizes.length < 2
+                || layerSizes[0] != sampleLength
+                || layerSizes[layerSizes.length - 1] != responseLength) {
+            throw new IllegalArgumentException("Cannot continue training ANN_MLP: the loaded network has layer sizes "
+                    + Arrays.toString(layerSizes) + ", but new training data have "
+                    + sampleLength + " values per sample and " + responseLength + " values per response");
+        }
+    }
+
     public static void main(String[] args) {
         ANN_MLP model = ANN_MLP.create();
         final int[] layersSizes = {5};
@@ -95,15 +95,8 @@ public final class MLTrainBoost extends MLTrainDTrees {
 
     @Override
     public void process() {
-        try (final Boost model = newStatModel();
-             final Mat priors = priors()) {
-            model.setBoostType(boostType.code());
-            model.setWeakCount(weakCount);
-            model.setWeightTrimRate(weightTrimRate);
-            customizeDTrees(model, priors);
-            logDebug(() -> "Training " + modelKind().modelName() + ": " + toString(model));
-            final MLStatModelTrainer trainer = new MLStatModelTrainer(model, modelKind());
-            setTrainingFlags(trainer);
+        searchHyperParameters();
+        try (final MLStatModelTrainer trainer = newTrainer()) {
             train(trainer);
             writeTrainer(trainer);
         }
@@ -131,6 +124,26 @@ public final class MLTrainBoost extends MLTrainDTrees {
         return true;
     }
 
+    @Override
+    protected MLStatModelTrainer newTrainer() {
+        final Boost model = newStatModel();
+        try (final Mat priors = priors()) {
+            model.setBoostType(boostType.code());
+            model.setWeakCount(weakCount);
+            model.setWeightTrimRate(weightTrimRate);
+            customizeDTrees(model, priors);
+            logDebug(() -> "Training " + modelKind().modelName() + ": " + toString(model));
+            final MLStatModelTrainer trainer = new MLStatModelTrainer(model, modelKind());
+            setTrainingFlags(trainer);
+            return trainer;
+        }
+    }
+
+    @Override
+    protected MLTrainBoost newSearchCandidate() {
+        return new MLTrainBoost(samplesType());
+    }
+
     private Boost newStatModel() {
         final Boost result = Boost.create();
         logDebug(() -> "Creating Boost: " + toString(result));
@@ -45,10 +45,8 @@ public final class MLTrainNormalBayesClassifier extends AbstractMLTrain {
 
     @Override
     public void process() {
-        try (final NormalBayesClassifier model = newStatModel()) {
-            logDebug(() -> "Training NormalBayesClassifier");
-            final MLStatModelTrainer trainer = new MLStatModelTrainer(model, modelKind());
-            setTrainingFlags(trainer);
+        searchHyperParameters();
+        try (final MLStatModelTrainer trainer = newTrainer()) {
             train(trainer);
             writeTrainer(trainer);
         }
@@ -64,6 +62,20 @@ public final class MLTrainNormalBayesClassifier extends AbstractMLTrain {
         return true;
     }
 
+    @Override
+    protected MLStatModelTrainer newTrainer() {
+        final NormalBayesClassifier model = newStatModel();
+        logDebug(() -> "Training NormalBayesClassifier");
+        final MLStatModelTrainer trainer = new MLStatModelTrainer(model, modelKind());
+        setTrainingFlags(trainer);
+        return trainer;
+    }
+
+    @Override
+    protected MLTrainNormalBayesClassifier newSearchCandidate() {
+        return new MLTrainNormalBayesClassifier(samplesType());
+    }
+
     private NormalBayesClassifier newStatModel() {
         return NormalBayesClassifier.create();
     }
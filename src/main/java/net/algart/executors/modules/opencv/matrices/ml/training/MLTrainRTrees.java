@@ -95,24 +95,12 @@ public final class MLTrainRTrees extends MLTrainDTrees {
 
     @Override
     public void process() {
-        try (final RTrees model = newStatModel();
-             final Mat priors = priors();
-             TermCriteria termCriteria =
-                     OTools.termCriteria(terminationMaxCount, terminationEpsilon, true)) {
-            model.setActiveVarCount(activeVarCount);
-            model.setCalculateVarImportance(calculateVarImportance);
-            if (termCriteria != null) {
-                model.setTermCriteria(termCriteria);
-            }
-            // - should be the last operation in customization
-            customizeRTrees(model, priors);
-            logDebug(() -> "Training " + modelKind().modelName() + ": " + toString(model));
-            final MLStatModelTrainer trainer = new MLStatModelTrainer(model, modelKind());
-            setTrainingFlags(trainer);
+        searchHyperParameters();
+        try (final MLStatModelTrainer trainer = newTrainer()) {
             train(trainer);
             writeTrainer(trainer);
             if (calculateVarImportance) {
-                try (final Mat varImportance = model.getVarImportance()) {
+                try (final Mat varImportance = ((RTrees) trainer.statModel()).getVarImportance()) {
                     getNumbers(OUTPUT_VAR_IMPORTANCE).exchange(O2SMat.toRawNumbers(
                             varImportance, varImportance.cols() * varImportance.rows()));
                 }
@@ -142,6 +130,31 @@ public final class MLTrainRTrees extends MLTrainDTrees {
         return true;
     }
 
+    @Override
+    protected MLStatModelTrainer newTrainer() {
+        final RTrees model = newStatModel();
+        try (final Mat priors = priors();
+             TermCriteria termCriteria =
+                     OTools.termCriteria(terminationMaxCount, terminationEpsilon, true)) {
+            model.setActiveVarCount(activeVarCount);
+            model.setCalculateVarImportance(calculateVarImportance);
+            if (termCriteria != null) {
+                model.setTermCriteria(termCriteria);
+            }
+            // - should be the last operation in customization
+            customizeRTrees(model, priors);
+            logDebug(() -> "Training " + modelKind().modelName() + ": " + toString(model));
+            final MLStatModelTrainer trainer = new MLStatModelTrainer(model, modelKind());
+            setTrainingFlags(trainer);
+            return trainer;
+        }
+    }
+
+    @Override
+    protected MLTrainRTrees newSearchCandidate() {
+        return new MLTrainRTrees(samplesType());
+    }
+
     private RTrees newStatModel() {
         final RTrees result = RTrees.create();
         logDebug(() -> "Creating RTrees: " + toString(result));
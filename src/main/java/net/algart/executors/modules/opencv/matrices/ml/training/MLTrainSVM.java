@@ -471,8 +471,17 @@ public final class MLTrainSVM extends AbstractMLTrain {
 
     @Override
     public void process() {
-        try (final SVM model = newStatModel();
-             TermCriteria termCriteria =
+        searchHyperParameters();
+        try (final MLStatModelTrainer trainer = newTrainer()) {
+            train(trainer);
+            writeTrainer(trainer);
+        }
+    }
+
+    @Override
+    protected MLStatModelTrainer newTrainer() {
+        final SVM model = newStatModel();
+        try (TermCriteria termCriteria =
                      OTools.termCriteria(terminationMaxCount, terminationEpsilon, true)) {
             model.setType(svmType.code());
             model.setKernel(kernelType.code());
@@ -488,11 +497,15 @@ public final class MLTrainSVM extends AbstractMLTrain {
             logDebug(() -> "Training SVM: " + toString(model));
             final MLStatModelTrainer trainer = new MLStatModelTrainer(model, modelKind());
             setTrainingFlags(trainer);
-            train(trainer);
-            writeTrainer(trainer);
+            return trainer;
         }
     }
 
+    @Override
+    protected MLTrainSVM newSearchCandidate() {
+        return new MLTrainSVM(samplesType());
+    }
+
     public static String toString(SVM model) {
         return String.format(Locale.US,
                 "type=%s, kernel=%s, c=%s, gamma=%s, p=%s, nu=%s, coef=%s, degree=%s, %s",
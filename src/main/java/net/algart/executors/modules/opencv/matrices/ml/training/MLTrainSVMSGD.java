@@ -28,9 +28,12 @@ import net.algart.executors.modules.opencv.matrices.ml.AbstractMLTrain;
 import net.algart.executors.modules.opencv.matrices.ml.MLKind;
 import net.algart.executors.modules.opencv.matrices.ml.MLSamplesType;
 import net.algart.executors.modules.opencv.matrices.ml.MLStatModelTrainer;
+import net.algart.executors.modules.opencv.matrices.ml.MLTrainer;
 import net.algart.executors.modules.opencv.util.OTools;
 import org.bytedeco.opencv.opencv_core.TermCriteria;
 import org.bytedeco.opencv.opencv_ml.SVMSGD;
+import org.bytedeco.opencv.opencv_ml.StatModel;
+import org.bytedeco.opencv.opencv_ml.TrainData;
 
 import java.util.Locale;
 
@@ -73,6 +76,7 @@ public final class MLTrainSVMSGD extends AbstractMLTrain {
     private double stepDecreasingPower = 0.75;
     private int terminationMaxCount = 0;
     private double terminationEpsilon = 0.0;
+    private boolean incrementalTraining = false;
 
     private MLTrainSVMSGD(MLSamplesType inputType) {
         super(inputType);
@@ -158,10 +162,35 @@ public final class MLTrainSVMSGD extends AbstractMLTrain {
         return this;
     }
 
+    public boolean isIncrementalTraining() {
+        return incrementalTraining;
+    }
+
+    public MLTrainSVMSGD setIncrementalTraining(boolean incrementalTraining) {
+        this.incrementalTraining = incrementalTraining;
+        return this;
+    }
+
     @Override
     public void process() {
-        try (final SVMSGD model = newStatModel();
-             TermCriteria termCriteria =
+        searchHyperParameters();
+        try (final MLStatModelTrainer trainer = newTrainer()) {
+            train(trainer);
+            writeTrainer(trainer);
+        }
+    }
+
+    @Override
+    protected MLStatModelTrainer newTrainer() {
+        final MLStatModelTrainer loaded = incrementalTraining ?
+                loadTrainerForIncrementalTraining(SVMSGD::load) :
+                null;
+        final MLStatModelTrainer trainer = loaded != null ?
+                loaded :
+                new MLStatModelTrainer(newStatModel(), modelKind());
+        final SVMSGD model = (SVMSGD) trainer.statModel();
+        boolean success = false;
+        try (TermCriteria termCriteria =
                      OTools.termCriteria(terminationMaxCount, terminationEpsilon, true)) {
             if (optimalParameters) {
                 model.setOptimalParameters(svmSgdType.code(), marginType.code());
@@ -175,11 +204,34 @@ public final class MLTrainSVMSGD extends AbstractMLTrain {
                     model.setTermCriteria(termCriteria);
                 }
             }
-            logDebug(() -> "Training SVMSGD: " + toString(model));
-            final MLStatModelTrainer trainer = new MLStatModelTrainer(model, modelKind());
+            logDebug(() -> (loaded != null ? "Continuing training SVMSGD: " : "Training SVMSGD: ")
+                    + toString(model));
             setTrainingFlags(trainer);
-            train(trainer);
-            writeTrainer(trainer);
+            success = true;
+            return trainer;
+        } finally {
+            if (!success) {
+                trainer.close();
+                // - in particular, the loaded model must not be leaked
+            }
+        }
+    }
+
+    @Override
+    protected MLTrainSVMSGD newSearchCandidate() {
+        return new MLTrainSVMSGD(samplesType());
+    }
+
+    @Override
+    protected void doTrain(MLTrainer trainer, TrainData trainData, int sampleLength, int responseLength) {
+        assert trainer instanceof MLStatModelTrainer : "Illegal usage of doTrain method";
+        final StatModel model = ((MLStatModelTrainer) trainer).statModel();
+        assert model instanceof SVMSGD : "Illegal usage of doTrain method";
+        if (model.isTrained()) {
+            // - incremental training: OpenCV SVMSGD.train would start from zero weights
+            SVMSGDWarmStart.train((SVMSGD) model, trainData);
+        } else {
+            super.doTrain(trainer, trainData, sampleLength, responseLength);
         }
     }
 
@@ -0,0 +1,270 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.matrices.ml.training;
+
+import net.algart.executors.api.data.SNumbers;
+import net.algart.executors.modules.opencv.util.O2SMat;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.opencv_core.FileNode;
+import org.bytedeco.opencv.opencv_core.FileStorage;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.TermCriteria;
+import org.bytedeco.opencv.opencv_ml.SVMSGD;
+import org.bytedeco.opencv.opencv_ml.TrainData;
+
+import java.util.Random;
+
+/**
+ * Continuation of stochastic gradient descent, performed by OpenCV <code>SVMSGD</code>,
+ * starting from the weights of already trained model.
+ *
+ * <p>Unlike <code>ANN_MLP</code>, OpenCV <code>SVMSGD::train</code> always clears the model
+ * and starts from zero weights. So, we repeat the same algorithm (with the same normalization of samples,
+ * step size and termination criteria) in Java, but start from the existing weights and shift,
+ * and then load the result back into the model via its standard <code>read</code> method.</p>
+ */
+final class SVMSGDWarmStart {
+    private static final String OPENCV_NODE_NAME = "opencv_ml_svmsgd";
+
+    private final SVMSGD model;
+    private final float[] samples;
+    private final float[] responses;
+    private final int numberOfSamples;
+    private final int numberOfFeatures;
+
+    private SVMSGDWarmStart(SVMSGD model, TrainData trainData) {
+        this.model = model;
+        try (Mat samplesMat = trainData.getTrainSamples();
+             Mat responsesMat = trainData.getTrainResponses()) {
+            this.numberOfSamples = samplesMat.rows();
+            this.numberOfFeatures = samplesMat.cols();
+            if (responsesMat.rows() != numberOfSamples) {
+                throw new IllegalArgumentException("Number of responses " + responsesMat.rows()
+                        + " does not match number of samples " + numberOfSamples);
+            }
+            this.samples = O2SMat.toRawNumbers(samplesMat, numberOfFeatures).toFloatArray();
+            this.responses = O2SMat.toRawNumbers(responsesMat, 1).toFloatArray();
+        }
+    }
+
+    static void train(SVMSGD model, TrainData trainData) {
+        new SVMSGDWarmStart(model, trainData).train();
+    }
+
+    private void train() {
+        final float[] weights;
+        try (Mat weightsMat = model.getWeights()) {
+            weights = O2SMat.toRawNumbers(weightsMat, 1).toFloatArray();
+        }
+        if (weights.length != numberOfFeatures) {
+            throw new IllegalArgumentException("Cannot continue training SVMSGD: the loaded model has "
+                    + weights.length + " weights, but new training samples have " + numberOfFeatures + " values");
+        }
+        float shift = model.getShift();
+        int positiveCount = 0;
+        for (float response : responses) {
+            if (response >= 0) {
+                positiveCount++;
+            }
+        }
+        if (positiveCount > 0 && positiveCount < numberOfSamples) {
+            // - in other case, we have no information for improving the model and leave it unchanged
+            shift = continueDescent(weights, shift);
+        }
+        store(weights, shift);
+    }
+
+    // Modifies weights and returns new shift
+    private float continueDescent(float[] weights, float shift) {
+        final int n = numberOfFeatures;
+        final int extendedLength = n + 1;
+        final float[] average = new float[n];
+        final float[] normalizedSamples = new float[samples.length];
+        final float multiplier = normalize(average, normalizedSamples);
+        // Extended weights [w/m, b+w*avg] in the space of normalized samples (x-avg)*m with additional 1.0
+        // provide the same decision function w*x+b as the current model
+        final float[] extendedWeights = new float[extendedLength];
+        float biasCorrection = 0.0f;
+        for (int j = 0; j < n; j++) {
+            extendedWeights[j] = weights[j] / multiplier;
+            biasCorrection += weights[j] * average[j];
+        }
+        extendedWeights[n] = shift + biasCorrection;
+        final boolean averaging = model.getSvmsgdType() == SVMSGD.ASGD;
+        final float[] averageWeights = averaging ? extendedWeights.clone() : null;
+        final float[] previousWeights = extendedWeights.clone();
+        final float regularization = model.getMarginRegularization();
+        final float initialStepSize = model.getInitialStepSize();
+        final float stepDecreasingPower = model.getStepDecreasingPower();
+        final int maxCount;
+        final double epsilon;
+        try (TermCriteria termCriteria = model.getTermCriteria()) {
+            maxCount = (termCriteria.type() & TermCriteria.COUNT) != 0 ? termCriteria.maxCount() : Integer.MAX_VALUE;
+            epsilon = (termCriteria.type() & TermCriteria.EPS) != 0 ? termCriteria.epsilon() : 0.0;
+        }
+        final float[] sample = new float[extendedLength];
+        sample[n] = 1.0f;
+        final Random random = new Random(0);
+        for (int iteration = 0; iteration < maxCount; iteration++) {
+            final int index = random.nextInt(numberOfSamples);
+            System.arraycopy(normalizedSamples, index * n, sample, 0, n);
+            final float stepSize = initialStepSize * (float) Math.pow(
+                    1.0 + regularization * initialStepSize * (float) iteration, -stepDecreasingPower);
+            updateWeights(extendedWeights, sample, responses[index] > 0 ? 1 : -1, stepSize, regularization);
+            final float[] current;
+            if (averaging) {
+                final float oldPart = (float) iteration / (1.0f + iteration);
+                final float newPart = 1.0f / (1.0f + iteration);
+                for (int j = 0; j < extendedLength; j++) {
+                    averageWeights[j] = oldPart * averageWeights[j] + newPart * extendedWeights[j];
+                }
+                current = averageWeights;
+            } else {
+                current = extendedWeights;
+            }
+            double sum = 0.0;
+            for (int j = 0; j < extendedLength; j++) {
+                final double d = current[j] - previousWeights[j];
+                sum += d * d;
+            }
+            if (Math.sqrt(sum) < epsilon) {
+                break;
+            }
+            System.arraycopy(current, 0, previousWeights, 0, extendedLength);
+        }
+        final float[] result = averaging ? averageWeights : extendedWeights;
+        float dotAverage = 0.0f;
+        for (int j = 0; j < n; j++) {
+            weights[j] = result[j] * multiplier;
+            dotAverage += weights[j] * average[j];
+        }
+        return model.getMarginType() == SVMSGD.SOFT_MARGIN ? result[n] - dotAverage : hardMarginShift(weights);
+    }
+
+    // Fills average and normalized samples and returns multiplier, like in OpenCV SVMSGD
+    private float normalize(float[] average, float[] normalizedSamples) {
+        final int n = numberOfFeatures;
+        final double[] sums = new double[n];
+        for (int i = 0, disp = 0; i < numberOfSamples; i++) {
+            for (int j = 0; j < n; j++, disp++) {
+                sums[j] += samples[disp];
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            average[j] = (float) (sums[j] / numberOfSamples);
+        }
+        double sumOfSquares = 0.0;
+        for (int i = 0, disp = 0; i < numberOfSamples; i++) {
+            for (int j = 0; j < n; j++, disp++) {
+                final double d = samples[disp] - average[j];
+                sumOfSquares += d * d;
+            }
+        }
+        final float multiplier = sumOfSquares == 0.0 ?
+                1.0f :
+                (float) (Math.sqrt((double) numberOfSamples * n) / Math.sqrt(sumOfSquares));
+        // - OpenCV does not check this degenerated case
+        for (int i = 0, disp = 0; i < numberOfSamples; i++) {
+            for (int j = 0; j < n; j++, disp++) {
+                normalizedSamples[disp] = (samples[disp] - average[j]) * multiplier;
+            }
+        }
+        return multiplier;
+    }
+
+    private float hardMarginShift(float[] weights) {
+        float positiveMargin = Float.MAX_VALUE;
+        float negativeMargin = Float.MAX_VALUE;
+        final int n = numberOfFeatures;
+        for (int i = 0, disp = 0; i < numberOfSamples; i++) {
+            float dot = 0.0f;
+            for (int j = 0; j < n; j++, disp++) {
+                dot += samples[disp] * weights[j];
+            }
+            if (responses[i] > 0) {
+                positiveMargin = Math.min(positiveMargin, dot);
+            } else {
+                negativeMargin = Math.min(negativeMargin, -dot);
+            }
+        }
+        return -(positiveMargin - negativeMargin) / 2.0f;
+    }
+
+    // Note: SVMSGD has no setters for weights and shift, so we serialize the model into in-memory FileStorage
+    // in the format of SVMSGDImpl::write and load it back by the standard SVMSGD::read
+    private void store(float[] weights, float shift) {
+        final String serialized;
+        try (FileStorage fs = new FileStorage(".yml", FileStorage.WRITE | FileStorage.MEMORY);
+             Mat weightsMat = O2SMat.numbersToMulticolumnMat(SNumbers.ofArray(weights, numberOfFeatures));
+             TermCriteria termCriteria = model.getTermCriteria()) {
+            fs.startWriteStruct(OPENCV_NODE_NAME, FileNode.MAP, "");
+            fs.write("format", 3);
+            fs.write("svmsgdType", model.getSvmsgdType() == SVMSGD.ASGD ? "ASGD" : "SGD");
+            fs.write("marginType", model.getMarginType() == SVMSGD.HARD_MARGIN ? "HARD_MARGIN" : "SOFT_MARGIN");
+            fs.write("marginRegularization", (double) model.getMarginRegularization());
+            fs.write("initialStepSize", (double) model.getInitialStepSize());
+            fs.write("stepDecreasingPower", (double) model.getStepDecreasingPower());
+            fs.startWriteStruct("term_criteria", FileNode.MAP, "");
+            if ((termCriteria.type() & TermCriteria.EPS) != 0) {
+                fs.write("epsilon", termCriteria.epsilon());
+            }
+            if ((termCriteria.type() & TermCriteria.COUNT) != 0) {
+                fs.write("iterations", termCriteria.maxCount());
+            }
+            fs.endWriteStruct();
+            fs.write("weights", weightsMat);
+            fs.write("shift", (double) shift);
+            fs.endWriteStruct();
+            try (BytePointer result = fs.releaseAndGetString()) {
+                serialized = result.getString();
+            }
+        }
+        try (FileStorage fs = new FileStorage(serialized, FileStorage.READ | FileStorage.MEMORY)) {
+            model.read(fs.getFirstTopLevelNode());
+        }
+        if (model.getShift() != shift) {
+            throw new IllegalStateException("SVMSGD model was not updated: shift " + model.getShift()
+                    + " was loaded instead of " + shift);
+        }
+    }
+
+    private static void updateWeights(float[] weights, float[] sample, int response, float stepSize, float lambda) {
+        double dot = 0.0;
+        for (int j = 0; j < weights.length; j++) {
+            dot += (double) sample[j] * weights[j];
+        }
+        final float decay = 1.0f - stepSize * lambda;
+        if (dot * response > 1.0) {
+            for (int j = 0; j < weights.length; j++) {
+                weights[j] *= decay;
+            }
+        } else {
+            final float increment = stepSize * response;
+            for (int j = 0; j < weights.length; j++) {
+                weights[j] = decay * weights[j] + increment * sample[j];
+            }
+        }
+    }
+}
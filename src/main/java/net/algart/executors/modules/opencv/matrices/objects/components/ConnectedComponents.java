@@ -24,7 +24,9 @@
 
 package net.algart.executors.modules.opencv.matrices.objects.components;
 
+import net.algart.executors.api.data.SNumbers;
 import net.algart.executors.modules.opencv.common.VoidResultUMatFilter;
+import net.algart.executors.modules.opencv.util.O2SMat;
 import net.algart.executors.modules.opencv.util.enums.OConnectivity;
 import org.bytedeco.opencv.global.opencv_core;
 import org.bytedeco.opencv.global.opencv_imgproc;
@@ -32,7 +34,42 @@ import org.bytedeco.opencv.opencv_core.Mat;
 import org.bytedeco.opencv.opencv_core.UMat;
 
 public final class ConnectedComponents extends VoidResultUMatFilter {
+    public static final String OUTPUT_NUMBER_OF_OBJECTS = "number_of_objects";
+    public static final String OUTPUT_AREA = "area";
+    public static final String OUTPUT_CENTROID = "centroid";
+    public static final String OUTPUT_CONTAINING_RECTANGLE = "containing_rectangle";
+    // - names are compatible with MeasureLabelledObjects
+
+    public enum Algorithm {
+        DEFAULT(opencv_imgproc.CCL_DEFAULT),
+        WU(opencv_imgproc.CCL_WU),
+        GRANA(opencv_imgproc.CCL_GRANA),
+        BOLELLI(opencv_imgproc.CCL_BOLELLI),
+        SAUF(opencv_imgproc.CCL_SAUF),
+        BBDT(opencv_imgproc.CCL_BBDT),
+        SPAGHETTI(opencv_imgproc.CCL_SPAGHETTI);
+
+        private final int code;
+
+        Algorithm(int code) {
+            this.code = code;
+        }
+
+        public int code() {
+            return code;
+        }
+    }
+
     private OConnectivity connectivity = OConnectivity.CONNECTIVITY_8;
+    private Algorithm algorithm = Algorithm.DEFAULT;
+    private boolean measureObjects = false;
+
+    public ConnectedComponents() {
+        addOutputScalar(OUTPUT_NUMBER_OF_OBJECTS);
+        addOutputNumbers(OUTPUT_AREA);
+        addOutputNumbers(OUTPUT_CENTROID);
+        addOutputNumbers(OUTPUT_CONTAINING_RECTANGLE);
+    }
 
     public OConnectivity getConnectivity() {
         return connectivity;
@@ -42,18 +79,93 @@ public final class ConnectedComponents extends VoidResultUMatFilter {
         this.connectivity = nonNull(connectivity);
     }
 
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = nonNull(algorithm);
+    }
+
+    public boolean isMeasureObjects() {
+        return measureObjects;
+    }
+
+    public void setMeasureObjects(boolean measureObjects) {
+        this.measureObjects = measureObjects;
+    }
+
     @Override
     public void process(Mat result, Mat source) {
-        opencv_imgproc.connectedComponents(source, result, connectivity.code(), opencv_core.CV_32S);
+        if (measureObjects) {
+            try (Mat stats = new Mat(); Mat centroids = new Mat()) {
+                final int n = opencv_imgproc.connectedComponentsWithStatsWithAlgorithm(
+                        source, result, stats, centroids, connectivity.code(), opencv_core.CV_32S, algorithm.code());
+                setStatistics(n, O2SMat.multicolumnMatToNumbers(stats), O2SMat.multicolumnMatToNumbers(centroids));
+            }
+        } else {
+            final int n = opencv_imgproc.connectedComponentsWithAlgorithm(
+                    source, result, connectivity.code(), opencv_core.CV_32S, algorithm.code());
+            getScalar(OUTPUT_NUMBER_OF_OBJECTS).setTo(n - 1);
+        }
     }
 
     @Override
     public void process(UMat result, UMat source) {
-        opencv_imgproc.connectedComponents(source, result, connectivity.code(), opencv_core.CV_32S);
+        if (measureObjects) {
+            try (UMat stats = new UMat(); UMat centroids = new UMat()) {
+                final int n = opencv_imgproc.connectedComponentsWithStatsWithAlgorithm(
+                        source, result, stats, centroids, connectivity.code(), opencv_core.CV_32S, algorithm.code());
+                setStatistics(n, O2SMat.multicolumnMatToNumbers(stats), O2SMat.multicolumnMatToNumbers(centroids));
+            }
+        } else {
+            final int n = opencv_imgproc.connectedComponentsWithAlgorithm(
+                    source, result, connectivity.code(), opencv_core.CV_32S, algorithm.code());
+            getScalar(OUTPUT_NUMBER_OF_OBJECTS).setTo(n - 1);
+        }
     }
 
     @Override
     protected boolean allowInputPackedBits() {
         return true;
     }
+
+    // Row 0 of OpenCV statistics describes the background (label 0); objects are labelled 1, 2, ...,
+    // and we return their parameters in the same form as MeasureLabelledObjects.
+    private void setStatistics(int numberOfLabels, SNumbers stats, SNumbers centroids) {
+        final int numberOfObjects = Math.max(numberOfLabels - 1, 0);
+        getScalar(OUTPUT_NUMBER_OF_OBJECTS).setTo(numberOfObjects);
+        if (LOGGABLE_DEBUG) {
+            logDebug("Measuring " + numberOfObjects + " connected components by OpenCV, algorithm " + algorithm);
+        }
+        final int[] s = stats.toIntArray();
+        if (isOutputNecessary(OUTPUT_AREA)) {
+            final float[] areas = new float[numberOfObjects];
+            for (int k = 0; k < numberOfObjects; k++) {
+                areas[k] = s[5 * (k + 1) + opencv_imgproc.CC_STAT_AREA];
+            }
+            getNumbers(OUTPUT_AREA).setTo(areas, 1);
+        }
+        if (isOutputNecessary(OUTPUT_CENTROID)) {
+            final double[] c = centroids.toDoubleArray();
+            final float[] result = new float[2 * numberOfObjects];
+            for (int k = 0; k < result.length; k++) {
+                result[k] = (float) c[k + 2];
+            }
+            getNumbers(OUTPUT_CENTROID).setTo(result, 2);
+        }
+        if (isOutputNecessary(OUTPUT_CONTAINING_RECTANGLE)) {
+            final float[] rectangles = new float[4 * numberOfObjects];
+            for (int k = 0; k < numberOfObjects; k++) {
+                final int disp = 5 * (k + 1);
+                final int width = s[disp + opencv_imgproc.CC_STAT_WIDTH];
+                final int height = s[disp + opencv_imgproc.CC_STAT_HEIGHT];
+                rectangles[4 * k] = (float) (s[disp + opencv_imgproc.CC_STAT_LEFT] + 0.5 * (width - 1));
+                rectangles[4 * k + 1] = (float) (s[disp + opencv_imgproc.CC_STAT_TOP] + 0.5 * (height - 1));
+                rectangles[4 * k + 2] = width;
+                rectangles[4 * k + 3] = height;
+            }
+            getNumbers(OUTPUT_CONTAINING_RECTANGLE).setTo(rectangles, 4);
+        }
+    }
 }
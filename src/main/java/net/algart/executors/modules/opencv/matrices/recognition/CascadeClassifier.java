@@ -36,11 +36,17 @@ import org.bytedeco.opencv.opencv_core.Point;
 import org.bytedeco.opencv.opencv_core.*;
 
 import java.awt.*;
+import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
 
 public final class CascadeClassifier extends UMatToNumbers {
+    public static final String INPUT_ROI_RECTANGLES = "roi_rectangles";
     public static final String VISUAL_RESULTS = "visual_results";
 
     public enum ResultMarkerType {
@@ -62,8 +68,15 @@ public final class CascadeClassifier extends UMatToNumbers {
     private ResultMarkerType resultMarkerType = ResultMarkerType.RECTANGLE;
     private int drawingLineThickness = 0;
     // - zero means filling ellipse
+    private boolean parallelTiles = false;
+    private int tileSize = 0;
+    // - zero means automatic choice
+    private double suppressionOverlap = 0.5;
+
+    private ClassifierPool classifierPool = null;
 
     public CascadeClassifier() {
+        addInputNumbers(INPUT_ROI_RECTANGLES);
         addOutputMat(VISUAL_RESULTS);
     }
 
@@ -164,18 +177,45 @@ public final class CascadeClassifier extends UMatToNumbers {
         this.drawingLineThickness = nonNegative(drawingLineThickness);
     }
 
+    public boolean isParallelTiles() {
+        return parallelTiles;
+    }
+
+    public void setParallelTiles(boolean parallelTiles) {
+        this.parallelTiles = parallelTiles;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public void setTileSize(int tileSize) {
+        this.tileSize = nonNegative(tileSize);
+    }
+
+    public double getSuppressionOverlap() {
+        return suppressionOverlap;
+    }
+
+    public void setSuppressionOverlap(double suppressionOverlap) {
+        if (suppressionOverlap <= 0.0 || suppressionOverlap > 1.0) {
+            throw new IllegalArgumentException("Suppression overlap " + suppressionOverlap
+                    + " must be in range (0..1]");
+        }
+        this.suppressionOverlap = suppressionOverlap;
+    }
+
     @Override
     public SNumbers analyse(Mat source) {
-        final String file = nonEmpty(this.classifierFile, "classifier file name");
-        Path path = PathPropertyReplacement.translatePropertiesAndCurrentDirectory(file, this);
-        path = FileOperation.simplifyOSPath(path, relativizePath);
-        final List<Rectangle> rectangles;
-        try (org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier =
-                     new org.bytedeco.opencv.opencv_objdetect.CascadeClassifier(path.toString())) {
-            rectangles = classify(classifier, source);
-            logDebug(() -> "Cascade classifier found " + rectangles.size() + " objects"
-                    + " (source: " + source + ")");
-        }
+        final ClassifierPool pool = classifierPool();
+        final List<Rect> regions = regions(source.cols(), source.rows());
+        final List<Rectangle> rectangles = detect(pool, regions, (classifier, region) -> {
+            try (Mat tile = new Mat(source, region)) {
+                return classify(classifier, tile);
+            }
+        });
+        logDebug(() -> "Cascade classifier found " + rectangles.size() + " objects in "
+                + regions.size() + " regions (source: " + source + ")");
         if (isOutputNecessary(VISUAL_RESULTS)) {
             final Mat mask = drawOnInput ?
                     source.clone() :
@@ -190,16 +230,15 @@ public final class CascadeClassifier extends UMatToNumbers {
 
     @Override
     public SNumbers analyse(UMat source) {
-        final String file = nonEmpty(this.classifierFile, "classifier file name");
-        Path path = PathPropertyReplacement.translatePropertiesAndCurrentDirectory(file, this);
-        path = FileOperation.simplifyOSPath(path, relativizePath);
-        final List<Rectangle> rectangles;
-        try (org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier =
-                     new org.bytedeco.opencv.opencv_objdetect.CascadeClassifier(path.toString())) {
-            rectangles = classify(classifier, source);
-            logDebug(() -> "Cascade classifier (GPU) found " + rectangles.size() + " objects"
-                    + " (source: " + source + ")");
-        }
+        final ClassifierPool pool = classifierPool();
+        final List<Rect> regions = regions(source.cols(), source.rows());
+        final List<Rectangle> rectangles = detect(pool, regions, (classifier, region) -> {
+            try (UMat tile = new UMat(source, region)) {
+                return classify(classifier, tile);
+            }
+        });
+        logDebug(() -> "Cascade classifier (GPU) found " + rectangles.size() + " objects in "
+                + regions.size() + " regions (source: " + source + ")");
         if (isOutputNecessary(VISUAL_RESULTS)) {
             final Mat mask = drawOnInput ?
                     OTools.toMat(source) :
@@ -217,6 +256,161 @@ public final class CascadeClassifier extends UMatToNumbers {
         return VISUAL_RESULTS;
     }
 
+    @Override
+    public void close() {
+        super.close();
+        if (classifierPool != null) {
+            classifierPool.close();
+            classifierPool = null;
+        }
+    }
+
+    private ClassifierPool classifierPool() {
+        final String file = nonEmpty(this.classifierFile, "classifier file name");
+        Path path = PathPropertyReplacement.translatePropertiesAndCurrentDirectory(file, this);
+        path = FileOperation.simplifyOSPath(path, relativizePath);
+        final String classifierPath = path.toString();
+        if (classifierPool == null || !classifierPool.isActual(classifierPath)) {
+            if (classifierPool != null) {
+                classifierPool.close();
+            }
+            classifierPool = new ClassifierPool(classifierPath);
+        }
+        return classifierPool;
+    }
+
+    // Regions (tiles) for detection: ROI rectangles or the whole image, split into overlapping tiles
+    // in the parallel mode. Overlap is the maximal object size: so, every object lies entirely inside some tile.
+    private List<Rect> regions(int dimX, int dimY) {
+        final List<Rectangle> areas = new ArrayList<>();
+        final SNumbers roi = getInputNumbers(INPUT_ROI_RECTANGLES, true);
+        if (roi.isInitialized()) {
+            if (roi.getBlockLength() != 4) {
+                throw new IllegalArgumentException("ROI rectangles must contain 4 numbers per block "
+                        + "(center x, center y, width, height), but block length is " + roi.getBlockLength());
+            }
+            final int[] values = roi.toIntArray();
+            final Rectangle image = new Rectangle(0, 0, dimX, dimY);
+            for (int k = 0, n = roi.n(), disp = 0; k < n; k++, disp += 4) {
+                final int width = values[disp + 2];
+                final int height = values[disp + 3];
+                final Rectangle r = new Rectangle(
+                        values[disp] - width / 2, values[disp + 1] - height / 2, width, height)
+                        .intersection(image);
+                if (!r.isEmpty()) {
+                    areas.add(r);
+                }
+            }
+        } else {
+            areas.add(new Rectangle(0, 0, dimX, dimY));
+        }
+        final int overlap = Math.max(maxSizeX, maxSizeY);
+        if (parallelTiles && overlap == 0) {
+            logDebug(() -> "Cascade classifier cannot split image into tiles: maximal object size is not specified");
+        }
+        final List<Rect> result = new ArrayList<>();
+        for (Rectangle area : areas) {
+            if (!parallelTiles || overlap == 0) {
+                result.add(new Rect(area.x, area.y, area.width, area.height));
+                continue;
+            }
+            final int size = Math.max(this.tileSize > 0 ? this.tileSize : 4 * overlap, 2 * overlap);
+            final int step = size - overlap;
+            for (int y = area.y; ; y += step) {
+                final int height = Math.min(size, area.y + area.height - y);
+                for (int x = area.x; ; x += step) {
+                    final int width = Math.min(size, area.x + area.width - x);
+                    result.add(new Rect(x, y, width, height));
+                    if (x + width >= area.x + area.width) {
+                        break;
+                    }
+                }
+                if (y + height >= area.y + area.height) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<Rectangle> detect(ClassifierPool pool, List<Rect> regions, TileDetector detector) {
+        try {
+            if (regions.size() == 1) {
+                final org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier = pool.acquire();
+                try {
+                    return shift(detector.detect(classifier, regions.get(0)), regions.get(0));
+                } finally {
+                    pool.release(classifier);
+                }
+            }
+            final List<Rectangle> all = new ArrayList<>();
+            if (!parallelTiles) {
+                // - several ROI rectangles: OpenCV parallelizes every detectMultiScale call itself
+                final org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier = pool.acquire();
+                try {
+                    for (Rect region : regions) {
+                        all.addAll(shift(detector.detect(classifier, region), region));
+                    }
+                } finally {
+                    pool.release(classifier);
+                }
+                // ROI rectangles may overlap
+                return suppressNonMaximal(all, suppressionOverlap);
+            }
+            final List<List<Rectangle>> found = callWithReservedThreads(() ->
+                    IntStream.range(0, regions.size()).parallel().mapToObj(k -> {
+                        final org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier = pool.acquire();
+                        // - CascadeClassifier is not thread-safe: every thread uses its own instance
+                        try {
+                            return shift(detector.detect(classifier, regions.get(k)), regions.get(k));
+                        } finally {
+                            pool.release(classifier);
+                        }
+                    }).toList());
+            found.forEach(all::addAll);
+            return suppressNonMaximal(all, suppressionOverlap);
+        } finally {
+            regions.forEach(Rect::close);
+        }
+    }
+
+    private static List<Rectangle> shift(List<Rectangle> rectangles, Rect region) {
+        for (Rectangle r : rectangles) {
+            r.translate(region.x(), region.y());
+        }
+        return rectangles;
+    }
+
+    // Greedy non-maximum suppression: larger rectangles are preferred, and a rectangle is removed
+    // if its intersection with some kept rectangle is at least the given part of the smaller of them.
+    // The intersection is measured relative the smaller rectangle, because an object, cut by a tile seam,
+    // can be found partially in one tile and fully in another.
+    static List<Rectangle> suppressNonMaximal(List<Rectangle> rectangles, double overlap) {
+        final List<Rectangle> sorted = new ArrayList<>(rectangles);
+        sorted.sort(Comparator.comparingLong((Rectangle r) -> (long) r.width * (long) r.height).reversed());
+        final List<Rectangle> result = new ArrayList<>();
+        for (Rectangle r : sorted) {
+            boolean suppressed = false;
+            for (Rectangle kept : result) {
+                final Rectangle intersection = r.intersection(kept);
+                if (intersection.isEmpty()) {
+                    continue;
+                }
+                final double smallerArea = Math.min(
+                        (double) r.width * (double) r.height,
+                        (double) kept.width * (double) kept.height);
+                if ((double) intersection.width * (double) intersection.height >= overlap * smallerArea) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
     private List<Rectangle> classify(org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier, Mat mat) {
         final List<Rectangle> result = new ArrayList<>();
         try (
@@ -297,4 +491,48 @@ public final class CascadeClassifier extends UMatToNumbers {
             }
         }
     }
+
+    @FunctionalInterface
+    private interface TileDetector {
+        List<Rectangle> detect(org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier, Rect region);
+    }
+
+    // Instances of the classifier, loaded from the same file. The pool becomes not actual when the file
+    // is replaced (its modification time or length is changed): then all instances are loaded again.
+    private static final class ClassifierPool implements AutoCloseable {
+        private final String path;
+        private final long lastModified;
+        private final long length;
+        private final ConcurrentLinkedQueue<org.bytedeco.opencv.opencv_objdetect.CascadeClassifier> free =
+                new ConcurrentLinkedQueue<>();
+
+        private ClassifierPool(String path) {
+            this.path = Objects.requireNonNull(path);
+            final File file = new File(path);
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        boolean isActual(String path) {
+            final File file = new File(path);
+            return this.path.equals(path) && file.lastModified() == lastModified && file.length() == length;
+        }
+
+        org.bytedeco.opencv.opencv_objdetect.CascadeClassifier acquire() {
+            final org.bytedeco.opencv.opencv_objdetect.CascadeClassifier result = free.poll();
+            return result != null ? result : new org.bytedeco.opencv.opencv_objdetect.CascadeClassifier(path);
+        }
+
+        void release(org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier) {
+            free.add(classifier);
+        }
+
+        @Override
+        public void close() {
+            org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier;
+            while ((classifier = free.poll()) != null) {
+                classifier.close();
+            }
+        }
+    }
 }
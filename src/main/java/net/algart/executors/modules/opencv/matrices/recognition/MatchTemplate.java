@@ -25,24 +25,42 @@
 package net.algart.executors.modules.opencv.matrices.recognition;
 
 import net.algart.executors.modules.opencv.common.VoidResultTwoUMatFilter;
+import net.algart.executors.modules.opencv.util.OTools;
 import net.algart.executors.modules.opencv.util.enums.OTemplateMatchMode;
 import org.bytedeco.opencv.global.opencv_core;
 import org.bytedeco.opencv.global.opencv_imgproc;
 import org.bytedeco.opencv.opencv_core.Mat;
 import org.bytedeco.opencv.opencv_core.Point;
+import org.bytedeco.opencv.opencv_core.Rect;
 import org.bytedeco.opencv.opencv_core.UMat;
 
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
 public final class MatchTemplate extends VoidResultTwoUMatFilter {
     public static final String INPUT_TEMPLATE = "template";
     public static final String OUTPUT_X = "x";
     public static final String OUTPUT_Y = "y";
+    public static final String OUTPUT_PEAKS = "peaks";
+
+    private static final int MIN_COARSE_TEMPLATE_SIZE = 4;
+    private static final int NUMBER_OF_CANDIDATES_PER_PEAK = 2;
+    // - coarse levels can change the order of close peaks: we refine more candidates than necessary
 
     private OTemplateMatchMode templateMatchMode = OTemplateMatchMode.TM_SQDIFF;
+    private int pyramidLevels = 0;
+    private int refinementRadius = 2;
+    private int numberOfPeaks = 1;
+    private int minPeakDistance = 1;
 
     public MatchTemplate() {
         super(null, INPUT_TEMPLATE);
         addOutputScalar(OUTPUT_X);
         addOutputScalar(OUTPUT_Y);
+        addOutputNumbers(OUTPUT_PEAKS);
     }
 
     public OTemplateMatchMode getTemplateMatchMode() {
@@ -53,17 +71,56 @@ public final class MatchTemplate extends VoidResultTwoUMatFilter {
         this.templateMatchMode = nonNull(templateMatchMode);
     }
 
+    public int getPyramidLevels() {
+        return pyramidLevels;
+    }
+
+    public void setPyramidLevels(int pyramidLevels) {
+        this.pyramidLevels = nonNegative(pyramidLevels);
+    }
+
+    public int getRefinementRadius() {
+        return refinementRadius;
+    }
+
+    public void setRefinementRadius(int refinementRadius) {
+        this.refinementRadius = positive(refinementRadius);
+    }
+
+    public int getNumberOfPeaks() {
+        return numberOfPeaks;
+    }
+
+    public void setNumberOfPeaks(int numberOfPeaks) {
+        this.numberOfPeaks = positive(numberOfPeaks);
+    }
+
+    public int getMinPeakDistance() {
+        return minPeakDistance;
+    }
+
+    public void setMinPeakDistance(int minPeakDistance) {
+        this.minPeakDistance = positive(minPeakDistance);
+    }
+
     @Override
     public void process(Mat result, Mat source, Mat secondMat) {
+        if (pyramidLevels > 0) {
+            matchPyramid(result, source, secondMat);
+            return;
+        }
         opencv_imgproc.matchTemplate(source, secondMat, result, templateMatchMode.code());
+        if (isOutputNecessary(OUTPUT_PEAKS)) {
+            setPeaks(findPeaks(result, numberOfPeaks, minPeakDistance));
+            return;
+        }
         double[] minVal = new double[1];
         double[] maxVal = new double[1];
         try (Point minLocation = new Point();
              Point maxLocation = new Point()) {
             opencv_core.minMaxLoc(result, minVal, maxVal, minLocation, maxLocation, null);
             final double x, y;
-            if (templateMatchMode == OTemplateMatchMode.TM_SQDIFF
-                    || templateMatchMode == OTemplateMatchMode.TM_SQDIFF_NORMED) {
+            if (isSquareDifference()) {
                 x = minLocation.x();
                 y = minLocation.y();
             } else {
@@ -77,15 +134,30 @@ public final class MatchTemplate extends VoidResultTwoUMatFilter {
 
     @Override
     public void process(UMat result, UMat source, UMat secondMat) {
+        if (pyramidLevels > 0) {
+            // - refinement consists of many small matchings: they are faster on CPU than on GPU
+            try (Mat s = OTools.toMat(source);
+                 Mat t = OTools.toMat(secondMat);
+                 Mat r = new Mat()) {
+                matchPyramid(r, s, t);
+                r.copyTo(result);
+            }
+            return;
+        }
         opencv_imgproc.matchTemplate(source, secondMat, result, templateMatchMode.code());
+        if (isOutputNecessary(OUTPUT_PEAKS)) {
+            try (Mat r = OTools.toMat(result)) {
+                setPeaks(findPeaks(r, numberOfPeaks, minPeakDistance));
+            }
+            return;
+        }
         double[] minVal = new double[1];
         double[] maxVal = new double[1];
         try (Point minLocation = new Point();
              Point maxLocation = new Point()) {
             opencv_core.minMaxLoc(result, minVal, maxVal, minLocation, maxLocation, null);
             final double x, y;
-            if (templateMatchMode == OTemplateMatchMode.TM_SQDIFF
-                    || templateMatchMode == OTemplateMatchMode.TM_SQDIFF_NORMED) {
+            if (isSquareDifference()) {
                 x = minLocation.x();
                 y = minLocation.y();
             } else {
@@ -101,4 +173,186 @@ public final class MatchTemplate extends VoidResultTwoUMatFilter {
     protected boolean dimensionsEqualityRequired() {
         return false;
     }
+
+    // Matches the template at the coarsest pyramid level and refines the best candidates at finer levels
+    // in small windows only; the result matrix is the response map of the coarsest level.
+    private void matchPyramid(Mat result, Mat source, Mat template) {
+        final List<Mat> images = new ArrayList<>();
+        final List<Mat> templates = new ArrayList<>();
+        images.add(source);
+        templates.add(template);
+        try {
+            for (int level = 0; level < pyramidLevels; level++) {
+                final Mat image = images.get(level);
+                final Mat t = templates.get(level);
+                if (t.cols() < 2 * MIN_COARSE_TEMPLATE_SIZE || t.rows() < 2 * MIN_COARSE_TEMPLATE_SIZE) {
+                    break;
+                }
+                final Mat reducedImage = new Mat();
+                final Mat reducedTemplate = new Mat();
+                opencv_imgproc.pyrDown(image, reducedImage);
+                opencv_imgproc.pyrDown(t, reducedTemplate);
+                images.add(reducedImage);
+                templates.add(reducedTemplate);
+            }
+            final int coarsest = images.size() - 1;
+            opencv_imgproc.matchTemplate(images.get(coarsest), templates.get(coarsest), result,
+                    templateMatchMode.code());
+            List<Peak> candidates = findPeaks(result,
+                    numberOfPeaks * NUMBER_OF_CANDIDATES_PER_PEAK,
+                    Math.max(1, minPeakDistance >> coarsest));
+            for (int level = coarsest - 1; level >= 0; level--) {
+                final Mat image = images.get(level);
+                final Mat t = templates.get(level);
+                final List<Peak> refined = new ArrayList<>();
+                for (Peak candidate : candidates) {
+                    final Peak peak = refine(image, t, 2 * candidate.x, 2 * candidate.y);
+                    if (peak != null) {
+                        refined.add(peak);
+                    }
+                }
+                candidates = refined;
+            }
+            final List<Peak> peaks = selectPeaks(candidates, numberOfPeaks, minPeakDistance);
+            logDebug(() -> "Pyramid template matching: " + coarsest + " levels, coarsest response "
+                    + result.cols() + "x" + result.rows() + ", " + peaks.size() + " peaks found");
+            setPeaks(peaks);
+        } finally {
+            for (int k = 1; k < images.size(); k++) {
+                images.get(k).close();
+                templates.get(k).close();
+            }
+        }
+    }
+
+    private Peak refine(Mat image, Mat template, int centerX, int centerY) {
+        final int maxX = image.cols() - template.cols();
+        final int maxY = image.rows() - template.rows();
+        final int fromX = Math.max(0, Math.min(centerX - refinementRadius, maxX));
+        final int fromY = Math.max(0, Math.min(centerY - refinementRadius, maxY));
+        final int toX = Math.min(centerX + refinementRadius, maxX);
+        final int toY = Math.min(centerY + refinementRadius, maxY);
+        if (fromX > toX || fromY > toY) {
+            return null;
+        }
+        try (Rect rect = new Rect(fromX, fromY, toX - fromX + template.cols(), toY - fromY + template.rows());
+             Mat window = new Mat(image, rect);
+             Mat response = new Mat()) {
+            opencv_imgproc.matchTemplate(window, template, response, templateMatchMode.code());
+            final Peak best = bestLocation(response);
+            return new Peak(fromX + best.x, fromY + best.y, best.score);
+        }
+    }
+
+    // Finds up to maxNumberOfPeaks best positions, which differ at least by minDistance along x or y,
+    // in a single pass over the response (32-bit float matrix). Every found peak suppresses less than
+    // (2*minDistance-1)^2 positions, so the k-th peak is among (k-1)*(2*minDistance-1)^2+1 best positions:
+    // we collect these positions in a bounded heap and select peaks among them only.
+    private List<Peak> findPeaks(Mat response, int maxNumberOfPeaks, int minDistance) {
+        final boolean minimum = isSquareDifference();
+        final int dimX = response.cols();
+        final int dimY = response.rows();
+        final long window = Math.min(2L * minDistance - 1, dimX) * Math.min(2L * minDistance - 1, dimY);
+        final int numberOfCandidates = (int) Math.min((long) dimX * (long) dimY,
+                (maxNumberOfPeaks - 1) * window + 1);
+        final Comparator<Peak> byScore = Comparator.comparingDouble(p -> p.score);
+        final Comparator<Peak> better = (minimum ? byScore : byScore.reversed())
+                .thenComparingInt(p -> p.y).thenComparingInt(p -> p.x);
+        // - equal scores: the first position in the raster order is preferred, like in minMaxLoc
+        final PriorityQueue<Peak> candidates = new PriorityQueue<>(better.reversed());
+        // - the head is the worst candidate
+        final int step = (int) response.step1();
+        final FloatBuffer buffer = response.createBuffer();
+        final float[] row = new float[dimX];
+        for (int y = 0; y < dimY; y++) {
+            buffer.get(y * step, row);
+            for (int x = 0; x < dimX; x++) {
+                final float v = row[x];
+                if (Float.isNaN(v)) {
+                    continue;
+                }
+                if (candidates.size() >= numberOfCandidates) {
+                    final double worst = candidates.peek().score;
+                    if (minimum ? v >= worst : v <= worst) {
+                        continue;
+                        // - a later position with equal score is also worse
+                    }
+                    candidates.poll();
+                }
+                candidates.add(new Peak(x, y, v));
+            }
+        }
+        final List<Peak> sorted = new ArrayList<>(candidates);
+        sorted.sort(better);
+        return suppressClosePeaks(sorted, maxNumberOfPeaks, minDistance);
+    }
+
+    private List<Peak> selectPeaks(List<Peak> candidates, int maxNumberOfPeaks, int minDistance) {
+        final List<Peak> sorted = new ArrayList<>(candidates);
+        final Comparator<Peak> byScore = Comparator.comparingDouble(p -> p.score);
+        sorted.sort(isSquareDifference() ? byScore : byScore.reversed());
+        return suppressClosePeaks(sorted, maxNumberOfPeaks, minDistance);
+    }
+
+    // Greedy selection from the peaks, sorted from the best
+    private static List<Peak> suppressClosePeaks(List<Peak> sorted, int maxNumberOfPeaks, int minDistance) {
+        final List<Peak> result = new ArrayList<>();
+        for (Peak peak : sorted) {
+            if (result.size() >= maxNumberOfPeaks) {
+                break;
+            }
+            if (result.stream().allMatch(p ->
+                    Math.max(Math.abs(p.x - peak.x), Math.abs(p.y - peak.y)) >= minDistance)) {
+                result.add(peak);
+            }
+        }
+        return result;
+    }
+
+    private Peak bestLocation(Mat response) {
+        double[] minVal = new double[1];
+        double[] maxVal = new double[1];
+        try (Point minLocation = new Point();
+             Point maxLocation = new Point()) {
+            opencv_core.minMaxLoc(response, minVal, maxVal, minLocation, maxLocation, null);
+            return isSquareDifference() ?
+                    new Peak(minLocation.x(), minLocation.y(), minVal[0]) :
+                    new Peak(maxLocation.x(), maxLocation.y(), maxVal[0]);
+        }
+    }
+
+    private void setPeaks(List<Peak> peaks) {
+        if (!peaks.isEmpty()) {
+            getScalar(OUTPUT_X).setTo(peaks.get(0).x);
+            getScalar(OUTPUT_Y).setTo(peaks.get(0).y);
+        } else {
+            getScalar(OUTPUT_X).remove();
+            getScalar(OUTPUT_Y).remove();
+        }
+        final double[] values = new double[3 * peaks.size()];
+        for (int k = 0, disp = 0; k < peaks.size(); k++) {
+            final Peak peak = peaks.get(k);
+            values[disp++] = peak.x;
+            values[disp++] = peak.y;
+            values[disp++] = peak.score;
+        }
+        getNumbers(OUTPUT_PEAKS).setTo(values, 3);
+    }
+
+    private boolean isSquareDifference() {
+        return templateMatchMode == OTemplateMatchMode.TM_SQDIFF
+                || templateMatchMode == OTemplateMatchMode.TM_SQDIFF_NORMED;
+    }
+
+    private static final class Peak {
+        private final int x;
+        private final int y;
+        private final double score;
+
+        private Peak(int x, int y, double score) {
+            this.x = x;
+            this.y = y;
+            this.score = score;
+        }
+    }
 }
@@ -0,0 +1,573 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.matrices.statistics;
+
+import net.algart.executors.api.ReadOnlyExecutionInput;
+import net.algart.executors.api.data.SNumbers;
+import net.algart.executors.modules.cv.common.ThreadBudget;
+import net.algart.executors.modules.opencv.common.MatToNumbers;
+import net.algart.executors.modules.opencv.util.O2SMat;
+import net.algart.executors.modules.opencv.util.OTools;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Calculates several statistics of all channels in one parallel pass over the image:
+ * minimum and maximum with their locations, mean, standard deviation, histogram and percentiles.
+ * (For 32-bit integer images with automatic histogram range, the range is found by additional
+ * native <code>minMaxLoc</code> call before this pass.)
+ */
+public final class ImageStatistics extends MatToNumbers implements ReadOnlyExecutionInput {
+    public static final String INPUT_MASK = "mask";
+    public static final String OUTPUT_NUMBER_OF_PIXELS = "number_of_pixels";
+    public static final String OUTPUT_MIN = "min";
+    public static final String OUTPUT_MAX = "max";
+    public static final String OUTPUT_MIN_LOCATION = "min_location";
+    public static final String OUTPUT_MAX_LOCATION = "max_location";
+    public static final String OUTPUT_MEAN = "mean";
+    public static final String OUTPUT_STANDARD_DEVIATION = "standard_deviation";
+    public static final String OUTPUT_HISTOGRAM = "histogram";
+    public static final String OUTPUT_PERCENTILES = "percentiles";
+
+    private int histogramSize = 256;
+    private double histogramMin = 0.0;
+    private double histogramMax = 0.0;
+    // - histogramMin == histogramMax means automatic range: see automaticHistogramRange
+    private String percentileLevels = "1, 50, 99";
+    private double[] parsedPercentileLevels = {1.0, 50.0, 99.0};
+
+    public ImageStatistics() {
+        addInputMat(INPUT_MASK);
+        setDefaultOutputNumbers(OUTPUT_MEAN);
+        addOutputScalar(OUTPUT_NUMBER_OF_PIXELS);
+        addOutputNumbers(OUTPUT_MIN);
+        addOutputNumbers(OUTPUT_MAX);
+        addOutputNumbers(OUTPUT_MIN_LOCATION);
+        addOutputNumbers(OUTPUT_MAX_LOCATION);
+        addOutputNumbers(OUTPUT_STANDARD_DEVIATION);
+        addOutputNumbers(OUTPUT_HISTOGRAM);
+        addOutputNumbers(OUTPUT_PERCENTILES);
+    }
+
+    public int getHistogramSize() {
+        return histogramSize;
+    }
+
+    public ImageStatistics setHistogramSize(int histogramSize) {
+        this.histogramSize = positive(histogramSize);
+        return this;
+    }
+
+    public double getHistogramMin() {
+        return histogramMin;
+    }
+
+    public ImageStatistics setHistogramMin(double histogramMin) {
+        this.histogramMin = histogramMin;
+        return this;
+    }
+
+    public double getHistogramMax() {
+        return histogramMax;
+    }
+
+    public ImageStatistics setHistogramMax(double histogramMax) {
+        this.histogramMax = histogramMax;
+        return this;
+    }
+
+    public String getPercentileLevels() {
+        return percentileLevels;
+    }
+
+    public ImageStatistics setPercentileLevels(String percentileLevels) {
+        final String[] items = nonNull(percentileLevels).trim().split("[,;\\s]+");
+        final double[] levels = new double[items[0].isEmpty() ? 0 : items.length];
+        for (int k = 0; k < levels.length; k++) {
+            try {
+                levels[k] = Double.parseDouble(items[k]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid percentile level \"" + items[k] + "\"", e);
+            }
+            if (!(levels[k] >= 0.0 && levels[k] <= 100.0)) {
+                throw new IllegalArgumentException("Percentile level " + levels[k] + " is out of range 0..100");
+            }
+        }
+        this.percentileLevels = percentileLevels;
+        this.parsedPercentileLevels = levels;
+        return this;
+    }
+
+    @Override
+    public SNumbers analyse(Mat source) {
+        final Mat mask = O2SMat.toMat(getInputMat(INPUT_MASK, true), true);
+        if (mask != null && (mask.cols() != source.cols() || mask.rows() != source.rows())) {
+            throw new IllegalArgumentException("The mask " + mask.cols() + "x" + mask.rows()
+                    + " has other sizes than the source image " + source.cols() + "x" + source.rows());
+        }
+        if (mask != null && (mask.channels() != 1 || mask.depth() != opencv_core.CV_8U)) {
+            throw new IllegalArgumentException("The mask must be 8-bit single-channel matrix");
+        }
+        Mat mat = source;
+        Mat maskMat = mask;
+        try {
+            if (mat.depth() == opencv_core.CV_16F) {
+                mat = new Mat();
+                source.convertTo(mat, opencv_core.CV_32F);
+                // - without scaling: 16F values are already in the same range
+            } else if (!mat.isContinuous()) {
+                mat = source.clone();
+            }
+            if (maskMat != null && !maskMat.isContinuous()) {
+                maskMat = mask.clone();
+            }
+            final Statistics statistics = calculate(mat, maskMat);
+            logDebug(() -> "Image statistics of " + source + ": " + statistics.count + " pixels"
+                    + (mask != null ? " (masked)" : ""));
+            setOutputs(statistics);
+            return SNumbers.ofArray(statistics.means());
+        } finally {
+            OTools.closeFirstIfDiffersFromSecond(mat, source);
+            if (maskMat != null) {
+                OTools.closeFirstIfDiffersFromSecond(maskMat, mask);
+            }
+        }
+    }
+
+    private Statistics calculate(Mat mat, Mat mask) {
+        final int dimX = mat.cols();
+        final int dimY = mat.rows();
+        final int numberOfChannels = mat.channels();
+        final boolean integerValues = !OTools.isFloatingPoint(mat.depth());
+        final double histogramFrom;
+        final double histogramTo;
+        if (histogramMin == histogramMax) {
+            final double[] range = automaticHistogramRange(mat);
+            histogramFrom = range[0];
+            histogramTo = range[1];
+        } else {
+            histogramFrom = histogramMin;
+            histogramTo = histogramMax;
+            if (histogramTo < histogramFrom) {
+                throw new IllegalArgumentException("Histogram max " + histogramTo + " < histogram min "
+                        + histogramFrom);
+            }
+        }
+        final boolean needHistogram = isOutputNecessary(OUTPUT_HISTOGRAM) || isOutputNecessary(OUTPUT_PERCENTILES);
+        final RowReader reader = RowReader.of(mat);
+        final ByteBuffer maskBuffer = mask == null ? null : mask.createBuffer();
+        return callWithReservedThreads(() -> {
+            final int numberOfBlocks = Math.min(dimY, 4 * ThreadBudget.currentThreads());
+            // - not too many blocks: every block has its own histogram
+            return IntStream.range(0, numberOfBlocks).parallel().mapToObj(block -> {
+                final int fromY = (int) ((long) block * dimY / numberOfBlocks);
+                final int toY = (int) ((long) (block + 1) * dimY / numberOfBlocks);
+                final Statistics result = new Statistics(numberOfChannels, needHistogram ? histogramSize : 0,
+                        histogramFrom, histogramTo, integerValues);
+                final double[] row = new double[dimX * numberOfChannels];
+                final byte[] maskRow = maskBuffer == null ? null : new byte[dimX];
+                for (int y = fromY; y < toY; y++) {
+                    reader.read(y, row);
+                    if (maskRow != null) {
+                        maskBuffer.get(y * dimX, maskRow);
+                    }
+                    result.accumulateRow(row, maskRow, y);
+                }
+                return result;
+            }).reduce(Statistics::merge).orElseGet(() ->
+                    new Statistics(numberOfChannels, needHistogram ? histogramSize : 0,
+                            histogramFrom, histogramTo, integerValues));
+        });
+    }
+
+    // Range of all possible values for 8- and 16-bit images (one bar per value, if the histogram size
+    // is equal to the number of possible values), 0..1 for floating-point images, and the actual range
+    // of values for 32-bit integer images: the range of all possible int values is too large for the histogram.
+    private static double[] automaticHistogramRange(Mat mat) {
+        return switch (mat.depth()) {
+            case opencv_core.CV_8U -> new double[]{0.0, 256.0};
+            case opencv_core.CV_8S -> new double[]{-128.0, 128.0};
+            case opencv_core.CV_16U -> new double[]{0.0, 65536.0};
+            case opencv_core.CV_16S -> new double[]{-32768.0, 32768.0};
+            case opencv_core.CV_32S -> {
+                if (mat.total() == 0) {
+                    yield new double[]{0.0, 1.0};
+                }
+                final double[] minVal = new double[1];
+                final double[] maxVal = new double[1];
+                try (Mat singleChannel = mat.reshape(1)) {
+                    opencv_core.minMaxLoc(singleChannel, minVal, maxVal, null, null, null);
+                }
+                yield new double[]{minVal[0], maxVal[0] + 1.0};
+            }
+            default -> new double[]{0.0, 1.0};
+        };
+    }
+
+    private void setOutputs(Statistics statistics) {
+        final int numberOfChannels = statistics.numberOfChannels;
+        getScalar(OUTPUT_NUMBER_OF_PIXELS).setTo(statistics.count);
+        if (statistics.count == 0) {
+            // - all statistics are undefined
+            getNumbers(OUTPUT_MIN).remove();
+            getNumbers(OUTPUT_MAX).remove();
+            getNumbers(OUTPUT_MIN_LOCATION).remove();
+            getNumbers(OUTPUT_MAX_LOCATION).remove();
+            getNumbers(OUTPUT_STANDARD_DEVIATION).remove();
+            getNumbers(OUTPUT_HISTOGRAM).remove();
+            getNumbers(OUTPUT_PERCENTILES).remove();
+            return;
+        }
+        getNumbers(OUTPUT_MIN).setTo(statistics.min, 1);
+        getNumbers(OUTPUT_MAX).setTo(statistics.max, 1);
+        if (isOutputNecessary(OUTPUT_MIN_LOCATION)) {
+            getNumbers(OUTPUT_MIN_LOCATION).setTo(locations(statistics.minIndex, statistics.dimX), 2);
+        }
+        if (isOutputNecessary(OUTPUT_MAX_LOCATION)) {
+            getNumbers(OUTPUT_MAX_LOCATION).setTo(locations(statistics.maxIndex, statistics.dimX), 2);
+        }
+        getNumbers(OUTPUT_STANDARD_DEVIATION).setTo(statistics.standardDeviations(), 1);
+        if (statistics.histogram != null) {
+            if (isOutputNecessary(OUTPUT_HISTOGRAM)) {
+                final long[] histogram = new long[numberOfChannels * histogramSize];
+                for (int c = 0; c < numberOfChannels; c++) {
+                    System.arraycopy(statistics.histogram[c], 0, histogram, c * histogramSize, histogramSize);
+                }
+                getNumbers(OUTPUT_HISTOGRAM).setTo(histogram, histogramSize);
+            }
+            if (isOutputNecessary(OUTPUT_PERCENTILES) && parsedPercentileLevels.length > 0) {
+                final double[] percentiles = new double[numberOfChannels * parsedPercentileLevels.length];
+                for (int c = 0, disp = 0; c < numberOfChannels; c++) {
+                    for (double level : parsedPercentileLevels) {
+                        percentiles[disp++] = statistics.percentile(c, level);
+                    }
+                }
+                getNumbers(OUTPUT_PERCENTILES).setTo(percentiles, parsedPercentileLevels.length);
+            }
+        }
+    }
+
+    private static long[] locations(long[] indexes, int dimX) {
+        final long[] result = new long[2 * indexes.length];
+        for (int c = 0; c < indexes.length; c++) {
+            result[2 * c] = indexes[c] % dimX;
+            result[2 * c + 1] = indexes[c] / dimX;
+        }
+        return result;
+    }
+
+    // Reads a row of a continuous matrix into double[]; every thread uses absolute get methods of the shared buffer.
+    private abstract static class RowReader {
+        final int rowLength;
+
+        RowReader(Mat mat) {
+            this.rowLength = mat.cols() * mat.channels();
+        }
+
+        abstract void read(int y, double[] row);
+
+        static RowReader of(Mat mat) {
+            final Buffer buffer = mat.createBuffer();
+            final int depth = mat.depth();
+            return switch (depth) {
+                case opencv_core.CV_8U, opencv_core.CV_8S -> new RowReader(mat) {
+                    final ByteBuffer b = (ByteBuffer) buffer;
+                    final ThreadLocal<byte[]> data = ThreadLocal.withInitial(() -> new byte[rowLength]);
+
+                    @Override
+                    void read(int y, double[] row) {
+                        final byte[] a = data.get();
+                        b.get(y * rowLength, a);
+                        if (depth == opencv_core.CV_8U) {
+                            for (int k = 0; k < rowLength; k++) {
+                                row[k] = a[k] & 0xFF;
+                            }
+                        } else {
+                            for (int k = 0; k < rowLength; k++) {
+                                row[k] = a[k];
+                            }
+                        }
+                    }
+                };
+                case opencv_core.CV_16U, opencv_core.CV_16S -> new RowReader(mat) {
+                    final ShortBuffer b = (ShortBuffer) buffer;
+                    final ThreadLocal<short[]> data = ThreadLocal.withInitial(() -> new short[rowLength]);
+
+                    @Override
+                    void read(int y, double[] row) {
+                        final short[] a = data.get();
+                        b.get(y * rowLength, a);
+                        if (depth == opencv_core.CV_16U) {
+                            for (int k = 0; k < rowLength; k++) {
+                                row[k] = a[k] & 0xFFFF;
+                            }
+                        } else {
+                            for (int k = 0; k < rowLength; k++) {
+                                row[k] = a[k];
+                            }
+                        }
+                    }
+                };
+                case opencv_core.CV_32S -> new RowReader(mat) {
+                    final IntBuffer b = (IntBuffer) buffer;
+                    final ThreadLocal<int[]> data = ThreadLocal.withInitial(() -> new int[rowLength]);
+
+                    @Override
+                    void read(int y, double[] row) {
+                        final int[] a = data.get();
+                        b.get(y * rowLength, a);
+                        for (int k = 0; k < rowLength; k++) {
+                            row[k] = a[k];
+                        }
+                    }
+                };
+                case opencv_core.CV_32F -> new RowReader(mat) {
+                    final FloatBuffer b = (FloatBuffer) buffer;
+                    final ThreadLocal<float[]> data = ThreadLocal.withInitial(() -> new float[rowLength]);
+
+                    @Override
+                    void read(int y, double[] row) {
+                        final float[] a = data.get();
+                        b.get(y * rowLength, a);
+                        for (int k = 0; k < rowLength; k++) {
+                            row[k] = a[k];
+                        }
+                    }
+                };
+                case opencv_core.CV_64F -> new RowReader(mat) {
+                    final DoubleBuffer b = (DoubleBuffer) buffer;
+
+                    @Override
+                    void read(int y, double[] row) {
+                        b.get(y * rowLength, row);
+                    }
+                };
+                default -> throw new UnsupportedOperationException("Unsupported matrix depth " + depth);
+            };
+        }
+    }
+
+    static final class Statistics {
+        final int numberOfChannels;
+        final int histogramSize;
+        final double histogramFrom;
+        final double histogramTo;
+        final double histogramMultiplier;
+        final boolean oneValuePerBin;
+        int dimX = 1;
+        long count = 0;
+        final double[] min;
+        final double[] max;
+        final long[] minIndex;
+        final long[] maxIndex;
+        final double[] mean;
+        final double[] m2;
+        // - sum of squared differences from the mean (Chan algorithm: stable for large images)
+        final double[] rowMean;
+        final double[] rowM2;
+        // - work arrays: every row is accumulated separately and then merged with the previous rows
+        final long[][] histogram;
+        final long[] below;
+        final long[] above;
+        // - numbers of values outside the histogram range (including NaN): necessary for percentiles
+
+        Statistics(
+                int numberOfChannels,
+                int histogramSize,
+                double histogramFrom,
+                double histogramTo,
+                boolean integerValues) {
+            this.numberOfChannels = numberOfChannels;
+            this.histogramSize = histogramSize;
+            this.histogramFrom = histogramFrom;
+            this.histogramTo = histogramTo;
+            this.histogramMultiplier = histogramSize / (histogramTo - histogramFrom);
+            this.oneValuePerBin = integerValues && histogramMultiplier == 1.0
+                    && histogramFrom == Math.rint(histogramFrom);
+            this.min = new double[numberOfChannels];
+            this.max = new double[numberOfChannels];
+            this.minIndex = new long[numberOfChannels];
+            this.maxIndex = new long[numberOfChannels];
+            this.mean = new double[numberOfChannels];
+            this.m2 = new double[numberOfChannels];
+            this.rowMean = new double[numberOfChannels];
+            this.rowM2 = new double[numberOfChannels];
+            java.util.Arrays.fill(min, Double.POSITIVE_INFINITY);
+            java.util.Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            java.util.Arrays.fill(minIndex, Long.MAX_VALUE);
+            java.util.Arrays.fill(maxIndex, Long.MAX_VALUE);
+            this.histogram = histogramSize > 0 ? new long[numberOfChannels][histogramSize] : null;
+            this.below = new long[numberOfChannels];
+            this.above = new long[numberOfChannels];
+        }
+
+        void accumulateRow(double[] row, byte[] maskRow, int y) {
+            final int rowDimX = row.length / numberOfChannels;
+            this.dimX = rowDimX;
+            final long rowIndex = (long) y * rowDimX;
+            java.util.Arrays.fill(rowMean, 0.0);
+            java.util.Arrays.fill(rowM2, 0.0);
+            long rowCount = 0;
+            for (int x = 0, disp = 0; x < rowDimX; x++) {
+                if (maskRow != null && maskRow[x] == 0) {
+                    disp += numberOfChannels;
+                    continue;
+                }
+                rowCount++;
+                for (int c = 0; c < numberOfChannels; c++, disp++) {
+                    final double v = row[disp];
+                    if (v < min[c]) {
+                        min[c] = v;
+                        minIndex[c] = rowIndex + x;
+                    }
+                    if (v > max[c]) {
+                        max[c] = v;
+                        maxIndex[c] = rowIndex + x;
+                    }
+                    rowMean[c] += v;
+                    // - sum at this stage
+                    if (histogram != null) {
+                        final double bin = (v - histogramFrom) * histogramMultiplier;
+                        if (bin >= 0.0 && bin < histogramSize) {
+                            histogram[c][(int) bin]++;
+                        } else if (v == histogramTo) {
+                            histogram[c][histogramSize - 1]++;
+                            // - for floating-point images: maximal value 1.0 belongs to the last bin
+                        } else if (v < histogramFrom) {
+                            below[c]++;
+                        } else {
+                            above[c]++;
+                        }
+                    }
+                }
+            }
+            if (rowCount == 0) {
+                return;
+            }
+            for (int c = 0; c < numberOfChannels; c++) {
+                rowMean[c] /= rowCount;
+            }
+            for (int x = 0, disp = 0; x < rowDimX; x++) {
+                if (maskRow != null && maskRow[x] == 0) {
+                    disp += numberOfChannels;
+                    continue;
+                }
+                for (int c = 0; c < numberOfChannels; c++, disp++) {
+                    final double d = row[disp] - rowMean[c];
+                    rowM2[c] += d * d;
+                }
+            }
+            // - second pass over the row (it is still in CPU cache): more precise than sum of squares
+            for (int c = 0; c < numberOfChannels; c++) {
+                mergeMoments(c, rowCount, rowMean[c], rowM2[c]);
+            }
+            count += rowCount;
+        }
+
+        // Blocks are merged in increasing order of rows, so, the first occurrence of min/max is preserved
+        Statistics merge(Statistics other) {
+            dimX = Math.max(dimX, other.dimX);
+            if (other.count == 0) {
+                return this;
+            }
+            final long total = count + other.count;
+            for (int c = 0; c < numberOfChannels; c++) {
+                if (other.min[c] < min[c] || (other.min[c] == min[c] && other.minIndex[c] < minIndex[c])) {
+                    min[c] = other.min[c];
+                    minIndex[c] = other.minIndex[c];
+                }
+                if (other.max[c] > max[c] || (other.max[c] == max[c] && other.maxIndex[c] < maxIndex[c])) {
+                    max[c] = other.max[c];
+                    maxIndex[c] = other.maxIndex[c];
+                }
+                mergeMoments(c, other.count, other.mean[c], other.m2[c]);
+                if (histogram != null) {
+                    for (int k = 0; k < histogramSize; k++) {
+                        histogram[c][k] += other.histogram[c][k];
+                    }
+                }
+                below[c] += other.below[c];
+                above[c] += other.above[c];
+            }
+            count = total;
+            return this;
+        }
+
+        // Chan's formula for the union of this set (count values) and another set; does not change count
+        private void mergeMoments(int c, long otherCount, double otherMean, double otherM2) {
+            final double total = (double) count + (double) otherCount;
+            final double delta = otherMean - mean[c];
+            m2[c] += otherM2 + delta * delta * ((double) count * (double) otherCount / total);
+            mean[c] += delta * ((double) otherCount / total);
+        }
+
+        double[] means() {
+            return count == 0 ? new double[0] : mean.clone();
+        }
+
+        double[] standardDeviations() {
+            final double[] result = new double[numberOfChannels];
+            for (int c = 0; c < numberOfChannels; c++) {
+                result[c] = count == 0 ? Double.NaN : Math.sqrt(m2[c] / count);
+            }
+            return result;
+        }
+
+        // Percentile of all processed values by the histogram with linear interpolation inside the bin.
+        // It is exact only for integer images, when every bin corresponds to one integer value
+        // (then we do not interpolate); in other cases, its precision is the bin width.
+        // If the percentile is outside the histogram range, the nearest bound of the range is returned.
+        double percentile(int channel, double level) {
+            final long[] h = histogram[channel];
+            if (count == 0) {
+                return Double.NaN;
+            }
+            final double rank = level / 100.0 * count;
+            long sum = below[channel];
+            if (sum > 0 && sum >= rank) {
+                return histogramFrom;
+            }
+            for (int k = 0; k < histogramSize; k++) {
+                if (h[k] > 0 && sum + h[k] >= rank) {
+                    if (oneValuePerBin) {
+                        return histogramFrom + k;
+                    }
+                    final double part = Math.max(0.0, rank - sum) / h[k];
+                    return histogramFrom + (k + part) / histogramMultiplier;
+                }
+                sum += h[k];
+            }
+            return histogramTo;
+        }
+    }
+}
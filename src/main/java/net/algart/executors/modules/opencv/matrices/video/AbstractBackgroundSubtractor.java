@@ -64,6 +64,13 @@ public abstract class AbstractBackgroundSubtractor extends VoidResultUMatFilter
         return background;
     }
 
+    @Override
+    public void setAdaptiveGPU(boolean adaptiveGPU) {
+        super.setAdaptiveGPU(false);
+        // - the subtractor is stateful: its background model is stored either in Mat or in UMat buffers,
+        // so the processing path must not change from frame to frame
+    }
+
     /*Repeat() \bMat ==> UMat */
     @Override
     public void process(Mat result, Mat source) {
@@ -28,7 +28,6 @@ import net.algart.executors.api.ReadOnlyExecutionInput;
 import net.algart.executors.api.data.SNumbers;
 import net.algart.executors.modules.core.common.numbers.IndexingBase;
 import net.algart.executors.modules.core.common.numbers.SeveralNumbersOperation;
-import net.algart.executors.modules.core.numbers.misc.ValuesDistanceMetric;
 import net.algart.executors.modules.opencv.util.O2SMat;
 import net.algart.executors.modules.opencv.util.OTools;
 import org.bytedeco.opencv.global.opencv_core;
@@ -37,15 +36,24 @@ import org.bytedeco.opencv.opencv_core.Scalar;
 import org.bytedeco.opencv.opencv_core.TermCriteria;
 import org.bytedeco.opencv.opencv_core.UMat;
 
-import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 public final class KMeans extends SeveralNumbersOperation implements ReadOnlyExecutionInput {
     public static final String INPUT_LABELS = "labels";
+    public static final String INPUT_CENTERS = "centers";
     public static final String OUTPUT_LABELS = "labels";
     public static final String OUTPUT_CENTERS = "centers";
     public static final String OUTPUT_DISTANCES = "distances";
 
+    public static final int DEFAULT_MINI_BATCH_MAX_COUNT = 100;
+
+    public enum Mode {
+        FULL,
+        MINI_BATCH,
+        ASSIGN_ONLY
+    }
+
     public enum CentersMode {
         KMEANS_RANDOM_CENTERS(opencv_core.KMEANS_RANDOM_CENTERS),
         KMEANS_PP_CENTERS(opencv_core.KMEANS_PP_CENTERS);
@@ -57,20 +65,32 @@ public final class KMeans extends SeveralNumbersOperation implements ReadOnlyExe
         }
     }
 
+    private Mode mode = Mode.FULL;
     private int numberOfClusters = 1;
     private CentersMode centersMode = CentersMode.KMEANS_PP_CENTERS;
     private int attempts = 3;
     private int terminationMaxCount = 0;
     private double terminationEpsilon = 0.1;
+    private int miniBatchSize = 1024;
+    private long miniBatchRandSeed = 0;
     private IndexingBase indexingBase = IndexingBase.ONE_BASED;
 
     public KMeans() {
-        super(DEFAULT_INPUT_PORT, INPUT_LABELS);
+        super(DEFAULT_INPUT_PORT, INPUT_LABELS, INPUT_CENTERS);
         setDefaultOutputNumbers(OUTPUT_LABELS);
         addOutputNumbers(OUTPUT_CENTERS);
         addOutputNumbers(OUTPUT_DISTANCES);
     }
 
+    public Mode getMode() {
+        return mode;
+    }
+
+    public KMeans setMode(Mode mode) {
+        this.mode = nonNull(mode);
+        return this;
+    }
+
     public int getNumberOfClusters() {
         return numberOfClusters;
     }
@@ -115,6 +135,24 @@ public final class KMeans extends SeveralNumbersOperation implements ReadOnlyExe
         return this;
     }
 
+    public int getMiniBatchSize() {
+        return miniBatchSize;
+    }
+
+    public KMeans setMiniBatchSize(int miniBatchSize) {
+        this.miniBatchSize = positive(miniBatchSize);
+        return this;
+    }
+
+    public long getMiniBatchRandSeed() {
+        return miniBatchRandSeed;
+    }
+
+    public KMeans setMiniBatchRandSeed(long miniBatchRandSeed) {
+        this.miniBatchRandSeed = miniBatchRandSeed;
+        return this;
+    }
+
     public IndexingBase getIndexingBase() {
         return indexingBase;
     }
@@ -128,9 +166,25 @@ public final class KMeans extends SeveralNumbersOperation implements ReadOnlyExe
             List<SNumbers> sources,
             SNumbers resultCenters,
             SNumbers resultDistancesToCenters) {
-        return OTools.isGPUOptimizationEnabled() ?
-                processNumbersUMat(sources, resultCenters, resultDistancesToCenters) :
-                processNumbersMat(sources, resultCenters, resultDistancesToCenters);
+        final SNumbers data = sources.get(0);
+        final SNumbers centers = sources.size() > 2 ? sources.get(2) : null;
+        if (centers != null && centers.getBlockLength() != data.getBlockLength()) {
+            throw new IllegalArgumentException("Different number of dimensions in source data "
+                    + data.getBlockLength() + " and initial centers " + centers.getBlockLength());
+        }
+        return switch (mode) {
+            case FULL -> OTools.isGPUOptimizationEnabled() ?
+                    processNumbersUMat(sources, resultCenters, resultDistancesToCenters) :
+                    processNumbersMat(sources, resultCenters, resultDistancesToCenters);
+            case MINI_BATCH -> processMiniBatch(sources, resultCenters, resultDistancesToCenters);
+            case ASSIGN_ONLY -> {
+                if (centers == null) {
+                    throw new IllegalArgumentException("Centers of clusters must be specified in "
+                            + mode + " mode");
+                }
+                yield completeResults(data, null, centers.toFloatArray(), resultCenters, resultDistancesToCenters);
+            }
+        };
     }
 
     @Override
@@ -156,24 +210,13 @@ public final class KMeans extends SeveralNumbersOperation implements ReadOnlyExe
             SNumbers resultCenters,
             SNumbers resultDistancesToCenters) {
         final SNumbers data = sources.get(0);
-        final int dimCount = data.getBlockLength();
         final Mat dataMat = O2SMat.numbersToMulticolumn32BitMat(data, false);
-        final SNumbers labels = sources.get(1);
-        final Mat labelsMat;
-        if (labels == null) {
-            labelsMat = new Mat();
-        } else {
-            labelsMat = O2SMat.numbersToMulticolumn32BitMat(labels, true);
-            if (indexingBase.start != 0) {
-                try (Scalar startIndex = new Scalar((double) indexingBase.start)) {
-                    opencv_core.subtract(labelsMat, startIndex).asMat().copyTo(labelsMat);
-                }
-            }
-        }
+        final Mat labelsMat = initialLabels(sources);
+        final int numberOfClusters = numberOfClusters(sources);
         try (TermCriteria termCriteria =
                      OTools.termCriteria(terminationMaxCount, terminationEpsilon, false)) {
             final int flags = centersMode.kmeansFlag |
-                    (labels == null ? 0 : opencv_core.KMEANS_USE_INITIAL_LABELS);
+                    (labelsMat.empty() ? 0 : opencv_core.KMEANS_USE_INITIAL_LABELS);
             Mat centersMat = new Mat();
             logDebug(() -> "KMeans array segmentation: K = " + numberOfClusters
                     + ", attempts = " + attempts
@@ -181,49 +224,12 @@ public final class KMeans extends SeveralNumbersOperation implements ReadOnlyExe
                     + ", epsilon = " + termCriteria.epsilon()
                     + ", flags = " + flags);
             opencv_core.kmeans(dataMat, numberOfClusters, labelsMat, termCriteria, attempts, flags, centersMat);
-            final SNumbers resultLabels = O2SMat.multicolumnMatToNumbers(labelsMat);
-            if (resultLabels.getBlockLength() != 1) {
-                throw new AssertionError("Strange kmeans behaviour: it returned matrix with "
-                        + resultLabels.getBlockLength() + "!=1 columns");
-            }
-            final int numberOfLabels = resultLabels.n();
-            if (data.n() != numberOfLabels) {
-                throw new AssertionError("Strange kmeans behaviour: different number of labels "
-                        + numberOfLabels + " and data " + data.n());
-            }
-            final SNumbers centers = O2SMat.multicolumnMatToNumbers(centersMat);
-            if (resultCenters != null) {
-                resultCenters.setTo(centers);
-            }
-            if (resultDistancesToCenters != null) {
-                if (centers.getBlockLength() != dimCount) {
-                    throw new AssertionError("Strange kmeans behaviour: different number of dimensions "
-                            + "in source data " + dimCount + " and cluster centers " + centers.getBlockLength());
-                }
-                final int numberOfCenters = centers.n();
-                final float[] distances = new float[data.n()];
-                final double[] weights = new double[dimCount];
-                Arrays.fill(weights, 1.0);
-                final double[] a = new double[dimCount];
-                final double[] b = new double[dimCount];
-                for (int k = 0; k < distances.length; k++) {
-                    int label = (int) resultLabels.getValue(k);
-                    if (label < 0 || label >= numberOfCenters) {
-                        throw new AssertionError("Strange kmeans behaviour: it returned label " + label
-                                + ", which is out of range 0..number_of_result_clusters-1=" + (numberOfCenters - 1));
-                    }
-                    data.getBlockDoubleValues(k, a);
-                    centers.getBlockDoubleValues(label, b);
-                    distances[k] = (float) ValuesDistanceMetric.EUCLIDEAN.distance(a, b, weights);
-                }
-                resultDistancesToCenters.setTo(distances, 1);
-            }
-            if (indexingBase.start != 0) {
-                for (int k = 0; k < numberOfLabels; k++) {
-                    resultLabels.setValue(k, resultLabels.getValue(k) + indexingBase.start);
-                }
-            }
-            return resultLabels;
+            return completeResults(
+                    data,
+                    O2SMat.multicolumnMatToNumbers(labelsMat),
+                    O2SMat.multicolumnMatToNumbers(centersMat).toFloatArray(),
+                    resultCenters,
+                    resultDistancesToCenters);
         }
     }
 
@@ -232,28 +238,18 @@ public final class KMeans extends SeveralNumbersOperation implements ReadOnlyExe
             SNumbers resultCenters,
             SNumbers resultDistancesToCenters) {
         final SNumbers data = sources.get(0);
-        final int dimCount = data.getBlockLength();
         final UMat dataUMat = OTools.toUMat(O2SMat.numbersToMulticolumn32BitMat(data, false));
-        final SNumbers labels = sources.get(1);
         final UMat labelsUMat;
-        if (labels == null) {
-            labelsUMat = new UMat();
-        } else {
-            try (Mat labelsMat = O2SMat.numbersToMulticolumn32BitMat(labels, true)) {
-                if (indexingBase.start != 0) {
-                    try (Scalar startIndex = new Scalar((double) indexingBase.start)) {
-                        opencv_core.subtract(labelsMat, startIndex).asMat().copyTo(labelsMat);
-                    }
-                }
-                labelsUMat = OTools.toUMat(labelsMat);
-            }
+        try (Mat labelsMat = initialLabels(sources)) {
+            labelsUMat = labelsMat.empty() ? new UMat() : OTools.toUMat(labelsMat);
         }
+        final int numberOfClusters = numberOfClusters(sources);
         UMat centersUMat = null;
         try {
             try (TermCriteria termCriteria =
                          OTools.termCriteria(terminationMaxCount, terminationEpsilon, false)) {
                 final int flags = centersMode.kmeansFlag |
-                        (labels == null ? 0 : opencv_core.KMEANS_USE_INITIAL_LABELS);
+                        (labelsUMat.empty() ? 0 : opencv_core.KMEANS_USE_INITIAL_LABELS);
                 centersUMat = new UMat();
                 logDebug(() -> "KMeans array segmentation (GPU): K = " + numberOfClusters
                         + ", attempts = " + attempts
@@ -261,49 +257,12 @@ public final class KMeans extends SeveralNumbersOperation implements ReadOnlyExe
                         + ", epsilon = " + termCriteria.epsilon()
                         + ", flags = " + flags);
                 opencv_core.kmeans(dataUMat, numberOfClusters, labelsUMat, termCriteria, attempts, flags, centersUMat);
-                final SNumbers resultLabels = O2SMat.multicolumnMatToNumbers(labelsUMat);
-                if (resultLabels.getBlockLength() != 1) {
-                    throw new AssertionError("Strange kmeans behaviour: it returned matrix with "
-                            + resultLabels.getBlockLength() + "!=1 columns");
-                }
-                final int numberOfLabels = resultLabels.n();
-                if (data.n() != numberOfLabels) {
-                    throw new AssertionError("Strange kmeans behaviour: different number of labels "
-                            + numberOfLabels + " and data " + data.n());
-                }
-                final SNumbers centers = O2SMat.multicolumnMatToNumbers(centersUMat);
-                if (resultCenters != null) {
-                    resultCenters.setTo(centers);
-                }
-                if (resultDistancesToCenters != null) {
-                    if (centers.getBlockLength() != dimCount) {
-                        throw new AssertionError("Strange kmeans behaviour: different number of dimensions "
-                                + "in source data " + dimCount + " and cluster centers " + centers.getBlockLength());
-                    }
-                    final int numberOfCenters = centers.n();
-                    final float[] distances = new float[data.n()];
-                    final double[] weights = new double[dimCount];
-                    Arrays.fill(weights, 1.0);
-                    final double[] a = new double[dimCount];
-                    final double[] b = new double[dimCount];
-                    for (int k = 0; k < distances.length; k++) {
-                        int label = (int) resultLabels.getValue(k);
-                        if (label < 0 || label >= numberOfCenters) {
-                            throw new AssertionError("Strange kmeans behaviour: it returned label " + label
-                                    + ", which is out of range 0..number_of_result_clusters-1=" + (numberOfCenters - 1));
-                        }
-                        data.getBlockDoubleValues(k, a);
-                        centers.getBlockDoubleValues(label, b);
-                        distances[k] = (float) ValuesDistanceMetric.EUCLIDEAN.distance(a, b, weights);
-                    }
-                    resultDistancesToCenters.setTo(distances, 1);
-                }
-                if (indexingBase.start != 0) {
-                    for (int k = 0; k < numberOfLabels; k++) {
-                        resultLabels.setValue(k, resultLabels.getValue(k) + indexingBase.start);
-                    }
-                }
-                return resultLabels;
+                return completeResults(
+                        data,
+                        O2SMat.multicolumnMatToNumbers(labelsUMat),
+                        O2SMat.multicolumnMatToNumbers(centersUMat).toFloatArray(),
+                        resultCenters,
+                        resultDistancesToCenters);
             }
         } finally {
             if (centersUMat != null) {
@@ -312,4 +271,143 @@ public final class KMeans extends SeveralNumbersOperation implements ReadOnlyExe
             labelsUMat.close();
         }
     }
+
+    private SNumbers processMiniBatch(
+            List<SNumbers> sources,
+            SNumbers resultCenters,
+            SNumbers resultDistancesToCenters) {
+        final SNumbers data = sources.get(0);
+        final SNumbers labels = sources.get(1);
+        final SNumbers centers = sources.size() > 2 ? sources.get(2) : null;
+        final int dimCount = data.getBlockLength();
+        final MiniBatchKMeans kMeans = new MiniBatchKMeans(data.getArray(), dimCount, data.n(), miniBatchRandSeed);
+        if (centers != null) {
+            kMeans.setCenters(centers.toFloatArray());
+        } else if (labels != null) {
+            kMeans.setCenters(centersOfLabelled(data, labels));
+        } else {
+            kMeans.chooseCenters(
+                    numberOfClusters,
+                    Math.max(miniBatchSize, 10 * numberOfClusters),
+                    centersMode == CentersMode.KMEANS_PP_CENTERS);
+        }
+        final int maxCount = terminationMaxCount > 0 ? terminationMaxCount : DEFAULT_MINI_BATCH_MAX_COUNT;
+        long t1 = debugTime();
+        kMeans.iterate(miniBatchSize, maxCount, terminationEpsilon);
+        long t2 = debugTime();
+        logDebug(() -> String.format(Locale.US,
+                "Mini-batch KMeans: K = %d, batch size = %d, %d iterations from maximum %d, epsilon = %s: %.3f ms",
+                kMeans.centers().length / dimCount, miniBatchSize, kMeans.numberOfIterations(), maxCount,
+                terminationEpsilon, (t2 - t1) * 1e-6));
+        return completeResults(data, null, kMeans.centers(), resultCenters, resultDistancesToCenters);
+    }
+
+    private SNumbers completeResults(
+            SNumbers data,
+            SNumbers labels,
+            float[] centers,
+            SNumbers resultCenters,
+            SNumbers resultDistancesToCenters) {
+        final int dimCount = data.getBlockLength();
+        if (centers.length % dimCount != 0) {
+            throw new AssertionError("Strange kmeans behaviour: number of elements in cluster centers "
+                    + centers.length + " is not divisible by the number of dimensions " + dimCount);
+        }
+        final int[] resultLabels;
+        final float[] distances = resultDistancesToCenters != null ? new float[data.n()] : null;
+        if (labels == null) {
+            // - labels should be found by nearest centers
+            resultLabels = new int[data.n()];
+            KMeansAssignment.assignToNearest(data.getArray(), dimCount, centers, resultLabels, distances);
+        } else {
+            if (labels.getBlockLength() != 1) {
+                throw new AssertionError("Strange kmeans behaviour: it returned matrix with "
+                        + labels.getBlockLength() + "!=1 columns");
+            }
+            if (data.n() != labels.n()) {
+                throw new AssertionError("Strange kmeans behaviour: different number of labels "
+                        + labels.n() + " and data " + data.n());
+            }
+            resultLabels = labels.toIntArray();
+            if (distances != null) {
+                KMeansAssignment.distancesToLabelled(data.getArray(), dimCount, centers, resultLabels, distances);
+            }
+        }
+        if (resultCenters != null) {
+            resultCenters.setTo(centers, dimCount);
+        }
+        if (distances != null) {
+            resultDistancesToCenters.setTo(distances, 1);
+        }
+        if (indexingBase.start != 0) {
+            for (int k = 0; k < resultLabels.length; k++) {
+                resultLabels[k] += indexingBase.start;
+            }
+        }
+        return SNumbers.ofArray(resultLabels, 1);
+    }
+
+    private int numberOfClusters(List<SNumbers> sources) {
+        final SNumbers centers = sources.size() > 2 ? sources.get(2) : null;
+        return centers != null ? centers.n() : numberOfClusters;
+    }
+
+    // Returns zero-based labels, or empty Mat if there are no initial labels
+    private Mat initialLabels(List<SNumbers> sources) {
+        final SNumbers data = sources.get(0);
+        final SNumbers labels = sources.get(1);
+        final SNumbers centers = sources.size() > 2 ? sources.get(2) : null;
+        if (centers != null) {
+            // - warm start: OpenCV kmeans cannot use initial centers, but we can assign points to them
+            final int[] nearest = new int[data.n()];
+            KMeansAssignment.assignToNearest(
+                    data.getArray(), data.getBlockLength(), centers.toFloatArray(), nearest, null);
+            return O2SMat.numbersToMulticolumn32BitMat(SNumbers.ofArray(nearest, 1), true);
+        }
+        if (labels == null) {
+            return new Mat();
+        }
+        final Mat labelsMat = O2SMat.numbersToMulticolumn32BitMat(labels, true);
+        if (indexingBase.start != 0) {
+            try (Scalar startIndex = new Scalar((double) indexingBase.start)) {
+                opencv_core.subtract(labelsMat, startIndex).asMat().copyTo(labelsMat);
+            }
+        }
+        return labelsMat;
+    }
+
+    private float[] centersOfLabelled(SNumbers data, SNumbers labels) {
+        if (labels.n() != data.n()) {
+            throw new IllegalArgumentException("Different number of initial labels " + labels.n()
+                    + " and data " + data.n());
+        }
+        final int dimCount = data.getBlockLength();
+        final int[] zeroBased = labels.toIntArray();
+        int k = 0;
+        for (int i = 0; i < zeroBased.length; i++) {
+            zeroBased[i] -= indexingBase.start;
+            if (zeroBased[i] < 0) {
+                throw new IllegalArgumentException("Negative initial label " + labels.getValue(i)
+                        + " (indexing base " + indexingBase.start + ")");
+            }
+            k = Math.max(k, zeroBased[i] + 1);
+        }
+        final double[] sums = new double[k * dimCount];
+        final int[] counts = new int[k];
+        final double[] point = new double[dimCount];
+        for (int i = 0; i < zeroBased.length; i++) {
+            final int label = zeroBased[i];
+            data.getBlockDoubleValues(i, point);
+            for (int j = 0; j < dimCount; j++) {
+                sums[label * dimCount + j] += point[j];
+            }
+            counts[label]++;
+        }
+        final float[] result = new float[sums.length];
+        for (int i = 0; i < result.length; i++) {
+            final int count = counts[i / dimCount];
+            result[i] = count == 0 ? 0.0f : (float) (sums[i] / count);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,515 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.numbers.misc;
+
+import java.util.stream.IntStream;
+
+// Parallel assignment of points (blocks of SNumbers Java array) to the nearest centers of clusters;
+// squared distances are accumulated in double: float sums lose precision for large int/long/double values
+final class KMeansAssignment {
+    private KMeansAssignment() {
+    }
+
+    static void assignToNearest(Object data, int dimCount, float[] centers, int[] labels, float[] distances) {
+        checkArguments(dimCount, centers, labels, distances);
+        if (data instanceof byte[]) {
+            assignForByte((byte[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof short[]) {
+            assignForShort((short[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof int[]) {
+            assignForInt((int[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof long[]) {
+            assignForLong((long[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof float[]) {
+            assignForFloat((float[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof double[]) {
+            assignForDouble((double[]) data, dimCount, centers, labels, distances);
+        } else {
+            throw new IllegalArgumentException("Unsupported data array " + data);
+        }
+    }
+
+    static void distancesToLabelled(Object data, int dimCount, float[] centers, int[] labels, float[] distances) {
+        checkArguments(dimCount, centers, labels, distances);
+        if (data instanceof byte[]) {
+            distancesForByte((byte[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof short[]) {
+            distancesForShort((short[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof int[]) {
+            distancesForInt((int[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof long[]) {
+            distancesForLong((long[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof float[]) {
+            distancesForFloat((float[]) data, dimCount, centers, labels, distances);
+        } else if (data instanceof double[]) {
+            distancesForDouble((double[]) data, dimCount, centers, labels, distances);
+        } else {
+            throw new IllegalArgumentException("Unsupported data array " + data);
+        }
+    }
+
+    // Copies points with the given indexes into result (block length = dimCount)
+    static void copyPoints(Object data, int dimCount, int[] indexes, float[] result) {
+        if (result.length < (long) indexes.length * dimCount) {
+            throw new IllegalArgumentException("Too short result array");
+        }
+        if (data instanceof byte[]) {
+            copyPointsForByte((byte[]) data, dimCount, indexes, result);
+        } else if (data instanceof short[]) {
+            copyPointsForShort((short[]) data, dimCount, indexes, result);
+        } else if (data instanceof int[]) {
+            copyPointsForInt((int[]) data, dimCount, indexes, result);
+        } else if (data instanceof long[]) {
+            copyPointsForLong((long[]) data, dimCount, indexes, result);
+        } else if (data instanceof float[]) {
+            copyPointsForFloat((float[]) data, dimCount, indexes, result);
+        } else if (data instanceof double[]) {
+            copyPointsForDouble((double[]) data, dimCount, indexes, result);
+        } else {
+            throw new IllegalArgumentException("Unsupported data array " + data);
+        }
+    }
+
+    private static void checkArguments(int dimCount, float[] centers, int[] labels, float[] distances) {
+        if (dimCount <= 0) {
+            throw new IllegalArgumentException("Zero or negative number of dimensions " + dimCount);
+        }
+        if (centers.length == 0 || centers.length % dimCount != 0) {
+            throw new IllegalArgumentException("Length of centers array " + centers.length
+                    + " is not a positive multiple of the number of dimensions " + dimCount);
+        }
+        if (distances != null && distances.length != labels.length) {
+            throw new IllegalArgumentException("Different lengths of labels and distances arrays");
+        }
+    }
+
+    /*Repeat() byte ==> short,,int,,long,,float,,double;;
+               Byte ==> Short,,Int,,Long,,Float,,Double;;
+               (data\[[^\]]+\]) \& 0xFF ==> $1 & 0xFFFF,,$1,,$1,,$1,,$1 */
+    private static void assignForByte(
+            byte[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                double bestDistance = Double.POSITIVE_INFINITY;
+                int bestIndex = 0;
+                for (int c = 0, centerDisp = 0; c < numberOfCenters; c++) {
+                    double sum = 0.0;
+                    for (int j = 0; j < dimCount; j++, centerDisp++) {
+                        final double d = (double) (data[disp + j] & 0xFF) - centers[centerDisp];
+                        sum += d * d;
+                    }
+                    if (sum < bestDistance) {
+                        bestDistance = sum;
+                        bestIndex = c;
+                    }
+                }
+                labels[i] = bestIndex;
+                if (distances != null) {
+                    distances[i] = (float) Math.sqrt(bestDistance);
+                }
+            }
+        });
+    }
+
+    private static void distancesForByte(
+            byte[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                final int label = labels[i];
+                if (label < 0 || label >= numberOfCenters) {
+                    throw new IllegalArgumentException("Label " + label
+                            + " is out of range 0..number_of_clusters-1=" + (numberOfCenters - 1));
+                }
+                double sum = 0.0;
+                for (int j = 0, centerDisp = label * dimCount; j < dimCount; j++, centerDisp++) {
+                    final double d = (double) (data[disp + j] & 0xFF) - centers[centerDisp];
+                    sum += d * d;
+                }
+                distances[i] = (float) Math.sqrt(sum);
+            }
+        });
+    }
+
+    private static void copyPointsForByte(byte[] data, int dimCount, int[] indexes, float[] result) {
+        for (int k = 0, resultDisp = 0; k < indexes.length; k++) {
+            for (int j = 0, disp = indexes[k] * dimCount; j < dimCount; j++, disp++, resultDisp++) {
+                result[resultDisp] = (float) (data[disp] & 0xFF);
+            }
+        }
+    }
+    /*Repeat.AutoGeneratedStart !! Auto-generated: NOT EDIT !! */
+    private static void assignForShort(
+            short[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                double bestDistance = Double.POSITIVE_INFINITY;
+                int bestIndex = 0;
+                for (int c = 0, centerDisp = 0; c < numberOfCenters; c++) {
+                    double sum = 0.0;
+                    for (int j = 0; j < dimCount; j++, centerDisp++) {
+                        final double d = (double) (data[disp + j] & 0xFFFF) - centers[centerDisp];
+                        sum += d * d;
+                    }
+                    if (sum < bestDistance) {
+                        bestDistance = sum;
+                        bestIndex = c;
+                    }
+                }
+                labels[i] = bestIndex;
+                if (distances != null) {
+                    distances[i] = (float) Math.sqrt(bestDistance);
+                }
+            }
+        });
+    }
+
+    private static void distancesForShort(
+            short[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                final int label = labels[i];
+                if (label < 0 || label >= numberOfCenters) {
+                    throw new IllegalArgumentException("Label " + label
+                            + " is out of range 0..number_of_clusters-1=" + (numberOfCenters - 1));
+                }
+                double sum = 0.0;
+                for (int j = 0, centerDisp = label * dimCount; j < dimCount; j++, centerDisp++) {
+                    final double d = (double) (data[disp + j] & 0xFFFF) - centers[centerDisp];
+                    sum += d * d;
+                }
+                distances[i] = (float) Math.sqrt(sum);
+            }
+        });
+    }
+
+    private static void copyPointsForShort(short[] data, int dimCount, int[] indexes, float[] result) {
+        for (int k = 0, resultDisp = 0; k < indexes.length; k++) {
+            for (int j = 0, disp = indexes[k] * dimCount; j < dimCount; j++, disp++, resultDisp++) {
+                result[resultDisp] = (float) (data[disp] & 0xFFFF);
+            }
+        }
+    }
+    private static void assignForInt(
+            int[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                double bestDistance = Double.POSITIVE_INFINITY;
+                int bestIndex = 0;
+                for (int c = 0, centerDisp = 0; c < numberOfCenters; c++) {
+                    double sum = 0.0;
+                    for (int j = 0; j < dimCount; j++, centerDisp++) {
+                        final double d = (double) (data[disp + j]) - centers[centerDisp];
+                        sum += d * d;
+                    }
+                    if (sum < bestDistance) {
+                        bestDistance = sum;
+                        bestIndex = c;
+                    }
+                }
+                labels[i] = bestIndex;
+                if (distances != null) {
+                    distances[i] = (float) Math.sqrt(bestDistance);
+                }
+            }
+        });
+    }
+
+    private static void distancesForInt(
+            int[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                final int label = labels[i];
+                if (label < 0 || label >= numberOfCenters) {
+                    throw new IllegalArgumentException("Label " + label
+                            + " is out of range 0..number_of_clusters-1=" + (numberOfCenters - 1));
+                }
+                double sum = 0.0;
+                for (int j = 0, centerDisp = label * dimCount; j < dimCount; j++, centerDisp++) {
+                    final double d = (double) (data[disp + j]) - centers[centerDisp];
+                    sum += d * d;
+                }
+                distances[i] = (float) Math.sqrt(sum);
+            }
+        });
+    }
+
+    private static void copyPointsForInt(int[] data, int dimCount, int[] indexes, float[] result) {
+        for (int k = 0, resultDisp = 0; k < indexes.length; k++) {
+            for (int j = 0, disp = indexes[k] * dimCount; j < dimCount; j++, disp++, resultDisp++) {
+                result[resultDisp] = (float) (data[disp]);
+            }
+        }
+    }
+    private static void assignForLong(
+            long[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                double bestDistance = Double.POSITIVE_INFINITY;
+                int bestIndex = 0;
+                for (int c = 0, centerDisp = 0; c < numberOfCenters; c++) {
+                    double sum = 0.0;
+                    for (int j = 0; j < dimCount; j++, centerDisp++) {
+                        final double d = (double) (data[disp + j]) - centers[centerDisp];
+                        sum += d * d;
+                    }
+                    if (sum < bestDistance) {
+                        bestDistance = sum;
+                        bestIndex = c;
+                    }
+                }
+                labels[i] = bestIndex;
+                if (distances != null) {
+                    distances[i] = (float) Math.sqrt(bestDistance);
+                }
+            }
+        });
+    }
+
+    private static void distancesForLong(
+            long[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                final int label = labels[i];
+                if (label < 0 || label >= numberOfCenters) {
+                    throw new IllegalArgumentException("Label " + label
+                            + " is out of range 0..number_of_clusters-1=" + (numberOfCenters - 1));
+                }
+                double sum = 0.0;
+                for (int j = 0, centerDisp = label * dimCount; j < dimCount; j++, centerDisp++) {
+                    final double d = (double) (data[disp + j]) - centers[centerDisp];
+                    sum += d * d;
+                }
+                distances[i] = (float) Math.sqrt(sum);
+            }
+        });
+    }
+
+    private static void copyPointsForLong(long[] data, int dimCount, int[] indexes, float[] result) {
+        for (int k = 0, resultDisp = 0; k < indexes.length; k++) {
+            for (int j = 0, disp = indexes[k] * dimCount; j < dimCount; j++, disp++, resultDisp++) {
+                result[resultDisp] = (float) (data[disp]);
+            }
+        }
+    }
+    private static void assignForFloat(
+            float[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                double bestDistance = Double.POSITIVE_INFINITY;
+                int bestIndex = 0;
+                for (int c = 0, centerDisp = 0; c < numberOfCenters; c++) {
+                    double sum = 0.0;
+                    for (int j = 0; j < dimCount; j++, centerDisp++) {
+                        final double d = (double) (data[disp + j]) - centers[centerDisp];
+                        sum += d * d;
+                    }
+                    if (sum < bestDistance) {
+                        bestDistance = sum;
+                        bestIndex = c;
+                    }
+                }
+                labels[i] = bestIndex;
+                if (distances != null) {
+                    distances[i] = (float) Math.sqrt(bestDistance);
+                }
+            }
+        });
+    }
+
+    private static void distancesForFloat(
+            float[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                final int label = labels[i];
+                if (label < 0 || label >= numberOfCenters) {
+                    throw new IllegalArgumentException("Label " + label
+                            + " is out of range 0..number_of_clusters-1=" + (numberOfCenters - 1));
+                }
+                double sum = 0.0;
+                for (int j = 0, centerDisp = label * dimCount; j < dimCount; j++, centerDisp++) {
+                    final double d = (double) (data[disp + j]) - centers[centerDisp];
+                    sum += d * d;
+                }
+                distances[i] = (float) Math.sqrt(sum);
+            }
+        });
+    }
+
+    private static void copyPointsForFloat(float[] data, int dimCount, int[] indexes, float[] result) {
+        for (int k = 0, resultDisp = 0; k < indexes.length; k++) {
+            for (int j = 0, disp = indexes[k] * dimCount; j < dimCount; j++, disp++, resultDisp++) {
+                result[resultDisp] = (float) (data[disp]);
+            }
+        }
+    }
+    private static void assignForDouble(
+            double[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                double bestDistance = Double.POSITIVE_INFINITY;
+                int bestIndex = 0;
+                for (int c = 0, centerDisp = 0; c < numberOfCenters; c++) {
+                    double sum = 0.0;
+                    for (int j = 0; j < dimCount; j++, centerDisp++) {
+                        final double d = (double) (data[disp + j]) - centers[centerDisp];
+                        sum += d * d;
+                    }
+                    if (sum < bestDistance) {
+                        bestDistance = sum;
+                        bestIndex = c;
+                    }
+                }
+                labels[i] = bestIndex;
+                if (distances != null) {
+                    distances[i] = (float) Math.sqrt(bestDistance);
+                }
+            }
+        });
+    }
+
+    private static void distancesForDouble(
+            double[] data,
+            int dimCount,
+            float[] centers,
+            int[] labels,
+            float[] distances) {
+        final int n = labels.length;
+        final int numberOfCenters = centers.length / dimCount;
+        IntStream.range(0, (n + 255) >>> 8).parallel().forEach(block -> {
+            // Note: splitting to blocks helps to provide normal speed
+            for (int i = block << 8, to = (int) Math.min((long) i + 256, n); i < to; i++) {
+                final int disp = i * dimCount;
+                final int label = labels[i];
+                if (label < 0 || label >= numberOfCenters) {
+                    throw new IllegalArgumentException("Label " + label
+                            + " is out of range 0..number_of_clusters-1=" + (numberOfCenters - 1));
+                }
+                double sum = 0.0;
+                for (int j = 0, centerDisp = label * dimCount; j < dimCount; j++, centerDisp++) {
+                    final double d = (double) (data[disp + j]) - centers[centerDisp];
+                    sum += d * d;
+                }
+                distances[i] = (float) Math.sqrt(sum);
+            }
+        });
+    }
+
+    private static void copyPointsForDouble(double[] data, int dimCount, int[] indexes, float[] result) {
+        for (int k = 0, resultDisp = 0; k < indexes.length; k++) {
+            for (int j = 0, disp = indexes[k] * dimCount; j < dimCount; j++, disp++, resultDisp++) {
+                result[resultDisp] = (float) (data[disp]);
+            }
+        }
+    }
+    /*Repeat.AutoGeneratedEnd*/
+}
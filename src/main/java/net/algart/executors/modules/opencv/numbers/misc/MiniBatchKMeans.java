@@ -0,0 +1,172 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.numbers.misc;
+
+import java.util.Random;
+
+// Mini-batch k-means (D. Sculley, "Web-scale k-means clustering", 2010):
+// every iteration moves the centers towards the points of a small random batch with per-center learning rate.
+final class MiniBatchKMeans {
+    private final Object data;
+    private final int dimCount;
+    private final int n;
+    private final Random random;
+    private float[] centers = null;
+    private int numberOfClusters = 0;
+    private int numberOfIterations = 0;
+
+    MiniBatchKMeans(Object data, int dimCount, int n, long randSeed) {
+        if (dimCount <= 0) {
+            throw new IllegalArgumentException("Zero or negative number of dimensions " + dimCount);
+        }
+        if (n <= 0) {
+            throw new IllegalArgumentException("Empty data");
+        }
+        this.data = data;
+        this.dimCount = dimCount;
+        this.n = n;
+        this.random = randSeed == 0 ? new Random() : new Random(randSeed);
+    }
+
+    float[] centers() {
+        return centers;
+    }
+
+    int numberOfIterations() {
+        return numberOfIterations;
+    }
+
+    void setCenters(float[] centers) {
+        if (centers.length == 0 || centers.length % dimCount != 0) {
+            throw new IllegalArgumentException("Length of centers array " + centers.length
+                    + " is not a positive multiple of the number of dimensions " + dimCount);
+        }
+        this.centers = centers.clone();
+        this.numberOfClusters = centers.length / dimCount;
+    }
+
+    // Chooses initial centers in a random subset of the points; k-means++ or random points
+    void chooseCenters(int numberOfClusters, int subsetSize, boolean plusPlus) {
+        if (numberOfClusters <= 0) {
+            throw new IllegalArgumentException("Zero or negative number of clusters " + numberOfClusters);
+        }
+        final int m = Math.min(n, Math.max(subsetSize, numberOfClusters));
+        final float[] subset = new float[m * dimCount];
+        KMeansAssignment.copyPoints(data, dimCount, randomIndexes(m), subset);
+        final float[] result = new float[numberOfClusters * dimCount];
+        if (!plusPlus) {
+            for (int c = 0; c < numberOfClusters; c++) {
+                System.arraycopy(subset, random.nextInt(m) * dimCount, result, c * dimCount, dimCount);
+            }
+        } else {
+            final double[] minDistances = new double[m];
+            System.arraycopy(subset, random.nextInt(m) * dimCount, result, 0, dimCount);
+            for (int i = 0; i < m; i++) {
+                minDistances[i] = squaredDistance(subset, i * dimCount, result, 0);
+            }
+            for (int c = 1; c < numberOfClusters; c++) {
+                double sum = 0.0;
+                for (double d : minDistances) {
+                    sum += d;
+                }
+                int chosen = m - 1;
+                double threshold = random.nextDouble() * sum;
+                for (int i = 0; i < m; i++) {
+                    threshold -= minDistances[i];
+                    if (threshold <= 0.0) {
+                        chosen = i;
+                        break;
+                    }
+                }
+                final int centerDisp = c * dimCount;
+                System.arraycopy(subset, chosen * dimCount, result, centerDisp, dimCount);
+                for (int i = 0; i < m; i++) {
+                    minDistances[i] = Math.min(minDistances[i],
+                            squaredDistance(subset, i * dimCount, result, centerDisp));
+                }
+            }
+        }
+        setCenters(result);
+    }
+
+    void iterate(int batchSize, int maxIterations, double epsilon) {
+        if (centers == null) {
+            throw new IllegalStateException("Initial centers are not set");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Zero or negative batch size " + batchSize);
+        }
+        final int b = Math.min(batchSize, n);
+        final float[] batch = new float[b * dimCount];
+        final int[] batchLabels = new int[b];
+        final long[] counts = new long[numberOfClusters];
+        final float[] previousCenters = new float[centers.length];
+        final double epsilonSquare = epsilon * epsilon;
+        numberOfIterations = 0;
+        while (numberOfIterations < maxIterations) {
+            KMeansAssignment.copyPoints(data, dimCount, randomIndexes(b), batch);
+            KMeansAssignment.assignToNearest(batch, dimCount, centers, batchLabels, null);
+            System.arraycopy(centers, 0, previousCenters, 0, centers.length);
+            for (int k = 0, disp = 0; k < b; k++) {
+                final int label = batchLabels[k];
+                final float learningRate = 1.0f / (float) ++counts[label];
+                for (int j = 0, centerDisp = label * dimCount; j < dimCount; j++, centerDisp++, disp++) {
+                    centers[centerDisp] += learningRate * (batch[disp] - centers[centerDisp]);
+                }
+            }
+            numberOfIterations++;
+            double maxShift = 0.0;
+            for (int c = 0; c < numberOfClusters; c++) {
+                maxShift = Math.max(maxShift, squaredDistance(centers, c * dimCount, previousCenters, c * dimCount));
+            }
+            if (maxShift <= epsilonSquare) {
+                break;
+            }
+        }
+    }
+
+    private int[] randomIndexes(int count) {
+        final int[] result = new int[count];
+        if (count == n) {
+            for (int k = 0; k < count; k++) {
+                result[k] = k;
+            }
+        } else {
+            for (int k = 0; k < count; k++) {
+                result[k] = random.nextInt(n);
+            }
+        }
+        return result;
+    }
+
+    private double squaredDistance(float[] a, int aDisp, float[] b, int bDisp) {
+        double sum = 0.0;
+        for (int j = 0; j < dimCount; j++) {
+            final double d = a[aDisp + j] - b[bDisp + j];
+            sum += d * d;
+        }
+        return sum;
+    }
+}
@@ -241,6 +241,41 @@ public final class O2SMat {
         return toUMat(matrixToMlSamplesOrResponsesSMat(values, intResult));
     }
 
+    public static Mat interleavedToMlSamplesOrResponsesMat(
+            Matrix<? extends PArray> interleavedChannels,
+            boolean intResult) {
+        return toMat(interleavedToMlSamplesOrResponsesSMat(interleavedChannels, intResult));
+    }
+
+    public static UMat interleavedToMlSamplesOrResponsesUMat(
+            Matrix<? extends PArray> interleavedChannels,
+            boolean intResult) {
+        return toUMat(interleavedToMlSamplesOrResponsesSMat(interleavedChannels, intResult));
+    }
+
+    /**
+     * Returns 3-dimensional interleaved matrix (channels, x, y) with the same order of channels
+     * as in the ML samples, created by {@link #matrixToMlSamplesOrResponsesMat(SMat, boolean)}.
+     * The elements are not converted: it allows to convert large matrices to ML samples by blocks of rows
+     * by {@link #interleavedToMlSamplesOrResponsesMat(Matrix, boolean)}.
+     *
+     * @param values source matrix.
+     * @return interleaved channels of this matrix.
+     */
+    public static Matrix<? extends PArray> mlInterleavedChannels(SMat values) {
+        Objects.requireNonNull(values, "Null values");
+        if (!values.isInitialized()) {
+            throw new IllegalArgumentException("Not initialized values");
+        }
+        if (!values.isChannelsOrderCompatibleWithMultiMatrix()) {
+            final MultiMatrix2D multiMatrix = values.toMultiMatrix2D(true);
+            values = SMat.of(multiMatrix, SMat.ChannelOrder.ORDER_IN_PACKED_BYTE_BUFFER);
+            // numbersToMulticolumnMat suppose that the SNumbers was get from pixel-processing functions,
+            // working with the standard RGB order; so, ByteBuffer in packedByRows must use the same order
+        }
+        return values.toInterleavedBGR(true);
+    }
+
     public static Mat numbersToMulticolumnMat(SNumbers values) {
         Objects.requireNonNull(values, "Null values");
         if (!values.isInitialized()) {
@@ -327,18 +362,19 @@ public final class O2SMat {
     }
 
     private static SMat matrixToMlSamplesOrResponsesSMat(SMat values, boolean intResult) {
-        Objects.requireNonNull(values, "Null values");
-        if (!values.isInitialized()) {
-            throw new IllegalArgumentException("Not initialized values");
-        }
-        if (!values.isChannelsOrderCompatibleWithMultiMatrix()) {
-            final MultiMatrix2D multiMatrix = values.toMultiMatrix2D(true);
-            values = SMat.of(multiMatrix, SMat.ChannelOrder.ORDER_IN_PACKED_BYTE_BUFFER);
-            // numbersToMulticolumnMat suppose that the SNumbers was get from pixel-processing functions,
-            // working with the standard RGB order; so, ByteBuffer in packedByRows must use the same order
+        return interleavedToMlSamplesOrResponsesSMat(mlInterleavedChannels(values), intResult);
+    }
+
+    private static SMat interleavedToMlSamplesOrResponsesSMat(
+            Matrix<? extends PArray> interleavedChannels,
+            boolean intResult) {
+        Objects.requireNonNull(interleavedChannels, "Null interleaved channels");
+        if (interleavedChannels.dimCount() != 3) {
+            throw new IllegalArgumentException("Interleaved channels must be 3-dimensional: "
+                    + interleavedChannels);
         }
         final Matrix<? extends PArray> packed3d = Matrices.asPrecision(
-                values.toInterleavedBGR(true),
+                interleavedChannels,
                 intResult ? int.class : float.class);
         assert packed3d.dimCount() == 3;
         final Matrix<? extends PArray> packedByRows = Matrices.matrix(
@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.util;
+
+import net.algart.executors.api.data.SMat;
+import net.algart.executors.modules.cv.common.PyramidCache;
+import net.algart.executors.modules.opencv.util.enums.OInterpolation;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.bytedeco.opencv.opencv_core.UMat;
+
+import java.util.Objects;
+
+/**
+ * Reducing OpenCV matrices in the given number of times with caching results in {@link PyramidCache}.
+ * All executors, reducing the same source with the same scale and interpolation, share the cached level.
+ */
+public final class OPyramidLevels {
+    private static final PyramidCache.Handler<Mat> MAT_HANDLER = new PyramidCache.Handler<>() {
+        @Override
+        public long sizeInBytes(Mat value) {
+            return OTools.sizeOfInBytes(value);
+        }
+
+        @Override
+        public Mat copy(Mat value) {
+            return value.clone();
+        }
+
+        @Override
+        public void dispose(Mat value) {
+            value.close();
+        }
+    };
+
+    private static final PyramidCache.Handler<UMat> UMAT_HANDLER = new PyramidCache.Handler<>() {
+        @Override
+        public long sizeInBytes(UMat value) {
+            return OTools.sizeOfInBytes(value);
+        }
+
+        @Override
+        public UMat copy(UMat value) {
+            return value.clone();
+        }
+
+        @Override
+        public void dispose(UMat value) {
+            value.close();
+        }
+    };
+
+    private OPyramidLevels() {
+    }
+
+    /**
+     * Returns the object, identifying the data of the given matrix for {@link PyramidCache}, or <code>null</code>
+     * if the matrix is not initialized.
+     *
+     * @param mat some matrix.
+     * @return identity of its data or <code>null</code>.
+     */
+    public static Object sourceIdentity(SMat mat) {
+        return mat != null && mat.isInitialized() ? mat.getPointer() : null;
+    }
+
+    /**
+     * Reduces the source in <code>scale</code> times by <code>resize</code> function. If <code>sourceIdentity</code>
+     * is not <code>null</code>, the result is cached; the caller may modify or close the result in any case.
+     *
+     * @param source         source matrix.
+     * @param sourceIdentity identity of the source data (see {@link #sourceIdentity(SMat)}) or <code>null</code>.
+     * @param scale          reducing scale.
+     * @param interpolation  interpolation method.
+     * @return reduced matrix.
+     */
+    public static Mat reduce(Mat source, Object sourceIdentity, double scale, OInterpolation interpolation) {
+        Objects.requireNonNull(source, "Null source");
+        Objects.requireNonNull(interpolation, "Null interpolation");
+        return PyramidCache.getInstance().get(sourceIdentity, levelKey("Mat", source.type(), scale, interpolation), () -> {
+            final Mat result = new Mat();
+            final double fxy = 1.0 / scale;
+            try (Size size = new Size()) {
+                opencv_imgproc.resize(source, result, size, fxy, fxy, interpolation.code());
+            }
+            return result;
+        }, MAT_HANDLER);
+    }
+
+    public static UMat reduce(UMat source, Object sourceIdentity, double scale, OInterpolation interpolation) {
+        Objects.requireNonNull(source, "Null source");
+        Objects.requireNonNull(interpolation, "Null interpolation");
+        return PyramidCache.getInstance().get(sourceIdentity, levelKey("UMat", source.type(), scale, interpolation), () -> {
+            final UMat result = new UMat();
+            final double fxy = 1.0 / scale;
+            try (Size size = new Size()) {
+                opencv_imgproc.resize(source, result, size, fxy, fxy, interpolation.code());
+            }
+            return result;
+        }, UMAT_HANDLER);
+    }
+
+    private static String levelKey(String kind, int type, double scale, OInterpolation interpolation) {
+        return kind + "/" + type + "/" + scale + "/" + interpolation;
+        // - type is necessary: the same SMat can be converted to different Mat (for example, with packed bits)
+    }
+}
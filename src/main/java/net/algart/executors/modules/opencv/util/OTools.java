@@ -24,7 +24,6 @@
 
 package net.algart.executors.modules.opencv.util;
 
-import net.algart.arrays.Arrays;
 import net.algart.arrays.SizeMismatchException;
 import net.algart.arrays.TooLargeArrayException;
 import net.algart.executors.api.data.SMat;
@@ -52,15 +51,9 @@ public final class OTools {
 
     public static final String USE_GPU_PROPERTY_NAME = "net.algart.executors.modules.opencv.useGPU";
 
-    private static final boolean GPU_OPTIMIZATION_ENABLED =  Arrays.SystemSettings.getBooleanProperty(
-            USE_GPU_PROPERTY_NAME, true) && opencv_core.haveOpenCL();
-    // - Note: we check haveOpenCL(), not useOpenCL(): the last method can return varying results
-    // depending on the device status. See https://github.com/bytedeco/javacpp-presets/issues/659
-
-    private static final Scalar zeroScalar = new Scalar(0.0, 0.0, 0.0, 0.0);
-
     public static boolean isGPUOptimizationEnabled() {
-        return GPU_OPTIMIZATION_ENABLED;
+        return OpenCVInitialization.isGPUOptimizationEnabled();
+        // - probing OpenCL is performed in background; here we wait for it, if it is not finished yet
     }
 
     public static String openCVVersion() {
@@ -281,13 +274,13 @@ public final class OTools {
 
     public static Mat newCompatibleZeros(Mat mat) {
         try (final Size size = mat.size()) {
-            return new Mat(size, mat.type(), zeroScalar);
+            return new Mat(size, mat.type(), ZeroScalarHolder.ZERO_SCALAR);
         }
     }
 
     public static UMat newCompatibleZeros(UMat mat) {
         try (final Size size = mat.size()) {
-            return new UMat(size, mat.type(), zeroScalar);
+            return new UMat(size, mat.type(), ZeroScalarHolder.ZERO_SCALAR);
         }
     }
 
@@ -686,4 +679,9 @@ public final class OTools {
         return m.data().position(0).capacity(arraySize).asByteBuffer();
         // - note: m.asByteBuffer has absolutely another sense: it is a memory for storing Mat structure
     }
+
+    // Lazy creation: loading OpenCV natives should not be performed while initializing this class
+    private static class ZeroScalarHolder {
+        private static final Scalar ZERO_SCALAR = new Scalar(0.0, 0.0, 0.0, 0.0);
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.opencv.util;
+
+import net.algart.arrays.Arrays;
+import net.algart.executors.modules.cv.common.ThreadBudget;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgcodecs;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.global.opencv_ml;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.bytedeco.opencv.opencv_core.UMat;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * Background initialization of OpenCV: loading JavaCPP native libraries, probing OpenCL
+ * and (optionally) warming up OpenCL by several tiny operations, so that most popular kernels are compiled
+ * before the first real call.
+ *
+ * <p>The initialization is started by {@link #start()} (usually on loading the first OpenCV executor class)
+ * in a separate daemon thread and does not block the caller. Methods, which need its results,
+ * like {@link #isGPUOptimizationEnabled()}, wait for finishing the necessary phases.
+ * Warming up OpenCL kernels is performed only if the system property {@value #WARM_UP_KERNELS_PROPERTY_NAME}
+ * is set to <code>true</code>.</p>
+ */
+public final class OpenCVInitialization {
+    public static final String WARM_UP_KERNELS_PROPERTY_NAME =
+            "net.algart.executors.modules.opencv.warmUpKernels";
+
+    private static final boolean WARM_UP_KERNELS = Arrays.SystemSettings.getBooleanProperty(
+            WARM_UP_KERNELS_PROPERTY_NAME, false);
+    private static final int WARM_UP_MATRIX_SIZE = 64;
+
+    private static final System.Logger LOG = System.getLogger(OpenCVInitialization.class.getName());
+
+    private static final Object LOCK = new Object();
+    private static final Map<String, Long> PHASE_NANOS = new LinkedHashMap<>();
+    private static CompletableFuture<Boolean> gpuOptimizationEnabled = null;
+    private static CompletableFuture<Void> warmUp = null;
+
+    private OpenCVInitialization() {
+    }
+
+    /**
+     * Starts the initialization in a background thread, if it was not started yet.
+     */
+    public static void start() {
+        synchronized (LOCK) {
+            if (gpuOptimizationEnabled != null) {
+                return;
+            }
+            gpuOptimizationEnabled = new CompletableFuture<>();
+            warmUp = new CompletableFuture<>();
+        }
+        final Thread thread = new Thread(OpenCVInitialization::initialize, "OpenCV initialization");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns <code>true</code> if OpenCL (GPU) optimization is allowed by the system property
+     * {@value OTools#USE_GPU_PROPERTY_NAME} and OpenCL is available.
+     * Waits, if necessary, until OpenCL is probed.
+     *
+     * @return whether GPU optimization is enabled.
+     */
+    public static boolean isGPUOptimizationEnabled() {
+        start();
+        return join(gpuOptimizationEnabled);
+    }
+
+    /**
+     * Waits until all phases of the initialization, including the optional warming up, are finished.
+     */
+    public static void awaitWarmUp() {
+        start();
+        join(warmUp);
+    }
+
+    public static String phaseTimingsInfo() {
+        synchronized (LOCK) {
+            final StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, Long> e : PHASE_NANOS.entrySet()) {
+                sb.append(sb.isEmpty() ? "" : ", ")
+                        .append(String.format(Locale.US, "%s %.3f ms", e.getKey(), e.getValue() * 1e-6));
+            }
+            return sb.toString();
+        }
+    }
+
+    private static void initialize() {
+        try {
+            long t1 = System.nanoTime();
+            Stream.of(opencv_core.class, opencv_imgproc.class, opencv_imgcodecs.class, opencv_ml.class)
+                    .parallel()
+                    .forEach(Loader::load);
+            long t2 = System.nanoTime();
+            addPhase("loading natives", t2 - t1);
+            ThreadBudget.addTotalThreadsListener(opencv_core::setNumThreads);
+            // - OpenCV thread pool is global for the process: we size it by the total budget
+            // and account the threads, actually used by every executor, via ThreadBudget leases
+            final boolean enabled = Arrays.SystemSettings.getBooleanProperty(OTools.USE_GPU_PROPERTY_NAME, true)
+                    && opencv_core.haveOpenCL();
+            // - Note: we check haveOpenCL(), not useOpenCL(): the last method can return varying results
+            // depending on the device status. See https://github.com/bytedeco/javacpp-presets/issues/659
+            long t3 = System.nanoTime();
+            addPhase("probing OpenCL", t3 - t2);
+            gpuOptimizationEnabled.complete(enabled);
+            if (enabled && WARM_UP_KERNELS) {
+                warmUpKernels();
+                addPhase("warming up OpenCL kernels", System.nanoTime() - t3);
+            }
+            warmUp.complete(null);
+            LOG.log(System.Logger.Level.DEBUG, () -> "OpenCV initialized: " + phaseTimingsInfo());
+        } catch (Throwable e) {
+            gpuOptimizationEnabled.completeExceptionally(e);
+            warmUp.completeExceptionally(e);
+        }
+    }
+
+    // Tiny representative operations: OpenCL compiles the corresponding kernels at the first call
+    private static void warmUpKernels() {
+        for (int depth : new int[] {opencv_core.CV_8U, opencv_core.CV_32F}) {
+            try (Size size = new Size(WARM_UP_MATRIX_SIZE, WARM_UP_MATRIX_SIZE);
+                 Size kernelSize = new Size(5, 5);
+                 Size halfSize = new Size(WARM_UP_MATRIX_SIZE / 2, WARM_UP_MATRIX_SIZE / 2);
+                 UMat source = new UMat(size, opencv_core.CV_MAKE_TYPE(depth, 3));
+                 UMat mono = new UMat();
+                 UMat result = new UMat()) {
+                opencv_imgproc.cvtColor(source, mono, opencv_imgproc.COLOR_BGR2GRAY);
+                opencv_imgproc.GaussianBlur(mono, result, kernelSize, 0.0);
+                opencv_imgproc.blur(mono, result, kernelSize);
+                opencv_imgproc.resize(mono, result, halfSize);
+                opencv_imgproc.threshold(mono, result, 0.5, 1.0, opencv_imgproc.THRESH_BINARY);
+                try (UMat kernel = new UMat(kernelSize, opencv_core.CV_8U)) {
+                    opencv_imgproc.dilate(mono, result, kernel);
+                    opencv_imgproc.erode(mono, result, kernel);
+                }
+            }
+        }
+        opencv_core.finish();
+    }
+
+    private static void addPhase(String phase, long nanos) {
+        synchronized (LOCK) {
+            PHASE_NANOS.put(phase, nanos);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException r) {
+                throw r;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.labels;
+
+import java.util.Locale;
+import java.util.Random;
+
+// Run with "--add-modules jdk.incubator.vector" JVM option to compare scalar and vectorized calculators.
+public class LabelsVectorizationSpeed {
+    private static final int DIM_X = 2048;
+
+    private static int[] makeLabels(int numberOfPixels, int objectSize) {
+        final int[] labels = new int[numberOfPixels];
+        final int objectsPerRow = (DIM_X + objectSize - 1) / objectSize;
+        for (int k = 0; k < numberOfPixels; k++) {
+            final int x = k % DIM_X;
+            final int y = k / DIM_X;
+            final int objectX = x / objectSize;
+            final int objectY = y / objectSize;
+            labels[k] = (objectX + objectY) % 5 == 0 ? 0 : objectY * objectsPerRow + objectX + 1;
+            // - some objects are background
+        }
+        return labels;
+    }
+
+    private static Object[] makeChannels(Class<?> elementType, int numberOfChannels, int numberOfPixels) {
+        final Random rnd = new Random(157);
+        final Object[] result = new Object[numberOfChannels];
+        for (int c = 0; c < numberOfChannels; c++) {
+            if (elementType == byte.class) {
+                final byte[] channel = new byte[numberOfPixels];
+                rnd.nextBytes(channel);
+                result[c] = channel;
+            } else if (elementType == short.class) {
+                final short[] channel = new short[numberOfPixels];
+                for (int k = 0; k < channel.length; k++) {
+                    channel[k] = (short) rnd.nextInt();
+                }
+                result[c] = channel;
+            } else if (elementType == float.class) {
+                final float[] channel = new float[numberOfPixels];
+                for (int k = 0; k < channel.length; k++) {
+                    channel[k] = rnd.nextFloat();
+                }
+                result[c] = channel;
+            } else {
+                final double[] channel = new double[numberOfPixels];
+                for (int k = 0; k < channel.length; k++) {
+                    channel[k] = rnd.nextDouble();
+                }
+                result[c] = channel;
+            }
+        }
+        return result;
+    }
+
+    private static void checkEqual(String name, double[] expected, double[] actual) {
+        if (expected.length != actual.length) {
+            throw new AssertionError("Different length of " + name);
+        }
+        for (int k = 0; k < expected.length; k++) {
+            if (Math.abs(expected[k] - actual[k]) > 1e-9 * Math.max(1.0, Math.abs(expected[k]))) {
+                throw new AssertionError("Bug in " + name + "[" + k + "]: " + actual[k] + " != " + expected[k]);
+            }
+        }
+    }
+
+    private static double[] sums(int[] labels, Object[] channels, boolean squares, boolean vectorized) {
+        if (squares) {
+            try (CardinalitiesAndSumsOfSquaresCalculator calculator = vectorized ?
+                    CardinalitiesAndSumsOfSquaresCalculatorVectorized.getInstance(labels, channels) :
+                    CardinalitiesAndSumsOfSquaresCalculator.getInstance(labels, channels, false)) {
+                calculator.process();
+                return calculator.sumsOfSquares;
+            }
+        } else {
+            try (CardinalitiesAndSumsCalculator calculator = vectorized ?
+                    CardinalitiesAndSumsCalculatorVectorized.getInstance(labels, channels) :
+                    CardinalitiesAndSumsCalculator.getInstance(labels, channels, false)) {
+                calculator.process();
+                return calculator.sums;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.printf("Usage: %s numberOfPixels objectSize numberOfTests%n",
+                    LabelsVectorizationSpeed.class.getName());
+            return;
+        }
+        final int numberOfPixels = Integer.parseInt(args[0]);
+        final int objectSize = Integer.parseInt(args[1]);
+        final int numberOfTests = Integer.parseInt(args[2]);
+        System.out.printf("%s%n", LabelsVectorization.description());
+        if (!LabelsVectorization.isAvailable()) {
+            return;
+        }
+        final int[] labels = makeLabels(numberOfPixels, objectSize);
+        System.out.printf(Locale.US, "Average run length %.2f, vectorization is %s%n",
+                LabelsVectorization.averageRunLength(labels),
+                LabelsVectorization.isRecommended(labels, new byte[0]) ? "recommended" : "not recommended");
+        for (Class<?> elementType : new Class<?>[]{byte.class, short.class, float.class, double.class}) {
+            for (int numberOfChannels = 1; numberOfChannels <= 5; numberOfChannels++) {
+                final Object[] channels = makeChannels(elementType, numberOfChannels, numberOfPixels);
+                for (boolean squares : new boolean[]{false, true}) {
+                    double scalarTime = Double.POSITIVE_INFINITY;
+                    double vectorTime = Double.POSITIVE_INFINITY;
+                    for (int test = 1; test <= numberOfTests; test++) {
+                        long t1 = System.nanoTime();
+                        final double[] scalar = sums(labels, channels, squares, false);
+                        long t2 = System.nanoTime();
+                        final double[] vector = sums(labels, channels, squares, true);
+                        long t3 = System.nanoTime();
+                        checkEqual(squares ? "sumsOfSquares" : "sums", scalar, vector);
+                        scalarTime = Math.min(scalarTime, (t2 - t1) * 1e-6);
+                        vectorTime = Math.min(vectorTime, (t3 - t2) * 1e-6);
+                    }
+                    System.out.printf(Locale.US, "%-6s x %d channels, %-15s: scalar %8.3f ms, "
+                                    + "vectorized %8.3f ms, speedup %.2f (%.3f ns/pixel)%n",
+                            elementType, numberOfChannels, squares ? "sums of squares" : "sums",
+                            scalarTime, vectorTime, scalarTime / vectorTime, vectorTime * 1e6 / numberOfPixels);
+                }
+            }
+        }
+    }
+}
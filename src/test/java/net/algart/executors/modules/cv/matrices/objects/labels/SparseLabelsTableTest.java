@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.objects.labels;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class SparseLabelsTableTest {
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.printf("Usage: %s numberOfLabels maxLabel numberOfTests%n",
+                    SparseLabelsTableTest.class.getName());
+            return;
+        }
+        final int numberOfLabels = Integer.parseInt(args[0]);
+        final int maxLabel = Integer.parseInt(args[1]);
+        final int numberOfTests = Integer.parseInt(args[2]);
+        final Random rnd = new Random(157);
+        for (int test = 1; test <= numberOfTests; test++) {
+            final SparseLabelsTable table = new SparseLabelsTable();
+            final TreeMap<Integer, Integer> simple = new TreeMap<>();
+            long t1 = System.nanoTime();
+            for (int k = 0; k < numberOfLabels; k++) {
+                final int label = rnd.nextInt(maxLabel + 1);
+                table.put(label, k);
+                simple.put(label, k);
+            }
+            long t2 = System.nanoTime();
+            if (table.size() != simple.size()) {
+                throw new AssertionError("Bug in size: " + table.size() + " != " + simple.size());
+            }
+            simple.forEach((label, value) -> {
+                if (table.get(label, -1) != value) {
+                    throw new AssertionError("Bug in get(" + label + ")");
+                }
+            });
+            final int[] sortedKeys = table.sortedKeys();
+            int index = 0;
+            for (int label : simple.keySet()) {
+                if (sortedKeys[index++] != label) {
+                    throw new AssertionError("Bug in sortedKeys at " + (index - 1));
+                }
+            }
+            final int[] labels = new int[numberOfLabels * 4];
+            for (int k = 0; k < labels.length; k++) {
+                labels[k] = sortedKeys[rnd.nextInt(sortedKeys.length)];
+            }
+            long t3 = System.nanoTime();
+            final int[] distinct = SparseLabelsTable.distinctLabels(labels, 0);
+            long t4 = System.nanoTime();
+            final int[] simpleDistinct = java.util.Arrays.stream(labels).distinct().sorted().toArray();
+            if (!java.util.Arrays.equals(distinct, simpleDistinct)) {
+                throw new AssertionError("Bug in distinctLabels");
+            }
+            System.out.printf(Locale.US, "Test #%d: %s; filling %.3f ms, distinct labels (%d) %.3f ms%n",
+                    test, table, (t2 - t1) * 1e-6, distinct.length, (t4 - t3) * 1e-6);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-2026 Daniel Alievsky, AlgART Laboratory (http://algart.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.algart.executors.modules.cv.matrices.pixels;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+public class PixelsGatherScatterTest {
+    private static void time(String name, long t1, long t2, int n) {
+        System.out.printf(Locale.US, "%-40s %.3f ms, %.5f ns/pixel%n",
+                name + ":", (t2 - t1) * 1e-6, (t2 - t1) / (double) n);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.printf("Usage: %s numberOfPixels numberOfTests%n", PixelsGatherScatterTest.class.getName());
+            return;
+        }
+        final int n = Integer.parseInt(args[0]);
+        final int numberOfTests = Integer.parseInt(args[1]);
+        final Random rnd = new Random(157);
+        final boolean[] mask = new boolean[n];
+        final int[] labels = new int[n];
+        final byte[] bytes = new byte[n];
+        final float[] floats = new float[n];
+        for (int k = 0; k < n; k++) {
+            mask[k] = rnd.nextInt(3) == 0;
+            labels[k] = rnd.nextInt(100);
+            bytes[k] = (byte) rnd.nextInt();
+            floats[k] = rnd.nextFloat();
+        }
+        final Object[] channels = {bytes, bytes};
+        for (int test = 1; test <= numberOfTests; test++) {
+            System.out.printf("%nTest #%d%n", test);
+            long t1 = System.nanoTime();
+            final int[] indexes = PixelsGatherScatter.indexesOfNonZero(mask);
+            long t2 = System.nanoTime();
+            time("indexesOfNonZero", t1, t2, n);
+            int count = 0;
+            for (int k = 0; k < n; k++) {
+                if (mask[k]) {
+                    if (indexes[count++] != k) {
+                        throw new AssertionError("Bug in indexesOfNonZero at " + k);
+                    }
+                }
+            }
+            if (count != indexes.length) {
+                throw new AssertionError("Bug in indexesOfNonZero: " + count + " != " + indexes.length);
+            }
+
+            final int[] labelSet = {3, 17, 3, 99};
+            t1 = System.nanoTime();
+            final int[] labelIndexes = PixelsGatherScatter.indexesOfLabels(labels, labelSet);
+            t2 = System.nanoTime();
+            time("indexesOfLabels", t1, t2, n);
+            final int[] simpleLabelIndexes = java.util.stream.IntStream.range(0, n)
+                    .filter(k -> labels[k] == 3 || labels[k] == 17 || labels[k] == 99).toArray();
+            if (!Arrays.equals(labelIndexes, simpleLabelIndexes)) {
+                throw new AssertionError("Bug in indexesOfLabels");
+            }
+
+            final float[] gathered = new float[indexes.length * 3];
+            t1 = System.nanoTime();
+            PixelsGatherScatter.gatherFloats(gathered, 3, 1, channels, indexes, 1.0 / 255.0);
+            t2 = System.nanoTime();
+            time("gatherFloats (2 byte channels)", t1, t2, indexes.length);
+            for (int k = 0; k < indexes.length; k++) {
+                final float expected = (bytes[indexes[k]] & 0xFF) * (float) (1.0 / 255.0);
+                if (gathered[3 * k] != 0.0f || gathered[3 * k + 1] != expected || gathered[3 * k + 2] != expected) {
+                    throw new AssertionError("Bug in gatherFloats at " + k);
+                }
+            }
+
+            final float[] result = floats.clone();
+            t1 = System.nanoTime();
+            PixelsGatherScatter.scatterFloats(result, indexes, gathered, 3, 1, 255.0);
+            t2 = System.nanoTime();
+            time("scatterFloats", t1, t2, indexes.length);
+            for (int k = 0, j = 0; k < n; k++) {
+                final float expected = mask[k] ? gathered[3 * j++ + 1] * 255.0f : floats[k];
+                if (result[k] != expected) {
+                    throw new AssertionError("Bug in scatterFloats at " + k);
+                }
+            }
+
+            t1 = System.nanoTime();
+            final byte[] raw = (byte[]) PixelsGatherScatter.gatherRaw(channels, indexes);
+            t2 = System.nanoTime();
+            time("gatherRaw (2 byte channels)", t1, t2, indexes.length);
+            for (int k = 0; k < indexes.length; k++) {
+                if (raw[2 * k] != bytes[indexes[k]] || raw[2 * k + 1] != bytes[indexes[k]]) {
+                    throw new AssertionError("Bug in gatherRaw at " + k);
+                }
+            }
+        }
+    }
+}